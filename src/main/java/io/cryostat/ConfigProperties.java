@@ -52,6 +52,10 @@ public class ConfigProperties {
             "storage.metadata.prefix.event-templates";
     public static final String AWS_METADATA_PREFIX_UNIFIED_LOGS =
             "storage.metadata.prefix.unified-logs";
+    public static final String ARCHIVES_CATALOG_RECONCILE_PERIOD =
+            "storage.archives.catalog.reconcile-period";
+    public static final String ARCHIVES_CATALOG_RECONCILE_DELAY =
+            "storage.archives.catalog.reconcile-delay";
 
     public static final String DISCOVERY_IPV6_ENABLED = "cryostat.discovery.ipv6-enabled";
     public static final String DISCOVERY_IPV4_DNS_TRANSFORM_ENABLED =
@@ -59,25 +63,52 @@ public class ConfigProperties {
     public static final String CONTAINERS_POLL_PERIOD = "cryostat.discovery.containers.poll-period";
     public static final String CONTAINERS_REQUEST_TIMEOUT =
             "cryostat.discovery.containers.request-timeout";
+    public static final String CONTAINERS_INSPECT_CONCURRENCY =
+            "cryostat.discovery.containers.inspect-concurrency";
     public static final String DISCOVERY_PLUGINS_MAX_FAILURES =
             "cryostat.discovery.plugins.max-failures";
     public static final String DISCOVERY_PLUGINS_PING_PERIOD =
             "cryostat.discovery.plugins.ping-period";
     public static final String DISCOVERY_PLUGINS_MAX_BACKOFF_MULTIPLIER =
             "cryostat.discovery.plugins.max-backoff-multiplier";
-    public static final String DISCOVERY_PLUGINS_PING_WORKER_POOL_SIZE =
-            "cryostat.discovery.plugins.ping.worker-pool-size";
-    public static final String DISCOVERY_PLUGINS_PING_DELAY_MS =
-            "cryostat.discovery.plugins.ping.delay-ms";
+    public static final String DISCOVERY_PLUGINS_PING_MIN_CONCURRENCY =
+            "cryostat.discovery.plugins.ping.min-concurrency";
+    public static final String DISCOVERY_PLUGINS_PING_MAX_CONCURRENCY =
+            "cryostat.discovery.plugins.ping.max-concurrency";
+    public static final String DISCOVERY_PLUGINS_PING_JITTER =
+            "cryostat.discovery.plugins.ping.jitter";
     public static final String DISCOVERY_PLUGINS_PING_TIMEOUT_MS =
             "cryostat.discovery.plugins.ping.timeout-ms";
     public static final String DISCOVERY_PLUGINS_PING_STARTUP_GRACE_PERIOD_MS =
             "cryostat.discovery.plugins.ping.startup-grace-period-ms";
+    public static final String DISCOVERY_TREE_PUBLISH_PERIOD =
+            "cryostat.discovery.tree.publish-period";
+    public static final String DISCOVERY_TREE_HISTORY_SIZE =
+            "cryostat.discovery.tree.history-size";
+
+    public static final String AUDIT_EXPORT_BATCH_SIZE = "cryostat.audit.export.batch-size";
+    public static final String AUDIT_ASYNC_BATCH_SIZE = "cryostat.audit.async.batch-size";
+    public static final String AUDIT_ASYNC_QUEUE_CAPACITY = "cryostat.audit.async.queue-capacity";
+    public static final String AUDIT_ASYNC_FLUSH_INTERVAL = "cryostat.audit.async.flush-interval";
+    public static final String AUDIT_RETENTION = "cryostat.audit.retention";
+    public static final String AUDIT_PARTITIONS_MAINTENANCE_PERIOD =
+            "cryostat.audit.partitions.maintenance-period";
 
     public static final String CONNECTIONS_TTL = "cryostat.connections.ttl";
     public static final String CONNECTIONS_FAILED_BACKOFF = "cryostat.connections.failed-backoff";
     public static final String CONNECTIONS_FAILED_TIMEOUT = "cryostat.connections.failed-timeout";
     public static final String CONNECTIONS_UPLOAD_TIMEOUT = "cryostat.connections.upload-timeout";
+    public static final String CONNECTIONS_MAX_OPEN = "cryostat.connections.max-open";
+    public static final String CONNECTIONS_MAX_TASKS_PER_TARGET =
+            "cryostat.connections.max-tasks-per-target";
+    public static final String CONNECTIONS_MAX_ESTABLISHING =
+            "cryostat.connections.max-establishing";
+    public static final String CONNECTIONS_CIRCUIT_FAILURE_THRESHOLD =
+            "cryostat.connections.circuit-breaker.failure-threshold";
+    public static final String CONNECTIONS_CIRCUIT_OPEN_DURATION =
+            "cryostat.connections.circuit-breaker.open-duration";
+    public static final String CREDENTIALS_RESOLUTION_CACHE_MAX_SIZE =
+            "cryostat.credentials.resolution-cache.max-size";
 
     public static final String CONNECTIONS_HEALTH_TIMEOUT =
             "cryostat.services.health-check.timeout";
@@ -130,6 +161,12 @@ public class ConfigProperties {
     public static final String URI_RANGE = "cryostat.target.uri-range";
 
     public static final String AGENT_TLS_REQUIRED = "cryostat.agent.tls.required";
+    public static final String AGENT_CLIENT_CONNECTION_POOL_SIZE =
+            "cryostat.agent.client.connection-pool-size";
+    public static final String AGENT_CLIENT_CONNECTION_TTL = "cryostat.agent.client.connection-ttl";
+    public static final String AGENT_CLIENT_HTTP2 = "cryostat.agent.client.http2";
+    public static final String AGENT_CLIENT_IDLE_TIMEOUT = "cryostat.agent.client.idle-timeout";
+    public static final String AGENT_CLIENT_MAX_CLIENTS = "cryostat.agent.client.max-clients";
 
     public static final String DECLARATIVE_CONFIG_RESOLVE_SYMLINKS =
             "cryostat.declarative-configuration.symlinks.resolve";
@@ -20,6 +20,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Function;
 
 import io.cryostat.asyncprofiler.AsyncProfiler.AgentConnectedTask;
 import io.cryostat.asyncprofiler.AsyncProfiler.AsyncProfilerEvent;
@@ -105,7 +106,7 @@ public class AsyncProfilerHelper {
     }
 
     public Uni<AsyncProfilerStatus> getStatus(Target target) {
-        return executeUni(target, AgentConnection::asyncProfilerStatus);
+        return executeAsync(target, AgentConnection::asyncProfilerStatusUni);
     }
 
     public Uni<Void> deleteProfile(Target target, String profileId) {
@@ -129,7 +130,7 @@ public class AsyncProfilerHelper {
     }
 
     public Uni<List<AsyncProfile>> getProfiles(Target target) {
-        return executeUni(target, AgentConnection::listAsyncProfiles);
+        return executeAsync(target, AgentConnection::listAsyncProfilesUni);
     }
 
     public InputStream getAsyncProfile(Target target, String id) {
@@ -150,6 +151,24 @@ public class AsyncProfilerHelper {
                 });
     }
 
+    /**
+     * Execute a task which does not block. Callbacks on the returned {@link Uni} may be run on an
+     * event loop thread, so this is only suitable where these do not use the database.
+     */
+    private <T> Uni<T> executeAsync(Target target, Function<AgentConnection, Uni<T>> task) {
+        if (!target.isAgent()) {
+            throw new BadRequestException();
+        }
+        return tcm.executeConnectedTaskAsync(
+                target,
+                conn -> {
+                    if (!(conn instanceof AgentConnection)) {
+                        throw new InternalServerErrorException();
+                    }
+                    return task.apply((AgentConnection) conn);
+                });
+    }
+
     private <T> T execute(Target target, AgentConnectedTask<T> task) {
         if (!target.isAgent()) {
             throw new BadRequestException();
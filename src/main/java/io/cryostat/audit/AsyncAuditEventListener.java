@@ -0,0 +1,313 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.audit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.quarkus.arc.Arc;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.envers.RevisionType;
+import org.hibernate.envers.boot.internal.EnversService;
+import org.hibernate.envers.configuration.Configuration;
+import org.hibernate.envers.internal.entities.EntityConfiguration;
+import org.hibernate.envers.strategy.ValidityAuditStrategy;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+
+/**
+ * Replacement for the Envers entity event listeners used when asynchronous auditing is enabled.
+ * Rather than writing audit rows inside the business transaction, each change to an audited entity
+ * is mapped to its audit row data using the Envers property mappers, and the changes made by a
+ * transaction are collected into a single {@link PendingRevision}. Once the transaction commits
+ * that revision is handed to the {@link AsyncAuditWriter}, which persists it in the background.
+ * Revisions of transactions which roll back are discarded.
+ *
+ * <p>Audited collections are not supported in this mode. Cryostat's audited entities only have
+ * {@code @NotAudited} collections.
+ */
+class AsyncAuditEventListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EnversService enversService;
+    private final Map<Transaction, PendingRevision> pending = new ConcurrentHashMap<>();
+    private volatile AuditProperties properties;
+    private volatile AsyncAuditWriter writer;
+
+    AsyncAuditEventListener(EnversService enversService) {
+        this.enversService = enversService;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        capture(
+                event.getSession(),
+                event.getPersister(),
+                event.getId(),
+                RevisionType.ADD,
+                event.getState(),
+                null);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        capture(
+                event.getSession(),
+                event.getPersister(),
+                event.getId(),
+                RevisionType.MOD,
+                event.getState(),
+                event.getOldState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object[] state =
+                enversService.getConfig().isStoreDataAtDelete() ? event.getDeletedState() : null;
+        capture(
+                event.getSession(),
+                event.getPersister(),
+                event.getId(),
+                RevisionType.DEL,
+                state,
+                state);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void capture(
+            EventSource session,
+            EntityPersister persister,
+            Object id,
+            RevisionType revisionType,
+            Object[] state,
+            Object[] oldState) {
+        String entityName = persister.getEntityName();
+        if (!enversService.getEntitiesConfigurations().isVersioned(entityName)) {
+            return;
+        }
+        EntityConfiguration entityConfig =
+                enversService.getEntitiesConfigurations().get(entityName);
+
+        // map the entity state now, while the session is open, and from deep copies so that later
+        // modifications of the (possibly still managed) entity do not leak into this revision
+        Map<String, Object> data = new HashMap<>();
+        if (state != null) {
+            entityConfig
+                    .getPropertyMapper()
+                    .map(
+                            session,
+                            data,
+                            persister.getPropertyNames(),
+                            deepCopy(session, persister, state),
+                            deepCopy(session, persister, oldState));
+        }
+        Map<String, Object> originalId = new HashMap<>();
+        entityConfig.getIdMapper().mapToMapFromId(session, originalId, id);
+
+        String auditEntityName = enversService.getConfig().getAuditEntityName(entityName);
+        AbstractEntityPersister auditPersister =
+                (AbstractEntityPersister)
+                        session.getFactory()
+                                .getMappingMetamodel()
+                                .getEntityDescriptor(auditEntityName);
+        AuditSnapshot snapshot =
+                new AuditSnapshot(
+                        entityName,
+                        auditEntityName,
+                        auditPersister.getTableName(),
+                        ((AbstractEntityPersister) persister).getIdentifierColumnNames()[0],
+                        id,
+                        revisionType,
+                        data,
+                        originalId);
+        revisionFor(session).add(snapshot);
+    }
+
+    private PendingRevision revisionFor(EventSource session) {
+        Transaction tx = session.accessTransaction();
+        return pending.computeIfAbsent(
+                tx,
+                t -> {
+                    PendingRevision revision = new PendingRevision(properties());
+                    session.getActionQueue()
+                            .registerProcess(
+                                    (boolean success, SharedSessionContractImplementor s) -> {
+                                        pending.remove(t);
+                                        if (success && !revision.isEmpty()) {
+                                            revision.commit();
+                                            writer().enqueue(revision);
+                                        }
+                                    });
+                    return revision;
+                });
+    }
+
+    private AuditProperties properties() {
+        AuditProperties p = properties;
+        if (p == null) {
+            Configuration config = enversService.getConfig();
+            boolean validity = config.getAuditStrategy() instanceof ValidityAuditStrategy;
+            p =
+                    new AuditProperties(
+                            config.getOriginalIdPropertyName(),
+                            config.getRevisionFieldName(),
+                            config.getRevisionTypePropertyName(),
+                            validity ? config.getRevisionEndFieldName() : null,
+                            validity && config.isRevisionEndTimestampEnabled()
+                                    ? config.getRevisionEndTimestampFieldName()
+                                    : null);
+            properties = p;
+        }
+        return p;
+    }
+
+    private AsyncAuditWriter writer() {
+        AsyncAuditWriter w = writer;
+        if (w == null) {
+            w = Arc.container().instance(AsyncAuditWriter.class).get();
+            writer = w;
+        }
+        return w;
+    }
+
+    private static Object[] deepCopy(
+            EventSource session, EntityPersister persister, Object[] state) {
+        if (state == null) {
+            return null;
+        }
+        Type[] types = persister.getPropertyTypes();
+        Object[] copy = new Object[state.length];
+        for (int i = 0; i < state.length; i++) {
+            copy[i] = types[i].deepCopy(state[i], session.getFactory());
+        }
+        return copy;
+    }
+
+    /**
+     * The Envers property and column names needed to complete audit rows. The revision end names
+     * are null unless the validity audit strategy is in use, and the revision end timestamp name is
+     * null unless that strategy is also configured to store it.
+     */
+    record AuditProperties(
+            String originalId,
+            String revision,
+            String revisionType,
+            String revisionEnd,
+            String revisionEndTimestamp) {}
+
+    /**
+     * The audit row data for one audited entity change. {@code data} holds the audited properties
+     * and {@code originalId} the identifier, keyed as Envers keys its own audit entity maps.
+     */
+    record AuditSnapshot(
+            String entityName,
+            String auditEntityName,
+            String auditTable,
+            String idColumn,
+            Object id,
+            RevisionType revisionType,
+            Map<String, Object> data,
+            Map<String, Object> originalId) {
+
+        AuditSnapshot withRevisionType(RevisionType type) {
+            return new AuditSnapshot(
+                    entityName, auditEntityName, auditTable, idColumn, id, type, data, originalId);
+        }
+    }
+
+    /**
+     * The audited changes made by a single transaction, which become a single revision. As with
+     * Envers, several changes to the same entity within one transaction are merged into one audit
+     * row.
+     */
+    static class PendingRevision {
+        private final AuditProperties properties;
+        private final RevisionInfo revisionInfo = new RevisionInfo();
+        private final Map<String, AuditSnapshot> snapshots = new LinkedHashMap<>();
+
+        PendingRevision(AuditProperties properties) {
+            this.properties = properties;
+            // resolve the user on the thread performing the change, as Envers would
+            new RevisionInfoListener().newRevision(revisionInfo);
+        }
+
+        AuditProperties properties() {
+            return properties;
+        }
+
+        RevisionInfo revisionInfo() {
+            return revisionInfo;
+        }
+
+        synchronized List<AuditSnapshot> snapshots() {
+            return new ArrayList<>(snapshots.values());
+        }
+
+        synchronized boolean isEmpty() {
+            return snapshots.isEmpty();
+        }
+
+        void commit() {
+            revisionInfo.setTimestamp(System.currentTimeMillis());
+        }
+
+        synchronized void add(AuditSnapshot snapshot) {
+            String key = snapshot.entityName() + "#" + Objects.toString(snapshot.id());
+            AuditSnapshot previous = snapshots.get(key);
+            if (previous == null) {
+                snapshots.put(key, snapshot);
+                return;
+            }
+            switch (previous.revisionType()) {
+                case ADD -> {
+                    if (snapshot.revisionType() == RevisionType.DEL) {
+                        // created and deleted within the same transaction, so there is nothing to
+                        // record
+                        snapshots.remove(key);
+                    } else {
+                        snapshots.put(key, snapshot.withRevisionType(RevisionType.ADD));
+                    }
+                }
+                case DEL -> {
+                    if (snapshot.revisionType() == RevisionType.ADD) {
+                        snapshots.put(key, snapshot.withRevisionType(RevisionType.MOD));
+                    } else {
+                        snapshots.put(key, snapshot);
+                    }
+                }
+                default -> snapshots.put(key, snapshot);
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.audit;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.audit.AsyncAuditEventListener.AuditProperties;
+import io.cryostat.audit.AsyncAuditEventListener.AuditSnapshot;
+import io.cryostat.audit.AsyncAuditEventListener.PendingRevision;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.Reception;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+import org.hibernate.envers.RevisionType;
+import org.jboss.logging.Logger;
+
+/**
+ * Background writer for asynchronous auditing. Revisions captured by the {@link
+ * AsyncAuditEventListener} from committed transactions are queued here and persisted in batches,
+ * each batch in its own transaction with JDBC batching enabled, so that audit writes are taken off
+ * the business transactions' hot path. The queue is bounded: if the writer falls far enough behind
+ * then committing transactions block until there is room, rather than memory growing without
+ * limit. On shutdown the queue is drained before the datasource is closed.
+ */
+@ApplicationScoped
+public class AsyncAuditWriter {
+
+    static final String QUEUE_DEPTH_METRIC = "cryostat.audit.async.queue.depth";
+    static final String WRITTEN_METRIC = "cryostat.audit.async.revisions.written";
+    static final String DROPPED_METRIC = "cryostat.audit.async.revisions.dropped";
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    @Inject EntityManager em;
+    @Inject MeterRegistry meterRegistry;
+    @Inject Logger logger;
+
+    @ConfigProperty(name = ConfigProperties.AUDIT_ASYNC_BATCH_SIZE)
+    int batchSize;
+
+    @ConfigProperty(name = ConfigProperties.AUDIT_ASYNC_QUEUE_CAPACITY)
+    int queueCapacity;
+
+    @ConfigProperty(name = ConfigProperties.AUDIT_ASYNC_FLUSH_INTERVAL)
+    Duration flushInterval;
+
+    private BlockingQueue<PendingRevision> queue;
+    private Counter written;
+    private Counter dropped;
+    private Thread worker;
+    private volatile boolean running;
+    private boolean stopped;
+
+    @PostConstruct
+    void init() {
+        queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        meterRegistry.gaugeCollectionSize(QUEUE_DEPTH_METRIC, Tags.empty(), queue);
+        written = meterRegistry.counter(WRITTEN_METRIC);
+        dropped = meterRegistry.counter(DROPPED_METRIC);
+    }
+
+    void onStop(@Observes(notifyObserver = Reception.IF_EXISTS) ShutdownEvent evt) {
+        Thread w;
+        synchronized (this) {
+            stopped = true;
+            running = false;
+            w = worker;
+        }
+        if (w == null) {
+            return;
+        }
+        try {
+            w.join(flushInterval.toMillis() * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // write out anything the worker did not get to, so that no committed revision is lost on
+        // an orderly shutdown
+        List<PendingRevision> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            write(remaining.subList(i, Math.min(remaining.size(), i + batchSize)));
+        }
+        logger.debugv("Flushed {0} queued audit revisions on shutdown", remaining.size());
+    }
+
+    /**
+     * Queue a committed transaction's revision for writing, blocking while the queue is full. If
+     * the writer has already been shut down then the revision is written immediately instead.
+     */
+    void enqueue(PendingRevision revision) {
+        if (!ensureStarted()) {
+            write(List.of(revision));
+            return;
+        }
+        try {
+            queue.put(revision);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write(List.of(revision));
+        }
+    }
+
+    private synchronized boolean ensureStarted() {
+        if (stopped) {
+            return false;
+        }
+        if (worker == null) {
+            running = true;
+            worker = Thread.ofPlatform().name("audit-writer").daemon().start(this::run);
+        }
+        return true;
+    }
+
+    private void run() {
+        List<PendingRevision> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingRevision first =
+                        queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingRevision> revisions) {
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            try {
+                QuarkusTransaction.requiringNew().run(() -> persist(revisions));
+                written.increment(revisions.size());
+                return;
+            } catch (Exception e) {
+                logger.warnv(
+                        e,
+                        "Failed to write {0} audit revisions (attempt {1}/{2})",
+                        revisions.size(),
+                        attempt,
+                        MAX_WRITE_ATTEMPTS);
+            }
+        }
+        logger.errorv("Dropping {0} audit revisions after repeated failures", revisions.size());
+        dropped.increment(revisions.size());
+    }
+
+    private void persist(List<PendingRevision> revisions) {
+        Session session = em.unwrap(Session.class);
+        session.setJdbcBatchSize(batchSize);
+
+        // revisions in order so that revision numbers follow commit order. Each revision is
+        // flushed on its own since its audit rows take their REVTSTMP from its REVINFO row, which
+        // must be inserted just before them (see the V4.4.6 migration). Within a revision the
+        // audit rows are grouped by table so that consecutive inserts can be batched together
+        List<AuditRow> rows = new ArrayList<>();
+        for (PendingRevision revision : revisions) {
+            RevisionInfo revisionInfo = copyOf(revision.revisionInfo());
+            session.persist(revisionInfo);
+            List<AuditRow> revisionRows = new ArrayList<>();
+            for (AuditSnapshot snapshot : revision.snapshots()) {
+                revisionRows.add(new AuditRow(revision.properties(), revisionInfo, snapshot));
+            }
+            revisionRows.sort(Comparator.comparing(r -> r.snapshot().auditEntityName()));
+            for (AuditRow row : revisionRows) {
+                session.persist(row.snapshot().auditEntityName(), row.toAuditEntity());
+            }
+            session.flush();
+            rows.addAll(revisionRows);
+        }
+
+        // with the validity audit strategy, close the previous revision of each modified or
+        // deleted entity. Statements are grouped by table and run in revision order, so that an
+        // entity changed more than once within this batch ends up with only its latest row open
+        Map<String, List<AuditRow>> validityUpdates = new LinkedHashMap<>();
+        rows.stream()
+                .filter(r -> r.properties().revisionEnd() != null)
+                .filter(r -> r.snapshot().revisionType() != RevisionType.ADD)
+                .sorted(Comparator.comparingInt(r -> r.revisionInfo().getId()))
+                .forEach(
+                        r ->
+                                validityUpdates
+                                        .computeIfAbsent(
+                                                r.snapshot().auditTable(), k -> new ArrayList<>())
+                                        .add(r));
+        if (validityUpdates.isEmpty()) {
+            return;
+        }
+        session.doWork(
+                connection -> {
+                    for (List<AuditRow> updates : validityUpdates.values()) {
+                        AuditRow head = updates.get(0);
+                        try (PreparedStatement stmt =
+                                connection.prepareStatement(head.revisionEndSql())) {
+                            for (AuditRow row : updates) {
+                                row.bindRevisionEnd(stmt);
+                                stmt.addBatch();
+                            }
+                            stmt.executeBatch();
+                        }
+                    }
+                });
+    }
+
+    private static RevisionInfo copyOf(RevisionInfo revisionInfo) {
+        // a fresh instance for each write attempt, since a failed attempt may have assigned an ID
+        RevisionInfo copy = new RevisionInfo();
+        copy.setTimestamp(revisionInfo.getTimestamp());
+        copy.setUsername(revisionInfo.getUsername());
+        return copy;
+    }
+
+    private record AuditRow(
+            AuditProperties properties, RevisionInfo revisionInfo, AuditSnapshot snapshot) {
+
+        Map<String, Object> toAuditEntity() {
+            Map<String, Object> originalId = new HashMap<>(snapshot.originalId());
+            originalId.put(properties.revision(), revisionInfo);
+            Map<String, Object> entity = new HashMap<>(snapshot.data());
+            entity.put(properties.originalId(), originalId);
+            entity.put(properties.revisionType(), snapshot.revisionType());
+            return entity;
+        }
+
+        String revisionEndSql() {
+            String set = properties.revisionEnd() + " = ?";
+            if (properties.revisionEndTimestamp() != null) {
+                set += ", " + properties.revisionEndTimestamp() + " = ?";
+            }
+            return String.format(
+                    "UPDATE %s SET %s WHERE %s = ? AND %s < ? AND %s IS NULL",
+                    snapshot.auditTable(),
+                    set,
+                    snapshot.idColumn(),
+                    properties.revision(),
+                    properties.revisionEnd());
+        }
+
+        void bindRevisionEnd(PreparedStatement stmt) throws SQLException {
+            int i = 1;
+            stmt.setInt(i++, revisionInfo.getId());
+            if (properties.revisionEndTimestamp() != null) {
+                stmt.setLong(i++, revisionInfo.getTimestamp());
+            }
+            stmt.setObject(i++, snapshot.id());
+            stmt.setInt(i, revisionInfo.getId());
+        }
+    }
+}
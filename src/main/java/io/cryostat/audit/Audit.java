@@ -15,6 +15,8 @@
  */
 package io.cryostat.audit;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -22,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
+import io.cryostat.ConfigProperties;
 import io.cryostat.asyncprofiler.AsyncProfilerRecording;
 import io.cryostat.credentials.Credential;
 import io.cryostat.diagnostic.GarbageCollection;
@@ -37,8 +40,12 @@ import io.cryostat.recordings.ArchivedRecordingInfo;
 import io.cryostat.rules.Rule;
 import io.cryostat.targets.Target;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.ws.rs.BadRequestException;
@@ -50,7 +57,9 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.hibernate.envers.AuditReader;
 import org.hibernate.envers.AuditReaderFactory;
 import org.hibernate.envers.RevisionType;
@@ -79,10 +88,15 @@ public class Audit {
         AsyncProfilerRecording.class
     };
 
+    public static final String NDJSON = "application/x-ndjson";
+
     @Inject EntityManager em;
     @Inject ObjectMapper mapper;
     @Inject Logger logger;
 
+    @ConfigProperty(name = ConfigProperties.AUDIT_EXPORT_BATCH_SIZE)
+    int exportBatchSize;
+
     @GET
     @Path("targets/{jvmId}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -168,7 +182,7 @@ public class Audit {
             } else {
                 child.target = null;
             }
-            parent.children.add(child);
+            parent.addChild(child);
             parent = child;
         }
 
@@ -272,13 +286,8 @@ public class Audit {
             @SuppressWarnings("unchecked")
             List<Object[]> results = dataQuery.getResultList();
 
-            List<RevisionSummary> revisions = new ArrayList<>();
-            for (Object[] row : results) {
-                long rev = ((Number) row[0]).longValue();
-                long revtstmp = ((Number) row[1]).longValue();
-                String username = row[2] != null ? (String) row[2] : null;
-                revisions.add(new RevisionSummary(rev, revtstmp, username));
-            }
+            List<RevisionSummary> revisions =
+                    results.stream().map(Audit::toRevisionSummary).toList();
 
             return new RevisionsResponse(revisions, totalCount);
         } catch (IllegalStateException e) {
@@ -289,9 +298,11 @@ public class Audit {
 
     @GET
     @Path("export")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, NDJSON})
     public Response exportRevisions(
-            @QueryParam("startTime") Long startTime, @QueryParam("endTime") Long endTime) {
+            @QueryParam("startTime") Long startTime,
+            @QueryParam("endTime") Long endTime,
+            @QueryParam("format") @DefaultValue("json") String format) {
         if (startTime == null) {
             throw new BadRequestException("startTime query parameter is required");
         }
@@ -301,36 +312,86 @@ public class Audit {
         if (endTime < startTime) {
             throw new BadRequestException("End time must be >= start time");
         }
+        boolean ndjson;
+        switch (format) {
+            case "json" -> ndjson = false;
+            case "ndjson" -> ndjson = true;
+            default -> throw new BadRequestException("format must be one of: json, ndjson");
+        }
 
         try {
-            var dataQuery = em.createNamedQuery("RevisionInfo.findByTimeRange");
-            dataQuery.setParameter("startTime", startTime);
-            dataQuery.setParameter("endTime", endTime);
-
-            @SuppressWarnings("unchecked")
-            List<Object[]> results = dataQuery.getResultList();
+            // check availability up front, since once the response body starts streaming the status
+            // can no longer be changed
+            AuditReaderFactory.get(em);
+        } catch (IllegalStateException e) {
+            logger.debug("Audit service not available", e);
+            throw new NotFoundException();
+        }
 
-            List<RevisionDetail> revisionDetails = new ArrayList<>();
-            AuditReader auditReader = AuditReaderFactory.get(em);
+        StreamingOutput body = out -> writeRevisions(out, startTime, endTime, ndjson);
+        String filename =
+                String.format(
+                        "audit-export-%d-%d.%s", startTime, endTime, ndjson ? "ndjson" : "json");
+        return Response.ok(body, ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
+                .build();
+    }
 
-            for (Object[] row : results) {
-                long rev = ((Number) row[0]).longValue();
-                RevisionDetail detail = getRevisionDetailInternal(auditReader, rev);
-                if (detail != null) {
-                    revisionDetails.add(detail);
+    // Revisions are read newest first in keyset-paginated batches, each in its own short
+    // transaction, and written out as they are loaded so that memory use is bounded by the batch
+    // size rather than by the width of the requested time range.
+    private void writeRevisions(OutputStream out, long startTime, long endTime, boolean ndjson)
+            throws IOException {
+        ObjectWriter writer = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (ndjson) {
+            writer = writer.withRootValueSeparator("\n");
+        }
+        try (SequenceWriter sequence =
+                ndjson ? writer.writeValues(out) : writer.writeValuesAsArray(out)) {
+            long cursor = Long.MAX_VALUE;
+            while (true) {
+                long before = cursor;
+                List<RevisionDetail> batch =
+                        QuarkusTransaction.requiringNew()
+                                .call(
+                                        () -> {
+                                            AuditReader auditReader = AuditReaderFactory.get(em);
+                                            return loadRevisionDetails(
+                                                    auditReader,
+                                                    findRevisions(startTime, endTime, before));
+                                        });
+                if (batch.isEmpty()) {
+                    break;
                 }
+                sequence.writeAll(batch);
+                sequence.flush();
+                if (batch.size() < exportBatchSize) {
+                    break;
+                }
+                cursor = batch.get(batch.size() - 1).rev();
             }
-
-            String filename = String.format("audit-export-%d-%d.json", startTime, endTime);
-            return Response.ok(revisionDetails)
-                    .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
-                    .build();
-        } catch (IllegalStateException e) {
-            logger.debug("Audit service not available", e);
-            throw new NotFoundException();
         }
     }
 
+    private List<RevisionSummary> findRevisions(long startTime, long endTime, long before) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> results =
+                em.createNamedQuery("RevisionInfo.findByTimeRangeBefore")
+                        .setParameter("startTime", startTime)
+                        .setParameter("endTime", endTime)
+                        .setParameter("before", before)
+                        .setMaxResults(exportBatchSize)
+                        .getResultList();
+        return results.stream().map(Audit::toRevisionSummary).toList();
+    }
+
+    private static RevisionSummary toRevisionSummary(Object[] row) {
+        long rev = ((Number) row[0]).longValue();
+        long revtstmp = ((Number) row[1]).longValue();
+        String username = row[2] != null ? (String) row[2] : null;
+        return new RevisionSummary(rev, revtstmp, username);
+    }
+
     @GET
     @Path("revisions/{rev}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -360,64 +421,82 @@ public class Audit {
             throw new NotFoundException("Revision not found");
         }
 
-        Map<String, List<Object>> entitiesByType = new HashMap<>();
+        var summary =
+                new RevisionSummary(
+                        revisionInfo.getId(),
+                        revisionInfo.getTimestamp(),
+                        revisionInfo.getUsername());
+        return loadRevisionDetails(auditReader, List.of(summary)).get(0);
+    }
+
+    // Load the audited entities of all of the given revisions with one query per audited entity
+    // type, rather than one query per entity type per revision.
+    private List<RevisionDetail> loadRevisionDetails(
+            AuditReader auditReader, List<RevisionSummary> revisions) {
+        if (revisions.isEmpty()) {
+            return List.of();
+        }
+        Integer[] revs = revisions.stream().map(r -> (int) r.rev()).toArray(Integer[]::new);
+
+        Map<Long, Map<String, List<Object>>> entitiesByRevision = new HashMap<>();
         for (Class<?> entityClass : AUDITED_CLASSES) {
             @SuppressWarnings("unchecked")
             List<Object> results =
                     auditReader
                             .createQuery()
                             .forRevisionsOfEntity(entityClass, false, true)
-                            .add(AuditEntity.revisionNumber().eq(rev))
+                            .add(AuditEntity.revisionNumber().in(revs))
                             .getResultList();
 
-            if (!results.isEmpty()) {
-                // Convert entities to Maps to avoid LazyInitializationException
-                // when serializing entities with @NotAudited lazy relationships
-                List<Object> simplifiedEntities = new ArrayList<>();
-                for (Object result : results) {
-                    Object entity = null;
-                    try {
-                        Object[] resultArray = (Object[]) result;
-                        RevisionType revisionType = (RevisionType) resultArray[2];
-                        entity = resultArray[0];
-                        if (entity == null) {
-                            continue;
-                        }
-
-                        Map<String, Object> entityMap = new HashMap<>();
-                        entityMap.put("revtype", revisionType.getRepresentation());
-                        if (RevisionType.DEL.equals(revisionType)) {
-                            entityMap.put("id", ((PanacheEntity) entity).id);
-                        } else {
-                            @SuppressWarnings("unchecked")
-                            Map<String, Object> converted =
-                                    mapper.convertValue(entity, LinkedHashMap.class);
-                            entityMap.putAll(converted);
-                        }
-                        simplifiedEntities.add(entityMap);
-                    } catch (IllegalArgumentException e) {
-                        logger.debugv(
-                                e,
-                                "Failed to convert entity {0} to map, skipping",
-                                entity != null ? entity.getClass().getSimpleName() : "unknown");
-                    } catch (ClassCastException e) {
-                        logger.debugv(
-                                e,
-                                "Failed to extract revision type for entity {0}, skipping",
-                                entityClass.getSimpleName());
+            for (Object result : results) {
+                Object entity = null;
+                try {
+                    // Convert entities to Maps to avoid LazyInitializationException
+                    // when serializing entities with @NotAudited lazy relationships
+                    Object[] resultArray = (Object[]) result;
+                    entity = resultArray[0];
+                    RevisionInfo revisionInfo = (RevisionInfo) resultArray[1];
+                    RevisionType revisionType = (RevisionType) resultArray[2];
+                    if (entity == null) {
+                        continue;
                     }
-                }
-                if (!simplifiedEntities.isEmpty()) {
-                    entitiesByType.putIfAbsent(entityClass.getSimpleName(), new ArrayList<>());
-                    entitiesByType.get(entityClass.getSimpleName()).addAll(simplifiedEntities);
+
+                    Map<String, Object> entityMap = new HashMap<>();
+                    entityMap.put("revtype", revisionType.getRepresentation());
+                    if (RevisionType.DEL.equals(revisionType)) {
+                        entityMap.put("id", ((PanacheEntity) entity).id);
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> converted =
+                                mapper.convertValue(entity, LinkedHashMap.class);
+                        entityMap.putAll(converted);
+                    }
+                    entitiesByRevision
+                            .computeIfAbsent((long) revisionInfo.getId(), k -> new HashMap<>())
+                            .computeIfAbsent(entityClass.getSimpleName(), k -> new ArrayList<>())
+                            .add(entityMap);
+                } catch (IllegalArgumentException e) {
+                    logger.debugv(
+                            e,
+                            "Failed to convert entity {0} to map, skipping",
+                            entity != null ? entity.getClass().getSimpleName() : "unknown");
+                } catch (ClassCastException e) {
+                    logger.debugv(
+                            e,
+                            "Failed to extract revision type for entity {0}, skipping",
+                            entityClass.getSimpleName());
                 }
             }
         }
 
-        return new RevisionDetail(
-                revisionInfo.getId(),
-                revisionInfo.getTimestamp(),
-                revisionInfo.getUsername(),
-                entitiesByType);
+        return revisions.stream()
+                .map(
+                        r ->
+                                new RevisionDetail(
+                                        r.rev(),
+                                        r.revtstmp(),
+                                        r.username(),
+                                        entitiesByRevision.getOrDefault(r.rev(), Map.of())))
+                .toList();
     }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.audit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.cryostat.ConfigProperties;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Maintains the monthly REVTSTMP range partitions of REVINFO and the high volume audit tables (see
+ * the V4.4.6 migration). Partitions for the current and upcoming months are created ahead of time,
+ * so that new revisions do not fall into the default partition, and if a retention period is
+ * configured then partitions lying entirely before the retention cutoff are dropped. Dropping a
+ * partition discards a whole month of audit history in one cheap operation, rather than deleting
+ * and vacuuming its rows individually.
+ *
+ * <p>With the validity audit strategy the latest audit row of each entity stays open (REVEND IS
+ * NULL) until the entity is next modified or deleted, at which point Envers expects to find and
+ * close it. Open rows, and the REVINFO rows they refer to, are therefore carried forward into the
+ * default partition before their partition is dropped, and are only discarded from there once
+ * they have been closed. The audit tables of other entities are not partitioned and are never
+ * expired, so every REVINFO row referenced by any of their rows is retained too.
+ */
+@ApplicationScoped
+class AuditPartitions {
+
+    static final String REVINFO_TABLE = "revinfo";
+    static final List<String> AUDIT_TABLES =
+            List.of("target_aud", "discoverynode_aud", "unifiedlog_aud");
+    static final List<String> PARTITIONED_TABLES =
+            Stream.concat(Stream.of(REVINFO_TABLE), AUDIT_TABLES.stream()).toList();
+
+    private static final int MONTHS_AHEAD = 2;
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // the upper bound of each partition, or null for the default partition and for MAXVALUE. Bounds
+    // are epoch millisecond literals, which may be deparsed with or without quotes
+    private static final String PARTITIONS_SQL =
+            """
+            SELECT c.relname,
+                CAST(
+                    substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \\(''*([0-9]+)')
+                    AS BIGINT)
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = CAST(:parent AS regclass)
+            """;
+
+    // every audit table, excluding partitions, which refers to revisions with REV and REVEND
+    private static final String AUDIT_TABLES_SQL =
+            """
+            SELECT c.relname
+            FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = current_schema()
+                AND c.relkind IN ('r', 'p')
+                AND NOT c.relispartition
+                AND EXISTS (
+                    SELECT 1 FROM pg_attribute a
+                    WHERE a.attrelid = c.oid AND a.attname = 'rev' AND NOT a.attisdropped)
+                AND EXISTS (
+                    SELECT 1 FROM pg_attribute a
+                    WHERE a.attrelid = c.oid AND a.attname = 'revend' AND NOT a.attisdropped)
+            ORDER BY c.relname
+            """;
+
+    @Inject EntityManager em;
+    @Inject Logger logger;
+
+    @ConfigProperty(name = ConfigProperties.AUDIT_RETENTION)
+    Optional<Duration> retention;
+
+    void onStart(@Observes StartupEvent evt) {
+        maintain();
+    }
+
+    @Scheduled(
+            every = "${" + ConfigProperties.AUDIT_PARTITIONS_MAINTENANCE_PERIOD + "}",
+            delayed = "${" + ConfigProperties.AUDIT_PARTITIONS_MAINTENANCE_PERIOD + "}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledMaintain() {
+        maintain();
+    }
+
+    void maintain() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (String table : PARTITIONED_TABLES) {
+            try {
+                QuarkusTransaction.requiringNew()
+                        .run(
+                                () -> {
+                                    for (int i = 0; i <= MONTHS_AHEAD; i++) {
+                                        createPartition(table, current.plusMonths(i));
+                                    }
+                                });
+            } catch (Exception e) {
+                logger.warnv(e, "Failed to create audit partitions for {0}", table);
+            }
+        }
+
+        if (retention.isEmpty()) {
+            return;
+        }
+        long cutoff = Instant.now().minus(retention.get()).toEpochMilli();
+        for (String table : PARTITIONED_TABLES) {
+            try {
+                QuarkusTransaction.requiringNew().run(() -> dropPartitions(table, cutoff));
+            } catch (Exception e) {
+                logger.warnv(e, "Failed to drop expired audit partitions for {0}", table);
+            }
+        }
+    }
+
+    private void createPartition(String table, YearMonth month) {
+        long from = startOf(month);
+        long to = startOf(month.plusMonths(1));
+        em.createNativeQuery(
+                        String.format(
+                                "CREATE TABLE IF NOT EXISTS %s_p%s PARTITION OF %s FOR VALUES FROM"
+                                        + " (%d) TO (%d)",
+                                table, SUFFIX_FORMAT.format(month), table, from, to))
+                .executeUpdate();
+    }
+
+    static long startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    void dropPartitions(String table, long cutoff) {
+        String retained = retained(table);
+        @SuppressWarnings("unchecked")
+        List<Object[]> partitions =
+                em.createNativeQuery(PARTITIONS_SQL).setParameter("parent", table).getResultList();
+        for (Object[] partition : partitions) {
+            String name = (String) partition[0];
+            Number upperBound = (Number) partition[1];
+            if (upperBound == null || upperBound.longValue() > cutoff) {
+                continue;
+            }
+            // once detached, rows reinserted into the parent table within the partition's range
+            // are routed to the default partition
+            em.createNativeQuery(
+                            String.format("ALTER TABLE %s DETACH PARTITION %s", table, name))
+                    .executeUpdate();
+            int carried =
+                    em.createNativeQuery(
+                                    String.format(
+                                            "INSERT INTO %s SELECT * FROM %s p WHERE %s",
+                                            table, name, String.format(retained, "p")))
+                            .executeUpdate();
+            em.createNativeQuery(String.format("DROP TABLE %s", name)).executeUpdate();
+            logger.infov(
+                    "Dropped expired audit partition {0}, carrying forward {1} open rows",
+                    name, carried);
+        }
+
+        // discard previously carried forward rows which are no longer needed
+        int discarded =
+                em.createNativeQuery(
+                                String.format(
+                                        "DELETE FROM %s_default d WHERE d.REVTSTMP < :cutoff AND"
+                                                + " NOT (%s)",
+                                        table, String.format(retained, "d")))
+                        .setParameter("cutoff", cutoff)
+                        .executeUpdate();
+        if (discarded > 0) {
+            logger.infov("Discarded {0} expired audit rows from {1}_default", discarded, table);
+        }
+    }
+
+    // the condition for an expired row to be retained, as a format string taking the row's alias
+    private String retained(String table) {
+        if (!REVINFO_TABLE.equals(table)) {
+            return "%1$s.REVEND IS NULL";
+        }
+        // a revision is needed by the open rows of the partitioned audit tables, and by all rows
+        // of the others, which are never expired
+        @SuppressWarnings("unchecked")
+        List<String> auditTables = em.createNativeQuery(AUDIT_TABLES_SQL).getResultList();
+        if (auditTables.isEmpty()) {
+            return "FALSE";
+        }
+        return auditTables.stream()
+                .map(
+                        t ->
+                                String.format(
+                                        "EXISTS (SELECT 1 FROM %s a WHERE a.REV = %%1$s.REV%s)",
+                                        t,
+                                        AUDIT_TABLES.contains(t) ? " AND a.REVEND IS NULL" : ""))
+                .collect(Collectors.joining(" OR "));
+    }
+}
@@ -48,6 +48,8 @@ public class ConditionalEnversIntegrator implements Integrator {
     private static final Logger logger = Logger.getLogger(ConditionalEnversIntegrator.class);
     private static final String ENVERS_ENABLED_PROPERTY = "hibernate.envers.enabled";
     private static final String AUDIT_ENABLED_ENV_VAR = "CRYOSTAT_AUDIT_ENABLED";
+    private static final String ASYNC_ENABLED_PROPERTY = "cryostat.audit.async.enabled";
+    private static final String ASYNC_ENABLED_ENV_VAR = "CRYOSTAT_AUDIT_ASYNC_ENABLED";
 
     @Override
     public void integrate(
@@ -68,13 +70,8 @@ public class ConditionalEnversIntegrator implements Integrator {
         // configuration loader. This should ideally be a 'cryostat.audit.enabled' config property,
         // not only an environment variable.
         // Check system property first (for tests), then environment variable
-        String auditEnv = System.getProperty(AUDIT_ENABLED_ENV_VAR);
-        if (StringUtils.isBlank(auditEnv)) {
-            auditEnv = System.getenv(AUDIT_ENABLED_ENV_VAR);
-        }
-        if (StringUtils.isNotBlank(auditEnv)) {
-            settings.put(ENVERS_ENABLED_PROPERTY, auditEnv);
-        }
+        override(settings, ENVERS_ENABLED_PROPERTY, AUDIT_ENABLED_ENV_VAR);
+        override(settings, ASYNC_ENABLED_PROPERTY, ASYNC_ENABLED_ENV_VAR);
 
         boolean enversEnabled =
                 Boolean.parseBoolean(
@@ -104,7 +101,19 @@ public class ConditionalEnversIntegrator implements Integrator {
 
         listenerRegistry.addDuplicationStrategy(EnversListenerDuplicationStrategy.INSTANCE);
 
-        if (enversService.getEntitiesConfigurations().hasAuditedEntities()) {
+        boolean asyncEnabled =
+                Boolean.parseBoolean(
+                        String.valueOf(settings.getOrDefault(ASYNC_ENABLED_PROPERTY, "false")));
+
+        if (enversService.getEntitiesConfigurations().hasAuditedEntities() && asyncEnabled) {
+            // audit rows are written after commit by a background writer rather than within each
+            // transaction. See AsyncAuditEventListener
+            AsyncAuditEventListener listener = new AsyncAuditEventListener(enversService);
+            listenerRegistry.appendListeners(EventType.POST_DELETE, listener);
+            listenerRegistry.appendListeners(EventType.POST_INSERT, listener);
+            listenerRegistry.appendListeners(EventType.POST_UPDATE, listener);
+            logger.trace("Asynchronous audit event listeners registered successfully");
+        } else if (enversService.getEntitiesConfigurations().hasAuditedEntities()) {
             listenerRegistry.appendListeners(
                     EventType.POST_DELETE, new EnversPostDeleteEventListenerImpl(enversService));
             listenerRegistry.appendListeners(
@@ -124,6 +133,16 @@ public class ConditionalEnversIntegrator implements Integrator {
         }
     }
 
+    private static void override(Map<String, Object> settings, String property, String envVar) {
+        String value = System.getProperty(envVar);
+        if (StringUtils.isBlank(value)) {
+            value = System.getenv(envVar);
+        }
+        if (StringUtils.isNotBlank(value)) {
+            settings.put(property, value);
+        }
+    }
+
     @Override
     public void disintegrate(
             SessionFactoryImplementor sessionFactory,
@@ -59,6 +59,11 @@ import org.hibernate.envers.RevisionTimestamp;
             query =
                     "SELECT REV, REVTSTMP, username FROM REVINFO WHERE REVTSTMP >= :startTime AND"
                             + " REVTSTMP <= :endTime ORDER BY REV DESC"),
+    @NamedNativeQuery(
+            name = "RevisionInfo.findByTimeRangeBefore",
+            query =
+                    "SELECT REV, REVTSTMP, username FROM REVINFO WHERE REVTSTMP >= :startTime AND"
+                            + " REVTSTMP <= :endTime AND REV < :before ORDER BY REV DESC"),
     @NamedNativeQuery(name = "RevisionInfo.countAll", query = "SELECT COUNT(*) FROM REVINFO"),
     @NamedNativeQuery(
             name = "RevisionInfo.countByStartTime",
@@ -16,25 +16,45 @@
 package io.cryostat.credentials;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import io.cryostat.ConfigProperties;
 import io.cryostat.expressions.MatchExpression;
 import io.cryostat.expressions.MatchExpressionEvaluator;
 import io.cryostat.targets.Target;
 import io.cryostat.targets.Target.TargetDiscovery;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.panache.common.Sort;
 import io.quarkus.vertx.ConsumeEvent;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import org.apache.commons.collections4.BidiMap;
-import org.apache.commons.collections4.bidimap.DualHashBidiMap;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 import org.projectnessie.cel.tools.ScriptException;
 
 /**
  * Utility for mapping and caching {@link io.cryostat.targets.Target} to associated {@link
- * io.cryostat.credentials.Credential}.
+ * io.cryostat.credentials.Credential}. Resolutions are cached by target ID in a bounded concurrent
+ * cache. On a miss, the target is checked against a list of all credentials, precompiled in ID
+ * order so that the first matching credential is always the same one. Credentials whose match
+ * expression is a simple equality test (see {@link SimpleMatchPredicate}) are checked directly
+ * rather than by evaluating CEL, and those matching a connect URL are looked up by value. Any
+ * change to any credential invalidates both the compiled list and all cached resolutions.
+ *
+ * <p>A reverse index from each credential to the connect URLs it was most recently resolved for is
+ * also maintained, so that when a credential changes the connections using it can be found without
+ * re-evaluating every target against it.
  */
 @ApplicationScoped
 public class CredentialsFinder {
@@ -42,25 +62,46 @@ public class CredentialsFinder {
     @Inject MatchExpressionEvaluator expressionEvaluator;
     @Inject Logger logger;
 
-    private final BidiMap<Target, Long> cache = new DualHashBidiMap<>();
+    @ConfigProperty(name = ConfigProperties.CREDENTIALS_RESOLUTION_CACHE_MAX_SIZE)
+    long resolutionCacheMaxSize;
+
+    private static final long NO_CREDENTIAL = -1L;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Resolver resolver;
+    private Cache<Long, Resolution> resolutions;
+    private final Map<URI, Long> resolved = new ConcurrentHashMap<>();
+    private final Map<Long, Set<URI>> connectUrls = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        resolutions = Caffeine.newBuilder().maximumSize(resolutionCacheMaxSize).build();
+    }
+
+    @ConsumeEvent(Credential.CREDENTIALS_STORED)
+    void onCredentialsStored(Credential credential) {
+        invalidateResolutions();
+    }
 
     @ConsumeEvent(Credential.CREDENTIALS_UPDATED)
     void onCredentialsUpdated(Credential credential) {
-        cache.removeValue(credential.id);
+        invalidateResolutions();
     }
 
     @ConsumeEvent(Credential.CREDENTIALS_DELETED)
     void onCredentialsDeleted(Credential credential) {
-        cache.removeValue(credential.id);
+        invalidateResolutions();
     }
 
     @ConsumeEvent(Target.TARGET_JVM_DISCOVERY)
     void onMessage(TargetDiscovery event) {
         switch (event.kind()) {
             case MODIFIED:
-            // fall-through
+                invalidate(event.serviceRef());
+                break;
             case LOST:
-                cache.remove(event.serviceRef());
+                invalidate(event.serviceRef());
+                forget(event.serviceRef().connectUrl);
                 break;
             default:
                 // no-op
@@ -69,19 +110,160 @@ public class CredentialsFinder {
     }
 
     public Optional<Credential> getCredentialsForTarget(Target target) {
-        return Optional.ofNullable(
-                        cache.computeIfAbsent(
-                                target,
-                                t ->
-                                        QuarkusTransaction.joiningExisting()
-                                                .call(() -> Credential.<Credential>streamAll())
-                                                .filter(c -> applies(t, c.matchExpression))
-                                                .map(c -> c.id)
-                                                .findFirst()
-                                                .orElse(null)))
+        Long credentialId = resolve(target);
+        index(target.connectUrl, credentialId);
+        return Optional.ofNullable(credentialId)
                 .flatMap(i -> Optional.ofNullable(Credential.findById(i)));
     }
 
+    private Long resolve(Target target) {
+        long current = generation.get();
+        if (target.id == null) {
+            return firstMatch(resolver(current), target);
+        }
+        Resolution resolution = resolutions.getIfPresent(target.id);
+        if (resolution != null && resolution.generation() == current) {
+            return resolution.credentialId();
+        }
+        Long credentialId = firstMatch(resolver(current), target);
+        // if the generation has moved on in the meantime then this entry is already stale, and will
+        // be recomputed on next use
+        resolutions.put(target.id, new Resolution(current, credentialId));
+        return credentialId;
+    }
+
+    private Resolver resolver(long current) {
+        Resolver r = resolver;
+        if (r != null && r.generation() >= current) {
+            return r;
+        }
+        synchronized (this) {
+            r = resolver;
+            if (r == null || r.generation() < current) {
+                r = compile(current);
+                resolver = r;
+            }
+            return r;
+        }
+    }
+
+    private Resolver compile(long current) {
+        List<Credential> credentials =
+                QuarkusTransaction.joiningExisting()
+                        .call(() -> Credential.<Credential>listAll(Sort.by("id")));
+        List<CompiledCredential> ordered = new ArrayList<>(credentials.size());
+        Map<String, Long> byConnectUrl = new HashMap<>();
+        for (Credential c : credentials) {
+            SimpleMatchPredicate predicate =
+                    SimpleMatchPredicate.parse(c.matchExpression.script).orElse(null);
+            if (predicate != null
+                    && predicate.property() == SimpleMatchPredicate.Property.CONNECT_URL) {
+                // credentials are visited in ID order, so the first one for a URL takes precedence
+                byConnectUrl.putIfAbsent(predicate.value(), c.id);
+            }
+            ordered.add(new CompiledCredential(c.id, c.matchExpression, predicate));
+        }
+        logger.debugv(
+                "Compiled {0} credentials, {1} indexed by connect URL",
+                ordered.size(), byConnectUrl.size());
+        return new Resolver(current, List.copyOf(ordered), Map.copyOf(byConnectUrl));
+    }
+
+    private Long firstMatch(Resolver resolver, Target target) {
+        Long indexed =
+                target.connectUrl == null
+                        ? null
+                        : resolver.byConnectUrl().get(target.connectUrl.toString());
+        for (CompiledCredential c : resolver.ordered()) {
+            if (indexed != null && c.id() >= indexed) {
+                // no credential earlier in the order than the indexed one matched
+                break;
+            }
+            SimpleMatchPredicate predicate = c.predicate();
+            if (predicate == null) {
+                if (applies(target, c.matchExpression())) {
+                    return c.id();
+                }
+            } else if (predicate.property() != SimpleMatchPredicate.Property.CONNECT_URL
+                    && predicate.test(target)) {
+                // connect URL predicates are already covered by the index lookup
+                return c.id();
+            }
+        }
+        return indexed;
+    }
+
+    private void invalidate(Target target) {
+        if (target.id != null) {
+            resolutions.invalidate(target.id);
+        }
+    }
+
+    private void invalidateResolutions() {
+        generation.incrementAndGet();
+        resolutions.invalidateAll();
+    }
+
+    /**
+     * Remove and return the connect URLs which were most recently resolved to the given credential.
+     * These will be indexed again if and when credentials are next resolved for them.
+     */
+    public Set<URI> removeConnectUrls(long credentialId) {
+        // callers are reacting to a credential change, which may not yet have been observed here
+        invalidateResolutions();
+        Set<URI> urls = connectUrls.remove(credentialId);
+        if (urls == null) {
+            return Set.of();
+        }
+        urls.forEach(url -> resolved.remove(url, credentialId));
+        return urls;
+    }
+
+    /**
+     * Remove and return the connect URLs which were most recently resolved to no credential at
+     * all. These are the only connect URLs whose resolution a newly stored credential can change.
+     */
+    public Set<URI> removeConnectUrlsWithoutCredentials() {
+        return removeConnectUrls(NO_CREDENTIAL);
+    }
+
+    private void index(URI connectUrl, Long credentialId) {
+        if (connectUrl == null) {
+            return;
+        }
+        long id = credentialId == null ? NO_CREDENTIAL : credentialId;
+        Long previous = resolved.put(connectUrl, id);
+        if (previous != null && previous != id) {
+            unindex(previous, connectUrl);
+        }
+        connectUrls.compute(
+                id,
+                (k, v) -> {
+                    Set<URI> urls = v == null ? ConcurrentHashMap.newKeySet() : v;
+                    urls.add(connectUrl);
+                    return urls;
+                });
+    }
+
+    private void forget(URI connectUrl) {
+        if (connectUrl == null) {
+            return;
+        }
+        Long previous = resolved.remove(connectUrl);
+        if (previous != null) {
+            unindex(previous, connectUrl);
+        }
+    }
+
+    private void unindex(long credentialId, URI connectUrl) {
+        connectUrls.computeIfPresent(
+                credentialId,
+                (k, v) -> {
+                    v.remove(connectUrl);
+                    return v.isEmpty() ? null : v;
+                });
+    }
+
     public Optional<Credential> getCredentialsForConnectUrl(URI connectUrl) {
         return QuarkusTransaction.joiningExisting()
                 .call(() -> Target.find("connectUrl", connectUrl))
@@ -97,4 +279,14 @@ public class CredentialsFinder {
             return false;
         }
     }
+
+    private record Resolution(long generation, Long credentialId) {}
+
+    private record CompiledCredential(
+            long id, MatchExpression matchExpression, SimpleMatchPredicate predicate) {}
+
+    private record Resolver(
+            long generation,
+            List<CompiledCredential> ordered,
+            Map<String, Long> byConnectUrl) {}
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.credentials;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.cryostat.targets.Target;
+
+/**
+ * A match expression which is a single equality test of one target property against a string
+ * literal, such as {@code target.connectUrl == "service:jmx:rmi:///jndi/rmi://host:9091/jmxrmi"}
+ * or {@code target.labels["app"] == "foo"}. Credentials are most often defined with expressions of
+ * this form, and these can be evaluated directly, or looked up by value, without evaluating the
+ * expression as CEL. Any other expression is left to the CEL evaluator.
+ */
+record SimpleMatchPredicate(Property property, String key, String value) {
+
+    private static final String LITERAL = "(?:\"([^\"\\\\]*)\"|'([^'\\\\]*)')";
+    private static final Pattern FIELD_PATTERN =
+            Pattern.compile(
+                    "^\\s*target\\.(connectUrl|alias|jvmId)\\s*==\\s*" + LITERAL + "\\s*$");
+    private static final Pattern LABEL_PATTERN =
+            Pattern.compile(
+                    "^\\s*target\\.labels\\[\\s*"
+                            + LITERAL
+                            + "\\s*\\]\\s*==\\s*"
+                            + LITERAL
+                            + "\\s*$");
+    private static final Pattern ANNOTATION_PATTERN =
+            Pattern.compile(
+                    "^\\s*target\\.annotations\\.(cryostat|platform)\\[\\s*"
+                            + LITERAL
+                            + "\\s*\\]\\s*==\\s*"
+                            + LITERAL
+                            + "\\s*$");
+
+    enum Property {
+        CONNECT_URL,
+        ALIAS,
+        JVM_ID,
+        LABEL,
+        CRYOSTAT_ANNOTATION,
+        PLATFORM_ANNOTATION,
+    }
+
+    static Optional<SimpleMatchPredicate> parse(String script) {
+        if (script == null) {
+            return Optional.empty();
+        }
+        Matcher m = FIELD_PATTERN.matcher(script);
+        if (m.matches()) {
+            Property property =
+                    switch (m.group(1)) {
+                        case "connectUrl" -> Property.CONNECT_URL;
+                        case "alias" -> Property.ALIAS;
+                        default -> Property.JVM_ID;
+                    };
+            return Optional.of(new SimpleMatchPredicate(property, null, literal(m, 2)));
+        }
+        m = LABEL_PATTERN.matcher(script);
+        if (m.matches()) {
+            return Optional.of(
+                    new SimpleMatchPredicate(Property.LABEL, literal(m, 1), literal(m, 3)));
+        }
+        m = ANNOTATION_PATTERN.matcher(script);
+        if (m.matches()) {
+            Property property =
+                    "cryostat".equals(m.group(1))
+                            ? Property.CRYOSTAT_ANNOTATION
+                            : Property.PLATFORM_ANNOTATION;
+            return Optional.of(new SimpleMatchPredicate(property, literal(m, 2), literal(m, 4)));
+        }
+        return Optional.empty();
+    }
+
+    boolean test(Target target) {
+        return switch (property) {
+            case CONNECT_URL ->
+                    target.connectUrl != null && value.equals(target.connectUrl.toString());
+            case ALIAS -> value.equals(target.alias);
+            case JVM_ID -> value.equals(target.jvmId);
+            case LABEL -> value.equals(get(target.labels, key));
+            case CRYOSTAT_ANNOTATION ->
+                    target.annotations != null
+                            && value.equals(get(target.annotations.cryostat(), key));
+            case PLATFORM_ANNOTATION ->
+                    target.annotations != null
+                            && value.equals(get(target.annotations.platform(), key));
+        };
+    }
+
+    private static String get(Map<String, String> map, String key) {
+        return map == null ? null : map.get(Objects.requireNonNull(key));
+    }
+
+    private static String literal(Matcher m, int group) {
+        // each literal is either double or single quoted, and only one of its groups matches
+        String doubleQuoted = m.group(group);
+        return doubleQuoted != null ? doubleQuoted : m.group(group + 1);
+    }
+}
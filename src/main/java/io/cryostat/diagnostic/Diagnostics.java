@@ -104,6 +104,21 @@ public class Diagnostics {
     @Inject EventBus bus;
     @Inject DiagnosticsHelper helper;
 
+    @Path("connections")
+    @RolesAllowed("read")
+    @GET
+    @Operation(
+            summary = "Get target connection statistics",
+            description =
+                    """
+                    Retrieve statistics about Cryostat's target connection cache since startup: cache hits and
+                    misses, connection open times and failures, removals by cause, connected task retries, and the
+                    number of connected tasks currently running against each target.
+                    """)
+    public TargetConnectionManager.ConnectionStatistics getConnectionStatistics() {
+        return targetConnectionManager.getStatistics();
+    }
+
     @Path("fs/threaddumps")
     @RolesAllowed("read")
     @GET
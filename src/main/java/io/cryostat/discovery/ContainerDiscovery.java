@@ -27,11 +27,15 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.management.remote.JMXServiceURL;
@@ -47,20 +51,27 @@ import io.cryostat.util.URIUtil;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.sun.security.auth.module.UnixSystem;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
 import io.quarkus.vertx.ConsumeEvent;
+import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.unchecked.Unchecked;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.core.eventbus.EventBus;
 import io.vertx.mutiny.core.net.SocketAddress;
+import io.vertx.mutiny.core.parsetools.JsonParser;
 import io.vertx.mutiny.ext.web.client.WebClient;
 import io.vertx.mutiny.ext.web.codec.BodyCodec;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.transaction.Transactional.TxType;
@@ -107,6 +118,11 @@ class PodmanDiscovery extends ContainerDiscovery {
         return "http://d/v3.0.0/libpod/containers/%s/json";
     }
 
+    @Override
+    protected String getEventsURL() {
+        return "http://d/v3.0.0/libpod/events";
+    }
+
     @Override
     protected boolean enabled() {
         return enabled;
@@ -149,6 +165,11 @@ class DockerDiscovery extends ContainerDiscovery {
         return "http://d/v1.42/containers/%s/json";
     }
 
+    @Override
+    protected String getEventsURL() {
+        return "http://d/v1.42/events";
+    }
+
     @Override
     protected boolean enabled() {
         return enabled;
@@ -166,6 +187,13 @@ class DockerDiscovery extends ContainerDiscovery {
     }
 }
 
+/**
+ * Common implementation for container engine discovery. The engine's event stream is followed over
+ * its Unix domain socket so that containers starting and stopping are reflected in the discovery
+ * tree as they happen. A low-frequency full listing of the engine's containers is also performed
+ * periodically, and whenever the event stream is reconnected, to correct for any events which were
+ * missed.
+ */
 public abstract class ContainerDiscovery {
 
     public static final String DISCOVERY_LABEL = "io.cryostat.discovery";
@@ -174,18 +202,53 @@ public abstract class ContainerDiscovery {
     public static final String JMX_PORT_LABEL = "io.cryostat.jmxPort";
 
     private static final String JOB_DATA_KEY_REALM = "realm";
-    private static final String JOB_DATA_KEY_CONTAINERS_QUERY_URL = "containers-query-url";
-    private static final String JOB_DATA_KEY_CONTAINER_QUERY_URL = "container-query-url";
-    private static final String JOB_DATA_KEY_SOCKET_ADDRESS = "socket-address";
-    private static final String JOB_DATA_KEY_NOTIFICATION_ADDRESS = "notification-address";
+
+    private static final String EVENT_ACTION_START = "start";
+    // Docker and the Podman compat API report "die", the Podman libpod API reports "died"
+    private static final List<String> EVENT_ACTIONS_DIE = List.of("die", "died");
+    private static final Duration EXITED_CONTAINER_RETENTION = Duration.ofMinutes(5);
+    private static final Duration MIN_EVENTS_RETRY_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_EVENTS_RETRY_DELAY = Duration.ofSeconds(30);
 
     @Inject FileSystem fs;
     @Inject Scheduler scheduler;
+    @Inject Vertx vertx;
+    @Inject WebClient webClient;
+    @Inject JFRConnectionToolkit connectionToolkit;
+    @Inject ObjectMapper mapper;
+    @Inject EventBus bus;
+    @Inject URIUtil uriUtil;
     @Inject Logger logger;
 
     @ConfigProperty(name = ConfigProperties.CONTAINERS_POLL_PERIOD)
     Duration pollPeriod;
 
+    @ConfigProperty(name = ConfigProperties.CONTAINERS_REQUEST_TIMEOUT)
+    Duration requestTimeout;
+
+    @ConfigProperty(name = ConfigProperties.CONTAINERS_INSPECT_CONCURRENCY)
+    int inspectConcurrency;
+
+    // container ID -> hostname reported by container inspection. This does not change for the
+    // lifetime of a container, so each container only needs to be inspected once.
+    private final Map<String, String> hostnames = new ConcurrentHashMap<>();
+    // container ID -> connect URL of the target derived from that container
+    private final Map<String, URI> containerTargets = new ConcurrentHashMap<>();
+    // containers which have died since they last started. Container listings are asynchronous, so
+    // one which was issued before a container died may complete afterward - this is checked so
+    // that such a stale listing does not rediscover the target. Checking this and publishing
+    // FOUND, and marking a container and publishing LOST, are both done while holding the cache's
+    // monitor so that a container's FOUND can never be published after its LOST.
+    private final Cache<String, Boolean> exitedContainers =
+            Caffeine.newBuilder()
+                    .expireAfterWrite(EXITED_CONTAINER_RETENTION)
+                    .maximumSize(10_000)
+                    .build();
+
+    private ExecutorService inspectExecutor;
+    private volatile boolean shuttingDown;
+    private volatile long eventsRetryDelay = MIN_EVENTS_RETRY_DELAY.toMillis();
+
     JobKey jobKey() {
         return new JobKey("query-containers", String.format("container-%s-discovery", getRealm()));
     }
@@ -203,12 +266,11 @@ public abstract class ContainerDiscovery {
         }
 
         logger.debugv("Starting {0} client", getRealm());
+        inspectExecutor = Executors.newFixedThreadPool(Math.max(1, inspectConcurrency));
+        subscribeEvents();
+
         var jobData = new JobDataMap();
         jobData.put(JOB_DATA_KEY_REALM, getRealm());
-        jobData.put(JOB_DATA_KEY_CONTAINERS_QUERY_URL, getContainersQueryURL());
-        jobData.put(JOB_DATA_KEY_CONTAINER_QUERY_URL, getContainerQueryURL());
-        jobData.put(JOB_DATA_KEY_SOCKET_ADDRESS, getSocket());
-        jobData.put(JOB_DATA_KEY_NOTIFICATION_ADDRESS, notificationAddress());
         JobDetail jobDetail =
                 JobBuilder.newJob(ContainersQueryJob.class)
                         .withIdentity(jobKey())
@@ -234,11 +296,15 @@ public abstract class ContainerDiscovery {
             return;
         }
         logger.debugv("Shutting down {0} client", getRealm());
+        shuttingDown = true;
         try {
             scheduler.deleteJob(jobKey());
         } catch (SchedulerException se) {
             logger.warn(se);
         }
+        if (inspectExecutor != null) {
+            inspectExecutor.shutdownNow();
+        }
     }
 
     static SocketAddress domainSocket(String socketAddress) {
@@ -250,6 +316,365 @@ public abstract class ContainerDiscovery {
         return fs.exists(socketPath) && fs.isReadable(socketPath);
     }
 
+    /**
+     * Perform a full listing of the engine's containers and reconcile the discovery tree against
+     * it. Targets for containers which are no longer running are removed.
+     */
+    void queryContainers() {
+        listContainers(Map.of("label", List.of(DISCOVERY_LABEL)))
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .subscribe()
+                .with(
+                        current -> handleObservedContainers(current, true),
+                        failure -> logger.errorv(failure, "{0} API request failed", getRealm()));
+    }
+
+    private void triggerFullQuery() {
+        try {
+            if (scheduler.checkExists(jobKey())) {
+                scheduler.triggerJob(jobKey());
+            }
+        } catch (SchedulerException se) {
+            logger.warn(se);
+        }
+    }
+
+    private void subscribeEvents() {
+        if (shuttingDown) {
+            return;
+        }
+        String filters;
+        try {
+            filters =
+                    mapper.writeValueAsString(
+                            Map.of(
+                                    "type", List.of("container"),
+                                    "event", eventActions(),
+                                    "label", List.of(DISCOVERY_LABEL)));
+        } catch (JsonProcessingException e) {
+            logger.error("Json processing error", e);
+            return;
+        }
+        JsonParser parser = JsonParser.newParser().objectValueMode();
+        parser.handler(event -> handleStreamEvent(event.objectValue()));
+        parser.exceptionHandler(
+                e -> logger.warnv(e, "Unable to parse {0} event stream", getRealm()));
+        // no request timeout here: the stream is expected to remain idle until containers change
+        webClient
+                .request(
+                        HttpMethod.GET,
+                        domainSocket(getSocket()),
+                        80,
+                        "localhost",
+                        URI.create(getEventsURL()).toString())
+                .addQueryParam("filters", filters)
+                .as(BodyCodec.jsonStream(parser))
+                .send()
+                .subscribe()
+                .with(
+                        res -> {
+                            logger.debugv(
+                                    "{0} event stream closed with status {1}",
+                                    getRealm(), res.statusCode());
+                            resubscribeEvents();
+                        },
+                        failure -> {
+                            logger.warnv(failure, "{0} event stream failed", getRealm());
+                            resubscribeEvents();
+                        });
+    }
+
+    private void resubscribeEvents() {
+        if (shuttingDown) {
+            return;
+        }
+        long delay = eventsRetryDelay;
+        eventsRetryDelay = Math.min(2 * delay, MAX_EVENTS_RETRY_DELAY.toMillis());
+        vertx.setTimer(
+                delay,
+                id -> {
+                    subscribeEvents();
+                    // containers may have started or stopped while the stream was disconnected
+                    triggerFullQuery();
+                });
+    }
+
+    private static List<String> eventActions() {
+        List<String> actions = new ArrayList<>();
+        actions.add(EVENT_ACTION_START);
+        actions.addAll(EVENT_ACTIONS_DIE);
+        return actions;
+    }
+
+    // events are delivered in order from the stream, so a container's start and die events are
+    // handled here in the order in which the engine reported them
+    void handleStreamEvent(JsonObject json) {
+        eventsRetryDelay = MIN_EVENTS_RETRY_DELAY.toMillis();
+        ContainerEvent evt;
+        try {
+            evt = mapper.convertValue(json.getMap(), ContainerEvent.class);
+        } catch (IllegalArgumentException e) {
+            logger.warnv(e, "Unexpected {0} event: {1}", getRealm(), json);
+            return;
+        }
+        if (evt.Actor() == null || StringUtils.isBlank(evt.Actor().ID())) {
+            return;
+        }
+        String id = evt.Actor().ID();
+        if (EVENT_ACTION_START.equals(evt.Action())) {
+            // a stopped container may be started again with the same ID
+            exitedContainers.invalidate(id);
+            listContainers(Map.of("id", List.of(id), "label", List.of(DISCOVERY_LABEL)))
+                    .emitOn(Infrastructure.getDefaultWorkerPool())
+                    .subscribe()
+                    .with(
+                            current -> handleObservedContainers(current, false),
+                            failure ->
+                                    logger.errorv(failure, "{0} API request failed", getRealm()));
+        } else if (EVENT_ACTIONS_DIE.contains(evt.Action())) {
+            handleLostContainer(id);
+        }
+    }
+
+    private void handleLostContainer(String id) {
+        hostnames.remove(id);
+        URI connectUrl = containerTargets.remove(id);
+        synchronized (exitedContainers) {
+            exitedContainers.put(id, Boolean.TRUE);
+            if (connectUrl == null) {
+                // not a container we derived a target from, or one which the next full query will
+                // clean up
+                return;
+            }
+            // the target may not have been persisted yet if its FOUND is still queued, so the
+            // persisted target is looked up when this LOST is handled rather than now
+            Target target = new Target();
+            target.connectUrl = connectUrl;
+            notify(ContainerDiscoveryEvent.from(null, target, EventKind.LOST));
+        }
+    }
+
+    void handleFoundContainer(ContainerSpec desc, Target target) {
+        synchronized (exitedContainers) {
+            if (desc != null && exitedContainers.getIfPresent(desc.Id) != null) {
+                logger.debugv("Ignoring stale {0} container {1}", getRealm(), desc.Id);
+                return;
+            }
+            notify(ContainerDiscoveryEvent.from(desc, target, EventKind.FOUND));
+        }
+    }
+
+    /**
+     * @param current the containers observed by the engine
+     * @param full true if the observed containers are the complete set of running containers, so
+     *     that any previously discovered targets which were not observed should be removed
+     */
+    void handleObservedContainers(List<ContainerSpec> current, boolean full) {
+        resolveHostnames(current);
+
+        Map<URI, ContainerSpec> containerRefMap = new HashMap<>();
+        Set<Target> observedTargets =
+                current.stream()
+                        .map(
+                                (desc) -> {
+                                    Target t = toTarget(desc);
+                                    if (Objects.nonNull(t)) {
+                                        containerRefMap.put(t.connectUrl, desc);
+                                    }
+                                    return t;
+                                })
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet());
+
+        if (full) {
+            Set<String> ids = current.stream().map(ContainerSpec::Id).collect(Collectors.toSet());
+            hostnames.keySet().retainAll(ids);
+            containerTargets.keySet().retainAll(ids);
+        }
+
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            Set<Target> persistedTargets =
+                                    Target.findByRealm(getRealm()).stream()
+                                            .collect(Collectors.toSet());
+                            var diff = Target.compare(persistedTargets).to(observedTargets);
+
+                            diff.added()
+                                    .forEach(
+                                            (t) ->
+                                                    handleFoundContainer(
+                                                            containerRefMap.get(t.connectUrl),
+                                                            t));
+
+                            if (full) {
+                                diff.removed()
+                                        .forEach(
+                                                (t) ->
+                                                        notify(
+                                                                ContainerDiscoveryEvent.from(
+                                                                        null,
+                                                                        t,
+                                                                        EventKind.LOST)));
+                            }
+                        });
+    }
+
+    private Uni<List<ContainerSpec>> listContainers(Map<String, List<String>> filters) {
+        URI requestPath = URI.create(getContainersQueryURL());
+        try {
+            return webClient
+                    .request(
+                            HttpMethod.GET,
+                            domainSocket(getSocket()),
+                            80,
+                            "localhost",
+                            requestPath.toString())
+                    .addQueryParam("filters", mapper.writeValueAsString(filters))
+                    .timeout(requestTimeout.toMillis())
+                    .as(BodyCodec.string())
+                    .send()
+                    .map(
+                            Unchecked.function(
+                                    item ->
+                                            mapper.readValue(
+                                                    item.body(),
+                                                    new TypeReference<List<ContainerSpec>>() {})));
+        } catch (JsonProcessingException e) {
+            return Uni.createFrom().failure(e);
+        }
+    }
+
+    // Inspect any containers whose hostname is needed but not yet known. The inspections are
+    // performed in parallel, bounded by the size of the inspection executor.
+    private void resolveHostnames(List<ContainerSpec> containers) {
+        CompletableFuture<?>[] inspections =
+                containers.stream()
+                        .filter(
+                                desc ->
+                                        !desc.Labels.containsKey(JMX_URL_LABEL)
+                                                && !desc.Labels.containsKey(JMX_HOST_LABEL)
+                                                && !hostnames.containsKey(desc.Id))
+                        .map(
+                                desc ->
+                                        CompletableFuture.runAsync(
+                                                () -> inspectHostname(desc), inspectExecutor))
+                        .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(inspections).join();
+        } catch (CompletionException | CancellationException e) {
+            logger.warnv(e, "{0} container inspection failed", getRealm());
+        }
+    }
+
+    private void inspectHostname(ContainerSpec desc) {
+        try {
+            String hostname =
+                    doContainerInspectRequest(desc)
+                            .get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                            .Config
+                            .Hostname;
+            if (StringUtils.isNotBlank(hostname)) {
+                hostnames.put(desc.Id, hostname);
+            }
+        } catch (InterruptedException | TimeoutException | ExecutionException e) {
+            logger.warnv(e, "Invalid {0} target observed", getRealm());
+        }
+    }
+
+    // Construct a target representation (non-persistent) of the container spec
+    Target toTarget(ContainerSpec desc) {
+        URI connectUrl;
+        String hostname;
+        int jmxPort;
+        try {
+            JMXServiceURL serviceUrl;
+            URI rmiTarget;
+            if (desc.Labels.containsKey(JMX_URL_LABEL)) {
+                serviceUrl = new JMXServiceURL(desc.Labels.get(JMX_URL_LABEL));
+                connectUrl = URI.create(serviceUrl.toString());
+                try {
+                    rmiTarget = uriUtil.getRmiTarget(serviceUrl);
+                    hostname = rmiTarget.getHost();
+                    jmxPort = rmiTarget.getPort();
+                } catch (IllegalArgumentException e) {
+                    hostname = serviceUrl.getHost();
+                    jmxPort = serviceUrl.getPort();
+                }
+            } else {
+                jmxPort = Integer.parseInt(desc.Labels.get(JMX_PORT_LABEL));
+                hostname = desc.Labels.get(JMX_HOST_LABEL);
+                if (hostname == null) {
+                    hostname = hostnames.get(desc.Id);
+                    if (hostname == null) {
+                        // inspection failed, so the container will be retried on the next query
+                        return null;
+                    }
+                }
+            }
+            serviceUrl = connectionToolkit.createServiceURL(hostname, jmxPort);
+            connectUrl = URI.create(serviceUrl.toString());
+        } catch (MalformedURLException | URISyntaxException e) {
+            logger.warnv(e, "Invalid {0} target observed", getRealm());
+            return null;
+        }
+
+        Target target = new Target();
+        target.activeRecordings = new ArrayList<>();
+        target.connectUrl = connectUrl;
+        target.alias = Optional.ofNullable(desc.Names.get(0)).orElse(desc.Id);
+        target.labels = desc.Labels;
+        target.annotations =
+                new Annotations(
+                        null,
+                        Map.of(
+                                "REALM", // AnnotationKey.REALM,
+                                getRealm(),
+                                "HOST", // AnnotationKey.HOST,
+                                hostname,
+                                "PORT", // "AnnotationKey.PORT,
+                                Integer.toString(jmxPort)));
+
+        containerTargets.put(desc.Id, connectUrl);
+        return target;
+    }
+
+    private CompletableFuture<ContainerDetails> doContainerInspectRequest(
+            ContainerSpec container) {
+        CompletableFuture<ContainerDetails> result = new CompletableFuture<>();
+        URI requestPath = URI.create(String.format(getContainerQueryURL(), container.Id()));
+        webClient
+                .request(
+                        HttpMethod.GET,
+                        domainSocket(getSocket()),
+                        80,
+                        "localhost",
+                        requestPath.toString())
+                .timeout(requestTimeout.toMillis())
+                .as(BodyCodec.string())
+                .send()
+                .subscribe()
+                .with(
+                        item -> {
+                            try {
+                                result.complete(
+                                        mapper.readValue(item.body(), ContainerDetails.class));
+                            } catch (JsonProcessingException e) {
+                                logger.error("Json processing error", e);
+                                result.completeExceptionally(e);
+                            }
+                        },
+                        failure -> {
+                            logger.errorv(failure, "{0} API request failed", getRealm());
+                            result.completeExceptionally(failure);
+                        });
+        return result;
+    }
+
+    private void notify(ContainerDiscoveryEvent evt) {
+        bus.publish(notificationAddress(), evt);
+    }
+
     protected void updateDiscoveryTree(ContainerDiscoveryEvent evt) {
         EventKind evtKind = evt.eventKind;
         ContainerSpec desc = evt.desc;
@@ -257,7 +682,14 @@ public abstract class ContainerDiscovery {
 
         DiscoveryNode realm = DiscoveryNode.getRealm(getRealm()).orElseThrow();
 
+        // the same container may be reported by both the event stream and a full query
+        Optional<Target> persisted =
+                Target.<Target>find("connectUrl", target.connectUrl).firstResultOptional();
+
         if (evtKind == EventKind.FOUND) {
+            if (persisted.isPresent()) {
+                return;
+            }
             DiscoveryNode node = DiscoveryNode.target(target, NodeType.BaseNodeType.JVM);
             target.discoveryNode = node;
 
@@ -269,9 +701,9 @@ public abstract class ContainerDiscovery {
                                         DiscoveryNode.environment(
                                                 podName, ContainerDiscoveryNodeType.POD));
                 if (!realm.children.contains(pod)) {
-                    pod.children.add(node);
+                    pod.addChild(node);
                     node.parent = pod;
-                    realm.children.add(pod);
+                    realm.addChild(pod);
                     pod.parent = realm;
                 } else {
                     pod =
@@ -283,12 +715,12 @@ public abstract class ContainerDiscovery {
                                                                     .getKind()
                                                                     .equals(n.nodeType))
                                     .orElseThrow();
-                    pod.children.add(node);
+                    pod.addChild(node);
                     node.parent = pod;
                 }
                 pod.persist();
             } else {
-                realm.children.add(node);
+                realm.addChild(node);
                 node.parent = realm;
             }
             target.persist();
@@ -298,7 +730,12 @@ public abstract class ContainerDiscovery {
             // Retrieve the latest snapshot of the target
             // The target received from event message is outdated as it belongs to the previous
             // transaction
-            target = Target.getTargetByConnectUrl(target.connectUrl);
+            if (persisted.isEmpty()
+                    || !getRealm()
+                            .equals(persisted.get().annotations.cryostat().get("REALM"))) {
+                return;
+            }
+            target = persisted.get();
             DiscoveryNode node = target.discoveryNode;
 
             while (true) {
@@ -307,7 +744,7 @@ public abstract class ContainerDiscovery {
                     break;
                 }
 
-                parent.children.remove(node);
+                parent.removeChild(node);
                 parent.persist();
                 node.parent = null;
 
@@ -332,6 +769,8 @@ public abstract class ContainerDiscovery {
 
     protected abstract String getContainerQueryURL();
 
+    protected abstract String getEventsURL();
+
     protected abstract boolean enabled();
 
     protected abstract String notificationAddress();
@@ -357,6 +796,10 @@ public abstract class ContainerDiscovery {
 
     static record Config(String Hostname) {}
 
+    static record ContainerEvent(String Type, String Action, Actor Actor) {}
+
+    static record Actor(String ID, Map<String, String> Attributes) {}
+
     static record ContainerDiscoveryEvent(ContainerSpec desc, Target target, EventKind eventKind) {
         static ContainerDiscoveryEvent from(
                 ContainerSpec spec, Target target, EventKind eventKind) {
@@ -367,234 +810,14 @@ public abstract class ContainerDiscovery {
     @DisallowConcurrentExecution
     static class ContainersQueryJob implements Job {
 
-        @ConfigProperty(name = ConfigProperties.CONTAINERS_REQUEST_TIMEOUT)
-        Duration requestTimeout;
-
-        @Inject WebClient webClient;
-        @Inject JFRConnectionToolkit connectionToolkit;
-        @Inject ObjectMapper mapper;
-        @Inject EventBus bus;
-        @Inject URIUtil uriUtil;
-        @Inject Logger logger;
-
-        private JobExecutionContext context;
+        @Inject Instance<ContainerDiscovery> discoveries;
 
         @Override
-        @SuppressFBWarnings(
-                value = "EI_EXPOSE_REP2",
-                justification =
-                        "context is a Quartz JobExecutionContext scoped to a single job invocation;"
-                                + " the field is used only within this class and poses no real"
-                                + " representation-exposure risk")
         public void execute(JobExecutionContext context) throws JobExecutionException {
-            this.context = context;
-            queryContainers();
-        }
-
-        private void queryContainers() {
-            doContainerListRequest(
-                    current -> {
-                        Infrastructure.getDefaultWorkerPool()
-                                .execute(
-                                        () ->
-                                                QuarkusTransaction.requiringNew()
-                                                        .run(
-                                                                () ->
-                                                                        handleObservedContainers(
-                                                                                current)));
-                    });
-        }
-
-        private void handleObservedContainers(List<ContainerSpec> current) {
-            Map<URI, ContainerSpec> containerRefMap = new HashMap<>();
-
-            Set<Target> persistedTargets =
-                    Target.findByRealm(getRealm()).stream().collect(Collectors.toSet());
-            Set<Target> observedTargets =
-                    current.stream()
-                            .map(
-                                    (desc) -> {
-                                        Target t = toTarget(desc);
-                                        if (Objects.nonNull(t)) {
-                                            containerRefMap.put(t.connectUrl, desc);
-                                        }
-                                        return t;
-                                    })
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
-
-            Target.compare(persistedTargets)
-                    .to(observedTargets)
-                    .added()
-                    .forEach(
-                            (t) ->
-                                    notify(
-                                            ContainerDiscoveryEvent.from(
-                                                    containerRefMap.get(t.connectUrl),
-                                                    t,
-                                                    EventKind.FOUND)));
-
-            Target.compare(persistedTargets)
-                    .to(observedTargets)
-                    .removed()
-                    .forEach((t) -> notify(ContainerDiscoveryEvent.from(null, t, EventKind.LOST)));
-        }
-
-        private void doContainerListRequest(Consumer<List<ContainerSpec>> successHandler) {
-            URI requestPath = URI.create(getContainersQueryURL());
-            try {
-                webClient
-                        .request(
-                                HttpMethod.GET,
-                                domainSocket(getSocket()),
-                                80,
-                                "localhost",
-                                requestPath.toString())
-                        .addQueryParam(
-                                "filters",
-                                mapper.writeValueAsString(
-                                        Map.of("label", List.of(DISCOVERY_LABEL))))
-                        .timeout(requestTimeout.toMillis())
-                        .as(BodyCodec.string())
-                        .send()
-                        .subscribe()
-                        .with(
-                                item -> {
-                                    try {
-                                        successHandler.accept(
-                                                mapper.readValue(
-                                                        item.body(),
-                                                        new TypeReference<
-                                                                List<ContainerSpec>>() {}));
-                                    } catch (JsonProcessingException e) {
-                                        logger.error("Json processing error", e);
-                                    }
-                                },
-                                failure -> {
-                                    logger.errorv(failure, "{0} API request failed", getRealm());
-                                });
-            } catch (JsonProcessingException e) {
-                logger.error("Json processing error", e);
-            }
-        }
-
-        // Construct a target representation (non-persistent) of the container spec
-        private Target toTarget(ContainerSpec desc) {
-            URI connectUrl;
-            String hostname;
-            int jmxPort;
-            try {
-                JMXServiceURL serviceUrl;
-                URI rmiTarget;
-                if (desc.Labels.containsKey(JMX_URL_LABEL)) {
-                    serviceUrl = new JMXServiceURL(desc.Labels.get(JMX_URL_LABEL));
-                    connectUrl = URI.create(serviceUrl.toString());
-                    try {
-                        rmiTarget = uriUtil.getRmiTarget(serviceUrl);
-                        hostname = rmiTarget.getHost();
-                        jmxPort = rmiTarget.getPort();
-                    } catch (IllegalArgumentException e) {
-                        hostname = serviceUrl.getHost();
-                        jmxPort = serviceUrl.getPort();
-                    }
-                } else {
-                    jmxPort = Integer.parseInt(desc.Labels.get(JMX_PORT_LABEL));
-                    hostname = desc.Labels.get(JMX_HOST_LABEL);
-                    if (hostname == null) {
-                        try {
-                            hostname =
-                                    doContainerInspectRequest(desc)
-                                            .get(2, TimeUnit.SECONDS)
-                                            .Config
-                                            .Hostname;
-                        } catch (InterruptedException | TimeoutException | ExecutionException e) {
-                            logger.warnv(e, "Invalid {0} target observed", getRealm());
-                            return null;
-                        }
-                    }
-                }
-                serviceUrl = connectionToolkit.createServiceURL(hostname, jmxPort);
-                connectUrl = URI.create(serviceUrl.toString());
-            } catch (MalformedURLException | URISyntaxException e) {
-                logger.warnv(e, "Invalid {0} target observed", getRealm());
-                return null;
-            }
-
-            Target target = new Target();
-            target.activeRecordings = new ArrayList<>();
-            target.connectUrl = connectUrl;
-            target.alias = Optional.ofNullable(desc.Names.get(0)).orElse(desc.Id);
-            target.labels = desc.Labels;
-            target.annotations =
-                    new Annotations(
-                            null,
-                            Map.of(
-                                    "REALM", // AnnotationKey.REALM,
-                                    getRealm(),
-                                    "HOST", // AnnotationKey.HOST,
-                                    hostname,
-                                    "PORT", // "AnnotationKey.PORT,
-                                    Integer.toString(jmxPort)));
-
-            return target;
-        }
-
-        private CompletableFuture<ContainerDetails> doContainerInspectRequest(
-                ContainerSpec container) {
-            CompletableFuture<ContainerDetails> result = new CompletableFuture<>();
-            URI requestPath = URI.create(getContainerQueryURL(container));
-            webClient
-                    .request(
-                            HttpMethod.GET,
-                            domainSocket(getSocket()),
-                            80,
-                            "localhost",
-                            requestPath.toString())
-                    .timeout(requestTimeout.toMillis())
-                    .as(BodyCodec.string())
-                    .send()
-                    .subscribe()
-                    .with(
-                            item -> {
-                                try {
-                                    result.complete(
-                                            mapper.readValue(item.body(), ContainerDetails.class));
-                                } catch (JsonProcessingException e) {
-                                    logger.error("Json processing error", e);
-                                    result.completeExceptionally(e);
-                                }
-                            },
-                            failure -> {
-                                logger.errorv(failure, "{0} API request failed", getRealm());
-                                result.completeExceptionally(failure);
-                            });
-            return result;
-        }
-
-        private void notify(ContainerDiscoveryEvent evt) {
-            bus.publish(notificationAddress(), evt);
-        }
-
-        private String getRealm() {
-            return this.context.getMergedJobDataMap().getString(JOB_DATA_KEY_REALM);
-        }
-
-        private String getSocket() {
-            return this.context.getMergedJobDataMap().getString(JOB_DATA_KEY_SOCKET_ADDRESS);
-        }
-
-        private String getContainersQueryURL() {
-            return this.context.getMergedJobDataMap().getString(JOB_DATA_KEY_CONTAINERS_QUERY_URL);
-        }
-
-        private String getContainerQueryURL(ContainerSpec spec) {
-            return String.format(
-                    this.context.getMergedJobDataMap().getString(JOB_DATA_KEY_CONTAINER_QUERY_URL),
-                    spec.Id());
-        }
-
-        private String notificationAddress() {
-            return this.context.getMergedJobDataMap().getString(JOB_DATA_KEY_NOTIFICATION_ADDRESS);
+            String realm = context.getMergedJobDataMap().getString(JOB_DATA_KEY_REALM);
+            discoveries.stream()
+                    .filter(d -> realm.equals(d.getRealm()))
+                    .forEach(ContainerDiscovery::queryContainers);
         }
     }
 }
@@ -212,7 +212,7 @@ public class CustomDiscovery {
                                 node.parent = realm;
                                 target.persist();
                                 node.persist();
-                                realm.children.add(node);
+                                realm.addChild(node);
                                 realm.persist();
 
                                 return ResponseBuilder.<Target>created(
@@ -248,7 +248,7 @@ public class CustomDiscovery {
         Target target = Target.find("id", id).singleResult();
         DiscoveryNode realm = DiscoveryNode.getRealm(REALM).orElseThrow();
         realm = entityManager.find(DiscoveryNode.class, realm.id, LockModeType.PESSIMISTIC_WRITE);
-        boolean withinRealm = realm.children.remove(target.discoveryNode);
+        boolean withinRealm = realm.removeChild(target.discoveryNode);
         if (!withinRealm) {
             throw new BadRequestException();
         }
@@ -23,13 +23,12 @@ import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
-import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -39,11 +38,11 @@ import java.util.UUID;
 
 import io.cryostat.ConfigProperties;
 import io.cryostat.credentials.Credential;
-import io.cryostat.discovery.DiscoveryPlugin.PluginCallback;
 import io.cryostat.discovery.DiscoveryPlugin.PluginCleanupHelper;
 import io.cryostat.discovery.KubeEndpointSlicesDiscovery.KubeDiscoveryNodeType;
 import io.cryostat.discovery.NodeType.BaseNodeType;
 import io.cryostat.expressions.MatchExpression;
+import io.cryostat.targets.Target;
 import io.cryostat.targets.Target.Annotations;
 import io.cryostat.targets.TargetConnectionManager;
 import io.cryostat.util.URIUtil;
@@ -67,10 +66,10 @@ import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
-import jakarta.persistence.NoResultException;
 import jakarta.persistence.OptimisticLockException;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.DefaultValue;
@@ -78,63 +77,45 @@ import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.InternalServerErrorException;
 import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriBuilder;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.faulttolerance.Bulkhead;
 import org.eclipse.microprofile.faulttolerance.Retry;
 import org.eclipse.microprofile.faulttolerance.Timeout;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.hibernate.Hibernate;
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.reactive.RestForm;
 import org.jboss.resteasy.reactive.RestHeader;
 import org.jboss.resteasy.reactive.RestPath;
 import org.jboss.resteasy.reactive.RestQuery;
 import org.jboss.resteasy.reactive.RestResponse;
-import org.quartz.DisallowConcurrentExecution;
-import org.quartz.Job;
-import org.quartz.JobBuilder;
-import org.quartz.JobDataMap;
-import org.quartz.JobDetail;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
-import org.quartz.JobKey;
+import org.jboss.resteasy.reactive.RestResponse.ResponseBuilder;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
-import org.quartz.SimpleScheduleBuilder;
-import org.quartz.TriggerBuilder;
-import org.quartz.impl.matchers.GroupMatcher;
 
 @Path("")
 public class Discovery {
 
-    private static final String SYNTHETIC_REALM_NAME = "Cryostat Discovery";
-
     static final String X_FORWARDED_FOR = "X-Forwarded-For";
-
-    private static final String JOB_PERIODIC = "discovery.periodic";
-    private static final String PLUGIN_ID_MAP_KEY = "pluginId";
-    private static final String REFRESH_MAP_KEY = "refresh";
+    static final String TREE_VERSION_HEADER = "X-Discovery-Tree-Version";
+    static final String PUBLICATION_REVISION_HEADER = "Cryostat-Discovery-Revision";
 
     public static final String DISCOVERY_PLUGIN_LABEL_PREFIX = "discovery.cryostat.io/";
     public static final String DISCOVERY_PLUGIN_ID_LABEL_KEY =
             DISCOVERY_PLUGIN_LABEL_PREFIX + "plugin-id";
 
-    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_PING_PERIOD)
-    Duration discoveryPingPeriod;
-
-    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_MAX_FAILURES)
-    int maxConsecutiveFailures;
-
     @ConfigProperty(name = ConfigProperties.AGENT_TLS_REQUIRED)
     boolean agentTlsRequired;
 
@@ -150,6 +131,8 @@ public class Discovery {
     @Inject PluginCallbackFactory callbackFactory;
     @Inject PluginCleanupHelper cleanupHelper;
     @Inject EntityManager entityManager;
+    @Inject DiscoveryTree discoveryTree;
+    @Inject PluginPingScheduler pingScheduler;
 
     void onStop(@Observes ShutdownEvent evt) throws SchedulerException {
         scheduler.shutdown();
@@ -158,13 +141,50 @@ public class Discovery {
     @GET
     @Path("/api/v4/discovery")
     @RolesAllowed("read")
-    @Operation(summary = "Retrieve the entire discovery tree.")
-    public DiscoveryNode get(
-            @QueryParam("mergeRealms") @DefaultValue("false") boolean mergeRealms) {
-        if (!mergeRealms) {
-            return DiscoveryNode.getUniverse();
+    @Operation(
+            summary = "Retrieve the entire discovery tree.",
+            description =
+                    """
+                    Retrieve the entire discovery tree. The response carries an ETag which changes
+                    whenever the tree does, and an X-Discovery-Tree-Version header with the
+                    monotonically increasing tree version. Clients polling for changes should send
+                    the last ETag they received in an If-None-Match header, and will receive a 304
+                    Not Modified response with no body if the tree has not changed since.
+                    """)
+    public RestResponse<DiscoveryNode> get(
+            @QueryParam("mergeRealms") @DefaultValue("false") boolean mergeRealms,
+            @RestHeader(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        DiscoveryTree.Snapshot snapshot = discoveryTree.get();
+        String etag = snapshot.etag(mergeRealms);
+        ResponseBuilder<DiscoveryNode> builder;
+        if (etag.equals(ifNoneMatch)) {
+            builder = ResponseBuilder.create(RestResponse.Status.NOT_MODIFIED);
+        } else {
+            builder = ResponseBuilder.ok(mergeRealms ? snapshot.merged() : snapshot.universe());
         }
-        return mergeRealms();
+        return builder.header(HttpHeaders.ETAG, etag)
+                .header(TREE_VERSION_HEADER, snapshot.version())
+                .build();
+    }
+
+    @GET
+    @Path("/api/beta/discovery/changes")
+    @RolesAllowed("read")
+    @Operation(
+            summary = "Retrieve the changes made to the discovery tree since a given version.",
+            description =
+                    """
+                    Retrieve the structural changes made to the discovery tree since the given tree
+                    version, as reported by the X-Discovery-Tree-Version header or a previous
+                    DiscoveryTreeChanged notification. If an epoch is supplied and does not match
+                    the current epoch, or the version is too old to be served from the retained
+                    history, the response is 410 Gone and the client should refetch the full tree.
+                    """)
+    public DiscoveryTree.Changes changes(@RestQuery long since, @RestQuery Long epoch) {
+        return discoveryTree
+                .diffsSince(since)
+                .filter(c -> epoch == null || epoch == c.epoch())
+                .orElseThrow(() -> new ClientErrorException(Response.Status.GONE));
     }
 
     @GET
@@ -240,8 +260,7 @@ public class Discovery {
                     additionally require the id and token fields, which are supplied in the response to the original
                     registration.
                     """)
-    public PluginRegistration register(@Context RoutingContext ctx, JsonObject body)
-            throws SchedulerException {
+    public PluginRegistration register(@Context RoutingContext ctx, JsonObject body) {
         String pluginId = body.getString("id");
         String priorToken = body.getString("token");
         String realmName = body.getString("realm");
@@ -283,12 +302,16 @@ public class Discovery {
             plugin =
                     QuarkusTransaction.joiningExisting()
                             .call(
-                                    () ->
-                                            findOrCreatePlugin(
-                                                    callback.callbackUri(),
-                                                    callback.unauthCallback(),
-                                                    realmName,
-                                                    null));
+                                    () -> {
+                                        DiscoveryPlugin p =
+                                                findOrCreatePlugin(
+                                                        callback.callbackUri(),
+                                                        callback.unauthCallback(),
+                                                        realmName,
+                                                        null);
+                                        p.refreshOnPing = true;
+                                        return p;
+                                    });
 
             try {
                 locations = jwtFactory.getPluginLocations(plugin);
@@ -296,7 +319,7 @@ public class Discovery {
                 throw new BadRequestException(e);
             }
 
-            schedulePluginJob(plugin, true);
+            pingScheduler.schedule(plugin.id);
         }
 
         String token;
@@ -333,8 +356,7 @@ public class Discovery {
                     general Discovery Plugin registration and publication endpoints remain available for other
                     Discovery Plugin implementations.
                     """)
-    public PluginRegistration registerAgent(@Context RoutingContext ctx, AgentRegistration body)
-            throws SchedulerException {
+    public PluginRegistration registerAgent(@Context RoutingContext ctx, AgentRegistration body) {
         if (body == null) {
             throw new BadRequestException("body is required");
         }
@@ -367,6 +389,7 @@ public class Discovery {
                                                     credential,
                                                     prePingResult);
                                     replaceCredential(p, credential);
+                                    p.refreshOnPing = false;
                                     return p;
                                 });
 
@@ -377,7 +400,7 @@ public class Discovery {
             throw new BadRequestException(e);
         }
 
-        schedulePluginJob(plugin, false);
+        pingScheduler.schedule(plugin.id);
 
         String token;
         try {
@@ -419,14 +442,15 @@ public class Discovery {
                     Using its plugin ID and current token, a discovery plugin uses this endpoint to publish a JSON
                     request body containing a list of discovery nodes. The discovery plugin itself is a Realm node in
                     the overall discovery tree, so the published list of nodes here will replace the plugin Realm
-                    node's list of children.
+                    node's list of children. The response carries a Cryostat-Discovery-Revision header with the
+                    plugin's new publication revision.
                     """)
-    public void publish(
+    public RestResponse<Void> publish(
             @Context RoutingContext ctx,
             @RestPath UUID id,
             @RestHeader("Cryostat-Discovery-Authentication") String token,
             List<DiscoveryNode> body) {
-        publishWithContext(
+        return publishWithContext(
                 ctx,
                 id,
                 token,
@@ -451,14 +475,124 @@ public class Discovery {
                     Using its plugin ID and current token, a discovery plugin uses this endpoint to publish a JSON
                     request body containing a list of discovery nodes. The discovery plugin itself is a Realm node in
                     the overall discovery tree, so the published list of nodes here will replace the plugin Realm
-                    node's list of children.
+                    node's list of children. The response carries a Cryostat-Discovery-Revision header with the
+                    plugin's new publication revision.
                     """)
-    public void publishWithContext(
+    public RestResponse<Void> publishWithContext(
             @Context RoutingContext ctx,
             @RestPath UUID id,
             @RestHeader("Cryostat-Discovery-Authentication") String token,
             DiscoveryPublication body) {
-        DiscoveryPlugin plugin = DiscoveryPlugin.find("id", id).singleResult();
+        DiscoveryPlugin plugin = findPluginForPublication(ctx, id, token);
+        publishPluginTree(plugin, body);
+        return ResponseBuilder.<Void>noContent()
+                .header(PUBLICATION_REVISION_HEADER, plugin.publicationRevision)
+                .build();
+    }
+
+    @Transactional
+    @Bulkhead
+    @Timeout
+    @Retry(retryOn = {OptimisticLockException.class})
+    @RateLimit
+    @PATCH
+    @Path("/api/beta/discovery/{id}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @PermitAll
+    @Tag(ref = "Discovery")
+    @Operation(
+            summary = "Publish incremental target discovery information",
+            description =
+                    """
+                    Using its plugin ID and current token, a discovery plugin uses this endpoint to publish only the
+                    changes to its list of discovery nodes since a previous publication: nodes to add, nodes to update,
+                    and the connect URLs of nodes to remove. The delta must name the publication revision it was
+                    computed against, as reported by the Cryostat-Discovery-Revision header of the previous
+                    publication. If that revision is not the plugin's current revision, or the delta does not apply
+                    cleanly to the plugin's current nodes, the response is 409 Conflict and the plugin should fall
+                    back to a full publication. Incremental publications only apply to plugins which publish their
+                    nodes directly beneath their own Realm node, ie. whose last full publication had no fill
+                    strategy. Deltas from other plugins are rejected with 409 Conflict without any changes.
+                    """)
+    public RestResponse<Void> publishDelta(
+            @Context RoutingContext ctx,
+            @RestPath UUID id,
+            @RestHeader("Cryostat-Discovery-Authentication") String token,
+            DiscoveryDelta body) {
+        if (body == null) {
+            throw new BadRequestException("Publication delta is required");
+        }
+        DiscoveryPlugin plugin = findPluginForPublication(ctx, id, token);
+        // a delta is applied to the plugin's Realm node's direct children, which only matches the
+        // shape of the plugin's nodes if they were last published flat
+        if (plugin.publicationFillStrategy != DiscoveryFillStrategy.NONE
+                || body.baseRevision() != plugin.publicationRevision) {
+            throw publicationConflict(plugin);
+        }
+
+        List<DiscoveryNode> added = Optional.ofNullable(body.add()).orElse(List.of());
+        List<DiscoveryNode> updated = Optional.ofNullable(body.update()).orElse(List.of());
+        List<URI> removed = Optional.ofNullable(body.remove()).orElse(List.of());
+        for (var n : added) {
+            validatePublishedNode(n);
+        }
+        for (var n : updated) {
+            validatePublishedNode(n);
+        }
+
+        DiscoveryNode realm =
+                entityManager.find(
+                        DiscoveryNode.class, plugin.realm.id, LockModeType.PESSIMISTIC_WRITE);
+
+        // Each operation only looks up the nodes it names, so the cost of a delta publication is
+        // proportional to the size of the delta rather than to the size of the plugin's subtree.
+        for (URI connectUrl : removed) {
+            DiscoveryNode existing =
+                    findPublishedChild(realm, connectUrl)
+                            .orElseThrow(() -> publicationConflict(plugin));
+            if (Hibernate.isInitialized(realm.children)) {
+                realm.removeChild(existing);
+            }
+            deleteSubtree(existing);
+        }
+        // Flush removals before inserts so a connectUrl which is removed and re-added in the same
+        // delta does not collide with itself (connectUrl is unique).
+        entityManager.flush();
+
+        for (var n : updated) {
+            DiscoveryNode existing =
+                    findPublishedChild(realm, n.target.connectUrl)
+                            .orElseThrow(() -> publicationConflict(plugin));
+            applyPublishedNode(existing, n);
+            existing.persist();
+        }
+
+        for (var n : added) {
+            if (Target.find("connectUrl", n.target.connectUrl).count() > 0) {
+                throw publicationConflict(plugin);
+            }
+            n.target.discoveryNode = n;
+            n.parent = realm;
+            if (Hibernate.isInitialized(realm.children)) {
+                realm.addChild(n);
+            }
+            n.persist();
+        }
+        realm.persist();
+
+        plugin.publicationRevision++;
+        plugin.persist();
+        return ResponseBuilder.<Void>noContent()
+                .header(PUBLICATION_REVISION_HEADER, plugin.publicationRevision)
+                .build();
+    }
+
+    private DiscoveryPlugin findPluginForPublication(RoutingContext ctx, UUID id, String token) {
+        // lock the plugin so that concurrent publications are ordered by their revisions
+        DiscoveryPlugin plugin =
+                DiscoveryPlugin.<DiscoveryPlugin>find("id", id)
+                        .withLock(LockModeType.PESSIMISTIC_WRITE)
+                        .singleResult();
         try {
             jwtValidator.validateJwt(ctx, plugin, token, true);
         } catch (MalformedURLException
@@ -469,7 +603,21 @@ public class Discovery {
                 | ParseException e) {
             throw new BadRequestException(e);
         }
-        publishPluginTree(plugin, body);
+        return plugin;
+    }
+
+    private Optional<DiscoveryNode> findPublishedChild(DiscoveryNode realm, URI connectUrl) {
+        return Target.<Target>find("connectUrl", connectUrl)
+                .firstResultOptional()
+                .map(t -> t.discoveryNode)
+                .filter(n -> n.parent != null && Objects.equals(n.parent.id, realm.id));
+    }
+
+    private ClientErrorException publicationConflict(DiscoveryPlugin plugin) {
+        return new ClientErrorException(
+                Response.status(Response.Status.CONFLICT)
+                        .header(PUBLICATION_REVISION_HEADER, plugin.publicationRevision)
+                        .build());
     }
 
     @SuppressFBWarnings(
@@ -488,11 +636,8 @@ public class Discovery {
 
         // Reconcile published nodes against existing ones by connectUrl so surviving targets keep
         // their identity rather than being deleted and recreated (spurious LOST/FOUND). See #1604.
-        boolean kubernetes =
-                body.fillStrategy
-                        .map(algo -> algo == DiscoveryFillStrategy.KUBERNETES)
-                        .orElse(false);
-        if (kubernetes) {
+        DiscoveryFillStrategy fillStrategy = body.fillStrategy.orElse(DiscoveryFillStrategy.NONE);
+        if (fillStrategy == DiscoveryFillStrategy.KUBERNETES) {
             reconcileKubernetesPublication(plugin, body);
         } else {
             DiscoveryNode realm =
@@ -500,6 +645,8 @@ public class Discovery {
                             DiscoveryNode.class, plugin.realm.id, LockModeType.PESSIMISTIC_WRITE);
             reconcileFlatChildren(realm, body.nodes);
         }
+        plugin.publicationFillStrategy = fillStrategy;
+        plugin.publicationRevision++;
         plugin.persist();
     }
 
@@ -529,6 +676,10 @@ public class Discovery {
                     new IllegalArgumentException(String.format("%s cannot be blank", key)));
         }
 
+        // plugin publications share the Kubernetes realm with the builtin discovery, so take the
+        // same namespace lock before touching the namespace subtree
+        k8sDiscovery.lockNamespace(namespace);
+
         DiscoveryNode k8sRealm =
                 DiscoveryNode.getRealm(KubeEndpointSlicesDiscovery.REALM)
                         .orElseThrow(
@@ -590,14 +741,13 @@ public class Discovery {
             DiscoveryNode existing = existingByUrl.remove(n.target.connectUrl);
             if (existing == null) {
                 n.parent = innermost;
-                innermost.children.add(n);
+                innermost.addChild(n);
                 n.persist();
                 continue;
             }
 
             DiscoveryNode oldParent = existing.parent;
-            existing.name = n.name;
-            existing.nodeType = n.nodeType;
+            existing.rename(n.nodeType, n.name);
             existing.labels = n.labels;
             existing.target.alias = n.target.alias;
             if (n.target.labels != null) {
@@ -608,10 +758,10 @@ public class Discovery {
             }
             if (oldParent == null || !oldParent.equals(innermost)) {
                 if (oldParent != null) {
-                    oldParent.children.remove(existing);
+                    oldParent.removeChild(existing);
                 }
                 existing.parent = innermost;
-                innermost.children.add(existing);
+                innermost.addChild(existing);
             }
             existing.persist();
             if (oldParent != null && !oldParent.equals(innermost)) {
@@ -622,7 +772,7 @@ public class Discovery {
         for (DiscoveryNode gone : existingByUrl.values()) {
             DiscoveryNode parent = gone.parent;
             if (parent != null) {
-                parent.children.remove(gone);
+                parent.removeChild(gone);
             }
             gone.parent = null;
             gone.delete();
@@ -670,8 +820,7 @@ public class Discovery {
     public void deregister(
             @Context RoutingContext ctx,
             @RestPath UUID id,
-            @RestHeader("Cryostat-Discovery-Authentication") String token)
-            throws SchedulerException {
+            @RestHeader("Cryostat-Discovery-Authentication") String token) {
         DiscoveryPlugin plugin = DiscoveryPlugin.findById(id);
         if (plugin == null) {
             logger.debugv("Could not find registered plugin with ID {0}", id);
@@ -695,15 +844,7 @@ public class Discovery {
             throw new BadRequestException(e);
         }
 
-        Set<JobKey> jobKeys = new HashSet<>();
-        jobKeys.addAll(scheduler.getJobKeys(GroupMatcher.jobGroupEquals(JOB_PERIODIC)));
-        for (var key : jobKeys) {
-            if (!Objects.equals(plugin.id.toString(), key.getName())) {
-                continue;
-            }
-            scheduler.deleteJob(key);
-        }
-
+        pingScheduler.unschedule(plugin.id);
         plugin.delete();
     }
 
@@ -776,7 +917,7 @@ public class Discovery {
         for (DiscoveryNode child : new ArrayList<>(node.children)) {
             deleteSubtree(child);
         }
-        node.children.clear();
+        node.clearChildren();
         node.parent = null;
         node.delete();
     }
@@ -796,13 +937,20 @@ public class Discovery {
             }
         }
 
-        for (DiscoveryNode child : new ArrayList<>(realm.children)) {
+        // Remove stale children in a single pass rather than one List.remove() scan per child
+        List<DiscoveryNode> stale = new ArrayList<>();
+        Set<DiscoveryNode> staleSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DiscoveryNode child : realm.children) {
             URI url = child.target != null ? child.target.connectUrl : null;
             if (url == null || !incomingUrls.contains(url)) {
-                realm.children.remove(child);
-                deleteSubtree(child);
+                stale.add(child);
+                staleSet.add(child);
             }
         }
+        realm.removeChildren(staleSet::contains);
+        for (DiscoveryNode child : stale) {
+            deleteSubtree(child);
+        }
         // Flush removals before inserts so Hibernate does not insert a re-published connectUrl
         // before deleting the node that held it (connectUrl is unique).
         entityManager.flush();
@@ -814,29 +962,32 @@ public class Discovery {
             DiscoveryNode existing = existingByUrl.get(n.target.connectUrl);
             if (existing == null) {
                 n.parent = realm;
-                realm.children.add(n);
+                realm.addChild(n);
                 n.persist();
                 continue;
             }
-            existing.name = n.name;
-            existing.nodeType = n.nodeType;
-            if (n.labels != null) {
-                existing.labels = n.labels;
-            }
-            if (existing.target != null) {
-                existing.target.alias = n.target.alias;
-                if (n.target.labels != null) {
-                    existing.target.labels = n.target.labels;
-                }
-                if (n.target.annotations != null) {
-                    existing.target.annotations = n.target.annotations;
-                }
-            }
+            applyPublishedNode(existing, n);
             existing.persist();
         }
         realm.persist();
     }
 
+    private void applyPublishedNode(DiscoveryNode existing, DiscoveryNode n) {
+        existing.rename(n.nodeType, n.name);
+        if (n.labels != null) {
+            existing.labels = n.labels;
+        }
+        if (existing.target != null) {
+            existing.target.alias = n.target.alias;
+            if (n.target.labels != null) {
+                existing.target.labels = n.target.labels;
+            }
+            if (n.target.annotations != null) {
+                existing.target.annotations = n.target.annotations;
+            }
+        }
+    }
+
     private CallbackValidation validateCallback(
             RoutingContext ctx, String callback, String parameterName) {
         URI callbackUri;
@@ -992,7 +1143,7 @@ public class Discovery {
         var universe = DiscoveryNode.getUniverse();
         plugin.realm.parent = universe;
         plugin.persist();
-        universe.children.add(plugin.realm);
+        universe.addChild(plugin.realm);
         universe.persist();
 
         logger.debugv("Created new plugin: {0}", plugin.id);
@@ -1070,37 +1221,6 @@ public class Discovery {
         return credential;
     }
 
-    private void schedulePluginJob(DiscoveryPlugin plugin, boolean refresh)
-            throws SchedulerException {
-        JobKey jobKey = getPeriodicJobKey(plugin);
-        if (scheduler.checkExists(jobKey)) {
-            JobDetail jobDetail = scheduler.getJobDetail(jobKey);
-            jobDetail.getJobDataMap().put(REFRESH_MAP_KEY, refresh);
-            scheduler.addJob(jobDetail, true, true);
-            return;
-        }
-
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, plugin.id);
-        dataMap.put(REFRESH_MAP_KEY, refresh);
-        JobDetail jobDetail =
-                JobBuilder.newJob(RefreshPluginJob.class)
-                        .withIdentity(plugin.id.toString(), JOB_PERIODIC)
-                        .usingJobData(dataMap)
-                        .build();
-        var trigger =
-                TriggerBuilder.newTrigger()
-                        .withIdentity(jobDetail.getKey().getName(), jobDetail.getKey().getGroup())
-                        .startAt(Date.from(Instant.now().plus(discoveryPingPeriod)))
-                        .withSchedule(
-                                SimpleScheduleBuilder.simpleSchedule()
-                                        .repeatForever()
-                                        .withIntervalInSeconds(
-                                                (int) discoveryPingPeriod.toSeconds()))
-                        .build();
-        scheduler.scheduleJob(jobDetail, trigger);
-    }
-
     private Map<String, String> getEnvMap() {
         // TODO implement more generic env map passing by some platform detection
         // strategy or generalized config properties
@@ -1112,108 +1232,6 @@ public class Discovery {
         return envMap;
     }
 
-    @SuppressFBWarnings("DLS_DEAD_LOCAL_STORE")
-    private DiscoveryNode mergeRealms() {
-        DiscoveryNode universe = DiscoveryNode.getUniverse();
-        DiscoveryNode mergedRoot = new DiscoveryNode();
-        mergedRoot.id = universe.id;
-        mergedRoot.name = universe.name;
-        mergedRoot.nodeType = universe.nodeType;
-        mergedRoot.labels = new HashMap<>(universe.labels);
-        mergedRoot.children = new ArrayList<>();
-
-        DiscoveryNode syntheticRealm = new DiscoveryNode();
-        syntheticRealm.id = Long.MAX_VALUE;
-        syntheticRealm.name = SYNTHETIC_REALM_NAME;
-        syntheticRealm.nodeType = BaseNodeType.REALM.getKind();
-        syntheticRealm.labels = new HashMap<>();
-        syntheticRealm.children = new ArrayList<>();
-        mergedRoot.children.add(syntheticRealm);
-
-        var mergedNodes = new HashMap<Pair<String, String>, DiscoveryNode>();
-
-        var builtinRealmIds =
-                DiscoveryPlugin.find("#DiscoveryPlugin.getBuiltinRealmIds")
-                        .project(Long.class)
-                        .list();
-
-        for (var realm : universe.children) {
-            var stack = new ArrayDeque<NodeContext>();
-            for (var child : realm.children) {
-                stack.push(new NodeContext(child, null, builtinRealmIds.contains(realm.id)));
-            }
-
-            while (!stack.isEmpty()) {
-                var ctx = stack.pop();
-                var sourceNode = ctx.node;
-                var mergedParent = ctx.parent;
-                var fromBuiltin = ctx.fromBuiltin;
-
-                Pair<String, String> key = Pair.of(sourceNode.nodeType, sourceNode.name);
-
-                DiscoveryNode mergedNode;
-                if (mergedParent == null) {
-                    mergedNode = mergedNodes.computeIfAbsent(key, k -> copyNode(sourceNode));
-                    syntheticRealm.children.add(mergedNode);
-                    if (fromBuiltin) {
-                        mergeNodeProperties(mergedNode, sourceNode);
-                    }
-                } else {
-                    mergedNode =
-                            mergedParent.children.stream()
-                                    .filter(
-                                            n ->
-                                                    n.nodeType.equals(sourceNode.nodeType)
-                                                            && n.name.equals(sourceNode.name))
-                                    .findFirst()
-                                    .orElseGet(
-                                            () -> {
-                                                var node = copyNode(sourceNode);
-                                                mergedParent.children.add(node);
-                                                return node;
-                                            });
-
-                    // if we have collisions, prefer the node which came from a builtin plugin
-                    // and merge properties from discovery plugins in
-                    if (fromBuiltin) {
-                        mergeNodeProperties(mergedNode, sourceNode);
-                    }
-                }
-
-                if (sourceNode.children != null && !sourceNode.children.isEmpty()) {
-                    for (var child : sourceNode.children) {
-                        stack.push(new NodeContext(child, mergedNode, fromBuiltin));
-                    }
-                }
-            }
-        }
-
-        return mergedRoot;
-    }
-
-    private DiscoveryNode copyNode(DiscoveryNode source) {
-        var copy = new DiscoveryNode();
-        copy.id = source.id;
-        copy.name = source.name;
-        copy.nodeType = source.nodeType;
-        copy.labels = new HashMap<>(source.labels);
-        copy.children = new ArrayList<>();
-        copy.target = source.target;
-        return copy;
-    }
-
-    private void mergeNodeProperties(DiscoveryNode target, DiscoveryNode source) {
-        if (source.id != null) {
-            target.id = source.id;
-        }
-        if (source.labels != null) {
-            target.labels.putAll(source.labels);
-        }
-        if (source.target != null) {
-            target.target = source.target;
-        }
-    }
-
     /**
      * Merges a lineage chain into an existing tree, reusing nodes where possible. This walks down
      * the lineage chain and at each level checks if a node with the same name and type already
@@ -1231,13 +1249,7 @@ public class Discovery {
             // Check if a node with the same name and type already exists as a child
             final DiscoveryNode lineageNode = currentLineage;
             DiscoveryNode existingNode =
-                    currentParent.children.stream()
-                            .filter(
-                                    child ->
-                                            child.name.equals(lineageNode.name)
-                                                    && child.nodeType.equals(lineageNode.nodeType))
-                            .findFirst()
-                            .orElse(null);
+                    currentParent.findChild(lineageNode.nodeType, lineageNode.name).orElse(null);
 
             if (existingNode != null) {
                 // Reuse the existing node
@@ -1248,7 +1260,7 @@ public class Discovery {
             } else {
                 // Add the new node to the parent
                 lineageNode.parent = currentParent;
-                currentParent.children.add(lineageNode);
+                currentParent.addChild(lineageNode);
                 currentParent = lineageNode;
             }
 
@@ -1262,187 +1274,12 @@ public class Discovery {
         return currentParent;
     }
 
-    private static record NodeContext(
-            DiscoveryNode node, DiscoveryNode parent, boolean fromBuiltin) {}
-
     private enum PrePingResult {
         NOT_ATTEMPTED,
         REACHABLE,
         UNREACHABLE
     }
 
-    /**
-     * Check that discovery plugins are still alive/reachable and prompt them to regenerate expiring
-     * tokens. Plugins are issued short-lived tokens at registration time. Cryostat periodically
-     * pings plugins to ensure they are still alive/reachable and to prompt them to request a fresh
-     * token if their token will be expiring soon.
-     */
-    @DisallowConcurrentExecution
-    static class RefreshPluginJob implements Job {
-        @Inject Logger logger;
-
-        @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_MAX_FAILURES)
-        int maxConsecutiveFailures;
-
-        @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_PING_PERIOD)
-        Duration basePingPeriod;
-
-        @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_MAX_BACKOFF_MULTIPLIER)
-        int maxBackoffMultiplier;
-
-        @Inject PluginCallbackFactory callbackFactory;
-
-        @Inject PluginCleanupHelper cleanupHelper;
-
-        @Override
-        public void execute(JobExecutionContext context) throws JobExecutionException {
-            boolean refresh = context.getMergedJobDataMap().getBoolean(REFRESH_MAP_KEY);
-            UUID pluginId = (UUID) context.getMergedJobDataMap().get(PLUGIN_ID_MAP_KEY);
-            if (pluginId == null) {
-                var ex =
-                        new JobExecutionException(
-                                new NullPointerException("pluginId cannot be null"));
-                ex.setUnscheduleFiringTrigger(true);
-                throw ex;
-            }
-
-            try {
-                QuarkusTransaction.requiringNew()
-                        .run(
-                                () -> {
-                                    var p = DiscoveryPlugin.<DiscoveryPlugin>findById(pluginId);
-
-                                    if (p == null) {
-                                        throw new NoResultException(
-                                                "Plugin not found: " + pluginId);
-                                    }
-
-                                    if (p.nextPingAt != null
-                                            && Instant.now().isBefore(p.nextPingAt)) {
-                                        logger.debugv(
-                                                "Skipping ping due to backoff: {0} @ {1}",
-                                                p.realm.name, p.callback);
-                                        return;
-                                    }
-
-                                    PluginCallback cb;
-                                    try {
-                                        cb = callbackFactory.create(p);
-                                    } catch (URISyntaxException use) {
-                                        throw new IllegalStateException(use);
-                                    }
-                                    if (refresh) {
-                                        cb.refresh();
-                                        logger.debugv(
-                                                "Refreshed discovery plugin: {0} @ {1}",
-                                                p.realm.name, p.callback);
-                                    } else {
-                                        cb.ping();
-                                        logger.debugv(
-                                                "Retained discovery plugin: {0} @ {1}",
-                                                p.realm.name, p.callback);
-                                    }
-
-                                    p.consecutiveFailures = 0;
-                                    p.lastSuccessfulPing = Instant.now();
-                                    p.backoffMultiplier = 1;
-                                    p.nextPingAt = null;
-                                    p.persist();
-
-                                    logger.debugv(
-                                            "Plugin ping successful - lastSuccessfulPing: {0},"
-                                                    + " consecutiveFailures reset to 0,"
-                                                    + " backoffMultiplier reset to 1: {1} @"
-                                                    + " {2}",
-                                            p.lastSuccessfulPing, p.realm.name, p.callback);
-                                });
-            } catch (Exception e) {
-                logger.warnv(e, "Plugin ping failed");
-                var ex = new JobExecutionException(e);
-
-                boolean noSuchPlugin = ExceptionUtils.indexOfType(e, NoResultException.class) >= 0;
-                boolean unknownHost =
-                        ExceptionUtils.indexOfType(e, UnknownHostException.class) >= 0;
-                boolean illegalState =
-                        ExceptionUtils.indexOfType(e, IllegalStateException.class) >= 0;
-                if (noSuchPlugin || unknownHost || illegalState) {
-                    logger.warnv(
-                            "Unscheduled job for unknown discovery plugin: {0}",
-                            context.getMergedJobDataMap().get(PLUGIN_ID_MAP_KEY));
-                    if (noSuchPlugin) {
-                        QuarkusTransaction.joiningExisting()
-                                .run(() -> cleanupHelper.cleanupPluginNodes(pluginId));
-                    }
-                    ex.setUnscheduleFiringTrigger(true);
-                }
-
-                var f =
-                        QuarkusTransaction.joiningExisting()
-                                .call(
-                                        () -> {
-                                            var p =
-                                                    DiscoveryPlugin.<DiscoveryPlugin>findById(
-                                                            pluginId);
-                                            if (p == null) {
-                                                cleanupHelper.cleanupPluginNodes(pluginId);
-                                                ex.setUnscheduleFiringTrigger(true);
-                                                return true;
-                                            }
-                                            p.consecutiveFailures++;
-                                            p.lastFailedPing = Instant.now();
-                                            p.backoffMultiplier =
-                                                    Math.min(
-                                                            p.backoffMultiplier * 2,
-                                                            maxBackoffMultiplier);
-                                            Duration backoffPeriod =
-                                                    basePingPeriod.multipliedBy(
-                                                            p.backoffMultiplier);
-                                            p.nextPingAt = Instant.now().plus(backoffPeriod);
-                                            p.persist();
-
-                                            logger.debugv(
-                                                    "Plugin ping failed - lastFailedPing: {0},"
-                                                            + " consecutiveFailures: {1}/{2},"
-                                                            + " backoffMultiplier: {3}, nextPingAt:"
-                                                            + " {4}: {5} @ {6}",
-                                                    p.lastFailedPing,
-                                                    p.consecutiveFailures,
-                                                    maxConsecutiveFailures,
-                                                    p.backoffMultiplier,
-                                                    p.nextPingAt,
-                                                    p.realm.name,
-                                                    p.callback);
-
-                                            boolean failed =
-                                                    p.consecutiveFailures >= maxConsecutiveFailures;
-                                            if (failed) {
-                                                logger.warnv(
-                                                        "Pruning discovery plugin after {0}"
-                                                                + " consecutive failures: {1} @"
-                                                                + " {2}",
-                                                        p.consecutiveFailures,
-                                                        p.realm.name,
-                                                        p.callback);
-                                                p.delete();
-                                            } else {
-                                                logger.warnv(
-                                                        "Plugin ping failed ({0}/{1}), backing"
-                                                                + " off for {2}: {3} @ {4}",
-                                                        p.consecutiveFailures,
-                                                        maxConsecutiveFailures,
-                                                        backoffPeriod,
-                                                        p.realm.name,
-                                                        p.callback);
-                                            }
-                                            return failed;
-                                        });
-                if (f) {
-                    throw ex;
-                }
-            }
-        }
-    }
-
     static String requireNonBlank(String in, String name) {
         if (StringUtils.isBlank(in)) {
             throw new IllegalArgumentException(
@@ -1451,26 +1288,6 @@ public class Discovery {
         return in;
     }
 
-    /**
-     * Create a JobKey for a plugin's periodic refresh job.
-     *
-     * @param plugin The plugin to create a JobKey for
-     * @return JobKey for the plugin's periodic refresh job
-     */
-    static JobKey getPeriodicJobKey(DiscoveryPlugin plugin) {
-        return getPeriodicJobKey(plugin.id);
-    }
-
-    /**
-     * Create a JobKey for a plugin's periodic refresh job using the plugin ID.
-     *
-     * @param pluginId The plugin ID to create a JobKey for
-     * @return JobKey for the plugin's periodic refresh job
-     */
-    static JobKey getPeriodicJobKey(UUID pluginId) {
-        return JobKey.jobKey(pluginId.toString(), JOB_PERIODIC);
-    }
-
     private InetAddress getRemoteAddress(RoutingContext ctx) {
         InetAddress addr = null;
         if (ctx.request() != null && ctx.request().remoteAddress() != null) {
@@ -1497,6 +1314,12 @@ public class Discovery {
             Optional<DiscoveryFillStrategy> fillStrategy,
             Optional<Map<String, String>> context) {}
 
+    static record DiscoveryDelta(
+            long baseRevision,
+            List<DiscoveryNode> add,
+            List<DiscoveryNode> update,
+            List<URI> remove) {}
+
     private static record CallbackValidation(
             URI callbackUri, URI unauthCallback, InetAddress remoteAddress) {}
 
@@ -38,6 +38,7 @@ import io.quarkus.panache.common.Parameters;
 import io.vertx.mutiny.core.eventbus.EventBus;
 import jakarta.annotation.Nullable;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
@@ -52,13 +53,16 @@ import jakarta.persistence.NamedQueries;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.PostLoad;
 import jakarta.persistence.PostPersist;
 import jakarta.persistence.PostRemove;
 import jakarta.persistence.PostUpdate;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.apache.commons.lang3.tuple.Pair;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.NotAudited;
@@ -88,7 +92,12 @@ import org.jboss.logging.Logger;
                     "SELECT n FROM DiscoveryNode n WHERE jsonb_extract_path_text(n.labels,"
                             + " 'discovery.cryostat.io/plugin-id') = :pluginId")
 })
-@Table(indexes = {@Index(columnList = "nodeType"), @Index(columnList = "nodeType, name")})
+@Table(
+        indexes = {
+            @Index(columnList = "nodeType"),
+            @Index(columnList = "nodeType, name"),
+            @Index(columnList = "name")
+        })
 public class DiscoveryNode extends PanacheEntity {
 
     public static final String NODE_TYPE = "nodeType";
@@ -130,10 +139,100 @@ public class DiscoveryNode extends PanacheEntity {
     @NotAudited // Inverse side of bidirectional relationship - Target.discoveryNode owns this (has
     public Target target;
 
+    @Transient @JsonIgnore private Map<Pair<String, String>, DiscoveryNode> childIndex;
+    @Transient @JsonIgnore private List<DiscoveryNode> indexedChildren;
+
     public boolean hasChildren() {
         return !children.isEmpty();
     }
 
+    /**
+     * Find a direct child of this node by its type and name. Lookups are served from an index of
+     * the children keyed by (nodeType, name), which is built on first use, so that merging a large
+     * subtree into this node does not require a scan of the children for every incoming node. The
+     * index is kept current by {@link #addChild(DiscoveryNode)}, {@link
+     * #removeChild(DiscoveryNode)}, {@link #removeChildren(Predicate)}, {@link #clearChildren()}
+     * and {@link #rename(String, String)}, so the children must not be modified directly once the
+     * index may have been built. It is also discarded when the node is reloaded or refreshed by the
+     * persistence context, or if the children list is replaced. The index is not thread-safe and is
+     * intended for use within a single transaction or tree-building pass.
+     */
+    public Optional<DiscoveryNode> findChild(String nodeType, String name) {
+        return Optional.ofNullable(childIndex().get(Pair.of(nodeType, name)));
+    }
+
+    /** Append a child to this node, keeping the (nodeType, name) child index up to date. */
+    public void addChild(DiscoveryNode child) {
+        Map<Pair<String, String>, DiscoveryNode> index = childIndex();
+        children.add(child);
+        index.putIfAbsent(Pair.of(child.nodeType, child.name), child);
+    }
+
+    /**
+     * Remove a child from this node, keeping the (nodeType, name) child index up to date.
+     *
+     * @return true if the child was found and removed
+     */
+    public boolean removeChild(DiscoveryNode child) {
+        int idx = children.indexOf(child);
+        if (idx < 0) {
+            return false;
+        }
+        DiscoveryNode removed = children.remove(idx);
+        Pair<String, String> key = Pair.of(removed.nodeType, removed.name);
+        if (childIndex != null && childIndex.get(key) == removed) {
+            // another child may share the same type and name
+            invalidateChildIndex();
+        }
+        return true;
+    }
+
+    /** Remove every child matching the predicate, keeping the child index up to date. */
+    public boolean removeChildren(Predicate<DiscoveryNode> predicate) {
+        boolean removed = children.removeIf(predicate);
+        if (removed) {
+            invalidateChildIndex();
+        }
+        return removed;
+    }
+
+    /** Remove all of this node's children, keeping the child index up to date. */
+    public void clearChildren() {
+        children.clear();
+        invalidateChildIndex();
+    }
+
+    /**
+     * Change this node's type and name, keeping its parent's (nodeType, name) child index up to
+     * date.
+     */
+    public void rename(String nodeType, String name) {
+        if (Objects.equals(this.nodeType, nodeType) && Objects.equals(this.name, name)) {
+            return;
+        }
+        this.nodeType = nodeType;
+        this.name = name;
+        if (parent != null) {
+            parent.invalidateChildIndex();
+        }
+    }
+
+    private Map<Pair<String, String>, DiscoveryNode> childIndex() {
+        if (childIndex == null || indexedChildren != children) {
+            childIndex = new HashMap<>(Math.max(16, children.size() * 2));
+            for (DiscoveryNode child : children) {
+                childIndex.putIfAbsent(Pair.of(child.nodeType, child.name), child);
+            }
+            indexedChildren = children;
+        }
+        return childIndex;
+    }
+
+    public void invalidateChildIndex() {
+        childIndex = null;
+        indexedChildren = null;
+    }
+
     public static DiscoveryNode getUniverse() {
         return DiscoveryNode.find(NODE_TYPE, NodeType.BaseNodeType.UNIVERSE.getKind())
                 .<DiscoveryNode>singleResult();
@@ -253,6 +352,7 @@ public class DiscoveryNode extends PanacheEntity {
 
         @Inject Logger logger;
         @Inject EventBus bus;
+        @Inject Event<DiscoveryTree.NodeChanged> changedEvent;
 
         @PrePersist
         void prePersist(DiscoveryNode node) {
@@ -264,14 +364,26 @@ public class DiscoveryNode extends PanacheEntity {
             }
         }
 
+        @PostLoad
+        void postLoad(DiscoveryNode node) {
+            // also called after a refresh, which may replace the children behind the index
+            node.invalidateChildIndex();
+        }
+
         @PostPersist
-        void postPersist(DiscoveryNode node) {}
+        void postPersist(DiscoveryNode node) {
+            changedEvent.fire(new DiscoveryTree.NodeChanged(node.id));
+        }
 
         @PostUpdate
-        void postUpdate(DiscoveryNode node) {}
+        void postUpdate(DiscoveryNode node) {
+            changedEvent.fire(new DiscoveryTree.NodeChanged(node.id));
+        }
 
         @PostRemove
-        void postRemove(DiscoveryNode node) {}
+        void postRemove(DiscoveryNode node) {
+            changedEvent.fire(new DiscoveryTree.NodeChanged(node.id));
+        }
     }
 
     public static class Views {
@@ -24,6 +24,7 @@ import java.util.UUID;
 import java.util.function.Supplier;
 
 import io.cryostat.credentials.Credential;
+import io.cryostat.discovery.Discovery.DiscoveryFillStrategy;
 import io.cryostat.discovery.KubeEndpointSlicesDiscovery.KubeDiscoveryNodeType;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -43,6 +44,8 @@ import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
@@ -65,6 +68,7 @@ import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 import org.jboss.logging.Logger;
 
 /**
@@ -144,6 +148,35 @@ public class DiscoveryPlugin extends PanacheEntityBase {
     @JsonIgnore
     public Instant nextPingAt;
 
+    /**
+     * Whether periodic pings of this plugin should prompt it to refresh its registration, rather
+     * than only checking that it is still reachable.
+     */
+    @Column(nullable = false)
+    @JsonIgnore
+    @NotAudited
+    public boolean refreshOnPing = true;
+
+    /**
+     * Incremented on each publication by this plugin. Incremental publications must name the
+     * revision they were computed against so that they are only applied on top of the same state.
+     * Not audited, since the publication itself is already captured by the audited node changes.
+     */
+    @Column(nullable = false)
+    @JsonIgnore
+    @NotAudited
+    public long publicationRevision = 0;
+
+    /**
+     * The fill strategy of this plugin's last full publication. Incremental publications are only
+     * applied to plugins whose nodes were last published flat beneath their Realm node.
+     */
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    @JsonIgnore
+    @NotAudited
+    public DiscoveryFillStrategy publicationFillStrategy = DiscoveryFillStrategy.NONE;
+
     public static Optional<DiscoveryPlugin> findByCallbackAndRealmName(
             URI callback, String realmName) {
         return DiscoveryPlugin.<DiscoveryPlugin>find(
@@ -179,7 +212,7 @@ public class DiscoveryPlugin extends PanacheEntityBase {
                 try {
                     DiscoveryNode parent = node.parent;
                     if (parent != null) {
-                        parent.children.remove(node);
+                        parent.removeChild(node);
                         node.parent = null;
                     }
                     node.delete();
@@ -205,7 +238,7 @@ public class DiscoveryPlugin extends PanacheEntityBase {
                 entityManager.refresh(parent);
 
                 // Remove child from parent's collection - orphan removal will delete it
-                parent.children.remove(child);
+                parent.removeChild(child);
                 child.parent = null;
 
                 boolean hasChildren = parent.hasChildren();
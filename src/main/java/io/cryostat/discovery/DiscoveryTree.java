@@ -0,0 +1,826 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.discovery.NodeType.BaseNodeType;
+import io.cryostat.targets.Target;
+import io.cryostat.targets.events.TargetEvents;
+import io.cryostat.ws.MessagingServer;
+import io.cryostat.ws.Notification;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * In-memory, versioned copy of the discovery tree. Every committed change to a {@link
+ * DiscoveryNode} or {@link Target} advances the tree version. Readers are handed an immutable
+ * {@link Snapshot} detached from the persistence context. When the version has advanced, the next
+ * reader applies the committed changes to the previous snapshot: only the changed nodes are
+ * reloaded from the database, and only those nodes and their ancestors are copied, so the new
+ * snapshot shares every unchanged subtree with the old one. The whole tree is only loaded from the
+ * database for the first snapshot, or to recover when the changes cannot be applied incrementally.
+ * Repeated reads of an unchanged tree are served entirely from memory, and concurrent readers share
+ * a single update.
+ *
+ * <p>The structural changes made by each update are recorded as a {@link Diff} while they are
+ * applied, which is broadcast to WebSocket clients and retained in a bounded history. Only a full
+ * rebuild has to compare whole trees to find its differences. Clients can therefore keep a local
+ * copy of the tree current by applying diffs, and catch up after a disconnection by requesting the
+ * diffs since the version they last saw, rather than refetching the whole tree. Pending changes are
+ * also applied periodically so that diffs are emitted promptly even when no client is reading the
+ * tree.
+ */
+@ApplicationScoped
+public class DiscoveryTree {
+
+    public static final String TREE_CHANGED_CATEGORY = "DiscoveryTreeChanged";
+
+    private static final String SYNTHETIC_REALM_NAME = "Cryostat Discovery";
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    // distinguishes versions issued by this process from those issued before a restart, since the
+    // version counter itself is not persisted
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong(1);
+    private volatile Snapshot snapshot;
+    private final Deque<Diff> history = new ArrayDeque<>();
+
+    // nodes and targets changed by committed transactions which are not yet in the snapshot
+    private final Set<Long> pendingNodes = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingTargets = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuildRequired = true;
+
+    // index of the latest snapshot, only accessed while holding the monitor
+    private final Map<Long, NodeState> states = new HashMap<>();
+    private final Map<Long, Set<Long>> childIds = new HashMap<>();
+    private final Map<Long, DiscoveryNode> copies = new HashMap<>();
+    private final Map<Long, Long> targetNodes = new HashMap<>();
+    private long rootId;
+    private List<Long> builtinRealmIds = List.of();
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_TREE_HISTORY_SIZE)
+    int historySize;
+
+    @Inject EntityManager entityManager;
+    @Inject EventBus bus;
+    @Inject Logger logger;
+
+    /**
+     * An immutable view of the discovery tree at a given version. The merged view of the tree is
+     * only computed if it is requested, and is then shared by all readers of the snapshot.
+     */
+    @SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    public static final class Snapshot {
+        private final long epoch;
+        private final long version;
+        private final DiscoveryNode universe;
+        private final List<Long> builtinRealmIds;
+        private volatile DiscoveryNode merged;
+
+        Snapshot(
+                long epoch,
+                long version,
+                DiscoveryNode universe,
+                List<Long> builtinRealmIds,
+                DiscoveryNode merged) {
+            this.epoch = epoch;
+            this.version = version;
+            this.universe = universe;
+            this.builtinRealmIds = List.copyOf(builtinRealmIds);
+            this.merged = merged;
+        }
+
+        public long epoch() {
+            return epoch;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public DiscoveryNode universe() {
+            return universe;
+        }
+
+        public DiscoveryNode merged() {
+            DiscoveryNode m = merged;
+            if (m == null) {
+                synchronized (this) {
+                    m = merged;
+                    if (m == null) {
+                        m = mergeRealms(universe, builtinRealmIds);
+                        freeze(m);
+                        merged = m;
+                    }
+                }
+            }
+            return m;
+        }
+
+        public String etag(boolean mergeRealms) {
+            return String.format("\"%d-%d%s\"", epoch, version, mergeRealms ? "-merged" : "");
+        }
+
+        Snapshot withVersion(long version) {
+            return new Snapshot(epoch, version, universe, builtinRealmIds, merged);
+        }
+    }
+
+    /** Signals that a discovery tree node was created, modified, or removed. */
+    public record NodeChanged(long id) {}
+
+    public enum ChangeKind {
+        ADDED,
+        REMOVED,
+        /** The node's labels or target changed. */
+        MODIFIED,
+        /** The node's parent changed. The node state also reflects any other modifications. */
+        MOVED,
+    }
+
+    /** A single node of the tree, without its children. */
+    public record NodeState(
+            long id,
+            Long parentId,
+            String name,
+            String nodeType,
+            Map<String, String> labels,
+            Target target) {}
+
+    /**
+     * A single node change. For removals the node state is the last known state of the node,
+     * otherwise it is the new state.
+     */
+    public record Change(ChangeKind kind, NodeState node) {}
+
+    /** All of the changes which take the tree from one version to the next. */
+    public record Diff(long epoch, long fromVersion, long toVersion, List<Change> changes) {
+        public Diff {
+            changes = List.copyOf(changes);
+        }
+    }
+
+    public record Changes(long epoch, long version, List<Diff> diffs) {
+        public Changes {
+            diffs = List.copyOf(diffs);
+        }
+    }
+
+    @Scheduled(
+            every = "${" + ConfigProperties.DISCOVERY_TREE_PUBLISH_PERIOD + "}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void publishChanges() {
+        try {
+            get();
+        } catch (Exception e) {
+            logger.warn("Failed to update discovery tree snapshot", e);
+        }
+    }
+
+    // the change is recorded before the version is advanced, so a reader which observes the new
+    // version is guaranteed to also find the change pending
+    void onNodeChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) NodeChanged evt) {
+        pendingNodes.add(evt.id());
+        version.incrementAndGet();
+    }
+
+    void onTargetCreated(
+            @Observes(during = TransactionPhase.AFTER_SUCCESS) TargetEvents.TargetCreated evt) {
+        pendingTargets.add(evt.getEntityId());
+        version.incrementAndGet();
+    }
+
+    void onTargetUpdated(
+            @Observes(during = TransactionPhase.AFTER_SUCCESS) TargetEvents.TargetUpdated evt) {
+        pendingTargets.add(evt.getEntityId());
+        version.incrementAndGet();
+    }
+
+    void onTargetDeleted(
+            @Observes(during = TransactionPhase.AFTER_SUCCESS) TargetEvents.TargetDeleted evt) {
+        pendingTargets.add(evt.getEntityId());
+        version.incrementAndGet();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Force the next read to rebuild the snapshot from the database. Only needed when the database
+     * has been modified without going through the persistence context, ex. by schema migrations.
+     */
+    public void invalidate() {
+        rebuildRequired = true;
+        version.incrementAndGet();
+    }
+
+    /** Get a snapshot of the current discovery tree, updating it if it is out of date. */
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version.get()) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            long v = version.get();
+            if (current != null && current.version() == v) {
+                return current;
+            }
+            // the version is read before the pending changes are taken, so any change committed
+            // while updating causes the next reader to update again rather than being lost
+            Snapshot previous = current;
+            List<Change> changes = new ArrayList<>();
+            current = update(previous, v, changes);
+            snapshot = current;
+            if (previous != null) {
+                retain(new Diff(epoch, previous.version(), current.version(), changes));
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Get the diffs which take the tree from the given version to the latest snapshot version, in
+     * order.
+     *
+     * @return the diffs, which may be an empty list if the given version is current. Empty if the
+     *     given version is unknown or too old to be reconstructed from the retained history.
+     */
+    public Optional<Changes> diffsSince(long since) {
+        Snapshot current = get();
+        synchronized (this) {
+            if (since == current.version()) {
+                return Optional.of(new Changes(epoch, current.version(), List.of()));
+            }
+            List<Diff> diffs = new ArrayList<>();
+            for (Diff diff : history) {
+                if (diff.fromVersion() == since || !diffs.isEmpty()) {
+                    diffs.add(diff);
+                }
+            }
+            if (diffs.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(new Changes(epoch, diffs.get(diffs.size() - 1).toVersion(), diffs));
+        }
+    }
+
+    private void retain(Diff diff) {
+        // empty diffs are still retained so that the history forms an unbroken chain of versions
+        history.addLast(diff);
+        while (history.size() > Math.max(1, historySize)) {
+            history.removeFirst();
+        }
+        if (!diff.changes().isEmpty()) {
+            bus.publish(
+                    MessagingServer.class.getName(),
+                    new Notification(TREE_CHANGED_CATEGORY, diff));
+        }
+    }
+
+    private List<Change> diff(DiscoveryNode previousRoot, DiscoveryNode currentRoot) {
+        Map<Long, NodeState> before = flatten(previousRoot);
+        Map<Long, NodeState> after = flatten(currentRoot);
+        List<Change> changes = new ArrayList<>();
+        after.forEach(
+                (id, node) -> {
+                    NodeState old = before.get(id);
+                    if (old == null) {
+                        changes.add(new Change(ChangeKind.ADDED, node));
+                    } else if (!Objects.equals(old.parentId(), node.parentId())) {
+                        changes.add(new Change(ChangeKind.MOVED, node));
+                    } else if (modified(old, node)) {
+                        changes.add(new Change(ChangeKind.MODIFIED, node));
+                    }
+                });
+        // removals are listed deepest-first so that clients never see an orphaned child
+        List<NodeState> removed =
+                new ArrayList<>(
+                        before.values().stream().filter(n -> !after.containsKey(n.id())).toList());
+        Collections.reverse(removed);
+        removed.forEach(n -> changes.add(new Change(ChangeKind.REMOVED, n)));
+        return changes;
+    }
+
+    private Map<Long, NodeState> flatten(DiscoveryNode root) {
+        // pre-order, so that parents are always listed before their children
+        Map<Long, NodeState> nodes = new LinkedHashMap<>();
+        var stack = new ArrayDeque<Pair<DiscoveryNode, Long>>();
+        stack.push(Pair.of(root, null));
+        while (!stack.isEmpty()) {
+            var pair = stack.pop();
+            DiscoveryNode node = pair.getKey();
+            nodes.put(
+                    node.id,
+                    new NodeState(
+                            node.id,
+                            pair.getValue(),
+                            node.name,
+                            node.nodeType,
+                            node.labels,
+                            node.target));
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                stack.push(Pair.of(node.children.get(i), node.id));
+            }
+        }
+        return nodes;
+    }
+
+    private boolean sameTarget(Target a, Target b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.id, b.id)
+                && Objects.equals(a.connectUrl, b.connectUrl)
+                && Objects.equals(a.alias, b.alias)
+                && Objects.equals(a.jvmId, b.jvmId)
+                && Objects.equals(a.labels, b.labels)
+                && Objects.equals(a.annotations, b.annotations);
+    }
+
+    private Snapshot update(Snapshot previous, long v, List<Change> changes) {
+        if (previous != null && !rebuildRequired) {
+            try {
+                Optional<Snapshot> updated = apply(previous, v, changes);
+                if (updated.isPresent()) {
+                    return updated.get();
+                }
+                logger.debugv(
+                        "Discovery tree changes at version {0} could not be applied incrementally",
+                        v);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to apply discovery tree changes, rebuilding", e);
+            }
+        }
+        Snapshot rebuilt = rebuild(v);
+        changes.clear();
+        if (previous != null) {
+            changes.addAll(diff(previous.universe(), rebuilt.universe()));
+        }
+        return rebuilt;
+    }
+
+    private Snapshot rebuild(long v) {
+        // changes committed from here on are applied again on top of the rebuilt tree, which is
+        // harmless since applying a change reloads the node's current state
+        rebuildRequired = false;
+        pendingNodes.clear();
+        pendingTargets.clear();
+        try {
+            return QuarkusTransaction.requiringNew()
+                    .call(
+                            () -> {
+                                states.clear();
+                                childIds.clear();
+                                copies.clear();
+                                targetNodes.clear();
+                                DiscoveryNode universe = DiscoveryNode.getUniverse();
+                                rootId = universe.id;
+                                var stack = new ArrayDeque<Pair<DiscoveryNode, Long>>();
+                                stack.push(Pair.of(universe, null));
+                                while (!stack.isEmpty()) {
+                                    var pair = stack.pop();
+                                    DiscoveryNode node = pair.getKey();
+                                    put(state(node, pair.getValue()));
+                                    Set<Long> children = childIds.get(node.id);
+                                    for (var child : node.children) {
+                                        // record the children in order before they are visited
+                                        children.add(child.id);
+                                        stack.push(Pair.of(child, node.id));
+                                    }
+                                }
+                                builtinRealmIds = loadBuiltinRealmIds();
+                                DiscoveryNode root = materialize(rootId, Set.of());
+                                logger.debugv("Discovery tree snapshot rebuilt at version {0}", v);
+                                return new Snapshot(epoch, v, root, builtinRealmIds, null);
+                            });
+        } catch (RuntimeException e) {
+            rebuildRequired = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Apply the pending changes to the previous snapshot. The changed nodes are reloaded from the
+     * database, so that changes which were committed concurrently converge on the latest committed
+     * state regardless of the order in which their events were observed. The resulting structural
+     * changes are appended to the given list, with parents added before their children and children
+     * removed before their parents.
+     *
+     * @return the updated snapshot, or empty if the changes cannot be applied incrementally, ex.
+     *     because a node was attached to a parent which is not part of the tree
+     */
+    private Optional<Snapshot> apply(Snapshot previous, long v, List<Change> changes) {
+        Set<Long> changedNodes = drain(pendingNodes);
+        Set<Long> changedTargets = drain(pendingTargets);
+        if (changedNodes.isEmpty() && changedTargets.isEmpty()) {
+            return Optional.of(previous.withVersion(v));
+        }
+        for (Long targetId : changedTargets) {
+            Long nodeId = targetNodes.get(targetId);
+            if (nodeId != null) {
+                changedNodes.add(nodeId);
+            }
+        }
+        Map<Long, NodeState> loaded =
+                QuarkusTransaction.requiringNew()
+                        .call(
+                                () -> {
+                                    if (!changedTargets.isEmpty()) {
+                                        changedNodes.addAll(targetNodeIds(changedTargets));
+                                    }
+                                    return load(changedNodes);
+                                });
+
+        Set<Long> touched = new HashSet<>();
+        List<Change> updated = new ArrayList<>();
+        List<Change> removed = new ArrayList<>();
+        boolean realmsChanged = false;
+        for (Long id : changedNodes) {
+            NodeState prev = states.get(id);
+            NodeState next = loaded.get(id);
+            if (next != null && next.parentId() == null && id != rootId) {
+                // detached from the tree
+                next = null;
+            }
+            if (prev == null && next == null) {
+                continue;
+            }
+            realmsChanged |= isRealm(prev) || isRealm(next);
+            boolean moved =
+                    prev == null
+                            || next == null
+                            || !Objects.equals(prev.parentId(), next.parentId());
+            if (prev != null && moved && prev.parentId() != null) {
+                Set<Long> siblings = childIds.get(prev.parentId());
+                if (siblings != null) {
+                    siblings.remove(id);
+                }
+                touched.add(prev.parentId());
+            }
+            if (next == null) {
+                List<NodeState> subtree = remove(id);
+                Collections.reverse(subtree);
+                subtree.forEach(n -> removed.add(new Change(ChangeKind.REMOVED, n)));
+                continue;
+            }
+            if (prev != null && prev.target() != null) {
+                targetNodes.remove(prev.target().id);
+            }
+            put(next);
+            touched.add(id);
+            if (prev == null) {
+                updated.add(new Change(ChangeKind.ADDED, next));
+            } else if (moved) {
+                updated.add(new Change(ChangeKind.MOVED, next));
+            } else if (modified(prev, next)) {
+                updated.add(new Change(ChangeKind.MODIFIED, next));
+            }
+        }
+
+        // every touched node must still be reachable from the root. Its ancestors are copied
+        // along with it, and every other subtree is shared with the previous snapshot.
+        Set<Long> affected = new HashSet<>();
+        for (Long id : touched) {
+            if (!states.containsKey(id)) {
+                // removed along with its parent
+                continue;
+            }
+            Long current = id;
+            while (current != null && affected.add(current)) {
+                NodeState state = states.get(current);
+                if (state == null) {
+                    return Optional.empty();
+                }
+                current = state.parentId();
+                if (current == null && state.id() != rootId) {
+                    return Optional.empty();
+                }
+            }
+        }
+        if (realmsChanged) {
+            builtinRealmIds = QuarkusTransaction.requiringNew().call(this::loadBuiltinRealmIds);
+        }
+        DiscoveryNode root = materialize(rootId, affected);
+        updated.sort(Comparator.comparingInt(c -> depth(c.node())));
+        changes.addAll(updated);
+        changes.addAll(removed);
+        logger.debugv(
+                "Discovery tree snapshot updated at version {0}, {1} nodes copied",
+                v, affected.size());
+        return Optional.of(new Snapshot(epoch, v, root, builtinRealmIds, null));
+    }
+
+    private Set<Long> drain(Set<Long> pending) {
+        Set<Long> drained = new HashSet<>();
+        for (var it = pending.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    private List<Long> targetNodeIds(Set<Long> targetIds) {
+        List<Long> ids = new ArrayList<>();
+        for (List<Long> batch : batches(targetIds)) {
+            ids.addAll(
+                    entityManager
+                            .createQuery(
+                                    "SELECT t.discoveryNode.id FROM Target t WHERE t.id IN :ids",
+                                    Long.class)
+                            .setParameter("ids", batch)
+                            .getResultList());
+        }
+        return ids;
+    }
+
+    private Map<Long, NodeState> load(Set<Long> ids) {
+        Map<Long, NodeState> loaded = new HashMap<>();
+        for (List<Long> batch : batches(ids)) {
+            List<Object[]> rows =
+                    entityManager
+                            .createQuery(
+                                    "SELECT n, p.id FROM DiscoveryNode n LEFT JOIN n.parent p"
+                                            + " LEFT JOIN FETCH n.target WHERE n.id IN :ids",
+                                    Object[].class)
+                            .setParameter("ids", batch)
+                            .getResultList();
+            for (Object[] row : rows) {
+                DiscoveryNode node = (DiscoveryNode) row[0];
+                loaded.put(node.id, state(node, (Long) row[1]));
+            }
+        }
+        return loaded;
+    }
+
+    private List<List<Long>> batches(Set<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += LOAD_BATCH_SIZE) {
+            batches.add(all.subList(i, Math.min(all.size(), i + LOAD_BATCH_SIZE)));
+        }
+        return batches;
+    }
+
+    private List<Long> loadBuiltinRealmIds() {
+        return DiscoveryPlugin.find("#DiscoveryPlugin.getBuiltinRealmIds")
+                .project(Long.class)
+                .list();
+    }
+
+    private boolean isRealm(NodeState state) {
+        return state != null && BaseNodeType.REALM.getKind().equals(state.nodeType());
+    }
+
+    private void put(NodeState state) {
+        states.put(state.id(), state);
+        childIds.computeIfAbsent(state.id(), k -> new LinkedHashSet<>());
+        if (state.parentId() != null) {
+            childIds.computeIfAbsent(state.parentId(), k -> new LinkedHashSet<>())
+                    .add(state.id());
+        }
+        if (state.target() != null) {
+            targetNodes.put(state.target().id, state.id());
+        }
+    }
+
+    /** Remove a node and its descendants from the index, returning their states in pre-order. */
+    private List<NodeState> remove(long id) {
+        List<NodeState> removed = new ArrayList<>();
+        var stack = new ArrayDeque<Long>();
+        stack.push(id);
+        while (!stack.isEmpty()) {
+            Long current = stack.pop();
+            NodeState state = states.remove(current);
+            copies.remove(current);
+            Set<Long> children = childIds.remove(current);
+            if (children != null) {
+                children.forEach(stack::push);
+            }
+            if (state != null) {
+                removed.add(state);
+                if (state.target() != null) {
+                    targetNodes.remove(state.target().id);
+                }
+            }
+        }
+        return removed;
+    }
+
+    private int depth(NodeState node) {
+        int depth = 0;
+        for (NodeState n = node; n != null && n.parentId() != null; n = states.get(n.parentId())) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private boolean modified(NodeState prev, NodeState next) {
+        return !Objects.equals(prev.labels(), next.labels())
+                || !sameTarget(prev.target(), next.target());
+    }
+
+    /**
+     * Get the immutable copy of the node with the given ID. Nodes which are not affected by a
+     * change are reused from the previous snapshot, so that only the changed nodes and their
+     * ancestors are copied.
+     */
+    private DiscoveryNode materialize(long id, Set<Long> affected) {
+        DiscoveryNode existing = copies.get(id);
+        if (existing != null && !affected.contains(id)) {
+            return existing;
+        }
+        NodeState state = states.get(id);
+        var node = new DiscoveryNode();
+        node.id = state.id();
+        node.name = state.name();
+        node.nodeType = state.nodeType();
+        node.labels = state.labels();
+        node.target = state.target();
+        List<DiscoveryNode> children = new ArrayList<>();
+        for (Long childId : childIds.getOrDefault(id, Set.of())) {
+            children.add(materialize(childId, affected));
+        }
+        node.children = Collections.unmodifiableList(children);
+        copies.put(id, node);
+        return node;
+    }
+
+    private NodeState state(DiscoveryNode node, Long parentId) {
+        return new NodeState(
+                node.id,
+                parentId,
+                node.name,
+                node.nodeType,
+                Collections.unmodifiableMap(new HashMap<>(node.labels)),
+                node.target == null ? null : copyTarget(node.target));
+    }
+
+    private Target copyTarget(Target source) {
+        var copy = new Target();
+        copy.id = source.id;
+        copy.connectUrl = source.connectUrl;
+        copy.alias = source.alias;
+        copy.jvmId = source.jvmId;
+        copy.labels = Collections.unmodifiableMap(new HashMap<>(source.labels));
+        copy.annotations =
+                new Target.Annotations(
+                        Collections.unmodifiableMap(new HashMap<>(source.annotations.platform())),
+                        Collections.unmodifiableMap(new HashMap<>(source.annotations.cryostat())));
+        copy.activeRecordings = List.of();
+        return copy;
+    }
+
+    private static void freeze(DiscoveryNode root) {
+        var stack = new ArrayDeque<DiscoveryNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            node.children.forEach(stack::push);
+            node.children = Collections.unmodifiableList(node.children);
+            node.labels = Collections.unmodifiableMap(node.labels);
+        }
+    }
+
+    /**
+     * Merge the per-realm subtrees into a single synthetic realm, combining nodes which have the
+     * same type and name at the same position in the tree. Where nodes collide the properties of
+     * nodes from builtin discovery mechanisms take precedence.
+     */
+    @SuppressFBWarnings("DLS_DEAD_LOCAL_STORE")
+    private static DiscoveryNode mergeRealms(DiscoveryNode universe, List<Long> builtinRealmIds) {
+        DiscoveryNode mergedRoot = new DiscoveryNode();
+        mergedRoot.id = universe.id;
+        mergedRoot.name = universe.name;
+        mergedRoot.nodeType = universe.nodeType;
+        mergedRoot.labels = new HashMap<>(universe.labels);
+        mergedRoot.children = new ArrayList<>();
+
+        DiscoveryNode syntheticRealm = new DiscoveryNode();
+        syntheticRealm.id = Long.MAX_VALUE;
+        syntheticRealm.name = SYNTHETIC_REALM_NAME;
+        syntheticRealm.nodeType = BaseNodeType.REALM.getKind();
+        syntheticRealm.labels = new HashMap<>();
+        syntheticRealm.children = new ArrayList<>();
+        mergedRoot.addChild(syntheticRealm);
+
+        var mergedNodes = new HashMap<Pair<String, String>, DiscoveryNode>();
+
+        for (var realm : universe.children) {
+            var stack = new ArrayDeque<NodeContext>();
+            for (var child : realm.children) {
+                stack.push(new NodeContext(child, null, builtinRealmIds.contains(realm.id)));
+            }
+
+            while (!stack.isEmpty()) {
+                var ctx = stack.pop();
+                var sourceNode = ctx.node;
+                var mergedParent = ctx.parent;
+                var fromBuiltin = ctx.fromBuiltin;
+
+                Pair<String, String> key = Pair.of(sourceNode.nodeType, sourceNode.name);
+
+                DiscoveryNode mergedNode;
+                if (mergedParent == null) {
+                    mergedNode = mergedNodes.computeIfAbsent(key, k -> mergedCopy(sourceNode));
+                    syntheticRealm.addChild(mergedNode);
+                    if (fromBuiltin) {
+                        mergeNodeProperties(mergedNode, sourceNode);
+                    }
+                } else {
+                    mergedNode =
+                            mergedParent
+                                    .findChild(sourceNode.nodeType, sourceNode.name)
+                                    .orElseGet(
+                                            () -> {
+                                                var node = mergedCopy(sourceNode);
+                                                mergedParent.addChild(node);
+                                                return node;
+                                            });
+
+                    // if we have collisions, prefer the node which came from a builtin plugin
+                    // and merge properties from discovery plugins in
+                    if (fromBuiltin) {
+                        mergeNodeProperties(mergedNode, sourceNode);
+                    }
+                }
+
+                if (sourceNode.children != null && !sourceNode.children.isEmpty()) {
+                    for (var child : sourceNode.children) {
+                        stack.push(new NodeContext(child, mergedNode, fromBuiltin));
+                    }
+                }
+            }
+        }
+
+        return mergedRoot;
+    }
+
+    private static DiscoveryNode mergedCopy(DiscoveryNode source) {
+        var copy = new DiscoveryNode();
+        copy.id = source.id;
+        copy.name = source.name;
+        copy.nodeType = source.nodeType;
+        copy.labels = new HashMap<>(source.labels);
+        copy.children = new ArrayList<>();
+        copy.target = source.target;
+        return copy;
+    }
+
+    private static void mergeNodeProperties(DiscoveryNode target, DiscoveryNode source) {
+        if (source.id != null) {
+            target.id = source.id;
+        }
+        if (source.labels != null) {
+            target.labels.putAll(source.labels);
+        }
+        if (source.target != null) {
+            target.target = source.target;
+        }
+    }
+
+    private static record NodeContext(
+            DiscoveryNode node, DiscoveryNode parent, boolean fromBuiltin) {}
+}
@@ -134,7 +134,7 @@ public class JDPDiscovery implements Consumer<JvmDiscoveryEvent> {
                 DiscoveryNode node = DiscoveryNode.target(target, NodeType.BaseNodeType.JVM);
 
                 target.discoveryNode = node;
-                realm.children.add(node);
+                realm.addChild(node);
                 node.parent = realm;
                 target.persist();
                 node.persist();
@@ -142,7 +142,7 @@ public class JDPDiscovery implements Consumer<JvmDiscoveryEvent> {
                 break;
             case LOST:
                 Target t = Target.getTargetByConnectUrl(connectUrl);
-                realm.children.remove(t.discoveryNode);
+                realm.removeChild(t.discoveryNode);
                 t.discoveryNode.parent = null;
                 realm.persist();
                 t.delete();
@@ -15,6 +15,7 @@
  */
 package io.cryostat.discovery;
 
+import java.net.MalformedURLException;
 import java.net.URI;
 import java.nio.file.Path;
 import java.time.Duration;
@@ -29,6 +30,11 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -42,6 +48,8 @@ import io.cryostat.targets.Target;
 import io.cryostat.targets.Target.Annotations;
 import io.cryostat.targets.Target.EventKind;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.Namespace;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
@@ -54,6 +62,9 @@ import io.fabric8.kubernetes.api.model.discovery.v1.EndpointSlice;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.panache.common.Parameters;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
@@ -64,9 +75,6 @@ import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.persistence.LockModeType;
-import jakarta.transaction.Transactional;
-import jakarta.transaction.Transactional.TxType;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.concurrent.ConcurrentException;
 import org.apache.commons.lang3.concurrent.LazyInitializer;
@@ -98,7 +106,6 @@ import org.quartz.TriggerBuilder;
 public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<EndpointSlice> {
 
     private static final String NAMESPACE_QUERY_ADDR = "NS_QUERY_ENDPOINT_SLICE";
-    private static final String ENDPOINT_SLICE_DISCOVERY_ADDR = "ENDPOINT_SLICE_DISC";
     private static final JobKey RESYNC_JOB_KEY =
             new JobKey("force-resync", "kube-endpoints-discovery");
 
@@ -107,6 +114,15 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
     public static final String DISCOVERY_NAMESPACE_LABEL_KEY =
             Discovery.DISCOVERY_PLUGIN_LABEL_PREFIX + "namespace";
 
+    static final String INFORMER_EVENTS_METRIC = "cryostat.discovery.kubernetes.informer.events";
+    static final String COALESCED_EVENTS_METRIC =
+            "cryostat.discovery.kubernetes.informer.events.coalesced";
+    static final String BATCH_CHANGES_METRIC = "cryostat.discovery.kubernetes.batch.changes";
+    static final String BATCH_APPLY_METRIC = "cryostat.discovery.kubernetes.batch.apply";
+    static final String OBJECT_CACHE_METRIC_NAME = "kubernetes-discovery-objects";
+    static final String RESYNC_SKIPPED_METRIC = "cryostat.discovery.kubernetes.sync.skipped";
+    static final String RESYNC_RECONCILED_METRIC = "cryostat.discovery.kubernetes.sync.reconciled";
+
     // SQL query to find orphaned nodes - nodes with no children and no associated Target
     // Uses native SQL to access JSONB map keys/values which HQL doesn't support well
     private static final String FIND_ORPHANED_NODES_SQL =
@@ -129,6 +145,21 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
             """
                     .formatted(DISCOVERY_NAMESPACE_LABEL_KEY);
 
+    // connection URLs of the targets persisted under a particular namespace
+    private static final String FIND_NAMESPACED_CONNECT_URLS_SQL =
+            """
+            SELECT t.connectUrl FROM Target t %n\
+            JOIN DiscoveryNode n ON t.discoveryNode = n.id %n\
+            WHERE n.nodeType = :nodeType AND %n\
+            n.labels->>'%s' = :namespace\
+            """
+                    .formatted(DISCOVERY_NAMESPACE_LABEL_KEY);
+
+    // transaction-scoped advisory lock keyed by realm and namespace. Hash collisions between
+    // namespace names only cause unnecessary serialization, never missed exclusion
+    private static final String LOCK_NAMESPACE_SQL =
+            "SELECT 1 FROM pg_advisory_xact_lock(:realm, :namespace)";
+
     private static final List<String> EMPTY_PORT_NAMES = new ArrayList<>();
 
     private static final List<Integer> EMPTY_PORT_NUMBERS = new ArrayList<>();
@@ -145,6 +176,8 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
 
     @Inject EntityManager entityManager;
 
+    @Inject MeterRegistry meterRegistry;
+
     @ConfigProperty(name = "cryostat.discovery.kubernetes.enabled")
     boolean enabled;
 
@@ -166,8 +199,23 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
     @ConfigProperty(name = "cryostat.discovery.kubernetes.force-resync.enabled")
     boolean forceResyncEnabled;
 
+    @ConfigProperty(name = "cryostat.discovery.kubernetes.coalesce-window")
+    Duration coalesceWindow;
+
+    @ConfigProperty(name = "cryostat.discovery.kubernetes.object-cache.ttl")
+    Duration objectCacheTtl;
+
+    @ConfigProperty(name = "cryostat.discovery.kubernetes.object-cache.max-size")
+    long objectCacheMaxSize;
+
     private final ReentrantReadWriteLock shutdownLock = new ReentrantReadWriteLock();
 
+    // namespace -> number of informer events received since its pending sync was scheduled
+    private final Map<String, Integer> pendingNamespaceSyncs = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService coalesceExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+
     private volatile boolean shuttingDown;
 
     private final LazyInitializer<HashMap<String, SharedIndexInformer<EndpointSlice>>> nsInformers =
@@ -228,6 +276,29 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
                 }
             };
 
+    /**
+     * Cache of the Kubernetes objects (Pods and their owners) looked up while building target
+     * ownership lineages, so that each resync does not need to GET every ancestor of every target
+     * from the API server. Entries expire after the configured TTL, and Pod entries are
+     * additionally invalidated when EndpointSlice informer events show them being added to or
+     * removed from a slice.
+     */
+    private final LazyInitializer<Cache<KubeObjectKey, Optional<HasMetadata>>> kubeObjects =
+            new LazyInitializer<Cache<KubeObjectKey, Optional<HasMetadata>>>() {
+                @Override
+                protected Cache<KubeObjectKey, Optional<HasMetadata>> initialize()
+                        throws ConcurrentException {
+                    Cache<KubeObjectKey, Optional<HasMetadata>> cache =
+                            Caffeine.newBuilder()
+                                    .expireAfterWrite(objectCacheTtl)
+                                    .maximumSize(objectCacheMaxSize)
+                                    .recordStats()
+                                    .build();
+                    CaffeineCacheMetrics.monitor(meterRegistry, cache, OBJECT_CACHE_METRIC_NAME);
+                    return cache;
+                }
+            };
+
     void onStart(@Observes StartupEvent evt) {
         shuttingDown = false;
 
@@ -309,6 +380,8 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
             logger.debugv("Shutting down {0} client", REALM);
 
             deleteResyncJobIfSchedulerRunning();
+            coalesceExecutor.shutdownNow();
+            pendingNamespaceSyncs.clear();
             safeGetInformers()
                     .forEach(
                             (ns, informer) -> {
@@ -377,7 +450,8 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
         logger.debugv(
                 "EndpointSlice {0} created in namespace {1}",
                 slice.getMetadata().getName(), slice.getMetadata().getNamespace());
-        notify(NamespaceQueryEvent.from(slice.getMetadata().getNamespace()));
+        invalidateKubeObjects(null, slice);
+        requestNamespaceSync(slice.getMetadata().getNamespace());
     }
 
     @Override
@@ -389,7 +463,8 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
         logger.debugv(
                 "EndpointSlice {0} modified in namespace {1}",
                 newSlice.getMetadata().getName(), newSlice.getMetadata().getNamespace());
-        notify(NamespaceQueryEvent.from(newSlice.getMetadata().getNamespace()));
+        invalidateKubeObjects(oldSlice, newSlice);
+        requestNamespaceSync(newSlice.getMetadata().getNamespace());
     }
 
     @Override
@@ -404,7 +479,119 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
         if (deletedFinalStateUnknown) {
             logger.warnv("Deleted final state unknown: {0}", endpoints);
         }
-        notify(NamespaceQueryEvent.from(endpoints.getMetadata().getNamespace()));
+        invalidateKubeObjects(endpoints, null);
+        requestNamespaceSync(endpoints.getMetadata().getNamespace());
+    }
+
+    /**
+     * Request a synchronization of the given namespace in response to an informer event. Informer
+     * events for a namespace are debounced over the configured coalescing window, so that a burst
+     * of EndpointSlice changes (ex. a rolling restart of a large Deployment) results in a single
+     * namespace sync computing the net change against the informer's current state. Targets which
+     * appear and disappear again within the window therefore never reach the database.
+     */
+    private void requestNamespaceSync(String namespace) {
+        meterRegistry.counter(INFORMER_EVENTS_METRIC).increment();
+        if (coalesceWindow.isZero() || coalesceWindow.isNegative()) {
+            meterRegistry.summary(COALESCED_EVENTS_METRIC).record(1);
+            notify(NamespaceQueryEvent.from(namespace));
+            return;
+        }
+        if (pendingNamespaceSyncs.merge(namespace, 1, Integer::sum) > 1) {
+            // a sync for this namespace is already scheduled and will observe this change too
+            return;
+        }
+        try {
+            coalesceExecutor.schedule(
+                    () -> flushNamespaceSync(namespace),
+                    coalesceWindow.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pendingNamespaceSyncs.remove(namespace);
+            logger.tracev(
+                    "Ignoring EndpointSlice event for namespace {0} during shutdown", namespace);
+        }
+    }
+
+    private void flushNamespaceSync(String namespace) {
+        Integer coalesced = pendingNamespaceSyncs.remove(namespace);
+        if (coalesced == null) {
+            return;
+        }
+        logger.debugv(
+                "Coalesced {0} EndpointSlice event(s) in namespace {1} into one sync",
+                coalesced, namespace);
+        meterRegistry.summary(COALESCED_EVENTS_METRIC).record(coalesced);
+        notify(NamespaceQueryEvent.from(namespace));
+    }
+
+    /**
+     * Look up a Kubernetes object by kind, namespace and name, serving repeated lookups from the
+     * object cache. Objects which do not exist are cached as absent as well, until they either
+     * expire or are invalidated by an EndpointSlice event referring to them.
+     */
+    HasMetadata getKubeObject(KubeDiscoveryNodeType nodeType, String namespace, String name) {
+        if (objectCacheTtl.isZero() || objectCacheTtl.isNegative()) {
+            return nodeType.getQueryFunction().apply(client).apply(namespace).apply(name);
+        }
+        return safeGetKubeObjects()
+                .get(
+                        new KubeObjectKey(nodeType.getKind(), namespace, name),
+                        k ->
+                                Optional.ofNullable(
+                                        nodeType.getQueryFunction()
+                                                .apply(client)
+                                                .apply(namespace)
+                                                .apply(name)))
+                .orElse(null);
+    }
+
+    void invalidateKubeObjects() {
+        safeGetKubeObjects().invalidateAll();
+    }
+
+    /**
+     * Invalidate cached objects referenced by endpoints which were added to or removed from an
+     * EndpointSlice. References which are present both before and after the change are kept, so
+     * routine slice updates (ex. readiness changes) do not force the whole slice to be re-fetched.
+     */
+    private void invalidateKubeObjects(EndpointSlice oldSlice, EndpointSlice newSlice) {
+        Set<KubeObjectKey> before = targetRefKeys(oldSlice);
+        Set<KubeObjectKey> after = targetRefKeys(newSlice);
+        Set<KubeObjectKey> changed = new HashSet<>(before);
+        changed.addAll(after);
+        before.retainAll(after);
+        changed.removeAll(before);
+        if (!changed.isEmpty()) {
+            safeGetKubeObjects().invalidateAll(changed);
+        }
+    }
+
+    private Set<KubeObjectKey> targetRefKeys(EndpointSlice slice) {
+        Set<KubeObjectKey> keys = new HashSet<>();
+        if (slice == null || slice.getEndpoints() == null) {
+            return keys;
+        }
+        for (Endpoint endpoint : slice.getEndpoints()) {
+            ObjectReference ref = endpoint.getTargetRef();
+            if (ref == null) {
+                continue;
+            }
+            KubeDiscoveryNodeType nodeType =
+                    KubeDiscoveryNodeType.fromKubernetesKind(ref.getKind());
+            if (nodeType != null) {
+                keys.add(new KubeObjectKey(nodeType.getKind(), ref.getNamespace(), ref.getName()));
+            }
+        }
+        return keys;
+    }
+
+    private Cache<KubeObjectKey, Optional<HasMetadata>> safeGetKubeObjects() {
+        try {
+            return kubeObjects.get();
+        } catch (ConcurrentException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private Map<String, SharedIndexInformer<EndpointSlice>> safeGetInformers() {
@@ -420,8 +607,9 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
                 || jmxPortNumbers.orElse(EMPTY_PORT_NUMBERS).contains(port.getPort());
     }
 
-    @ConsumeEvent(value = NAMESPACE_QUERY_ADDR, blocking = true, ordered = true)
-    @Transactional(TxType.REQUIRES_NEW)
+    // namespaces are locked individually while being synchronized, so query events need not be
+    // processed in order and independent namespaces may be synchronized in parallel
+    @ConsumeEvent(value = NAMESPACE_QUERY_ADDR, blocking = true, ordered = false)
     public void handleQueryEvent(NamespaceQueryEvent evt) {
         if (!withDiscoveryEventHandler(() -> syncNamespaceTargets(evt))) {
             logger.tracev("Ignoring EndpointSlice namespace query event during shutdown: {0}", evt);
@@ -431,121 +619,161 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
     private void syncNamespaceTargets(NamespaceQueryEvent evt) {
         for (var namespace : evt.namespaces) {
             try {
-                Set<Target> persistedTargets = queryPersistedTargets(namespace);
+                // each namespace is synchronized in its own transaction so that a failure in one
+                // does not roll back the changes applied to the others
+                QuarkusTransaction.requiringNew().run(() -> syncNamespaceTargets(namespace));
+            } catch (Exception e) {
+                logger.errorv(
+                        e, "Failed to synchronize EndpointSlices in namespace {0}", namespace);
+            }
+        }
+    }
 
-                Map<TargetDTO, DiscoveryNodeDTO> observedTargetsWithHierarchy =
-                        buildInMemoryTreeForNamespaceDTO(namespace);
+    /**
+     * Compute the net set of targets gained and lost in the namespace since the last sync, by
+     * comparing the informer's view of the namespace against the persisted targets, and apply it in
+     * a single batch.
+     */
+    private void syncNamespaceTargets(String namespace) {
+        // hold the namespace lock from before reading the persisted state until the changes are
+        // committed, so concurrent syncs of the same namespace cannot compute conflicting diffs
+        lockNamespace(namespace);
+
+        // the full reconciliation below only ever adds or removes targets by connection URL, so if
+        // the observed and persisted URL sets are equal there is nothing for it to do. This check
+        // only touches the informer's local store and a single projection query, which keeps the
+        // periodic resync of unchanged namespaces cheap
+        if (observedConnectUrls(namespace).equals(persistedConnectUrls(namespace))) {
+            logger.tracev("Namespace {0} has not drifted, skipping reconciliation", namespace);
+            meterRegistry.counter(RESYNC_SKIPPED_METRIC).increment();
+            return;
+        }
+        meterRegistry.counter(RESYNC_RECONCILED_METRIC).increment();
 
-                Set<TargetDTO> observedTargetDtos = observedTargetsWithHierarchy.keySet();
+        Set<Target> persistedTargets = queryPersistedTargets(namespace);
 
-                Set<String> observedConnectUrls =
-                        observedTargetDtos.stream()
-                                .map(TargetDTO::connectUrl)
-                                .collect(Collectors.toSet());
+        Map<TargetDTO, DiscoveryNodeDTO> observedTargetsWithHierarchy =
+                buildInMemoryTreeForNamespaceDTO(namespace);
 
-                Set<String> persistedConnectUrls =
-                        persistedTargets.stream()
-                                .map(t -> t.connectUrl.toString())
-                                .collect(Collectors.toSet());
+        Set<TargetDTO> observedTargetDtos = observedTargetsWithHierarchy.keySet();
 
-                // Find removed targets (in persisted but not in observed)
-                Set<Target> removedTargets =
-                        persistedTargets.stream()
-                                .filter(t -> !observedConnectUrls.contains(t.connectUrl.toString()))
-                                .collect(Collectors.toSet());
+        Set<String> observedConnectUrls =
+                observedTargetDtos.stream().map(TargetDTO::connectUrl).collect(Collectors.toSet());
 
-                // Find added targets (in observed but not in persisted)
-                Set<TargetDTO> addedTargetDtos =
-                        observedTargetDtos.stream()
-                                .filter(dto -> !persistedConnectUrls.contains(dto.connectUrl()))
-                                .collect(Collectors.toSet());
+        Set<String> persistedConnectUrls =
+                persistedTargets.stream()
+                        .map(t -> t.connectUrl.toString())
+                        .collect(Collectors.toSet());
 
-                logger.debugv(
-                        "Namespace {0}: Found {1} persisted targets, {2} observed targets, {3}"
-                                + " removed targets, {4} added targets",
-                        namespace,
-                        persistedTargets.size(),
-                        observedTargetDtos.size(),
-                        removedTargets.size(),
-                        addedTargetDtos.size());
-
-                removedTargets.forEach(
-                        (t) -> {
-                            logger.debugv("Publishing LOST event for target: {0}", t.connectUrl);
-                            notify(EndpointDiscoveryEvent.from(namespace, t, null, EventKind.LOST));
-                        });
+        // Find removed targets (in persisted but not in observed)
+        Set<Target> removedTargets =
+                persistedTargets.stream()
+                        .filter(t -> !observedConnectUrls.contains(t.connectUrl.toString()))
+                        .collect(Collectors.toSet());
 
-                addedTargetDtos.forEach(
-                        (targetDto) -> {
-                            DiscoveryNodeDTO hierarchy =
-                                    observedTargetsWithHierarchy.get(targetDto);
-                            logger.debugv(
-                                    "Publishing FOUND event for target: {0}",
-                                    targetDto.connectUrl());
-                            notify(
-                                    EndpointDiscoveryEvent.from(
-                                            namespace,
-                                            null,
-                                            null,
-                                            EventKind.FOUND,
-                                            targetDto,
-                                            hierarchy));
-                        });
-            } catch (Exception e) {
-                logger.errorv(
-                        e, "Failed to synchronize EndpointSlices in namespace {0}", namespace);
-            }
-        }
-    }
+        // Find added targets (in observed but not in persisted)
+        Set<TargetDTO> addedTargetDtos =
+                observedTargetDtos.stream()
+                        .filter(dto -> !persistedConnectUrls.contains(dto.connectUrl()))
+                        .collect(Collectors.toSet());
 
-    @ConsumeEvent(value = ENDPOINT_SLICE_DISCOVERY_ADDR, blocking = true, ordered = true)
-    @Transactional(TxType.REQUIRED)
-    public void handleEndpointEvent(EndpointDiscoveryEvent evt) {
-        if (!withDiscoveryEventHandler(() -> applyEndpointDiscoveryEvent(evt))) {
-            logger.tracev("Ignoring EndpointSlice discovery event during shutdown: {0}", evt);
+        logger.debugv(
+                "Namespace {0}: Found {1} persisted targets, {2} observed targets, {3}"
+                        + " removed targets, {4} added targets",
+                namespace,
+                persistedTargets.size(),
+                observedTargetDtos.size(),
+                removedTargets.size(),
+                addedTargetDtos.size());
+
+        // apply removals first so that owner chains emptied by them are pruned before new targets
+        // are attached
+        List<EndpointDiscoveryEvent> changes = new ArrayList<>();
+        removedTargets.forEach(
+                (t) ->
+                        changes.add(
+                                EndpointDiscoveryEvent.from(namespace, t, null, EventKind.LOST)));
+        addedTargetDtos.forEach(
+                (targetDto) ->
+                        changes.add(
+                                EndpointDiscoveryEvent.from(
+                                        namespace,
+                                        null,
+                                        null,
+                                        EventKind.FOUND,
+                                        targetDto,
+                                        observedTargetsWithHierarchy.get(targetDto))));
+        if (changes.isEmpty()) {
+            return;
         }
+
+        meterRegistry.summary(BATCH_CHANGES_METRIC).record(changes.size());
+        meterRegistry
+                .timer(BATCH_APPLY_METRIC)
+                .record(() -> applyEndpointDiscoveryEvents(namespace, changes));
     }
 
-    private void applyEndpointDiscoveryEvent(EndpointDiscoveryEvent evt) {
-        String namespace = evt.namespace;
+    /**
+     * Apply a set of target changes within one namespace. The namespace is locked once for the
+     * whole set, rather than once per target, so bursts of changes do not serialize into many small
+     * transactions contending on the same lock.
+     */
+    private void applyEndpointDiscoveryEvents(
+            String namespace, Collection<EndpointDiscoveryEvent> events) {
+        lockNamespace(namespace);
         DiscoveryNode realm = DiscoveryNode.getRealm(REALM).orElseThrow();
-        realm = entityManager.find(DiscoveryNode.class, realm.id, LockModeType.PESSIMISTIC_WRITE);
-        DiscoveryNode lockedRealm = realm;
         DiscoveryNode nsNode =
-                DiscoveryNode.getChild(lockedRealm, n -> n.name.equals(namespace))
+                DiscoveryNode.getChild(realm, n -> n.name.equals(namespace))
                         .orElseGet(
                                 () -> {
                                     DiscoveryNode created =
                                             DiscoveryNode.environment(
                                                     namespace, KubeDiscoveryNodeType.NAMESPACE);
-                                    created.parent = lockedRealm;
+                                    created.parent = realm;
                                     created.persist();
                                     return created;
                                 });
 
-        if (evt.eventKind == EventKind.FOUND) {
-            if (evt.targetDto != null && evt.hierarchyRoot != null) {
-                logger.debugv("Persisting target from DTO: {0}", evt.targetDto.connectUrl());
-                persistOwnerChainFromDTO(nsNode, evt.targetDto, evt.hierarchyRoot);
+        for (EndpointDiscoveryEvent evt : events) {
+            if (evt.eventKind == EventKind.FOUND) {
+                if (evt.targetDto != null && evt.hierarchyRoot != null) {
+                    logger.debugv("Persisting target from DTO: {0}", evt.targetDto.connectUrl());
+                    persistOwnerChainFromDTO(nsNode, evt.targetDto, evt.hierarchyRoot);
+                } else {
+                    logger.warnv(
+                            "FOUND event missing DTOs for target: {0}",
+                            evt.target != null ? evt.target.connectUrl : "null");
+                }
             } else {
-                logger.warnv(
-                        "FOUND event missing DTOs for target: {0}",
-                        evt.target != null ? evt.target.connectUrl : "null");
+                pruneOwnerChain(nsNode, evt.target);
             }
-        } else {
-            pruneOwnerChain(nsNode, evt.target);
         }
 
         if (!nsNode.hasChildren()) {
-            realm.children.remove(nsNode);
+            realm.removeChild(nsNode);
             nsNode.parent = null;
         } else if (!realm.children.contains(nsNode)) {
-            realm.children.add(nsNode);
+            realm.addChild(nsNode);
             nsNode.parent = realm;
         }
         realm.persist();
     }
 
+    /**
+     * Serialize writes to the subtree of the given Kubernetes namespace. This takes a
+     * transaction-scoped Postgres advisory lock keyed by the namespace name, rather than a row lock
+     * on the realm node, so that discovery churn in one namespace does not block discovery in any
+     * other. The advisory lock also covers the case where the Namespace node does not exist yet and
+     * there is no row to lock. The lock is released when the current transaction completes.
+     */
+    void lockNamespace(String namespace) {
+        entityManager
+                .createNativeQuery(LOCK_NAMESPACE_SQL)
+                .setParameter("realm", REALM.hashCode())
+                .setParameter("namespace", namespace.hashCode())
+                .getSingleResult();
+    }
+
     private void notify(NamespaceQueryEvent evt) {
         if (shuttingDown) {
             logger.tracev("Ignoring EndpointSlice namespace query event during shutdown: {0}", evt);
@@ -554,88 +782,100 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
         bus.publish(NAMESPACE_QUERY_ADDR, evt);
     }
 
-    private void notify(EndpointDiscoveryEvent evt) {
-        if (shuttingDown) {
-            logger.tracev("Ignoring EndpointSlice discovery event during shutdown: {0}", evt);
-            return;
+    List<TargetTuple> getTargetTuplesFrom(EndpointSlice slice) {
+        List<TargetTuple> tts = new ArrayList<>();
+        Map<String, HasMetadata> nodeCache = new HashMap<>();
+        for (EndpointCandidate candidate : getEndpointCandidates(slice)) {
+            ObjectReference ref = candidate.ref();
+            String cacheKey = ref.getNamespace() + "/" + ref.getName() + "/" + ref.getKind();
+            HasMetadata obj =
+                    nodeCache.computeIfAbsent(
+                            cacheKey,
+                            k -> {
+                                KubeDiscoveryNodeType nodeType =
+                                        KubeDiscoveryNodeType.fromKubernetesKind(ref.getKind());
+                                if (nodeType == null) {
+                                    return null;
+                                }
+                                return getKubeObject(nodeType, ref.getNamespace(), ref.getName());
+                            });
+            tts.add(
+                    new TargetTuple(
+                            ref,
+                            obj,
+                            candidate.addr(),
+                            candidate.port(),
+                            candidate.endpoint().getConditions()));
         }
-        bus.publish(ENDPOINT_SLICE_DISCOVERY_ADDR, evt);
+        return tts;
     }
 
-    List<TargetTuple> getTargetTuplesFrom(EndpointSlice slice) {
-        List<TargetTuple> tts = new ArrayList<>();
+    /**
+     * The endpoints of a slice which are potential targets, one per compatible port, without
+     * resolving the Kubernetes objects they refer to. This is the single source of the targets'
+     * addresses, shared by {@link #getTargetTuplesFrom(EndpointSlice)} and {@link
+     * #getConnectUrlsFrom(EndpointSlice)}.
+     */
+    private List<EndpointCandidate> getEndpointCandidates(EndpointSlice slice) {
+        List<EndpointCandidate> candidates = new ArrayList<>();
 
         if (!ipv6Enabled && "ipv6".equalsIgnoreCase(slice.getAddressType())) {
-            return tts;
+            return candidates;
         }
 
         List<EndpointPort> ports = slice.getPorts();
-        if (ports == null) {
-            return tts;
-        }
-
-        String addressType = slice.getAddressType();
-        String addressTypeLower = addressType.toLowerCase();
         List<Endpoint> endpoints = slice.getEndpoints();
-
-        if (endpoints == null) {
-            return tts;
+        if (ports == null || endpoints == null) {
+            return candidates;
         }
 
-        Map<String, HasMetadata> nodeCache = new HashMap<>();
+        String addressTypeLower = slice.getAddressType().toLowerCase();
 
         for (EndpointPort port : ports) {
+            if (!isCompatiblePort(port)) {
+                continue;
+            }
             for (Endpoint endpoint : endpoints) {
-                TargetTuple tuple = createTargetTuple(endpoint, port, addressTypeLower, nodeCache);
-                if (tuple != null && isCompatiblePort(tuple.port)) {
-                    tts.add(tuple);
+                List<String> addresses = endpoint.getAddresses();
+                ObjectReference ref = endpoint.getTargetRef();
+                if (addresses == null || addresses.isEmpty() || ref == null) {
+                    continue;
                 }
+                // the EndpointSlice specification states that all of the
+                // addresses are fungible, ie interchangeable - they will
+                // resolve to the same Pod. So, we only need to worry about the
+                // first one.
+                String addr = transformAddress(addresses.get(0), addressTypeLower, ref);
+                candidates.add(new EndpointCandidate(endpoint, port, addr, ref));
             }
         }
 
-        return tts;
+        return candidates;
     }
 
-    private TargetTuple createTargetTuple(
-            Endpoint endpoint,
-            EndpointPort port,
-            String addressTypeLower,
-            Map<String, HasMetadata> nodeCache) {
-
-        List<String> addresses = endpoint.getAddresses();
-        if (addresses == null || addresses.isEmpty()) {
-            return null;
-        }
-
-        ObjectReference ref = endpoint.getTargetRef();
-        if (ref == null) {
-            return null;
+    /**
+     * Connection URLs of the targets in a slice, as {@link TargetTuple#toTarget()} computes them.
+     */
+    Set<String> getConnectUrlsFrom(EndpointSlice slice) {
+        Set<String> urls = new HashSet<>();
+        for (EndpointCandidate candidate : getEndpointCandidates(slice)) {
+            try {
+                urls.add(connectUrl(candidate.addr(), candidate.port()).toString());
+            } catch (MalformedURLException e) {
+                logger.debugv(e, "Skipping endpoint address {0}", candidate.addr());
+            }
         }
+        return urls;
+    }
 
-        // the EndpointSlice specification states that all of the
-        // addresses are fungible, ie interchangeable - they will
-        // resolve to the same Pod. So, we only need to worry about the
-        // first one.
-        String addr = addresses.get(0);
-        String transformedAddr = transformAddress(addr, addressTypeLower, ref);
-
-        String cacheKey = ref.getNamespace() + "/" + ref.getName() + "/" + ref.getKind();
-        HasMetadata obj =
-                nodeCache.computeIfAbsent(
-                        cacheKey,
-                        k -> {
-                            KubeDiscoveryNodeType nodeType =
-                                    KubeDiscoveryNodeType.fromKubernetesKind(ref.getKind());
-                            if (nodeType == null) {
-                                return null;
-                            }
-                            return nodeType.getQueryFunction()
-                                    .apply(client)
-                                    .apply(ref.getNamespace())
-                                    .apply(ref.getName());
-                        });
+    private record EndpointCandidate(
+            Endpoint endpoint, EndpointPort port, String addr, ObjectReference ref) {}
 
-        return new TargetTuple(ref, obj, transformedAddr, port, endpoint.getConditions());
+    private static URI connectUrl(String addr, EndpointPort port) throws MalformedURLException {
+        JMXServiceURL jmxUrl =
+                new JMXServiceURL(
+                        "rmi", "", 0, "/jndi/rmi://" + addr + ':' + port.getPort() + "/jmxrmi");
+        return URI.create(jmxUrl.toString());
     }
 
     private String transformAddress(String addr, String addressType, ObjectReference ref) {
@@ -675,6 +915,47 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
         return persistedTargets;
     }
 
+    /**
+     * The EndpointSlices in the given namespace, as currently known to the informer's local store.
+     */
+    private Stream<EndpointSlice> namespaceEndpointSlices(String namespace) {
+        if (kubeConfig.watchAllNamespaces()) {
+            return safeGetInformers().get(KubeConfig.ALL_NAMESPACES).getStore().list().stream()
+                    .filter(ep -> Objects.equals(ep.getMetadata().getNamespace(), namespace));
+        }
+        var informer = safeGetInformers().get(namespace);
+        if (informer == null) {
+            logger.warnv("No informer found for namespace: {0}", namespace);
+            return Stream.empty();
+        }
+        return informer.getStore().list().stream();
+    }
+
+    /**
+     * Connection URLs of the targets in a namespace as observed by the informer. Unlike {@link
+     * #buildInMemoryTreeForNamespaceDTO(String)} this only reads the informer's local store and
+     * makes no requests to the API server or database.
+     */
+    private Set<String> observedConnectUrls(String namespace) {
+        Set<String> urls = new HashSet<>();
+        namespaceEndpointSlices(namespace).forEach(slice -> urls.addAll(getConnectUrlsFrom(slice)));
+        return urls;
+    }
+
+    /**
+     * Connection URLs of the persisted targets in a namespace, read with a single projection query
+     * rather than by loading the namespace's discovery subtree.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> persistedConnectUrls(String namespace) {
+        return new HashSet<>(
+                entityManager
+                        .createNativeQuery(FIND_NAMESPACED_CONNECT_URLS_SQL, String.class)
+                        .setParameter("nodeType", KubeDiscoveryNodeType.ENDPOINT_SLICE.getKind())
+                        .setParameter("namespace", namespace)
+                        .getResultList());
+    }
+
     /**
      * Build in-memory discovery tree for all targets in a namespace using DTOs. This method does
      * NOT persist anything to the database - it only queries Kubernetes API and builds the tree
@@ -686,24 +967,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
     private Map<TargetDTO, DiscoveryNodeDTO> buildInMemoryTreeForNamespaceDTO(String namespace) {
         Map<TargetDTO, DiscoveryNodeDTO> result = new HashMap<>();
 
-        Stream<EndpointSlice> endpoints;
-        if (kubeConfig.watchAllNamespaces()) {
-            endpoints =
-                    safeGetInformers().get(KubeConfig.ALL_NAMESPACES).getStore().list().stream()
-                            .filter(
-                                    ep ->
-                                            Objects.equals(
-                                                    ep.getMetadata().getNamespace(), namespace));
-        } else {
-            var informer = safeGetInformers().get(namespace);
-            if (informer == null) {
-                logger.warnv("No informer found for namespace: {0}", namespace);
-                return result;
-            }
-            endpoints = informer.getStore().list().stream();
-        }
-
-        endpoints
+        namespaceEndpointSlices(namespace)
                 .map(this::getTargetTuplesFrom)
                 .flatMap(List::stream)
                 .filter((tuple) -> Objects.nonNull(tuple.objRef))
@@ -811,8 +1075,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
             return null;
         }
 
-        HasMetadata kubeObj =
-                nodeType.getQueryFunction().apply(client).apply(namespace).apply(name);
+        HasMetadata kubeObj = getKubeObject(nodeType, namespace, name);
 
         Map<String, String> labels = new HashMap<>();
         if (kubeObj != null && kubeObj.getMetadata().getLabels() != null) {
@@ -930,8 +1193,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
         }
 
         leafNode.labels.putIfAbsent(DISCOVERY_NAMESPACE_LABEL_KEY, namespace);
-        HasMetadata kubeObj =
-                nodeType.getQueryFunction().apply(client).apply(namespace).apply(leafNode.name);
+        HasMetadata kubeObj = getKubeObject(nodeType, namespace, leafNode.name);
 
         if (kubeObj == null) {
             return leafNode;
@@ -984,7 +1246,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
             DiscoveryNode childNode = current.getRight();
 
             if (!ownerNode.children.contains(childNode)) {
-                ownerNode.children.add(childNode);
+                ownerNode.addChild(childNode);
             }
             childNode.parent = ownerNode;
 
@@ -1056,7 +1318,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
                 entityManager.refresh(parent); // Reload from DB with current children
 
                 // Remove child from parent's collection - orphan removal will delete it
-                parent.children.remove(child);
+                parent.removeChild(child);
                 child.parent = null;
 
                 boolean hasChildren = parent.hasChildren();
@@ -1073,7 +1335,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
 
                 logger.debugv("Continuing to prune parent node {0}", parent.name);
                 // Remove child from parent's collection - orphan removal will delete it
-                parent.children.remove(child);
+                parent.removeChild(child);
                 child.parent = null;
 
                 // Move up to check the parent too
@@ -1093,7 +1355,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
                     DiscoveryNode orphanParent = orphan.parent;
                     if (orphanParent != null) {
                         entityManager.refresh(orphanParent);
-                        orphanParent.children.remove(orphan);
+                        orphanParent.removeChild(orphan);
                         orphan.parent = null;
                     }
 
@@ -1250,8 +1512,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
             return null;
         }
 
-        HasMetadata kubeObj =
-                nodeType.getQueryFunction().apply(client).apply(namespace).apply(name);
+        HasMetadata kubeObj = getKubeObject(nodeType, namespace, name);
 
         DiscoveryNode node = new DiscoveryNode();
         node.name = name;
@@ -1287,8 +1548,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
             return null;
         }
 
-        HasMetadata kubeObj =
-                nodeType.getQueryFunction().apply(client).apply(namespace).apply(name);
+        HasMetadata kubeObj = getKubeObject(nodeType, namespace, name);
 
         if (kubeObj == null) {
             logger.debugv(
@@ -1453,18 +1713,8 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
         }
 
         // Add to namespace children if not already present
-        final Long topmostId = topmost.id;
-        final DiscoveryNode topmostNode = topmost;
-        boolean alreadyChild =
-                nsNode.children.stream()
-                        .anyMatch(
-                                child ->
-                                        child == topmostNode
-                                                || (child.id != null
-                                                        && topmostId != null
-                                                        && child.id.equals(topmostId)));
-        if (!alreadyChild) {
-            nsNode.children.add(topmost);
+        if (!isIndexedChild(nsNode, topmost)) {
+            nsNode.addChild(topmost);
             logger.debugv(
                     "Added topmost node {0} to namespace {1} children", topmost.name, nsNode.name);
         }
@@ -1498,12 +1748,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
 
         // Find the matching child entity by name and type
         DiscoveryNode childEntity =
-                entity.children.stream()
-                        .filter(
-                                child ->
-                                        child.name.equals(childDto.name())
-                                                && child.nodeType.equals(childDto.nodeType()))
-                        .findFirst()
+                entity.findChild(childDto.nodeType(), childDto.name())
                         .orElseThrow(
                                 () ->
                                         new IllegalStateException(
@@ -1555,21 +1800,28 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
             // Build bidirectional relationship
             childEntity.parent = entity;
 
-            boolean childExists =
-                    entity.children.stream()
-                            .anyMatch(
-                                    existing ->
-                                            existing == childEntity
-                                                    || (existing.id != null
-                                                            && existing.id.equals(childEntity.id)));
-            if (!childExists) {
-                entity.children.add(childEntity);
+            if (!isIndexedChild(entity, childEntity)) {
+                entity.addChild(childEntity);
             }
         }
 
         return entity;
     }
 
+    /**
+     * Checks whether the given node is already a child of the parent, using the parent's (nodeType,
+     * name) child index rather than scanning the children. Namespaces may contain thousands of
+     * nodes, so a scan per converted node makes each resync quadratic in the namespace size.
+     */
+    private boolean isIndexedChild(DiscoveryNode parent, DiscoveryNode node) {
+        return parent.findChild(node.nodeType, node.name)
+                .map(
+                        existing ->
+                                existing == node
+                                        || (existing.id != null && existing.id.equals(node.id)))
+                .orElse(false);
+    }
+
     /**
      * Creates a new DiscoveryNode entity from a DTO.
      *
@@ -1653,7 +1905,9 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
                 Collection<String> namespaces =
                         (Collection<String>) context.getMergedJobDataMap().get("namespaces");
                 logger.debugv("Resyncing namespaces: {0}", namespaces);
-                bus.publish(NAMESPACE_QUERY_ADDR, NamespaceQueryEvent.from(namespaces));
+                // one event per namespace so that namespaces are resynchronized in parallel
+                namespaces.forEach(
+                        ns -> bus.publish(NAMESPACE_QUERY_ADDR, NamespaceQueryEvent.from(ns)));
             } catch (Exception e) {
                 logger.warn(e);
             }
@@ -1722,6 +1976,9 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
         }
     }
 
+    /** Identifies a Kubernetes object in the object cache. */
+    static record KubeObjectKey(String kind, String namespace, String name) {}
+
     static record NamespaceQueryEvent(Collection<String> namespaces) {
         static NamespaceQueryEvent from(Collection<String> namespaces) {
             return new NamespaceQueryEvent(namespaces);
@@ -1813,13 +2070,7 @@ public class KubeEndpointSlicesDiscovery implements ResourceEventHandler<Endpoin
             try {
                 boolean isPod = objRef.getKind().equals(KubeDiscoveryNodeType.POD.getKind());
 
-                JMXServiceURL jmxUrl =
-                        new JMXServiceURL(
-                                "rmi",
-                                "",
-                                0,
-                                "/jndi/rmi://" + addr + ':' + port.getPort() + "/jmxrmi");
-                URI connectUrl = URI.create(jmxUrl.toString());
+                URI connectUrl = connectUrl(addr, port);
 
                 Target target = new Target();
                 target.activeRecordings = new ArrayList<>();
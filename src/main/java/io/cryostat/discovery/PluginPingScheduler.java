@@ -0,0 +1,520 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.discovery.DiscoveryPlugin.PluginCallback;
+import io.cryostat.discovery.DiscoveryPlugin.PluginCleanupHelper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Hibernate;
+import org.jboss.logging.Logger;
+
+/**
+ * Periodically pings registered discovery plugins to check that they are still alive/reachable,
+ * and prompts them to refresh their registration tokens. Plugins which fail too many consecutive
+ * pings are pruned.
+ *
+ * <p>All plugins share a single in-memory schedule. Each plugin's next ping is due one ping period
+ * (multiplied by its failure backoff) after its last, plus a random jitter so that plugins which
+ * registered together do not stay synchronized. Due pings are run on virtual threads, with the
+ * number of pings in flight limited by an AIMD (additive increase, multiplicative decrease)
+ * controller: the limit grows while pings complete in time and is halved when they time out, so
+ * that a large population of plugins is worked through quickly without overwhelming the network
+ * or this Cryostat instance when many plugins are unresponsive.
+ */
+@ApplicationScoped
+public class PluginPingScheduler {
+
+    static final String PING_METRIC = "cryostat.discovery.plugins.ping";
+    static final String CONCURRENCY_LIMIT_METRIC = "cryostat.discovery.plugins.ping.concurrency";
+    static final String SCHEDULED_METRIC = "cryostat.discovery.plugins.ping.scheduled";
+
+    @Inject Logger logger;
+    @Inject MeterRegistry meterRegistry;
+    @Inject PluginCallbackFactory callbackFactory;
+    @Inject PluginCleanupHelper cleanupHelper;
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_PING_PERIOD)
+    Duration pingPeriod;
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_MAX_FAILURES)
+    int maxConsecutiveFailures;
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_MAX_BACKOFF_MULTIPLIER)
+    int maxBackoffMultiplier;
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_PING_TIMEOUT_MS)
+    long timeoutMs;
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_PING_STARTUP_GRACE_PERIOD_MS)
+    long startupGracePeriodMs;
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_PING_MIN_CONCURRENCY)
+    int minConcurrency;
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_PING_MAX_CONCURRENCY)
+    int maxConcurrency;
+
+    @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_PING_JITTER)
+    double jitter;
+
+    private final DelayQueue<ScheduledPing> queue = new DelayQueue<>();
+    // the currently scheduled ping for each plugin. Queue entries which are no longer present here
+    // have been superseded or unscheduled, and are discarded when they fall due.
+    private final Map<UUID, ScheduledPing> schedule = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+    ConcurrencyLimiter limiter;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    enum Outcome {
+        SUCCESS,
+        FAILURE,
+        TIMEOUT,
+        SKIPPED,
+        REMOVED,
+    }
+
+    /**
+     * @param outcome the result of the ping attempt
+     * @param nextPingAt when the plugin should next be pinged, or null if it should no longer be
+     */
+    record PingResult(Outcome outcome, Instant nextPingAt) {}
+
+    void onStart(@Observes StartupEvent evt) {
+        start();
+
+        // ping all known plugins soon after startup so that any which went away while this
+        // instance was down are pruned promptly, spread over the jitter window
+        List<UUID> pluginIds =
+                QuarkusTransaction.joiningExisting()
+                        .call(
+                                () ->
+                                        DiscoveryPlugin.<DiscoveryPlugin>findAll().list().stream()
+                                                .filter(p -> !p.builtin)
+                                                .map(p -> p.id)
+                                                .toList());
+        Instant start = Instant.now().plusMillis(Math.max(0, startupGracePeriodMs));
+        pluginIds.forEach(id -> enqueue(new ScheduledPing(id, start.plus(jitter()))));
+        logger.debugv(
+                "Scheduled {0} discovery plugin pings after {1}ms startup grace period",
+                pluginIds.size(), startupGracePeriodMs);
+    }
+
+    /** Start dispatching scheduled pings, without scheduling any plugins. */
+    void start() {
+        executor =
+                Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().name("plugin-ping-", 0).factory());
+        limiter =
+                new ConcurrencyLimiter(
+                        minConcurrency,
+                        maxConcurrency,
+                        Duration.ofMillis(timeoutMs),
+                        System::nanoTime);
+        meterRegistry.gauge(CONCURRENCY_LIMIT_METRIC, limiter, ConcurrencyLimiter::limit);
+        meterRegistry.gaugeMapSize(SCHEDULED_METRIC, List.of(), schedule);
+
+        running = true;
+        dispatcher = Thread.ofVirtual().name("plugin-ping-dispatcher").start(this::dispatch);
+    }
+
+    void onStop(@Observes ShutdownEvent evt) {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        schedule.clear();
+        queue.clear();
+    }
+
+    /**
+     * Schedule periodic pings of the given plugin, starting one ping period from now. If the
+     * plugin is already scheduled then its schedule is left unchanged.
+     */
+    public void schedule(UUID pluginId) {
+        Instant due = Instant.now().plus(pingPeriod).plus(jitter());
+        ScheduledPing ping = new ScheduledPing(pluginId, due);
+        if (schedule.putIfAbsent(pluginId, ping) == null) {
+            queue.add(ping);
+        }
+    }
+
+    /** Stop pinging the given plugin. */
+    public void unschedule(UUID pluginId) {
+        schedule.remove(pluginId);
+    }
+
+    private void enqueue(ScheduledPing ping) {
+        schedule.put(ping.pluginId(), ping);
+        queue.add(ping);
+    }
+
+    private Duration jitter() {
+        long bound = (long) (pingPeriod.toMillis() * Math.max(0, jitter));
+        return Duration.ofMillis(bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0);
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                ScheduledPing ping = queue.take();
+                if (schedule.get(ping.pluginId()) != ping) {
+                    continue;
+                }
+                limiter.acquire();
+                executor.execute(() -> run(ping));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Failed to dispatch discovery plugin ping", e);
+            }
+        }
+    }
+
+    private void run(ScheduledPing ping) {
+        PingResult result = new PingResult(Outcome.FAILURE, null);
+        try {
+            result = ping(ping.pluginId());
+        } catch (Exception e) {
+            logger.warnv(e, "Discovery plugin ping failed: {0}", ping.pluginId());
+            result = new PingResult(Outcome.FAILURE, Instant.now().plus(pingPeriod));
+        } finally {
+            limiter.release(result.outcome());
+            if (result.nextPingAt() == null) {
+                schedule.remove(ping.pluginId(), ping);
+            } else {
+                ScheduledPing next =
+                        new ScheduledPing(ping.pluginId(), result.nextPingAt().plus(jitter()));
+                if (running && schedule.replace(ping.pluginId(), ping, next)) {
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ping the given plugin once and record the outcome on the plugin. The plugin is not held in a
+     * transaction while waiting for its response.
+     *
+     * @return the outcome of the ping, and when the plugin should next be pinged
+     */
+    PingResult ping(UUID pluginId) {
+        long start = System.nanoTime();
+        PluginCallback cb;
+        boolean refresh;
+        String description;
+        try {
+            PingTarget target =
+                    QuarkusTransaction.requiringNew()
+                            .call(
+                                    () -> {
+                                        var p = DiscoveryPlugin.<DiscoveryPlugin>findById(pluginId);
+                                        if (p == null) {
+                                            cleanupHelper.cleanupPluginNodes(pluginId);
+                                            return null;
+                                        }
+                                        if (p.nextPingAt != null
+                                                && Instant.now().isBefore(p.nextPingAt)) {
+                                            logger.debugv(
+                                                    "Skipping ping due to backoff: {0} @ {1}",
+                                                    p.realm.name, p.callback);
+                                            return new PingTarget(
+                                                    null, false, null, p.nextPingAt);
+                                        }
+                                        // the callback reads the credential after this
+                                        // transaction has ended
+                                        Hibernate.initialize(p.credential);
+                                        PluginCallback callback;
+                                        try {
+                                            callback = callbackFactory.create(p);
+                                        } catch (URISyntaxException use) {
+                                            throw new IllegalStateException(use);
+                                        }
+                                        return new PingTarget(
+                                                callback,
+                                                p.refreshOnPing,
+                                                String.format(
+                                                        "%s @ %s", p.realm.name, p.callback),
+                                                null);
+                                    });
+            if (target == null) {
+                logger.warnv("Unscheduled pings for unknown discovery plugin: {0}", pluginId);
+                return record(start, new PingResult(Outcome.REMOVED, null));
+            }
+            if (target.callback() == null) {
+                return record(start, new PingResult(Outcome.SKIPPED, target.nextPingAt()));
+            }
+            cb = target.callback();
+            refresh = target.refresh();
+            description = target.description();
+        } catch (RuntimeException e) {
+            if (ExceptionUtils.indexOfType(e, IllegalStateException.class) < 0) {
+                throw e;
+            }
+            logger.warnv(e, "Unscheduled pings for invalid discovery plugin: {0}", pluginId);
+            return record(start, new PingResult(Outcome.REMOVED, null));
+        }
+
+        Future<?> call =
+                executor.submit(
+                        () -> {
+                            if (refresh) {
+                                cb.refresh();
+                            } else {
+                                cb.ping();
+                            }
+                        });
+        Exception failure = null;
+        boolean timedOut = false;
+        try {
+            call.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            failure = e;
+            timedOut = true;
+        } catch (ExecutionException e) {
+            failure = e;
+            timedOut = ExceptionUtils.indexOfType(e, SocketTimeoutException.class) >= 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel(true);
+            failure = e;
+        }
+
+        if (failure == null) {
+            QuarkusTransaction.requiringNew().run(() -> recordSuccess(pluginId, refresh));
+            return record(
+                    start, new PingResult(Outcome.SUCCESS, Instant.now().plus(pingPeriod)));
+        }
+
+        logger.warnv(failure, "Plugin ping failed: {0}", description);
+        if (ExceptionUtils.indexOfType(failure, UnknownHostException.class) >= 0) {
+            QuarkusTransaction.requiringNew().call(() -> recordFailure(pluginId));
+            logger.warnv("Unscheduled pings for unresolvable discovery plugin: {0}", description);
+            return record(start, new PingResult(Outcome.REMOVED, null));
+        }
+        Instant next = QuarkusTransaction.requiringNew().call(() -> recordFailure(pluginId));
+        return record(start, new PingResult(timedOut ? Outcome.TIMEOUT : Outcome.FAILURE, next));
+    }
+
+    private PingResult record(long start, PingResult result) {
+        Timer.builder(PING_METRIC)
+                .tag("outcome", result.outcome().name().toLowerCase())
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private void recordSuccess(UUID pluginId, boolean refresh) {
+        var p = DiscoveryPlugin.<DiscoveryPlugin>findById(pluginId);
+        if (p == null) {
+            return;
+        }
+        p.consecutiveFailures = 0;
+        p.lastSuccessfulPing = Instant.now();
+        p.backoffMultiplier = 1;
+        p.nextPingAt = null;
+        p.persist();
+
+        logger.debugv(
+                "{0} discovery plugin: {1} @ {2}",
+                refresh ? "Refreshed" : "Retained", p.realm.name, p.callback);
+    }
+
+    /**
+     * @return when the plugin should next be pinged, or null if it has been pruned
+     */
+    private Instant recordFailure(UUID pluginId) {
+        var p = DiscoveryPlugin.<DiscoveryPlugin>findById(pluginId);
+        if (p == null) {
+            cleanupHelper.cleanupPluginNodes(pluginId);
+            return null;
+        }
+        p.consecutiveFailures++;
+        p.lastFailedPing = Instant.now();
+        p.backoffMultiplier = Math.min(p.backoffMultiplier * 2, maxBackoffMultiplier);
+        Duration backoffPeriod = pingPeriod.multipliedBy(p.backoffMultiplier);
+        p.nextPingAt = Instant.now().plus(backoffPeriod);
+        p.persist();
+
+        logger.debugv(
+                "Plugin ping failed - lastFailedPing: {0}, consecutiveFailures: {1}/{2},"
+                        + " backoffMultiplier: {3}, nextPingAt: {4}: {5} @ {6}",
+                p.lastFailedPing,
+                p.consecutiveFailures,
+                maxConsecutiveFailures,
+                p.backoffMultiplier,
+                p.nextPingAt,
+                p.realm.name,
+                p.callback);
+
+        if (p.consecutiveFailures >= maxConsecutiveFailures) {
+            logger.warnv(
+                    "Pruning discovery plugin after {0} consecutive failures: {1} @ {2}",
+                    p.consecutiveFailures, p.realm.name, p.callback);
+            p.delete();
+            return null;
+        }
+        logger.warnv(
+                "Plugin ping failed ({0}/{1}), backing off for {2}: {3} @ {4}",
+                p.consecutiveFailures,
+                maxConsecutiveFailures,
+                backoffPeriod,
+                p.realm.name,
+                p.callback);
+        return p.nextPingAt;
+    }
+
+    private record PingTarget(
+            PluginCallback callback, boolean refresh, String description, Instant nextPingAt) {}
+
+    private record ScheduledPing(UUID pluginId, Instant due) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), due));
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(
+                    getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * Limits the number of pings in flight. The limit is increased by one for each full window of
+     * pings which complete in time, and halved when a ping times out. Pings which were in flight
+     * together tend to time out together, so the limit is halved at most once per decrease window
+     * rather than once per timed out ping. Pings which were skipped or not attempted do not affect
+     * the limit.
+     */
+    static class ConcurrencyLimiter {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private final int min;
+        private final int max;
+        private final long decreaseWindowNanos;
+        private final LongSupplier nanoClock;
+        private double limit;
+        private int inFlight;
+        private boolean decreased;
+        private long lastDecrease;
+
+        /**
+         * @param decreaseWindow the minimum time between decreases of the limit, which should be
+         *     the ping timeout
+         * @param nanoClock source of monotonic timestamps in nanoseconds, such as {@link
+         *     System#nanoTime()}
+         */
+        ConcurrencyLimiter(int min, int max, Duration decreaseWindow, LongSupplier nanoClock) {
+            this.min = Math.max(1, min);
+            this.max = Math.max(this.min, max);
+            this.limit = this.min;
+            this.decreaseWindowNanos = decreaseWindow.toNanos();
+            this.nanoClock = nanoClock;
+        }
+
+        void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (inFlight >= (int) limit) {
+                    available.await();
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(Outcome outcome) {
+            lock.lock();
+            try {
+                inFlight--;
+                switch (outcome) {
+                    case TIMEOUT -> {
+                        long now = nanoClock.getAsLong();
+                        if (!decreased || now - lastDecrease >= decreaseWindowNanos) {
+                            limit = Math.max(min, limit / 2);
+                            decreased = true;
+                            lastDecrease = now;
+                        }
+                    }
+                    case SUCCESS, FAILURE -> limit = Math.min(max, limit + 1 / limit);
+                    default -> {}
+                }
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int inFlight() {
+            lock.lock();
+            try {
+                return inFlight;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        double limit() {
+            lock.lock();
+            try {
+                return limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -45,15 +45,8 @@ public class ArchivedRecordings {
     @Query("archivedRecordings")
     @Description("List archived recordings")
     public TargetNodes.ArchivedRecordings listArchivedRecordings(ArchivedRecordingsFilter filter) {
-        var r = new TargetNodes.ArchivedRecordings();
-        r.data =
-                recordingHelper
-                        .listArchivedRecordings(filter == null ? null : filter.sourceTarget)
-                        .stream()
-                        .filter(v -> filter == null ? true : filter.test(v))
-                        .toList();
-        r.aggregate = RecordingAggregateInfo.fromArchived(r.data);
-        return r;
+        return TargetNodes.ArchivedRecordings.list(
+                recordingHelper, filter == null ? null : filter.sourceTarget, filter);
     }
 
     @Description("List and optionally filter archived recordings belonging to a Target")
@@ -110,6 +103,22 @@ public class ArchivedRecordings {
         public @Nullable Long archivedTimeAfterEqual;
         public @Nullable Long archivedTimeBeforeEqual;
 
+        @Description("Sort results by TIME, SIZE, or NAME. Defaults to TIME.")
+        public @Nullable String sortBy;
+
+        @Description("Reverse the sort order. Defaults to true for TIME and false otherwise.")
+        public @Nullable Boolean descending;
+
+        @Description("The nextCursor of a previous page, to retrieve the page following it")
+        public @Nullable String cursor;
+
+        @Description("The maximum number of results to return")
+        public @Nullable Integer limit;
+
+        boolean isPageRequest() {
+            return sortBy != null || descending != null || cursor != null || limit != null;
+        }
+
         @Override
         public boolean test(ArchivedRecording r) {
             Predicate<ArchivedRecording> matchesName =
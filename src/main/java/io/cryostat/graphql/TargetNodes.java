@@ -15,6 +15,7 @@
  */
 package io.cryostat.graphql;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -24,11 +25,11 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.openjdk.jmc.flightrecorder.rules.Severity;
 
 import io.cryostat.asyncprofiler.AsyncProfilerHelper;
-import io.cryostat.core.net.JFRConnection;
 import io.cryostat.core.reports.InterruptibleReportGenerator.AnalysisResult;
 import io.cryostat.diagnostic.Diagnostics.HeapDump;
 import io.cryostat.diagnostic.Diagnostics.ThreadDump;
@@ -42,13 +43,18 @@ import io.cryostat.graphql.RootNode.DiscoveryNodeFilter;
 import io.cryostat.graphql.ThreadDumpGraphQL.ThreadDumpsFilter;
 import io.cryostat.libcryostat.net.MBeanMetrics;
 import io.cryostat.recordings.ActiveRecording;
+import io.cryostat.recordings.ArchivedRecordingInfo;
 import io.cryostat.recordings.ArchivedRecordings.ArchivedRecording;
 import io.cryostat.recordings.RecordingHelper;
 import io.cryostat.reports.AnalysisReportAggregator;
 import io.cryostat.targets.AgentClient.AsyncProfile;
+import io.cryostat.targets.AgentConnection;
 import io.cryostat.targets.Target;
 import io.cryostat.targets.TargetConnectionManager;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import graphql.schema.DataFetchingEnvironment;
 import io.smallrye.graphql.api.Context;
@@ -65,20 +71,52 @@ import org.eclipse.microprofile.graphql.Ignore;
 import org.eclipse.microprofile.graphql.NonNull;
 import org.eclipse.microprofile.graphql.Query;
 import org.eclipse.microprofile.graphql.Source;
-import org.hibernate.envers.AuditReader;
-import org.hibernate.envers.AuditReaderFactory;
-import org.hibernate.envers.query.AuditEntity;
+import org.hibernate.query.NativeQuery;
 import org.jboss.logging.Logger;
 
 @GraphQLApi
 public class TargetNodes {
 
+    private static final int AUDIT_FETCH_SIZE = 500;
+
+    // The latest non-deleted revision of a Target for each distinct JVM ID, joined with the latest
+    // non-deleted revision of the DiscoveryNode that Target was most recently attached to. A Target
+    // may be created with no DiscoveryNode and have one attached in a later revision, so the node
+    // reference is resolved independently of the selected Target revision. REVTYPE 2 is a deletion.
+    static final String AUDITED_TARGET_NODES_SQL =
+            """
+            WITH latest AS (
+                SELECT t.id, t.REV, t.connectUrl, t.alias, t.jvmId, t.labels, t.annotations,
+                    ROW_NUMBER() OVER (PARTITION BY t.jvmId ORDER BY t.REV DESC) AS rn
+                FROM Target_AUD t
+                WHERE t.jvmId IS NOT NULL AND btrim(t.jvmId) <> '' AND t.REVTYPE <> 2
+            )
+            SELECT latest.id AS targetId, latest.connectUrl, latest.alias, latest.jvmId,
+                latest.labels AS targetLabels, latest.annotations,
+                node.id AS nodeId, node.name, node.nodeType, node.labels AS nodeLabels
+            FROM latest
+            CROSS JOIN LATERAL (
+                SELECT ta.discoveryNode FROM Target_AUD ta
+                WHERE ta.id = latest.id AND ta.discoveryNode IS NOT NULL
+                ORDER BY ta.REV DESC
+                LIMIT 1
+            ) attached
+            CROSS JOIN LATERAL (
+                SELECT n.id, n.name, n.nodeType, n.labels FROM DiscoveryNode_AUD n
+                WHERE n.id = attached.discoveryNode AND n.REVTYPE <> 2
+                ORDER BY n.REV DESC
+                LIMIT 1
+            ) node
+            WHERE latest.rn = 1
+            """;
+
     @Inject RecordingHelper recordingHelper;
     @Inject TargetConnectionManager connectionManager;
     @Inject AnalysisReportAggregator reportAggregator;
     @Inject DiagnosticsHelper diagnosticsHelper;
     @Inject AsyncProfilerHelper asyncProfilerHelper;
     @Inject EntityManager em;
+    @Inject ObjectMapper mapper;
     @Inject Logger logger;
 
     @Query("targetNodes")
@@ -91,17 +129,10 @@ public class TargetNodes {
                             "Query historical targets from audit log. This is more expensive and"
                                     + " should only be used when historical data is needed.")
                     boolean useAuditLog) {
-        List<Target> targets;
-        if (useAuditLog) {
-            targets = queryAuditLogTargets();
-        } else {
-            // TODO do this filtering at the database query level as much as possible. As is, this
-            // will load the entire discovery tree out of the database, then perform the filtering
-            // at the application level.
-            targets = Target.<Target>findAll().stream().toList();
+        if (!useAuditLog) {
+            return TargetNodesQuery.list(em, filter);
         }
-
-        return targets.stream()
+        return queryAuditLogTargets().stream()
                 // FIXME filtering by distinct JVM ID breaks clients that expect to be able to use a
                 // different connection URL (in the node filter or for client-side filtering) than
                 // the one we end up selecting for here.
@@ -134,11 +165,7 @@ public class TargetNodes {
         var fTarget = Target.getTargetById(target.id);
         var recordings = new ArchivedRecordings();
         if (StringUtils.isNotBlank(fTarget.jvmId)) {
-            recordings.data =
-                    recordingHelper.listArchivedRecordings(fTarget).stream()
-                            .filter(r -> filter == null || filter.test(r))
-                            .toList();
-            recordings.aggregate = RecordingAggregateInfo.fromArchived(recordings.data);
+            recordings = ArchivedRecordings.list(recordingHelper, fTarget.jvmId, filter);
         }
         return recordings;
     }
@@ -244,112 +271,112 @@ public class TargetNodes {
     }
 
     @Description("Get live MBean metrics snapshot from the specified Target")
-    public MBeanMetrics mbeanMetrics(@Source Target target) {
+    public Uni<MBeanMetrics> mbeanMetrics(@Source Target target) {
         var fTarget = Target.getTargetById(target.id);
-        return connectionManager.executeConnectedTask(fTarget, JFRConnection::getMBeanMetrics);
+        return connectionManager.executeConnectedTaskAsync(
+                fTarget,
+                conn ->
+                        conn instanceof AgentConnection agent
+                                ? agent.getMBeanMetricsUni()
+                                : Uni.createFrom().item(conn.getMBeanMetrics()));
     }
 
     private List<Target> queryAuditLogTargets() {
-        try {
-            AuditReader ar = AuditReaderFactory.get(em);
-
-            // Get all unique jvmIds from audit history using native SQL
-            @SuppressWarnings("unchecked")
-            List<String> jvmIds =
-                    em.createNativeQuery(
-                                    "SELECT DISTINCT jvmId FROM Target_AUD WHERE jvmId IS NOT"
-                                            + " NULL")
-                            .getResultList();
-
-            // For each jvmId, get the most recent Target and manually reconstruct its
-            // DiscoveryNode
-            List<Target> historicalTargets = new ArrayList<>();
-            for (String jvmId : jvmIds) {
-                if (StringUtils.isNotBlank(jvmId)) {
-                    Target target = getLatestTargetFromAudit(ar, jvmId);
-                    if (target != null) {
-                        // Manually get the DiscoveryNode to avoid lazy loading issues
-                        DiscoveryNode node = getDiscoveryNodeFromAudit(ar, target);
-                        if (node != null) {
-                            // Set up the bidirectional relationship
-                            node.target = target;
-                            target.discoveryNode = node;
-                            // Clear parent and children to prevent further lazy loading
-                            node.parent = null;
-                            node.children = new ArrayList<>();
-                            historicalTargets.add(target);
-                        }
-                    }
-                }
-            }
-            return historicalTargets;
+        try (Stream<AuditedTargetNode> rows = streamAuditedTargetNodes()) {
+            return rows.map(this::toDetachedTarget).filter(Objects::nonNull).toList();
         } catch (Exception e) {
             logger.debug("Error querying audit log", e);
             return List.of();
         }
     }
 
-    private Target getLatestTargetFromAudit(AuditReader ar, String jvmId) {
+    @SuppressWarnings("unchecked")
+    private Stream<AuditedTargetNode> streamAuditedTargetNodes() {
+        return em.createNativeQuery(AUDITED_TARGET_NODES_SQL)
+                .unwrap(NativeQuery.class)
+                .addScalar("targetId", Long.class)
+                .addScalar("connectUrl", URI.class)
+                .addScalar("alias", String.class)
+                .addScalar("jvmId", String.class)
+                .addScalar("targetLabels", String.class)
+                .addScalar("annotations", String.class)
+                .addScalar("nodeId", Long.class)
+                .addScalar("name", String.class)
+                .addScalar("nodeType", String.class)
+                .addScalar("nodeLabels", String.class)
+                .setTupleTransformer(
+                        (tuple, aliases) ->
+                                new AuditedTargetNode(
+                                        (Long) tuple[0],
+                                        (URI) tuple[1],
+                                        (String) tuple[2],
+                                        (String) tuple[3],
+                                        (String) tuple[4],
+                                        (String) tuple[5],
+                                        (Long) tuple[6],
+                                        (String) tuple[7],
+                                        (String) tuple[8],
+                                        (String) tuple[9]))
+                .setFetchSize(AUDIT_FETCH_SIZE)
+                .setReadOnly(true)
+                .stream();
+    }
+
+    // Reconstruct the Target and its DiscoveryNode as they were last recorded. These are plain
+    // detached instances with no parent or children, so nothing lazy-loads from the live tables.
+    private Target toDetachedTarget(AuditedTargetNode row) {
         try {
-            @SuppressWarnings("unchecked")
-            var q =
-                    ar.createQuery()
-                            .forRevisionsOfEntity(Target.class, false, true)
-                            .add(AuditEntity.property("jvmId").eq(jvmId))
-                            .add(
-                                    AuditEntity.revisionType()
-                                            .ne(org.hibernate.envers.RevisionType.DEL))
-                            .addOrder(AuditEntity.revisionNumber().desc())
-                            .setMaxResults(1)
-                            .getResultList();
-            if (!q.isEmpty()) {
-                Object[] result = (Object[]) q.get(0);
-                return (Target) result[0];
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to get Target from audit for jvmId: " + jvmId, e);
+            Target target = new Target();
+            target.id = row.targetId();
+            target.connectUrl = row.connectUrl();
+            target.alias = row.alias();
+            target.jvmId = row.jvmId();
+            target.labels = readLabels(row.targetLabels());
+            target.annotations =
+                    row.annotations() == null
+                            ? new Target.Annotations()
+                            : mapper.readValue(row.annotations(), Target.Annotations.class);
+
+            DiscoveryNode node = new DiscoveryNode();
+            node.id = row.nodeId();
+            node.name = row.name();
+            node.nodeType = row.nodeType();
+            node.labels = readLabels(row.nodeLabels());
+            node.parent = null;
+            node.children = new ArrayList<>();
+
+            node.target = target;
+            target.discoveryNode = node;
+            return target;
+        } catch (JsonProcessingException e) {
+            logger.warnv(e, "Failed to read audited Target for jvmId: {0}", row.jvmId());
+            return null;
         }
-        return null;
     }
 
-    private DiscoveryNode getDiscoveryNodeFromAudit(AuditReader ar, Target target) {
-        try {
-            // Get ALL revisions of this Target to find when the DiscoveryNode was set
-            // The Target may be created first with null discoveryNode, then updated later
-            @SuppressWarnings("unchecked")
-            List<Object[]> targetRevisions =
-                    em.createNativeQuery(
-                                    "SELECT discoveryNode, REV FROM Target_AUD WHERE id = :id AND"
-                                            + " discoveryNode IS NOT NULL ORDER BY REV DESC")
-                            .setParameter("id", target.id)
-                            .getResultList();
-
-            if (!targetRevisions.isEmpty()) {
-                Object[] latestWithNode = targetRevisions.get(0);
-                Long nodeId = ((Number) latestWithNode[0]).longValue();
-                // Now get the DiscoveryNode from audit history
-                @SuppressWarnings("unchecked")
-                var q =
-                        ar.createQuery()
-                                .forRevisionsOfEntity(DiscoveryNode.class, false, true)
-                                .add(AuditEntity.id().eq(nodeId))
-                                .add(
-                                        AuditEntity.revisionType()
-                                                .ne(org.hibernate.envers.RevisionType.DEL))
-                                .addOrder(AuditEntity.revisionNumber().desc())
-                                .setMaxResults(1)
-                                .getResultList();
-                if (!q.isEmpty()) {
-                    Object[] revisionResult = (Object[]) q.get(0);
-                    return (DiscoveryNode) revisionResult[0];
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to get DiscoveryNode from audit for target: " + target.id, e);
+    private Map<String, String> readLabels(String json) throws JsonProcessingException {
+        if (json == null) {
+            return new HashMap<>();
         }
-        return null;
+        return mapper.readValue(json, new TypeReference<HashMap<String, String>>() {});
     }
 
+    /**
+     * A single row of {@link #AUDITED_TARGET_NODES_SQL}: the latest audited state of a Target, and
+     * of the DiscoveryNode it was last attached to.
+     */
+    record AuditedTargetNode(
+            long targetId,
+            URI connectUrl,
+            String alias,
+            String jvmId,
+            String targetLabels,
+            String annotations,
+            long nodeId,
+            String name,
+            String nodeType,
+            String nodeLabels) {}
+
     public static class Recordings {
         // @Ignore these two from the GraphQL schema generation because we override the definition
         // in the ArchivedRecordings and ActiveRecordings classes so that we can apply input
@@ -369,6 +396,46 @@ public class TargetNodes {
         public @NonNull List<ArchivedRecording> data = new ArrayList<>();
         public @NonNull RecordingAggregateInfo aggregate =
                 RecordingAggregateInfo.fromArchived(data);
+
+        @Description(
+                "Cursor for retrieving the next page of results, if a limit was requested and"
+                        + " further results may exist. A page may hold fewer results than the"
+                        + " limit even if further results exist. The aggregate covers only this"
+                        + " page.")
+        public @Nullable String nextCursor;
+
+        static ArchivedRecordings list(
+                RecordingHelper recordingHelper, String jvmId, ArchivedRecordingsFilter filter) {
+            var r = new ArchivedRecordings();
+            if (filter != null && filter.isPageRequest()) {
+                var sortKey =
+                        filter.sortBy == null
+                                ? ArchivedRecordingInfo.SortKey.TIME
+                                : ArchivedRecordingInfo.SortKey.fromString(filter.sortBy);
+                boolean descending =
+                        filter.descending == null
+                                ? sortKey == ArchivedRecordingInfo.SortKey.TIME
+                                : filter.descending;
+                var page =
+                        recordingHelper.listArchivedRecordings(
+                                jvmId,
+                                sortKey,
+                                descending,
+                                filter.cursor,
+                                filter.limit,
+                                filter.labels,
+                                filter);
+                r.data = page.data();
+                r.nextCursor = page.nextCursor();
+            } else {
+                r.data =
+                        recordingHelper.listArchivedRecordings(jvmId).stream()
+                                .filter(v -> filter == null ? true : filter.test(v))
+                                .toList();
+            }
+            r.aggregate = RecordingAggregateInfo.fromArchived(r.data);
+            return r;
+        }
     }
 
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
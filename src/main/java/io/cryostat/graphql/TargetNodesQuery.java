@@ -0,0 +1,130 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.graphql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import io.cryostat.discovery.DiscoveryNode;
+import io.cryostat.graphql.RootNode.DiscoveryNodeFilter;
+import io.cryostat.graphql.matchers.LabelSelectorMatcher;
+import io.cryostat.targets.Target;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Translates a {@link DiscoveryNodeFilter} into a single SQL query over the Target and
+ * DiscoveryNode tables, so that only the matching target nodes are loaded rather than the whole
+ * discovery tree. Label and annotation selectors are rendered as SQL/JSON path predicates using the
+ * {@code jsonb @@ jsonpath} operator, which can be served by the GIN indexes on those columns. This
+ * is a native query because JPQL has no way to express that operator, and the equivalent functions
+ * are not indexable.
+ */
+final class TargetNodesQuery {
+
+    /**
+     * Must be kept in sync with the IDX_TARGET_ANNOTATIONS_MERGED expression index. Platform
+     * annotations take precedence over Cryostat annotations, as in {@link
+     * Target.Annotations#merged()}.
+     */
+    static final String MERGED_ANNOTATIONS =
+            "(COALESCE(t.annotations -> 'cryostat', CAST('{}' AS jsonb))"
+                    + " || COALESCE(t.annotations -> 'platform', CAST('{}' AS jsonb)))";
+
+    private final List<String> clauses = new ArrayList<>();
+    private final Map<String, Object> parameters = new HashMap<>();
+    private boolean unsatisfiable;
+
+    private TargetNodesQuery() {}
+
+    static List<DiscoveryNode> list(EntityManager em, DiscoveryNodeFilter filter) {
+        TargetNodesQuery query = TargetNodesQuery.from(filter);
+        if (query.unsatisfiable) {
+            return List.of();
+        }
+        StringBuilder sql =
+                new StringBuilder(
+                        "SELECT t.* FROM Target t JOIN DiscoveryNode n ON n.id = t.discoveryNode");
+        if (!query.clauses.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", query.clauses));
+        }
+        var q = em.createNativeQuery(sql.toString(), Target.class);
+        query.parameters.forEach(q::setParameter);
+        @SuppressWarnings("unchecked")
+        List<Target> targets = q.getResultList();
+        return targets.stream().map(t -> t.discoveryNode).toList();
+    }
+
+    private static TargetNodesQuery from(DiscoveryNodeFilter filter) {
+        TargetNodesQuery query = new TargetNodesQuery();
+        if (filter == null) {
+            return query;
+        }
+        query.eq("n.id", "id", filter.id);
+        query.in("n.id", "ids", filter.ids);
+        query.eq("t.id", "targetId", filter.targetId);
+        query.in("t.id", "targetIds", filter.targetIds);
+        query.eq("t.jvmId", "jvmId", filter.jvmId);
+        query.in("t.jvmId", "jvmIds", filter.jvmIds);
+        query.eq("n.name", "name", filter.name);
+        query.in("n.name", "names", filter.names);
+        query.eq("t.alias", "alias", filter.alias);
+        query.in("t.alias", "aliases", filter.aliases);
+        query.in("n.nodeType", "nodeTypes", filter.nodeTypes);
+        query.matches("n.labels", "labels", filter.labels);
+        if (filter.annotations != null) {
+            query.clauses.add("t.annotations IS NOT NULL");
+            query.matches(MERGED_ANNOTATIONS, "annotations", filter.annotations);
+        }
+        return query;
+    }
+
+    private void eq(String column, String parameter, Object value) {
+        if (value == null) {
+            return;
+        }
+        clauses.add(String.format("%s = :%s", column, parameter));
+        parameters.put(parameter, value);
+    }
+
+    private void in(String column, String parameter, Collection<?> values) {
+        if (values == null) {
+            return;
+        }
+        if (values.isEmpty()) {
+            unsatisfiable = true;
+            return;
+        }
+        clauses.add(String.format("%s IN (:%s)", column, parameter));
+        parameters.put(parameter, values);
+    }
+
+    private void matches(String column, String parameter, List<String> selectors) {
+        if (selectors == null || selectors.isEmpty()) {
+            return;
+        }
+        String path =
+                selectors.stream()
+                        .map(s -> String.format("(%s)", LabelSelectorMatcher.parse(s).toJsonPath()))
+                        .collect(Collectors.joining(" && "));
+        clauses.add(String.format("%s @@ CAST(:%s AS jsonpath)", column, parameter));
+        parameters.put(parameter, path);
+    }
+}
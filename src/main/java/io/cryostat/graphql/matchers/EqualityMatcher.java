@@ -41,6 +41,16 @@ public class EqualityMatcher implements LabelMatcher {
         return operator.with(value).test(s);
     }
 
+    @Override
+    public String toJsonPath() {
+        String eq =
+                String.format("%s == %s", LabelMatcher.accessor(key), LabelMatcher.quote(value));
+        return switch (operator) {
+            case EQUAL, DOUBLE_EQUAL -> eq;
+            case NOT_EQUAL -> String.format("!(%s)", eq);
+        };
+    }
+
     public enum Operator {
         EQUAL("=", arg -> v -> Objects.equals(arg, v)),
         DOUBLE_EQUAL("==", arg -> v -> Objects.equals(arg, v)),
@@ -19,4 +19,30 @@ import java.util.function.Predicate;
 
 interface LabelMatcher extends Predicate<String> {
     String getKey();
+
+    /**
+     * Render this matcher as a SQL/JSON path predicate against the root of a JSON object, ex.
+     * {@code $."app" == "web"}. This must accept exactly the label sets that {@link #test(String)}
+     * accepts for the value of {@link #getKey()}.
+     */
+    String toJsonPath();
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    static String accessor(String key) {
+        return "$." + quote(key);
+    }
 }
@@ -62,6 +62,20 @@ public class LabelSelectorMatcher implements Predicate<Map<String, String>> {
         return this.matchers.stream().allMatch(m -> m.test(labels.get(m.getKey())));
     }
 
+    /**
+     * Render this selector as a SQL/JSON path predicate, suitable for use with the PostgreSQL
+     * {@code jsonb @@ jsonpath} operator against a JSON object of labels. This accepts exactly the
+     * label sets accepted by {@link #test(Map)}.
+     */
+    public String toJsonPath() {
+        if (matchers.isEmpty()) {
+            return "exists($)";
+        }
+        return matchers.stream()
+                .map(m -> String.format("(%s)", m.toJsonPath()))
+                .collect(Collectors.joining(" && "));
+    }
+
     public static LabelSelectorMatcher parse(String clause) throws IllegalArgumentException {
         Collection<Function<String, LabelMatcher>> parsers =
                 Arrays.asList(
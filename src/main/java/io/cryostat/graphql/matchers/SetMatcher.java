@@ -20,6 +20,7 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class SetMatcher implements LabelMatcher {
 
@@ -47,6 +48,30 @@ public class SetMatcher implements LabelMatcher {
         return operator.with(values).test(s);
     }
 
+    @Override
+    public String toJsonPath() {
+        String accessor = LabelMatcher.accessor(key);
+        String exists = String.format("exists(%s)", accessor);
+        String member =
+                values.isEmpty()
+                        ? "!(exists($))"
+                        : values.stream()
+                                .sorted()
+                                .map(
+                                        v ->
+                                                String.format(
+                                                        "%s == %s",
+                                                        accessor,
+                                                        LabelMatcher.quote(v)))
+                                .collect(Collectors.joining(" || ", "(", ")"));
+        return switch (operator) {
+            case IN -> member;
+            case NOT_IN -> String.format("!%s", member);
+            case EXISTS -> exists;
+            case DOES_NOT_EXIST -> String.format("!(%s)", exists);
+        };
+    }
+
     public enum Operator {
         IN("In", args -> v -> contains(args, v)),
         NOT_IN("NotIn", args -> v -> !contains(args, v)),
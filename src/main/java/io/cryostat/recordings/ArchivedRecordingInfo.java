@@ -15,22 +15,58 @@
  */
 package io.cryostat.recordings;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import io.cryostat.graphql.matchers.LabelSelectorMatcher;
+import io.cryostat.recordings.ActiveRecordings.Metadata;
+
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.panache.common.Sort;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.envers.Audited;
+import org.hibernate.type.SqlTypes;
 
+/**
+ * Database catalog entry for an archived recording object in S3 storage. The catalog mirrors the
+ * archives bucket so that listings can be served with indexed queries rather than by listing the
+ * bucket and retrieving each object's metadata separately. It is kept up to date by {@link
+ * RecordingHelper} whenever archives are created, uploaded, relabelled, or deleted, and any drift
+ * from the bucket contents is corrected by the {@link ArchivedRecordingReconciler}.
+ */
 @Entity
 @Audited
 @Table(
         name = "ArchivedRecording",
-        uniqueConstraints = {@UniqueConstraint(columnNames = {"jvmId", "filename"})})
+        uniqueConstraints = {@UniqueConstraint(columnNames = {"jvmId", "filename"})},
+        indexes = {
+            @Index(columnList = "jvmId, lastModified DESC"),
+            @Index(columnList = "lastModified DESC"),
+            @Index(columnList = "jvmId, size DESC"),
+            @Index(columnList = "size DESC")
+        })
 public class ArchivedRecordingInfo extends PanacheEntity {
 
+    /**
+     * Must be kept in sync with the IDX_ARCHIVEDRECORDING_LABELS expression index. Entries without
+     * metadata have no labels, as in {@link #metadata()}.
+     */
+    static final String LABELS = "COALESCE(metadata -> 'labels', CAST('{}' AS jsonb))";
+
     @NotBlank public String jvmId;
 
     @NotBlank public String filename;
@@ -39,6 +75,19 @@ public class ArchivedRecordingInfo extends PanacheEntity {
 
     @NotNull public Long createdAt;
 
+    /** Size of the archived object in bytes. */
+    @PositiveOrZero public long size;
+
+    /** Epoch millis timestamp of the last modification of the archived object. */
+    @PositiveOrZero public long lastModified;
+
+    /**
+     * Labels attached to the archived recording. This is null for catalog entries created before
+     * the metadata was tracked, until the reconciler backfills it from storage.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    public Metadata metadata;
+
     public static ArchivedRecordingInfo of(String jvmId, String filename, Long activeRecordingId) {
         ArchivedRecordingInfo recording = new ArchivedRecordingInfo();
         recording.jvmId = jvmId;
@@ -47,4 +96,135 @@ public class ArchivedRecordingInfo extends PanacheEntity {
         recording.createdAt = System.currentTimeMillis();
         return recording;
     }
+
+    public static Optional<ArchivedRecordingInfo> getArchivedRecording(
+            String jvmId, String filename) {
+        return find("jvmId = ?1 and filename = ?2", jvmId, filename).firstResultOptional();
+    }
+
+    public static List<ArchivedRecordingInfo> listArchivedRecordings() {
+        return listAll(Sort.by("jvmId").and("filename"));
+    }
+
+    public static List<ArchivedRecordingInfo> listArchivedRecordings(String jvmId) {
+        return list("jvmId", Sort.by("filename"), jvmId);
+    }
+
+    /**
+     * List the entries which do not know their object's labels or timestamp yet, ie. those created
+     * by the V4.4.0 migration which have not been backfilled from storage.
+     *
+     * @param jvmId restrict results to this JVM ID, or all JVM IDs if blank
+     */
+    public static List<ArchivedRecordingInfo> listIncomplete(String jvmId) {
+        if (StringUtils.isBlank(jvmId)) {
+            return list("metadata is null or lastModified = 0");
+        }
+        return list("jvmId = ?1 and (metadata is null or lastModified = 0)", jvmId);
+    }
+
+    /**
+     * Keyset query for a page of catalog entries, ordered by the given sort key with the entity ID
+     * as a tiebreaker. If an "after" position is given then only entries strictly following that
+     * position in the ordering are returned, so pages remain stable as entries are added or removed
+     * ahead of the position. Label selectors are rendered as SQL/JSON path predicates using the
+     * {@code jsonb @@ jsonpath} operator, which can be served by the IDX_ARCHIVEDRECORDING_LABELS
+     * index. This is a native query because JPQL has no way to express that operator.
+     *
+     * @param jvmId restrict results to this JVM ID, or all JVM IDs if blank
+     * @param after the sort key value and entity ID of the last entry of the previous page, or null
+     *     for the first page
+     * @param labels label selectors which entries must all match, or null
+     * @param limit the maximum number of entries to return
+     * @throws IllegalArgumentException if a label selector is malformed
+     */
+    public static List<ArchivedRecordingInfo> findPage(
+            String jvmId,
+            SortKey sortKey,
+            boolean descending,
+            Pair<Object, Long> after,
+            List<String> labels,
+            int limit) {
+        List<String> clauses = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+        if (StringUtils.isNotBlank(jvmId)) {
+            clauses.add("jvmId = :jvmId");
+            params.put("jvmId", jvmId);
+        }
+        String direction = descending ? "DESC" : "ASC";
+        if (after != null) {
+            String op = descending ? "<" : ">";
+            clauses.add(
+                    String.format(
+                            "(%1$s %2$s :value OR (%1$s = :value AND id %2$s :id))",
+                            sortKey.column, op));
+            params.put("value", after.getKey());
+            params.put("id", after.getValue());
+        }
+        if (labels != null && !labels.isEmpty()) {
+            String path =
+                    labels.stream()
+                            .map(
+                                    s ->
+                                            String.format(
+                                                    "(%s)",
+                                                    LabelSelectorMatcher.parse(s).toJsonPath()))
+                            .collect(Collectors.joining(" && "));
+            clauses.add(String.format("%s @@ CAST(:labels AS jsonpath)", LABELS));
+            params.put("labels", path);
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM ArchivedRecording");
+        if (!clauses.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", clauses));
+        }
+        sql.append(String.format(" ORDER BY %1$s %2$s, id %2$s", sortKey.column, direction));
+        var q = getEntityManager().createNativeQuery(sql.toString(), ArchivedRecordingInfo.class);
+        params.forEach(q::setParameter);
+        q.setMaxResults(limit);
+        @SuppressWarnings("unchecked")
+        List<ArchivedRecordingInfo> page = q.getResultList();
+        return page;
+    }
+
+    public Metadata metadata() {
+        return metadata == null ? Metadata.empty() : metadata;
+    }
+
+    /** Orderings supported by {@link #findPage}. */
+    public enum SortKey {
+        TIME("lastModified"),
+        SIZE("size"),
+        NAME("filename"),
+        ;
+
+        private final String column;
+
+        SortKey(String column) {
+            this.column = column;
+        }
+
+        Object valueOf(ArchivedRecordingInfo info) {
+            return switch (this) {
+                case TIME -> info.lastModified;
+                case SIZE -> info.size;
+                case NAME -> info.filename;
+            };
+        }
+
+        Object parseValue(String value) {
+            return switch (this) {
+                case TIME, SIZE -> Long.valueOf(value);
+                case NAME -> value;
+            };
+        }
+
+        public static SortKey fromString(String s) {
+            for (SortKey key : values()) {
+                if (key.name().equalsIgnoreCase(s)) {
+                    return key;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown sort key \"%s\"", s));
+        }
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.recordings.ActiveRecordings.Metadata;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Periodically compares the {@link ArchivedRecordingInfo} catalog against the contents of the
+ * archives bucket and corrects any drift. Objects which exist in the bucket but not in the catalog
+ * (ex. written by an older Cryostat version, or copied in out-of-band) are added to the catalog,
+ * catalog entries whose objects have disappeared from the bucket are removed, and entries which
+ * are missing their size, timestamp or labels are backfilled. This is the only code path which
+ * needs to list the entire bucket - all other archived recording listings are served from the
+ * catalog.
+ */
+@ApplicationScoped
+class ArchivedRecordingReconciler {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Inject RecordingHelper recordingHelper;
+    @Inject Logger logger;
+
+    @Scheduled(
+            every = "${" + ConfigProperties.ARCHIVES_CATALOG_RECONCILE_PERIOD + "}",
+            delayed = "${" + ConfigProperties.ARCHIVES_CATALOG_RECONCILE_DELAY + "}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.warn("Archived recording catalog reconciliation failed", e);
+        }
+    }
+
+    void reconcile() {
+        long start = System.currentTimeMillis();
+
+        Map<Pair<String, String>, S3Object> objects = new HashMap<>();
+        recordingHelper
+                .listArchivedRecordingObjects()
+                .forEach(
+                        obj -> {
+                            String[] parts = obj.key().strip().split("/");
+                            if (parts.length != 2) {
+                                logger.debugv("Skipping unexpected archive key {0}", obj.key());
+                                return;
+                            }
+                            objects.put(Pair.of(parts[0], parts[1]), obj);
+                        });
+
+        Map<Pair<String, String>, ArchivedRecordingInfo> catalog = new HashMap<>();
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () ->
+                                ArchivedRecordingInfo.<ArchivedRecordingInfo>listAll()
+                                        .forEach(
+                                                info ->
+                                                        catalog.put(
+                                                                Pair.of(info.jvmId, info.filename),
+                                                                info)));
+
+        List<Entry> upserts = new ArrayList<>();
+        objects.forEach(
+                (key, obj) -> {
+                    ArchivedRecordingInfo info = catalog.get(key);
+                    if (info == null || info.metadata == null) {
+                        // only fetch metadata for the entries that actually need it
+                        Metadata metadata =
+                                recordingHelper
+                                        .getArchivedRecordingMetadata(obj.key().strip())
+                                        .orElseGet(Metadata::empty);
+                        upserts.add(new Entry(key, obj, Optional.of(metadata)));
+                    } else if (info.size != obj.size() || info.lastModified == 0) {
+                        // the catalog's own timestamps are authoritative once set, so only fill in
+                        // values which are unknown or clearly wrong
+                        upserts.add(new Entry(key, obj, Optional.empty()));
+                    }
+                });
+
+        // entries created after this pass began may not be reflected in the bucket listing yet
+        List<Long> removals =
+                catalog.entrySet().stream()
+                        .filter(e -> !objects.containsKey(e.getKey()))
+                        .filter(e -> e.getValue().createdAt < start)
+                        .map(e -> e.getValue().id)
+                        .toList();
+
+        for (int i = 0; i < upserts.size(); i += BATCH_SIZE) {
+            var batch = upserts.subList(i, Math.min(i + BATCH_SIZE, upserts.size()));
+            QuarkusTransaction.requiringNew().run(() -> batch.forEach(this::apply));
+        }
+        for (int i = 0; i < removals.size(); i += BATCH_SIZE) {
+            var batch = removals.subList(i, Math.min(i + BATCH_SIZE, removals.size()));
+            QuarkusTransaction.requiringNew()
+                    .run(() -> ArchivedRecordingInfo.delete("id in ?1", batch));
+        }
+
+        if (!upserts.isEmpty() || !removals.isEmpty()) {
+            logger.infov(
+                    "Archived recording catalog reconciled: {0} objects, {1} updated, {2}"
+                            + " removed",
+                    objects.size(), upserts.size(), removals.size());
+        }
+    }
+
+    private void apply(Entry entry) {
+        String jvmId = entry.key().getKey();
+        String filename = entry.key().getValue();
+        ArchivedRecordingInfo info =
+                ArchivedRecordingInfo.getArchivedRecording(jvmId, filename)
+                        .orElseGet(
+                                () ->
+                                        ArchivedRecordingInfo.of(
+                                                jvmId,
+                                                filename,
+                                                activeRecordingId(entry.metadata()).orElse(null)));
+        entry.metadata().ifPresent(m -> info.metadata = m);
+        info.size = entry.object().size();
+        info.lastModified = entry.object().lastModified().toEpochMilli();
+        info.persist();
+    }
+
+    private Optional<Long> activeRecordingId(Optional<Metadata> metadata) {
+        Optional<String> label =
+                metadata.map(m -> m.labels().get(RecordingHelper.ACTIVE_RECORDING_ID_LABEL));
+        if (label.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            long id = Long.parseLong(label.get());
+            // the source recording may be long gone, in which case there is nothing to refer to
+            return ActiveRecording.findByIdOptional(id).map(r -> id);
+        } catch (NumberFormatException nfe) {
+            return Optional.empty();
+        }
+    }
+
+    private record Entry(Pair<String, String> key, S3Object object, Optional<Metadata> metadata) {}
+}
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -40,12 +41,14 @@ import io.cryostat.util.HttpMimeType;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.panache.common.Sort;
 import io.smallrye.common.annotation.Blocking;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.mutiny.core.eventbus.EventBus;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.NotFoundException;
@@ -65,7 +68,6 @@ import org.jboss.resteasy.reactive.RestResponse;
 import org.jboss.resteasy.reactive.RestResponse.ResponseBuilder;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
@@ -73,6 +75,9 @@ import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequ
 @Path("")
 public class ArchivedRecordings {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_PAGE_SIZE = 1000;
+
     @Inject EventBus bus;
     @Inject Clock clock;
     @Inject StorageBuckets storageBuckets;
@@ -98,9 +103,22 @@ public class ArchivedRecordings {
             description =
                     """
                     List all archived recordings from all targets, including (re-)uploaded files.
+                    If any of the paging, sorting, or label filtering parameters are supplied then
+                    the results are sorted and filtered server-side. If a limit is supplied and
+                    there are further results, the response includes an opaque cursor in the
+                    X-Next-Cursor header which can be passed back to retrieve the next page.
                     """)
-    public List<ArchivedRecording> listArchivesV4() {
-        return recordingHelper.listArchivedRecordings();
+    public RestResponse<List<ArchivedRecording>> listArchivesV4(
+            @RestQuery String cursor,
+            @RestQuery Integer limit,
+            @RestQuery String sort,
+            @RestQuery Boolean descending,
+            @RestQuery List<String> label) {
+        if (!isPageRequest(cursor, limit, sort, descending, label)) {
+            return RestResponse.ok(recordingHelper.listArchivedRecordings());
+        }
+        ArchivedRecordingPage page = listPage(null, cursor, limit, sort, descending, label);
+        return pageResponse(page, page.data());
     }
 
     @POST
@@ -176,28 +194,18 @@ public class ArchivedRecordings {
         logger.tracev(
                 "recording:{0}, labels:{1}, maxFiles:{2}", recording.fileName(), labels, maxFiles);
         if (max < Integer.MAX_VALUE) {
-            var objs = new ArrayList<S3Object>(recordingHelper.listArchivedRecordingObjects(id));
+            // entries without labels yet could not be recognized as scheduled pushes
+            recordingHelper.completeArchivedRecordingCatalog(id);
             var toRemove =
-                    objs.stream()
-                            .filter(
-                                    obj -> {
-                                        String filename = obj.key().strip().split("/")[1];
-                                        return recordingHelper
-                                                .getArchivedRecordingMetadata(id, filename)
-                                                .map(
-                                                        m ->
-                                                                "SCHEDULED"
-                                                                        .equals(
-                                                                                m.labels()
-                                                                                        .get(
-                                                                                                "pushType")))
-                                                .orElse(false);
-                                    })
-                            .sorted((a, b) -> b.lastModified().compareTo(a.lastModified()))
+                    QuarkusTransaction.joiningExisting()
+                            .call(
+                                    () ->
+                                            ArchivedRecordingInfo.<ArchivedRecordingInfo>list(
+                                                    "jvmId", Sort.descending("lastModified"), id))
+                            .stream()
+                            .filter(r -> "SCHEDULED".equals(r.metadata().labels().get("pushType")))
                             .skip(max - 1)
-                            .map(S3Object::key)
-                            .map(s -> s.split("/"))
-                            .map(a -> Pair.of(a[0], a[1]))
+                            .map(r -> Pair.of(r.jvmId, r.filename))
                             .toList();
             toRemove.forEach(
                     p -> {
@@ -255,28 +263,7 @@ public class ArchivedRecordings {
     @RolesAllowed("read")
     @Operation(summary = "List archived recordings belonging to the specified target")
     public List<ArchivedRecording> agentGet(@Parameter(required = true) @RestPath String jvmId) {
-        var result = new ArrayList<ArchivedRecording>();
-        recordingHelper
-                .listArchivedRecordingObjects(jvmId)
-                .forEach(
-                        item -> {
-                            String objectName = item.key().strip();
-                            String filename = objectName.split("/")[1];
-                            Metadata metadata =
-                                    recordingHelper
-                                            .getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-                            result.add(
-                                    new ArchivedRecording(
-                                            jvmId,
-                                            filename,
-                                            recordingHelper.downloadUrl(jvmId, filename),
-                                            recordingHelper.reportUrl(jvmId, filename),
-                                            metadata,
-                                            item.size(),
-                                            item.lastModified().getEpochSecond()));
-                        });
-        return result;
+        return recordingHelper.listArchivedRecordings(jvmId);
     }
 
     @DELETE
@@ -298,9 +285,8 @@ public class ArchivedRecordings {
         } else {
             jvmId = Target.getTargetByConnectUrl(URI.create(connectUrl)).jvmId;
         }
-        if (!recordingHelper.listArchivedRecordingObjects(jvmId).stream()
-                .map(item -> item.key().strip().split("/")[1])
-                .anyMatch(fn -> Objects.equals(fn, filename))) {
+        // falls back to storage for objects which the catalog does not know about (yet)
+        if (recordingHelper.getArchivedRecordingInfo(jvmId, filename).isEmpty()) {
             throw new NotFoundException();
         }
         recordingHelper.deleteArchivedRecording(jvmId, filename);
@@ -342,42 +328,25 @@ public class ArchivedRecordings {
     @Blocking
     @Path("/api/beta/fs/recordings")
     @RolesAllowed("read")
-    @Operation(summary = "List all archived recordings grouped by target")
-    public Collection<ArchivedRecordingDirectory> listFsArchives() {
-        var map = new HashMap<String, ArchivedRecordingDirectory>();
-        recordingHelper
-                .listArchivedRecordingObjects()
-                .forEach(
-                        item -> {
-                            String path = item.key().strip();
-                            String[] parts = path.split("/");
-                            String jvmId = parts[0];
-                            String filename = parts[1];
-
-                            Metadata metadata =
-                                    recordingHelper
-                                            .getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-
-                            String connectUrl =
-                                    metadata.labels().computeIfAbsent("connectUrl", k -> jvmId);
-                            var dir =
-                                    map.computeIfAbsent(
-                                            jvmId,
-                                            id ->
-                                                    new ArchivedRecordingDirectory(
-                                                            connectUrl, id, new ArrayList<>()));
-                            dir.recordings.add(
-                                    new ArchivedRecording(
-                                            jvmId,
-                                            filename,
-                                            recordingHelper.downloadUrl(jvmId, filename),
-                                            recordingHelper.reportUrl(jvmId, filename),
-                                            metadata,
-                                            item.size(),
-                                            item.lastModified().getEpochSecond()));
-                        });
-        return map.values();
+    @Operation(
+            summary = "List all archived recordings grouped by target",
+            description =
+                    """
+                    Paging, sorting, and label filtering parameters are handled as for
+                    /api/v4/recordings. When paging, each page is grouped by target separately, so
+                    a target's recordings may be spread across several pages.
+                    """)
+    public RestResponse<Collection<ArchivedRecordingDirectory>> listFsArchives(
+            @RestQuery String cursor,
+            @RestQuery Integer limit,
+            @RestQuery String sort,
+            @RestQuery Boolean descending,
+            @RestQuery List<String> label) {
+        if (!isPageRequest(cursor, limit, sort, descending, label)) {
+            return RestResponse.ok(groupByJvmId(recordingHelper.listArchivedRecordings()));
+        }
+        ArchivedRecordingPage page = listPage(null, cursor, limit, sort, descending, label);
+        return pageResponse(page, groupByJvmId(page.data()));
     }
 
     @GET
@@ -385,37 +354,75 @@ public class ArchivedRecordings {
     @Path("/api/beta/fs/recordings/{jvmId}")
     @RolesAllowed("read")
     @Operation(summary = "List all archived recordings belonging to the specified target")
-    public Collection<ArchivedRecordingDirectory> listFsArchives(@RestPath String jvmId) {
-        var map = new HashMap<String, ArchivedRecordingDirectory>();
-        recordingHelper
-                .listArchivedRecordingObjects(jvmId)
-                .forEach(
-                        item -> {
-                            String filename = item.key().strip().replace(jvmId + "/", "");
-
-                            Metadata metadata =
-                                    recordingHelper
-                                            .getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-
-                            String connectUrl =
-                                    metadata.labels().computeIfAbsent("connectUrl", k -> jvmId);
-                            var dir =
-                                    map.computeIfAbsent(
-                                            jvmId,
-                                            id ->
-                                                    new ArchivedRecordingDirectory(
-                                                            connectUrl, id, new ArrayList<>()));
-                            dir.recordings.add(
-                                    new ArchivedRecording(
-                                            jvmId,
-                                            filename,
-                                            recordingHelper.downloadUrl(jvmId, filename),
-                                            recordingHelper.reportUrl(jvmId, filename),
-                                            metadata,
-                                            item.size(),
-                                            item.lastModified().getEpochSecond()));
-                        });
+    public RestResponse<Collection<ArchivedRecordingDirectory>> listFsArchives(
+            @RestPath String jvmId,
+            @RestQuery String cursor,
+            @RestQuery Integer limit,
+            @RestQuery String sort,
+            @RestQuery Boolean descending,
+            @RestQuery List<String> label) {
+        if (!isPageRequest(cursor, limit, sort, descending, label)) {
+            return RestResponse.ok(groupByJvmId(recordingHelper.listArchivedRecordings(jvmId)));
+        }
+        ArchivedRecordingPage page = listPage(jvmId, cursor, limit, sort, descending, label);
+        return pageResponse(page, groupByJvmId(page.data()));
+    }
+
+    private boolean isPageRequest(
+            String cursor, Integer limit, String sort, Boolean descending, List<String> labels) {
+        return StringUtils.isNotBlank(cursor)
+                || limit != null
+                || StringUtils.isNotBlank(sort)
+                || descending != null
+                || (labels != null && !labels.isEmpty());
+    }
+
+    private ArchivedRecordingPage listPage(
+            String jvmId,
+            String cursor,
+            Integer limit,
+            String sort,
+            Boolean descending,
+            List<String> labels) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new BadRequestException(
+                    String.format("Page limit must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+        // default to newest first, which is what clients most often want to see
+        var sortKey =
+                StringUtils.isBlank(sort)
+                        ? ArchivedRecordingInfo.SortKey.TIME
+                        : ArchivedRecordingInfo.SortKey.fromString(sort);
+        boolean fDescending =
+                descending == null ? sortKey == ArchivedRecordingInfo.SortKey.TIME : descending;
+        return recordingHelper.listArchivedRecordings(
+                jvmId, sortKey, fDescending, cursor, limit, labels, null);
+    }
+
+    private <T> RestResponse<T> pageResponse(ArchivedRecordingPage page, T entity) {
+        var builder = ResponseBuilder.ok(entity);
+        if (page.nextCursor() != null) {
+            builder = builder.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return builder.build();
+    }
+
+    private Collection<ArchivedRecordingDirectory> groupByJvmId(
+            List<ArchivedRecording> recordings) {
+        var map = new LinkedHashMap<String, ArchivedRecordingDirectory>();
+        recordings.forEach(
+                recording -> {
+                    String jvmId = recording.jvmId();
+                    String connectUrl =
+                            recording.metadata().labels().getOrDefault("connectUrl", jvmId);
+                    var dir =
+                            map.computeIfAbsent(
+                                    jvmId,
+                                    id ->
+                                            new ArchivedRecordingDirectory(
+                                                    connectUrl, id, new ArrayList<>()));
+                    dir.recordings.add(recording);
+                });
         return map.values();
     }
 
@@ -536,6 +543,19 @@ public class ArchivedRecordings {
         }
     }
 
+    /**
+     * A single page of archived recordings.
+     *
+     * @param nextCursor opaque cursor for retrieving the following page, or null if this is the
+     *     last page
+     */
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public record ArchivedRecordingPage(List<ArchivedRecording> data, String nextCursor) {
+        public ArchivedRecordingPage {
+            Objects.requireNonNull(data);
+        }
+    }
+
     @SuppressFBWarnings("EI_EXPOSE_REP")
     public record ArchivedRecordingDirectory(
             String connectUrl, String jvmId, List<ArchivedRecording> recordings) {
@@ -42,6 +42,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
@@ -54,6 +55,7 @@ import org.openjdk.jmc.flightrecorder.configuration.recording.RecordingOptionsBu
 
 import io.cryostat.ConfigProperties;
 import io.cryostat.Producers;
+import io.cryostat.ProgressInputStream;
 import io.cryostat.StorageBuckets;
 import io.cryostat.core.EventOptionsBuilder;
 import io.cryostat.core.FlightRecorderException;
@@ -69,6 +71,7 @@ import io.cryostat.libcryostat.templates.TemplateType;
 import io.cryostat.recordings.ActiveRecordings.LinkedRecordingDescriptor;
 import io.cryostat.recordings.ActiveRecordings.Metadata;
 import io.cryostat.recordings.ArchivedRecordings.ArchivedRecording;
+import io.cryostat.recordings.ArchivedRecordings.ArchivedRecordingPage;
 import io.cryostat.recordings.RecordingNotifications.ArchivedRecordingNotification;
 import io.cryostat.recordings.events.ActiveRecordingEvents;
 import io.cryostat.reports.AnalysisReportAggregator;
@@ -170,6 +173,10 @@ public class RecordingHelper {
     public static final String START_TIME_LABEL = "startTime";
     public static final String DURATION_LABEL = "duration";
 
+    private static final String CURSOR_DELIMITER = "|";
+    private static final int ARCHIVE_PAGE_SCAN_SIZE = 100;
+    private static final int ARCHIVE_PAGE_MAX_SCANS = 10;
+
     @Inject S3Client storage;
     @Inject S3TransferManager transferManager;
     final ExecutorService partUploader = Executors.newVirtualThreadPerTaskExecutor();
@@ -929,26 +936,13 @@ public class RecordingHelper {
     }
 
     public List<ArchivedRecording> listArchivedRecordings() {
-        return listArchivedRecordingObjects().stream()
-                .map(
-                        item -> {
-                            String path = item.key().strip();
-                            String[] parts = path.split("/");
-                            String jvmId = parts[0];
-                            String filename = parts[1];
-                            Metadata metadata =
-                                    getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-                            return new ArchivedRecording(
-                                    jvmId,
-                                    filename,
-                                    downloadUrl(jvmId, filename),
-                                    reportUrl(jvmId, filename),
-                                    metadata,
-                                    item.size(),
-                                    item.lastModified().getEpochSecond());
-                        })
-                .toList();
+        completeArchivedRecordingCatalog(null);
+        return QuarkusTransaction.joiningExisting()
+                .call(
+                        () ->
+                                ArchivedRecordingInfo.listArchivedRecordings().stream()
+                                        .map(this::toExternalForm)
+                                        .toList());
     }
 
     public List<S3Object> listArchivedRecordingObjects(String jvmId) {
@@ -956,36 +950,185 @@ public class RecordingHelper {
         if (StringUtils.isNotBlank(jvmId)) {
             builder = builder.prefix(jvmId);
         }
-        return storage.listObjectsV2(builder.build()).contents();
+        // a single listObjectsV2 response is capped at 1000 keys, so follow the continuation tokens
+        return storage.listObjectsV2Paginator(builder.build()).contents().stream().toList();
     }
 
     public List<ArchivedRecording> listArchivedRecordings(String jvmId) {
-        return listArchivedRecordingObjects(jvmId).stream()
-                .map(
-                        item -> {
-                            String path = item.key().strip();
-                            String[] parts = path.split("/");
-                            String effectiveJvmId = parts[0];
-                            String filename = parts[1];
-                            Metadata metadata =
-                                    getArchivedRecordingMetadata(effectiveJvmId, filename)
-                                            .orElseGet(Metadata::empty);
-                            return new ArchivedRecording(
-                                    effectiveJvmId,
-                                    filename,
-                                    downloadUrl(effectiveJvmId, filename),
-                                    reportUrl(effectiveJvmId, filename),
-                                    metadata,
-                                    item.size(),
-                                    item.lastModified().getEpochSecond());
-                        })
-                .toList();
+        if (StringUtils.isBlank(jvmId)) {
+            return listArchivedRecordings();
+        }
+        completeArchivedRecordingCatalog(jvmId);
+        return QuarkusTransaction.joiningExisting()
+                .call(
+                        () ->
+                                ArchivedRecordingInfo.listArchivedRecordings(jvmId).stream()
+                                        .map(this::toExternalForm)
+                                        .toList());
     }
 
     public List<ArchivedRecording> listArchivedRecordings(Target target) {
         return listArchivedRecordings(target.jvmId);
     }
 
+    /**
+     * List a single page of archived recordings from the catalog. Entries are scanned in keyset
+     * order from the cursor position, so the cost of retrieving a page does not depend on how many
+     * pages precede it. Label selectors are evaluated by the database. Any additional filter is
+     * applied after retrieval, so for a limited page only a bounded number of entries are scanned
+     * for matches. If that is not enough to fill the page then the partial page is returned with a
+     * cursor positioned after the last scanned entry.
+     *
+     * @param jvmId restrict results to this JVM ID, or all JVM IDs if blank
+     * @param sortKey the ordering of results
+     * @param descending whether to reverse the ordering
+     * @param cursor the {@link ArchivedRecordingPage#nextCursor()} of the previous page, or null
+     *     for the first page
+     * @param limit the maximum number of results to return, or null for no limit
+     * @param labels label selectors which results must all match, or null
+     * @param filter additional criteria which results must satisfy, or null
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for a different
+     *     ordering, or if a label selector is malformed
+     */
+    public ArchivedRecordingPage listArchivedRecordings(
+            String jvmId,
+            ArchivedRecordingInfo.SortKey sortKey,
+            boolean descending,
+            String cursor,
+            Integer limit,
+            List<String> labels,
+            Predicate<ArchivedRecording> filter) {
+        Objects.requireNonNull(sortKey);
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("Page limit must be > 0");
+        }
+        Predicate<ArchivedRecording> fFilter = filter == null ? r -> true : filter;
+        completeArchivedRecordingCatalog(jvmId);
+        return QuarkusTransaction.joiningExisting()
+                .call(
+                        () -> {
+                            Pair<Object, Long> position =
+                                    decodeCursor(cursor, sortKey, descending);
+                            // scan in chunks until the page is full. One extra match is looked
+                            // for to tell whether there is a next page at all.
+                            int chunkSize =
+                                    limit == null
+                                            ? ARCHIVE_PAGE_SCAN_SIZE
+                                            : Math.max(limit + 1, ARCHIVE_PAGE_SCAN_SIZE);
+                            List<ArchivedRecordingInfo> matches = new ArrayList<>();
+                            List<ArchivedRecording> data = new ArrayList<>();
+                            for (int scans = 1; ; scans++) {
+                                List<ArchivedRecordingInfo> chunk =
+                                        ArchivedRecordingInfo.findPage(
+                                                jvmId,
+                                                sortKey,
+                                                descending,
+                                                position,
+                                                labels,
+                                                chunkSize);
+                                for (ArchivedRecordingInfo info : chunk) {
+                                    ArchivedRecording recording = toExternalForm(info);
+                                    if (fFilter.test(recording)) {
+                                        matches.add(info);
+                                        data.add(recording);
+                                    }
+                                    if (limit != null && data.size() > limit) {
+                                        ArchivedRecordingInfo last = matches.get(limit - 1);
+                                        return new ArchivedRecordingPage(
+                                                data.subList(0, limit),
+                                                encodeCursor(sortKey, descending, last));
+                                    }
+                                }
+                                if (chunk.size() < chunkSize) {
+                                    return new ArchivedRecordingPage(data, null);
+                                }
+                                ArchivedRecordingInfo last = chunk.get(chunk.size() - 1);
+                                if (limit != null && scans >= ARCHIVE_PAGE_MAX_SCANS) {
+                                    // a selective filter must not turn a single page request
+                                    // into a scan of the whole catalog
+                                    return new ArchivedRecordingPage(
+                                            data, encodeCursor(sortKey, descending, last));
+                                }
+                                position = Pair.of(sortKey.valueOf(last), last.id);
+                            }
+                        });
+    }
+
+    private String encodeCursor(
+            ArchivedRecordingInfo.SortKey sortKey, boolean descending, ArchivedRecordingInfo info) {
+        String raw =
+                String.join(
+                        CURSOR_DELIMITER,
+                        sortKey.name(),
+                        String.valueOf(descending),
+                        String.valueOf(info.id),
+                        String.valueOf(sortKey.valueOf(info)));
+        return base64Url.encodeAsString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Pair<Object, Long> decodeCursor(
+            String cursor, ArchivedRecordingInfo.SortKey sortKey, boolean descending) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        // the sort value goes last since filenames may contain the delimiter
+        String[] parts = decodeBase64(cursor).split(Pattern.quote(CURSOR_DELIMITER), 4);
+        if (parts.length != 4
+                || !sortKey.name().equals(parts[0])
+                || descending != Boolean.parseBoolean(parts[1])) {
+            throw new IllegalArgumentException("Invalid cursor for the requested ordering");
+        }
+        try {
+            return Pair.of(sortKey.parseValue(parts[3]), Long.valueOf(parts[2]));
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Invalid cursor", nfe);
+        }
+    }
+
+    public ArchivedRecording toExternalForm(ArchivedRecordingInfo info) {
+        return new ArchivedRecording(
+                info.jvmId,
+                info.filename,
+                downloadUrl(info.jvmId, info.filename),
+                reportUrl(info.jvmId, info.filename),
+                info.metadata(),
+                info.size,
+                TimeUnit.MILLISECONDS.toSeconds(info.lastModified));
+    }
+
+    /**
+     * Create or update the catalog entry for an archived recording object. This must be called
+     * after the object has been successfully written to storage.
+     */
+    ArchivedRecordingInfo catalogArchivedRecording(
+            String jvmId,
+            String filename,
+            Long activeRecordingId,
+            Metadata metadata,
+            long size,
+            long lastModified) {
+        return QuarkusTransaction.joiningExisting()
+                .call(
+                        () -> {
+                            ArchivedRecordingInfo info =
+                                    ArchivedRecordingInfo.getArchivedRecording(jvmId, filename)
+                                            .orElseGet(
+                                                    () ->
+                                                            ArchivedRecordingInfo.of(
+                                                                    jvmId,
+                                                                    filename,
+                                                                    activeRecordingId));
+                            if (activeRecordingId != null) {
+                                info.activeRecordingId = activeRecordingId;
+                            }
+                            info.metadata = metadata;
+                            info.size = size;
+                            info.lastModified = lastModified;
+                            info.persist();
+                            return info;
+                        });
+    }
+
     public ArchivedRecording archiveRecording(ActiveRecording recording) throws Exception {
         // AWS object key name guidelines advise characters to avoid (% so we should not pass url
         // encoded characters)
@@ -997,7 +1140,11 @@ public class RecordingHelper {
         String filename =
                 String.format("%s_%s_%s.jfr", transformedAlias, recording.name, timestamp);
         String key = archivedRecordingKey(recording.target.jvmId, filename);
-        try (var stream = getActiveInputStream(recording, uploadFailedTimeout)) {
+        Metadata metadata = createActiveRecordingMetadata(recording);
+        AtomicLong size = new AtomicLong();
+        try (var stream =
+                new ProgressInputStream(
+                        getActiveInputStream(recording, uploadFailedTimeout), size::addAndGet)) {
             PutObjectRequest.Builder builder =
                     PutObjectRequest.builder()
                             .bucket(archiveBucket)
@@ -1007,18 +1154,13 @@ public class RecordingHelper {
                                     String.format("attachment; filename=\"%s\"", filename));
             switch (storageMode()) {
                 case TAGGING:
-                    builder = builder.tagging(createActiveRecordingTagging(recording));
+                    builder = builder.tagging(createMetadataTagging(metadata));
                     break;
                 case METADATA:
-                    builder = builder.metadata(createActiveRecordingMetadata(recording).labels());
+                    builder = builder.metadata(metadata.labels());
                     break;
                 case BUCKET:
-                    metadataService
-                            .get()
-                            .create(
-                                    recording.target.jvmId,
-                                    filename,
-                                    createActiveRecordingMetadata(recording));
+                    metadataService.get().create(recording.target.jvmId, filename, metadata);
                     break;
                 default:
                     throw new IllegalStateException();
@@ -1034,14 +1176,17 @@ public class RecordingHelper {
                     .completionFuture()
                     .join();
         }
-        QuarkusTransaction.joiningExisting()
-                .run(
-                        () ->
-                                ArchivedRecordingInfo.of(
-                                                recording.target.jvmId, filename, recording.id)
-                                        .persist());
+        // everything needed to describe the new archive is already known, so there is no need to
+        // look it back up from storage
         ArchivedRecording archivedRecording =
-                getArchivedRecordingInfo(recording.target.jvmId, filename).orElseThrow();
+                toExternalForm(
+                        catalogArchivedRecording(
+                                recording.target.jvmId,
+                                filename,
+                                recording.id,
+                                metadata,
+                                size.get(),
+                                clock.now().toEpochMilli()));
 
         var event =
                 new ArchivedRecordingNotification(
@@ -1056,31 +1201,96 @@ public class RecordingHelper {
         return archivedRecording;
     }
 
+    /**
+     * Look up a single archived recording by its key. This is answered from the catalog's unique
+     * (jvmId, filename) index when the catalog has a complete entry for the recording, and
+     * otherwise by a HeadObject request for the storage object, so the cost does not depend on how
+     * many other recordings the target has archived.
+     */
     public Optional<ArchivedRecording> getArchivedRecordingInfo(String jvmId, String filename) {
-        return listArchivedRecordingObjects(jvmId).stream()
-                .filter(
-                        item -> {
-                            String objectName = item.key().strip();
-                            String f = objectName.split("/")[1];
-                            return Objects.equals(filename, f);
-                        })
-                .map(
-                        item -> {
-                            String objectName = item.key().strip();
-                            String f = objectName.split("/")[1];
-                            Metadata metadata =
-                                    getArchivedRecordingMetadata(jvmId, f)
-                                            .orElseGet(Metadata::empty);
-                            return new ArchivedRecording(
-                                    jvmId,
-                                    filename,
-                                    downloadUrl(jvmId, f),
-                                    reportUrl(jvmId, f),
-                                    metadata,
-                                    item.size(),
-                                    item.lastModified().getEpochSecond());
-                        })
-                .findFirst();
+        Optional<ArchivedRecordingInfo> info =
+                QuarkusTransaction.joiningExisting()
+                        .call(() -> ArchivedRecordingInfo.getArchivedRecording(jvmId, filename));
+        if (info.isPresent() && info.get().metadata != null && info.get().lastModified > 0) {
+            return info.map(this::toExternalForm);
+        }
+        return headArchivedRecording(jvmId, filename);
+    }
+
+    private Optional<ArchivedRecording> headArchivedRecording(String jvmId, String filename) {
+        String key = archivedRecordingKey(jvmId, filename);
+        HeadObjectResponse resp;
+        try {
+            resp =
+                    storage.headObject(
+                            HeadObjectRequest.builder().bucket(archiveBucket).key(key).build());
+        } catch (NoSuchKeyException nske) {
+            return Optional.empty();
+        }
+        return Optional.of(
+                new ArchivedRecording(
+                        jvmId,
+                        filename,
+                        downloadUrl(jvmId, filename),
+                        reportUrl(jvmId, filename),
+                        objectMetadata(key, resp),
+                        resp.contentLength(),
+                        resp.lastModified().getEpochSecond()));
+    }
+
+    private Metadata objectMetadata(String key, HeadObjectResponse resp) {
+        if (storageMode() == ArchivedRecordingMetadataService.StorageMode.METADATA) {
+            // object metadata is returned by the HeadObject response itself
+            return resp.hasMetadata()
+                    ? new Metadata(new HashMap<>(resp.metadata()))
+                    : Metadata.empty();
+        }
+        return getArchivedRecordingMetadata(key).orElseGet(Metadata::empty);
+    }
+
+    /**
+     * Complete the catalog entries which do not know their object's labels or timestamp yet. The
+     * V4.4.0 migration creates such entries, and they stay incomplete until the first {@link
+     * ArchivedRecordingReconciler} pass, so they are filled in from storage on demand before the
+     * catalog serves results which depend on them. Each entry only needs to be completed once, and
+     * entries whose objects no longer exist are removed.
+     *
+     * @param jvmId restrict to entries of this JVM ID, or all JVM IDs if blank
+     */
+    public void completeArchivedRecordingCatalog(String jvmId) {
+        List<ArchivedRecordingInfo> incomplete =
+                QuarkusTransaction.joiningExisting()
+                        .call(() -> ArchivedRecordingInfo.listIncomplete(jvmId));
+        for (ArchivedRecordingInfo info : incomplete) {
+            String key = archivedRecordingKey(info.jvmId, info.filename);
+            HeadObjectResponse resp;
+            try {
+                resp =
+                        storage.headObject(
+                                HeadObjectRequest.builder().bucket(archiveBucket).key(key).build());
+            } catch (NoSuchKeyException nske) {
+                resp = null;
+            }
+            Metadata metadata = resp == null ? null : objectMetadata(key, resp);
+            long size = resp == null ? 0 : resp.contentLength();
+            long lastModified = resp == null ? 0 : resp.lastModified().toEpochMilli();
+            QuarkusTransaction.joiningExisting()
+                    .run(
+                            () ->
+                                    ArchivedRecordingInfo.<ArchivedRecordingInfo>findByIdOptional(
+                                                    info.id)
+                                            .ifPresent(
+                                                    current -> {
+                                                        if (metadata == null) {
+                                                            current.delete();
+                                                            return;
+                                                        }
+                                                        current.metadata = metadata;
+                                                        current.size = size;
+                                                        current.lastModified = lastModified;
+                                                        current.persist();
+                                                    }));
+        }
     }
 
     public Optional<Metadata> getArchivedRecordingMetadata(String jvmId, String filename) {
@@ -1424,12 +1634,14 @@ public class RecordingHelper {
                 .completionFuture()
                 .join();
 
-        String finalFilename = filename;
-        QuarkusTransaction.joiningExisting()
-                .run(
-                        () ->
-                                ArchivedRecordingInfo.of(jvmId, finalFilename, activeRecordingId)
-                                        .persist());
+        Instant now = clock.now();
+        catalogArchivedRecording(
+                jvmId,
+                filename,
+                activeRecordingId,
+                resolvedMetadata,
+                recording.size(),
+                now.toEpochMilli());
 
         var target = Target.getTargetByJvmId(jvmId);
         ArchivedRecording archivedRecording =
@@ -1440,7 +1652,7 @@ public class RecordingHelper {
                         reportUrl(jvmId, filename),
                         resolvedMetadata,
                         recording.size(),
-                        clock.now().getEpochSecond());
+                        now.getEpochSecond());
         var event =
                 new ArchivedRecordingNotification(
                         ActiveRecordings.RecordingEventCategory.ARCHIVED_CREATED,
@@ -1499,6 +1711,16 @@ public class RecordingHelper {
         long size = response.contentLength();
         Instant lastModified = response.lastModified();
 
+        QuarkusTransaction.joiningExisting()
+                .run(
+                        () ->
+                                ArchivedRecordingInfo.getArchivedRecording(jvmId, filename)
+                                        .ifPresent(
+                                                info -> {
+                                                    info.metadata = updatedMetadata;
+                                                    info.persist();
+                                                }));
+
         ArchivedRecording updatedRecording =
                 new ArchivedRecording(
                         jvmId,
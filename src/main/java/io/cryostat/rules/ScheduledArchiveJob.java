@@ -18,18 +18,19 @@ package io.cryostat.rules;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 import io.cryostat.ConfigProperties;
 import io.cryostat.recordings.ActiveRecording;
-import io.cryostat.recordings.ActiveRecordings.Metadata;
+import io.cryostat.recordings.ArchivedRecordingInfo;
 import io.cryostat.recordings.RecordingHelper;
 import io.cryostat.targets.Target;
 
 import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.panache.common.Sort;
 import jakarta.inject.Inject;
 import jakarta.persistence.NoResultException;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.hibernate.ObjectDeletedException;
 import org.jboss.logging.Logger;
@@ -41,7 +42,6 @@ import org.quartz.SimpleScheduleBuilder;
 import org.quartz.SimpleTrigger;
 import org.quartz.TriggerBuilder;
 import software.amazon.awssdk.services.s3.model.S3Exception;
-import software.amazon.awssdk.services.s3.model.S3Object;
 
 /**
  * Perform recording archival by pulling data stream from a target and copying it into a file in S3
@@ -69,20 +69,18 @@ class ScheduledArchiveJob implements Job {
         int retryCount = ctx.getMergedJobDataMap().getIntValue("retryCount");
 
         try {
-            List<S3Object> previousRecordings = previousRecordings(jvmId, ruleName);
+            List<ArchivedRecordingInfo> previousRecordings = previousRecordings(jvmId, ruleName);
             // minus 1 because we will continue to add one more after pruning
             if (previousRecordings.size() >= preservedArchives - 1) {
-                List<S3Object> toPrune =
+                List<ArchivedRecordingInfo> toPrune =
                         previousRecordings.subList(
                                 preservedArchives - 1, previousRecordings.size());
-                for (var obj : toPrune) {
-                    String path = obj.key().strip();
-                    String[] parts = path.split("/");
-                    String filename = parts[1];
+                for (var info : toPrune) {
                     QuarkusTransaction.joiningExisting()
                             .call(
                                     () -> {
-                                        recordingHelper.deleteArchivedRecording(jvmId, filename);
+                                        recordingHelper.deleteArchivedRecording(
+                                                jvmId, info.filename);
                                         return null;
                                     });
                 }
@@ -200,19 +198,24 @@ class ScheduledArchiveJob implements Job {
         throw ex;
     }
 
-    List<S3Object> previousRecordings(String jvmId, String ruleName) {
-        return recordingHelper.listArchivedRecordingObjects(jvmId).parallelStream()
-                .sorted((a, b) -> b.lastModified().compareTo(a.lastModified()))
-                .map(r -> Pair.of(r, recordingHelper.getArchivedRecordingMetadata(r.key())))
+    List<ArchivedRecordingInfo> previousRecordings(String jvmId, String ruleName) {
+        // entries without labels yet could not be recognized as belonging to the rule
+        recordingHelper.completeArchivedRecordingCatalog(jvmId);
+        return QuarkusTransaction.joiningExisting()
+                .call(
+                        () ->
+                                ArchivedRecordingInfo.<ArchivedRecordingInfo>list(
+                                        "jvmId", Sort.descending("lastModified"), jvmId))
+                .stream()
                 .filter(
-                        p ->
-                                p.getRight()
-                                        .map(Metadata::labels)
-                                        .map(l -> l.get(RuleExecutor.RULE_LABEL_KEY))
+                        r ->
+                                Optional.ofNullable(
+                                                r.metadata()
+                                                        .labels()
+                                                        .get(RuleExecutor.RULE_LABEL_KEY))
                                         .filter(StringUtils::isNotBlank)
                                         .map(l -> Objects.equals(l, ruleName))
                                         .orElse(false))
-                .map(Pair::getLeft)
                 .toList();
     }
 }
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import org.openjdk.jmc.common.unit.IConstrainedMap;
@@ -57,6 +58,9 @@ import io.cryostat.util.HttpStatusCodeIdentifier;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
@@ -65,6 +69,8 @@ import io.smallrye.mutiny.unchecked.Unchecked;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.authentication.UsernamePasswordCredentials;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
@@ -90,14 +96,14 @@ public class AgentClient {
     public static final String NULL_CREDENTIALS = "No credentials found for agent";
 
     private final Target target;
-    private final AgentRestClient agentRestClient;
+    private final Supplier<SharedClient> agentRestClient;
     private final Duration httpTimeout;
     private final ObjectMapper mapper;
     private final Logger logger = Logger.getLogger(getClass());
 
     private AgentClient(
             Target target,
-            AgentRestClient agentRestClient,
+            Supplier<SharedClient> agentRestClient,
             ObjectMapper mapper,
             Duration httpTimeout) {
         this.target = target;
@@ -106,6 +112,24 @@ public class AgentClient {
         this.httpTimeout = httpTimeout;
     }
 
+    /**
+     * Send a request with the agent's shared HTTP client. The client is leased from subscription
+     * until the response has been received, so that it is not closed under the request if it is
+     * evicted in the meantime. Responses are buffered, so reading their entities afterward does not
+     * need the client.
+     */
+    private Uni<Response> request(Function<AgentRestClient, Uni<Response>> request) {
+        return Uni.createFrom()
+                .deferred(
+                        () -> {
+                            SharedClient client = agentRestClient.get();
+                            return Uni.createFrom()
+                                    .deferred(() -> request.apply(client.client()))
+                                    .onTermination()
+                                    .invoke(client::release);
+                        });
+    }
+
     Target getTarget() {
         return target;
     }
@@ -120,16 +144,14 @@ public class AgentClient {
     }
 
     public Uni<Boolean> ping() {
-        return agentRestClient
-                .ping()
+        return request(AgentRestClient::ping)
                 .invoke(Response::close)
                 .map(Response::getStatus)
                 .map(status -> HttpStatusCodeIdentifier.isSuccessCode(status));
     }
 
     Uni<MBeanMetrics> mbeanMetrics() {
-        return agentRestClient
-                .getMbeanMetrics()
+        return request(AgentRestClient::getMbeanMetrics)
                 .map(
                         r -> {
                             try (r;
@@ -143,8 +165,7 @@ public class AgentClient {
     }
 
     Uni<List<SmartTrigger>> listTriggers() {
-        return agentRestClient
-                .listTriggers()
+        return request(AgentRestClient::listTriggers)
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -167,8 +188,8 @@ public class AgentClient {
     }
 
     Uni<List<String>> addSmartTriggers(String definitions) {
-        return agentRestClient
-                .addTriggers(new ByteArrayInputStream(definitions.getBytes(StandardCharsets.UTF_8)))
+        byte[] payload = definitions.getBytes(StandardCharsets.UTF_8);
+        return request(client -> client.addTriggers(new ByteArrayInputStream(payload)))
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -180,8 +201,7 @@ public class AgentClient {
     }
 
     Uni<Void> removeSmartTrigger(String uuid) {
-        return agentRestClient
-                .removeTrigger(uuid)
+        return request(client -> client.removeTrigger(uuid))
                 .invoke(Response::close)
                 .map(
                         resp -> {
@@ -202,8 +222,8 @@ public class AgentClient {
             Class<T> returnType) {
         try {
             var req = new MBeanInvocationRequest(beanName, operation, parameters, signature);
-            return agentRestClient
-                    .invokeMBeanOperation(new ByteArrayInputStream(mapper.writeValueAsBytes(req)))
+            byte[] payload = mapper.writeValueAsBytes(req);
+            return request(client -> client.invokeMBeanOperation(new ByteArrayInputStream(payload)))
                     .map(
                             Unchecked.function(
                                     resp -> {
@@ -245,8 +265,7 @@ public class AgentClient {
     }
 
     Uni<IRecordingDescriptor> startRecording(StartRecordingRequest req) {
-        return agentRestClient
-                .startRecording(req)
+        return request(client -> client.startRecording(req))
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -293,8 +312,7 @@ public class AgentClient {
             }
             settings.put(key, value);
         }
-        return agentRestClient
-                .updateRecordingOptions(id, settings)
+        return request(client -> client.updateRecordingOptions(id, settings))
                 .invoke(Response::close)
                 .map(
                         resp -> {
@@ -313,8 +331,7 @@ public class AgentClient {
     }
 
     Uni<InputStream> openFlightRecordingStream(long id) {
-        return agentRestClient
-                .openStream(id)
+        return request(client -> client.openStream(id))
                 .map(
                         resp -> {
                             int statusCode = resp.getStatus();
@@ -379,8 +396,7 @@ public class AgentClient {
     }
 
     Uni<Void> deleteFlightRecording(long id) {
-        return agentRestClient
-                .deleteRecording(id)
+        return request(client -> client.deleteRecording(id))
                 .invoke(Response::close)
                 .map(
                         resp -> {
@@ -402,8 +418,7 @@ public class AgentClient {
     }
 
     Uni<List<IRecordingDescriptor>> activeRecordings() {
-        return agentRestClient
-                .listRecordings()
+        return request(AgentRestClient::listRecordings)
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -424,8 +439,7 @@ public class AgentClient {
     }
 
     Uni<Collection<? extends IEventTypeInfo>> eventTypes() {
-        return agentRestClient
-                .listEventTypes()
+        return request(AgentRestClient::listEventTypes)
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -441,8 +455,7 @@ public class AgentClient {
     }
 
     Uni<IConstrainedMap<EventOptionID>> eventSettings() {
-        return agentRestClient
-                .listEventSettings()
+        return request(AgentRestClient::listEventSettings)
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -506,8 +519,7 @@ public class AgentClient {
     }
 
     Uni<List<String>> eventTemplates() {
-        return agentRestClient
-                .listEventTemplates()
+        return request(AgentRestClient::listEventTemplates)
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -519,8 +531,7 @@ public class AgentClient {
     }
 
     Uni<AsyncProfilerStatus> asyncProfilerStatus() {
-        return agentRestClient
-                .asyncProfilerStatus()
+        return request(AgentRestClient::asyncProfilerStatus)
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -532,8 +543,7 @@ public class AgentClient {
     }
 
     Uni<String> dumpAsyncProfile(StartProfileRequest req) {
-        return agentRestClient
-                .dumpAsyncProfiler(req)
+        return request(client -> client.dumpAsyncProfiler(req))
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -561,8 +571,7 @@ public class AgentClient {
     }
 
     Uni<List<AsyncProfile>> listAsyncProfiles() {
-        return agentRestClient
-                .listAsyncProfiler()
+        return request(AgentRestClient::listAsyncProfiler)
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -575,16 +584,14 @@ public class AgentClient {
     }
 
     Uni<Boolean> deleteAsyncProfile(String id) {
-        return agentRestClient
-                .deleteAsyncProfiler(id)
+        return request(client -> client.deleteAsyncProfiler(id))
                 .map(
                         Unchecked.function(
                                 resp -> HttpStatusCodeIdentifier.isSuccessCode(resp.getStatus())));
     }
 
     Uni<InputStream> streamAsyncProfile(String id) {
-        return agentRestClient
-                .streamAsyncProfile(id)
+        return request(client -> client.streamAsyncProfile(id))
                 .map(
                         resp -> {
                             int statusCode = resp.getStatus();
@@ -602,8 +609,7 @@ public class AgentClient {
     }
 
     Uni<UnifiedLogStatus> unifiedLogStatus() {
-        return agentRestClient
-                .unifiedLogStatus()
+        return request(AgentRestClient::unifiedLogStatus)
                 .map(
                         Unchecked.function(
                                 resp -> {
@@ -615,8 +621,7 @@ public class AgentClient {
     }
 
     Uni<Optional<InputStream>> pullUnifiedLog() {
-        return agentRestClient
-                .getUnifiedLog()
+        return request(AgentRestClient::getUnifiedLog)
                 .map(
                         resp -> {
                             int statusCode = resp.getStatus();
@@ -641,6 +646,16 @@ public class AgentClient {
                         });
     }
 
+    /**
+     * Creates {@link AgentClient} instances for agent targets. The underlying HTTP clients are
+     * shared by all {@link AgentClient}s for the same agent URL, so that their pooled keep-alive
+     * connections survive the target connection being closed and reopened, rather than every new
+     * {@link AgentConnection} paying for a new TCP and TLS handshake. Clients which have not been
+     * used for the configured idle timeout are evicted, as are clients beyond the configured
+     * maximum number of clients if there is one, chosen by Caffeine's W-TinyLFU policy. An evicted
+     * client is closed along with its connection pool once the requests in flight on it have
+     * completed.
+     */
     @ApplicationScoped
     public static class Factory {
 
@@ -656,6 +671,49 @@ public class AgentClient {
         @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_TIMEOUT)
         Duration timeout;
 
+        @ConfigProperty(name = ConfigProperties.AGENT_CLIENT_CONNECTION_POOL_SIZE)
+        int connectionPoolSize;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_CLIENT_CONNECTION_TTL)
+        Duration connectionTtl;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_CLIENT_HTTP2)
+        boolean http2;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_CLIENT_IDLE_TIMEOUT)
+        Duration idleTimeout;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_CLIENT_MAX_CLIENTS)
+        long maxClients;
+
+        Cache<URI, SharedClient> clients;
+
+        @PostConstruct
+        void init() {
+            Caffeine<URI, SharedClient> builder =
+                    Caffeine.newBuilder()
+                            .expireAfterAccess(idleTimeout)
+                            .removalListener(
+                                    (URI uri, SharedClient client, RemovalCause cause) -> {
+                                        logger.debugv(
+                                                "Evicting HTTP client for agent {0}: {1}",
+                                                uri, cause);
+                                        client.retire();
+                                    });
+            // clients number at most one per agent, and hold no connections once idle, so by
+            // default they are only limited by the idle timeout
+            if (maxClients > 0) {
+                builder = builder.maximumSize(maxClients);
+            }
+            clients = builder.build();
+        }
+
+        @PreDestroy
+        void shutdown() {
+            clients.invalidateAll();
+            clients.cleanUp();
+        }
+
         public AgentClient create(Target target) {
             var uri = target.connectUrl;
 
@@ -667,6 +725,23 @@ public class AgentClient {
                                 ConfigProperties.AGENT_TLS_REQUIRED));
             }
 
+            // look the client up for each request, so that an AgentClient outliving its HTTP
+            // client's idle timeout transparently gets a new one
+            return new AgentClient(target, () -> lease(uri), mapper, timeout);
+        }
+
+        private SharedClient lease(URI uri) {
+            while (true) {
+                SharedClient client = clients.get(uri, k -> new SharedClient(k, build(k), logger));
+                if (client.lease()) {
+                    return client;
+                }
+                // retired after eviction, so the next lookup will create a replacement
+            }
+        }
+
+        AgentRestClient build(URI uri) {
+            logger.debugv("Creating HTTP client for agent {0}", uri);
             Supplier<UsernamePasswordCredentials> credentialSupplier =
                     () ->
                             QuarkusTransaction.requiringNew()
@@ -686,6 +761,11 @@ public class AgentClient {
             var agentRestClientBuilder =
                     QuarkusRestClientBuilder.newBuilder()
                             .baseUri(uri)
+                            .keepAliveEnabled(true)
+                            .connectionPoolSize(connectionPoolSize)
+                            .connectionTTL((int) connectionTtl.toSeconds())
+                            .http2(http2)
+                            .alpn(http2)
                             .clientHeadersFactory(
                                     new DiscoveryPluginAuthorizationHeaderFactory(
                                             credentialSupplier));
@@ -704,8 +784,74 @@ public class AgentClient {
                             }
                         });
             }
-            return new AgentClient(
-                    target, agentRestClientBuilder.build(AgentRestClient.class), mapper, timeout);
+            return agentRestClientBuilder.build(AgentRestClient.class);
+        }
+
+    }
+
+    /**
+     * An HTTP client shared by the {@link AgentClient}s for one agent, counting the requests in
+     * flight on it. Once retired it takes no new requests, and is closed when the last one in
+     * flight completes.
+     */
+    static class SharedClient {
+        private final URI uri;
+        private final AgentRestClient client;
+        private final Logger logger;
+        private int leases;
+        private boolean retired;
+
+        SharedClient(URI uri, AgentRestClient client, Logger logger) {
+            this.uri = uri;
+            this.client = client;
+            this.logger = logger;
+        }
+
+        AgentRestClient client() {
+            return client;
+        }
+
+        synchronized boolean lease() {
+            if (retired) {
+                return false;
+            }
+            leases++;
+            return true;
+        }
+
+        void release() {
+            boolean close;
+            synchronized (this) {
+                leases--;
+                close = retired && leases == 0;
+            }
+            if (close) {
+                close();
+            }
+        }
+
+        void retire() {
+            boolean close;
+            synchronized (this) {
+                retired = true;
+                close = leases == 0;
+            }
+            if (close) {
+                close();
+            } else {
+                logger.debugv("Deferring close of HTTP client for agent {0} until idle", uri);
+            }
+        }
+
+        private void close() {
+            logger.debugv("Closing HTTP client for agent {0}", uri);
+            if (client instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close agent HTTP client", e);
+                }
+            }
         }
     }
 
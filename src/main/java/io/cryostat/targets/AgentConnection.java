@@ -49,6 +49,7 @@ import io.cryostat.targets.AgentClient.AsyncProfile;
 import io.cryostat.targets.AgentClient.AsyncProfilerStatus;
 import io.cryostat.targets.AgentClient.StartProfileRequest;
 
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -90,7 +91,11 @@ public class AgentConnection implements JFRConnection {
     }
 
     public AsyncProfilerStatus asyncProfilerStatus() {
-        return client.asyncProfilerStatus().await().atMost(client.getTimeout());
+        return asyncProfilerStatusUni().await().indefinitely();
+    }
+
+    public Uni<AsyncProfilerStatus> asyncProfilerStatusUni() {
+        return timed(client.asyncProfilerStatus());
     }
 
     public String dumpAsyncProfile(List<String> events, Duration duration) {
@@ -100,7 +105,11 @@ public class AgentConnection implements JFRConnection {
     }
 
     public List<AsyncProfile> listAsyncProfiles() {
-        return client.listAsyncProfiles().await().atMost(client.getTimeout());
+        return listAsyncProfilesUni().await().indefinitely();
+    }
+
+    public Uni<List<AsyncProfile>> listAsyncProfilesUni() {
+        return timed(client.listAsyncProfiles());
     }
 
     public boolean deleteAsyncProfile(String id) {
@@ -108,15 +117,27 @@ public class AgentConnection implements JFRConnection {
     }
 
     public InputStream streamAsyncProfile(String id) {
-        return client.streamAsyncProfile(id).await().atMost(client.getTimeout());
+        return streamAsyncProfileUni(id).await().indefinitely();
+    }
+
+    public Uni<InputStream> streamAsyncProfileUni(String id) {
+        return timed(client.streamAsyncProfile(id));
     }
 
     public AgentClient.UnifiedLogStatus unifiedLogStatus() {
-        return client.unifiedLogStatus().await().atMost(client.getTimeout());
+        return unifiedLogStatusUni().await().indefinitely();
+    }
+
+    public Uni<AgentClient.UnifiedLogStatus> unifiedLogStatusUni() {
+        return timed(client.unifiedLogStatus());
     }
 
     public Optional<InputStream> pullUnifiedLog() {
-        return client.pullUnifiedLog().await().atMost(client.getTimeout());
+        return pullUnifiedLogUni().await().indefinitely();
+    }
+
+    public Uni<Optional<InputStream>> pullUnifiedLogUni() {
+        return timed(client.pullUnifiedLog());
     }
 
     @Override
@@ -172,7 +193,11 @@ public class AgentConnection implements JFRConnection {
 
     @Override
     public List<SmartTrigger> listSmartTriggers() {
-        return client.listTriggers().await().atMost(client.getTimeout());
+        return listSmartTriggersUni().await().indefinitely();
+    }
+
+    public Uni<List<SmartTrigger>> listSmartTriggersUni() {
+        return timed(client.listTriggers());
     }
 
     @Override
@@ -213,7 +238,20 @@ public class AgentConnection implements JFRConnection {
                     InstanceNotFoundException,
                     IntrospectionException,
                     ReflectionException {
-        return client.mbeanMetrics().await().atMost(client.getTimeout());
+        return getMBeanMetricsUni().await().indefinitely();
+    }
+
+    public Uni<MBeanMetrics> getMBeanMetricsUni() {
+        return timed(client.mbeanMetrics());
+    }
+
+    /**
+     * Fail the operation if the agent has not responded within the client timeout. The blocking
+     * variants of these operations wait on the same bounded {@link Uni}, and the non-blocking
+     * variants are suitable for {@link TargetConnectionManager.ConnectedTaskAsync}s.
+     */
+    private <T> Uni<T> timed(Uni<T> uni) {
+        return uni.ifNoItem().after(client.getTimeout()).fail();
     }
 
     @ApplicationScoped
@@ -83,6 +83,7 @@ import org.jboss.logging.Logger;
         indexes = {
             @Index(columnList = "jvmId"),
             @Index(columnList = "connectUrl"),
+            @Index(columnList = "alias"),
         })
 public class Target extends PanacheEntity {
 
@@ -0,0 +1,261 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.targets;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openjdk.jmc.rjmx.common.ConnectionException;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.targets.Target.EventKind;
+import io.cryostat.targets.Target.TargetDiscovery;
+import io.cryostat.ws.MessagingServer;
+import io.cryostat.ws.Notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.vertx.ConsumeEvent;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Per-target circuit breakers, so that tasks against targets which are known to be unreachable fail
+ * immediately rather than each retrying for up to the failed connection timeout. A target's circuit
+ * starts out closed. After the configured number of consecutive connection failures it opens, and
+ * all tasks against that target are rejected with a {@link TargetCircuitOpenException}. Once the
+ * open duration has elapsed the circuit becomes half-open and a single trial task is let through:
+ * if it reaches the target the circuit closes again, and if it fails the circuit reopens for
+ * another open duration. State transitions are published as {@link #STATE_CHANGED_CATEGORY}
+ * notifications and counted by the {@link #TRANSITIONS_METRIC} metric.
+ */
+@ApplicationScoped
+class TargetCircuitBreakers {
+
+    static final String STATE_CHANGED_CATEGORY = "TargetCircuitStateChanged";
+    static final String TRANSITIONS_METRIC = "cryostat.connections.circuit.transitions";
+    static final String OPEN_METRIC = "cryostat.connections.circuit.open";
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+    }
+
+    private final Map<URI, Circuit> circuits = new ConcurrentHashMap<>();
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final EventBus bus;
+    private final Logger logger;
+
+    @Inject
+    TargetCircuitBreakers(
+            @ConfigProperty(name = ConfigProperties.CONNECTIONS_CIRCUIT_FAILURE_THRESHOLD)
+                    int failureThreshold,
+            @ConfigProperty(name = ConfigProperties.CONNECTIONS_CIRCUIT_OPEN_DURATION)
+                    Duration openDuration,
+            EventBus bus,
+            MeterRegistry meterRegistry,
+            Logger logger) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.bus = bus;
+        this.logger = logger;
+        if (failureThreshold <= 0) {
+            logger.warn(
+                    "Circuit breaker failure threshold is not positive - tasks against unreachable"
+                            + " targets will not fail fast");
+        }
+        for (State state : State.values()) {
+            transitions.put(
+                    state, meterRegistry.counter(TRANSITIONS_METRIC, "state", state.name()));
+        }
+        meterRegistry.gauge(
+                OPEN_METRIC,
+                circuits,
+                c -> c.values().stream().filter(Circuit::isOpen).count());
+    }
+
+    @ConsumeEvent(Target.TARGET_JVM_DISCOVERY)
+    void onMessage(TargetDiscovery event) {
+        if (EventKind.LOST.equals(event.kind()) && event.serviceRef().connectUrl != null) {
+            circuits.remove(event.serviceRef().connectUrl);
+        }
+    }
+
+    /**
+     * Check that a task may be attempted against the target. If the target's circuit has been open
+     * for long enough then the caller is admitted as the half-open trial, and must report the
+     * outcome of its task.
+     *
+     * @throws TargetCircuitOpenException if the target's circuit is open, or half-open with a trial
+     *     already in progress
+     */
+    void acquire(URI connectUrl) throws TargetCircuitOpenException {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        Circuit circuit = circuits.get(connectUrl);
+        if (circuit == null) {
+            return;
+        }
+        Transition transition = circuit.acquire(connectUrl);
+        publish(transition);
+    }
+
+    /** Record that a task reached the target, whether or not the task itself succeeded. */
+    void onSuccess(URI connectUrl) {
+        Circuit circuit = circuits.get(connectUrl);
+        if (circuit == null) {
+            return;
+        }
+        publish(circuit.onSuccess(connectUrl));
+    }
+
+    /** Record that a task failed because the target could not be connected to. */
+    void onFailure(URI connectUrl) {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        Circuit circuit = circuits.computeIfAbsent(connectUrl, k -> new Circuit());
+        publish(circuit.onFailure(connectUrl));
+    }
+
+    /**
+     * Record that a task ended without showing whether the target is reachable or not, for example
+     * because it timed out waiting for Cryostat's own resources.
+     */
+    void onInconclusive(URI connectUrl) {
+        Circuit circuit = circuits.get(connectUrl);
+        if (circuit != null) {
+            circuit.endTrial();
+        }
+    }
+
+    State getState(URI connectUrl) {
+        Circuit circuit = circuits.get(connectUrl);
+        return circuit == null ? State.CLOSED : circuit.state();
+    }
+
+    private void publish(Transition transition) {
+        if (transition == null) {
+            return;
+        }
+        logger.infov(
+                "Circuit for {0} changed from {1} to {2}",
+                transition.connectUrl(), transition.previous(), transition.state());
+        transitions.get(transition.state()).increment();
+        bus.publish(
+                MessagingServer.class.getName(),
+                new Notification(STATE_CHANGED_CATEGORY, transition));
+    }
+
+    private class Circuit {
+        private State state = State.CLOSED;
+        private int failures;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized boolean isOpen() {
+            return state != State.CLOSED;
+        }
+
+        synchronized Transition acquire(URI connectUrl) throws TargetCircuitOpenException {
+            switch (state) {
+                case CLOSED:
+                    return null;
+                case OPEN:
+                    if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                        throw new TargetCircuitOpenException(connectUrl, state);
+                    }
+                    trialInFlight = true;
+                    return transition(connectUrl, State.HALF_OPEN);
+                case HALF_OPEN:
+                default:
+                    if (trialInFlight) {
+                        throw new TargetCircuitOpenException(connectUrl, state);
+                    }
+                    trialInFlight = true;
+                    return null;
+            }
+        }
+
+        synchronized Transition onSuccess(URI connectUrl) {
+            failures = 0;
+            trialInFlight = false;
+            return state == State.CLOSED ? null : transition(connectUrl, State.CLOSED);
+        }
+
+        synchronized Transition onFailure(URI connectUrl) {
+            trialInFlight = false;
+            switch (state) {
+                case CLOSED:
+                    if (++failures < failureThreshold) {
+                        return null;
+                    }
+                    break;
+                case OPEN:
+                    // a task admitted before the circuit opened has now failed too
+                    return null;
+                case HALF_OPEN:
+                default:
+                    break;
+            }
+            openedAt = System.nanoTime();
+            return transition(connectUrl, State.OPEN);
+        }
+
+        synchronized void endTrial() {
+            trialInFlight = false;
+        }
+
+        private Transition transition(URI connectUrl, State next) {
+            State previous = state;
+            state = next;
+            return new Transition(connectUrl, previous, next);
+        }
+    }
+
+    record Transition(URI connectUrl, State previous, State state) {}
+
+    /**
+     * Thrown instead of attempting a task against a target whose circuit is open. This is a {@link
+     * ConnectionException} so that it is handled like the connection failures that opened the
+     * circuit.
+     */
+    static class TargetCircuitOpenException extends ConnectionException {
+        private static final long serialVersionUID = 1L;
+
+        TargetCircuitOpenException(URI connectUrl, State state) {
+            super(
+                    String.format(
+                            "Not connecting to %s, its circuit is %s after repeated connection"
+                                    + " failures",
+                            connectUrl, state));
+        }
+    }
+}
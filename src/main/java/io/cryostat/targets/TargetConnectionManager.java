@@ -19,19 +19,30 @@ import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.rmi.ConnectIOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.management.InstanceNotFoundException;
 import javax.management.remote.JMXServiceURL;
@@ -46,7 +57,6 @@ import io.cryostat.core.net.JFRConnectionToolkit;
 import io.cryostat.core.net.JFRJMXConnection;
 import io.cryostat.credentials.Credential;
 import io.cryostat.credentials.CredentialsFinder;
-import io.cryostat.expressions.MatchExpressionEvaluator;
 import io.cryostat.recordings.RecordingHelper.SnapshotCreationException;
 import io.cryostat.targets.Target.EventKind;
 import io.cryostat.targets.Target.TargetDiscovery;
@@ -56,7 +66,11 @@ import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.nimbusds.jose.proc.BadJOSEException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.vertx.ConsumeEvent;
 import io.smallrye.mutiny.Uni;
@@ -88,6 +102,20 @@ import org.projectnessie.cel.tools.ScriptException;
  * handles finding relevant Stored Credentials that may be required for establishing these
  * connections, and attaching these Credentials to the requests as needed.
  *
+ * <p>The resources used for target connections are bounded, so that an operation fanning out
+ * across many targets cannot exhaust Cryostat's threads, sockets or file descriptors. The number of
+ * cached connections is limited; the number of connections being established at any one time is
+ * limited; and the number of tasks running concurrently against any one target is limited. Tasks
+ * exceeding the latter two limits wait in FIFO order, up to the failed connection timeout, before
+ * failing with a {@link BulkheadException}. Connections beyond the cache limit are chosen for
+ * eviction by Caffeine's W-TinyLFU policy rather than strictly least recently used, so connections
+ * to targets which are used often tend to survive a fan-out which touches many other targets only
+ * once. An evicted connection which still has tasks in flight is closed once they complete.
+ *
+ * <p>Tasks against targets which repeatedly cannot be connected to are rejected immediately by a
+ * per-target circuit breaker (see {@link TargetCircuitBreakers}), rather than each retrying until
+ * the failed connection timeout.
+ *
  * @see io.cryostat.target.Target
  * @see io.cryostat.credentials.Credential
  * @see io.cryostat.core.net.JFRConnection
@@ -98,43 +126,66 @@ import org.projectnessie.cel.tools.ScriptException;
 @ApplicationScoped
 public class TargetConnectionManager {
 
+    static final String CACHE_METRIC_NAME = "target-connections";
+    static final String REMOVALS_METRIC = "cryostat.connections.removals";
+    static final String RETRIES_METRIC = "cryostat.connections.retries";
+    static final String IN_FLIGHT_METRIC = "cryostat.connections.tasks.in-flight";
+
+    // the targets whose task permits are held by the task running on the current thread
+    private static final ThreadLocal<Set<URI>> HELD_PERMITS = ThreadLocal.withInitial(HashSet::new);
+
     private final JFRConnectionToolkit jfrConnectionToolkit;
-    private final MatchExpressionEvaluator matchExpressionEvaluator;
     private final CredentialsFinder credentialsFinder;
     private final AgentConnection.Factory agentConnectionFactory;
+    private final TargetCircuitBreakers circuitBreakers;
     private final Logger logger;
 
     private final ExecutorService virtualThreadPool = Executors.newVirtualThreadPerTaskExecutor();
     private final AsyncLoadingCache<URI, JFRConnection> connections;
+    private final Map<URI, TargetGate> gates = new ConcurrentHashMap<>();
+    private final Semaphore establishing;
 
     private final Duration failedBackoff;
     private final Duration failedTimeout;
+    private final int maxTasksPerTarget;
+
+    private final Map<RemovalCause, Counter> removals = new EnumMap<>(RemovalCause.class);
+    private final Counter retries;
 
     @Inject
     TargetConnectionManager(
             JFRConnectionToolkit jfrConnectionToolkit,
-            MatchExpressionEvaluator matchExpressionEvaluator,
             CredentialsFinder credentialsFinder,
             AgentConnection.Factory agentConnectionFactory,
+            TargetCircuitBreakers circuitBreakers,
             @ConfigProperty(name = ConfigProperties.CONNECTIONS_TTL) Duration ttl,
             @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_BACKOFF)
                     Duration failedBackoff,
             @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_TIMEOUT)
                     Duration failedTimeout,
+            @ConfigProperty(name = ConfigProperties.CONNECTIONS_MAX_OPEN) long maxOpen,
+            @ConfigProperty(name = ConfigProperties.CONNECTIONS_MAX_TASKS_PER_TARGET)
+                    int maxTasksPerTarget,
+            @ConfigProperty(name = ConfigProperties.CONNECTIONS_MAX_ESTABLISHING)
+                    int maxEstablishing,
+            MeterRegistry meterRegistry,
             Logger logger) {
         FlightRecorder.register(TargetConnectionOpened.class);
         FlightRecorder.register(TargetConnectionClosed.class);
         this.jfrConnectionToolkit = jfrConnectionToolkit;
-        this.matchExpressionEvaluator = matchExpressionEvaluator;
         this.credentialsFinder = credentialsFinder;
         this.agentConnectionFactory = agentConnectionFactory;
+        this.circuitBreakers = circuitBreakers;
         this.failedBackoff = failedBackoff;
         this.failedTimeout = failedTimeout;
+        this.maxTasksPerTarget = Math.max(1, maxTasksPerTarget);
+        this.establishing = new Semaphore(Math.max(1, maxEstablishing), true);
 
         Caffeine<URI, JFRConnection> cacheBuilder =
                 Caffeine.newBuilder()
                         .executor(virtualThreadPool)
                         .scheduler(Scheduler.systemScheduler())
+                        .recordStats()
                         .removalListener(this::closeConnection);
         if (ttl.isNegative()) {
             logger.warnv(
@@ -147,8 +198,25 @@ public class TargetConnectionManager {
                     "TTL is set to 0 - target connections will be cached indefinitely, until closed"
                             + " by the remote end or the network drops");
         }
+        if (maxOpen > 0) {
+            cacheBuilder = cacheBuilder.maximumSize(maxOpen);
+        } else {
+            logger.warn(
+                    "Maximum open connections is not positive - the number of cached target"
+                            + " connections will not be limited");
+        }
         this.connections = cacheBuilder.buildAsync(new ConnectionLoader());
         this.logger = logger;
+
+        CaffeineCacheMetrics.monitor(meterRegistry, connections, CACHE_METRIC_NAME);
+        for (RemovalCause cause : RemovalCause.values()) {
+            removals.put(cause, meterRegistry.counter(REMOVALS_METRIC, "cause", cause.name()));
+        }
+        this.retries = meterRegistry.counter(RETRIES_METRIC);
+        meterRegistry.gauge(
+                IN_FLIGHT_METRIC,
+                gates,
+                g -> g.values().stream().mapToInt(TargetGate::inFlight).sum());
     }
 
     @ConsumeEvent(Target.TARGET_JVM_DISCOVERY)
@@ -163,12 +231,15 @@ public class TargetConnectionManager {
                     connections.synchronous().invalidate(uri);
                 }
             }
+            gates.remove(event.serviceRef().connectUrl);
         }
     }
 
     @ConsumeEvent(value = Credential.CREDENTIALS_STORED, blocking = true)
     void onCredentialsStored(Credential credential) {
-        handleCredentialChange(credential);
+        // a new credential can only change the credentials resolved for targets which previously
+        // had none
+        invalidateAll(credentialsFinder.removeConnectUrlsWithoutCredentials());
     }
 
     @ConsumeEvent(value = Credential.CREDENTIALS_UPDATED, blocking = true)
@@ -182,31 +253,33 @@ public class TargetConnectionManager {
     }
 
     void handleCredentialChange(Credential credential) {
-        for (var entry : connections.asMap().entrySet()) {
-            URI key = entry.getKey();
-            var target = Target.find("connectUrl", key).<Target>firstResultOptional();
-            if (target.isEmpty()) {
-                continue;
-            }
-            try {
-                if (matchExpressionEvaluator.applies(credential.matchExpression, target.get())) {
-                    connections.synchronous().invalidate(key);
-                }
-            } catch (ScriptException se) {
-                logger.warn(se);
-            }
+        invalidateAll(credentialsFinder.removeConnectUrls(credential.id));
+    }
+
+    private void invalidateAll(Set<URI> connectUrls) {
+        if (connectUrls.isEmpty()) {
+            return;
         }
+        logger.debugv("Invalidating {0} connections after credential change", connectUrls.size());
+        connections.synchronous().invalidateAll(connectUrls);
     }
 
     public <T> Uni<T> executeConnectedTaskUni(Target target, ConnectedTask<T> task) {
+        URI connectUrl = target.connectUrl;
+        boolean nested = holdsPermit(connectUrl);
         return executeInternal(
                 Uni.createFrom()
                         .completionStage(
-                                connections
-                                        .get(target.connectUrl)
-                                        .thenApplyAsync(
-                                                Unchecked.function(task::execute),
-                                                virtualThreadPool)));
+                                CompletableFuture.supplyAsync(
+                                        Unchecked.supplier(
+                                                () -> executeCached(connectUrl, nested, task)),
+                                        virtualThreadPool)));
+    }
+
+    private <T> T executeCached(URI connectUrl, boolean nested, ConnectedTask<T> task)
+            throws Exception {
+        return withTargetPermit(
+                connectUrl, nested, () -> task.execute(connections.get(connectUrl).join()));
     }
 
     public <T> T executeConnectedTask(Target target, ConnectedTask<T> task) {
@@ -219,16 +292,162 @@ public class TargetConnectionManager {
 
     public <T> Uni<T> executeDirect(
             Target target, Optional<Credential> credentials, ConnectedTask<T> task) {
+        boolean nested = holdsPermit(target.connectUrl);
         return executeInternal(
                 Uni.createFrom()
                         .item(
                                 Unchecked.supplier(
-                                        () -> {
-                                            try (var conn =
-                                                    connect(target.connectUrl, credentials)) {
-                                                return task.execute(conn);
-                                            }
-                                        })));
+                                        () ->
+                                                withTargetPermit(
+                                                        target.connectUrl,
+                                                        nested,
+                                                        () -> {
+                                                            try (var conn =
+                                                                    connect(
+                                                                            target.connectUrl,
+                                                                            credentials)) {
+                                                                return task.execute(conn);
+                                                            }
+                                                        }))));
+    }
+
+    /**
+     * Execute a task which returns its result asynchronously. Agent connections perform their
+     * operations with a non-blocking HTTP client, so for agent targets no thread is blocked while
+     * the task runs: a thread only waits if the target's connection must first be opened, or if all
+     * of the target's task permits are in use, and then it is a virtual thread. Tasks against JMX
+     * targets may block regardless, so these are run on a virtual thread as by {@link
+     * #executeConnectedTaskUni(Target, ConnectedTask)}.
+     */
+    public <T> Uni<T> executeConnectedTaskAsync(Target target, ConnectedTaskAsync<T> task) {
+        URI connectUrl = target.connectUrl;
+        if (!AgentConnection.isAgentConnection(connectUrl)) {
+            return executeConnectedTaskUni(
+                    target, conn -> task.execute(conn).await().atMost(failedTimeout));
+        }
+        return executeInternal(
+                withTargetPermitAsync(
+                        connectUrl,
+                        () ->
+                                Uni.createFrom()
+                                        .completionStage(connections.get(connectUrl))
+                                        .flatMap(Unchecked.function(task::execute))));
+    }
+
+    /**
+     * Run the task while holding one of the target's concurrent task permits, waiting in turn for a
+     * permit if the target is already busy, and report its outcome to the target's circuit breaker.
+     * A task started from within another task against the same target runs under the permit its
+     * caller already holds, since waiting for another permit could wait on the caller itself.
+     */
+    private <T> T withTargetPermit(URI connectUrl, boolean nested, Callable<T> task)
+            throws Exception {
+        if (nested) {
+            // the enclosing task reports the outcome to the circuit breaker
+            return holding(connectUrl, task);
+        }
+        circuitBreakers.acquire(connectUrl);
+        try {
+            T result = withGate(connectUrl, task);
+            circuitBreakers.onSuccess(connectUrl);
+            return result;
+        } catch (Exception e) {
+            recordFailure(connectUrl, e);
+            throw e;
+        }
+    }
+
+    private <T> T withGate(URI connectUrl, Callable<T> task) throws Exception {
+        TargetGate gate = gate(connectUrl);
+        awaitPermit(connectUrl, gate);
+        try {
+            return holding(connectUrl, task);
+        } finally {
+            gate.release().forEach(Runnable::run);
+        }
+    }
+
+    private static <T> T holding(URI connectUrl, Callable<T> task) throws Exception {
+        Set<URI> held = HELD_PERMITS.get();
+        boolean added = held.add(connectUrl);
+        try {
+            return task.call();
+        } finally {
+            if (added) {
+                held.remove(connectUrl);
+            }
+        }
+    }
+
+    private static boolean holdsPermit(URI connectUrl) {
+        return HELD_PERMITS.get().contains(connectUrl);
+    }
+
+    /**
+     * As {@link #withTargetPermit(URI, boolean, Callable)}, but for a task which completes
+     * asynchronously. The permit is held from subscription until the task terminates. It is taken
+     * immediately if one is free, and otherwise waited for on a virtual thread.
+     */
+    private <T> Uni<T> withTargetPermitAsync(URI connectUrl, Supplier<Uni<T>> task) {
+        return Uni.createFrom()
+                .deferred(
+                        Unchecked.supplier(
+                                () -> {
+                                    circuitBreakers.acquire(connectUrl);
+                                    TargetGate gate = gate(connectUrl);
+                                    return permitAsync(connectUrl, gate)
+                                            .flatMap(v -> holdingPermit(gate, task))
+                                            .onItem()
+                                            .invoke(() -> circuitBreakers.onSuccess(connectUrl))
+                                            .onFailure()
+                                            .invoke(t -> recordFailure(connectUrl, t));
+                                }));
+    }
+
+    private Uni<Void> permitAsync(URI connectUrl, TargetGate gate) throws InterruptedException {
+        if (gate.tryAcquire()) {
+            return Uni.createFrom().voidItem();
+        }
+        return Uni.createFrom()
+                .<Void>item(
+                        Unchecked.supplier(
+                                () -> {
+                                    awaitPermit(connectUrl, gate);
+                                    return null;
+                                }))
+                .runSubscriptionOn(virtualThreadPool);
+    }
+
+    private <T> Uni<T> holdingPermit(TargetGate gate, Supplier<Uni<T>> task) {
+        return Uni.createFrom()
+                .deferred(task::get)
+                .onTermination()
+                .invoke(() -> gate.release().forEach(Runnable::run));
+    }
+
+    private TargetGate gate(URI connectUrl) {
+        return gates.computeIfAbsent(connectUrl, k -> new TargetGate(maxTasksPerTarget));
+    }
+
+    private void awaitPermit(URI connectUrl, TargetGate gate) throws InterruptedException {
+        if (!gate.acquire(failedTimeout)) {
+            throw new BulkheadException(
+                    String.format(
+                            "Timed out waiting for a task slot on %s after %s",
+                            connectUrl, failedTimeout));
+        }
+    }
+
+    private void recordFailure(URI connectUrl, Throwable t) {
+        if (isTargetConnectionFailure(t)) {
+            circuitBreakers.onFailure(connectUrl);
+        } else if (hasAnyCause(t, BulkheadException.class, InterruptedException.class)) {
+            circuitBreakers.onInconclusive(connectUrl);
+        } else {
+            // any other failure came from the target or from the task itself, so the target was
+            // reachable
+            circuitBreakers.onSuccess(connectUrl);
+        }
     }
 
     private <T> Uni<T> executeInternal(Uni<T> uni) {
@@ -262,6 +481,8 @@ public class TargetConnectionManager {
                 .onFailure(this::isServiceTypeFailure)
                 .transform(t -> new HttpException(504, t))
                 .onFailure(t -> !this.isPropagatedFailure(t))
+                .invoke(t -> retries.increment())
+                .onFailure(t -> !this.isPropagatedFailure(t))
                 .retry()
                 .withBackOff(Duration.ofMillis(100), failedBackoff)
                 .expireIn(failedTimeout.toMillis())
@@ -292,12 +513,42 @@ public class TargetConnectionManager {
         }
     }
 
+    /**
+     * Summarize the behaviour of the connection cache since startup, for tuning the connection TTL
+     * and failure backoff.
+     */
+    public ConnectionStatistics getStatistics() {
+        CacheStats stats = connections.synchronous().stats();
+        return new ConnectionStatistics(
+                connections.synchronous().estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.loadSuccessCount(),
+                stats.loadFailureCount(),
+                Duration.ofNanos((long) stats.averageLoadPenalty()).toMillis(),
+                stats.evictionCount(),
+                removals.entrySet().stream()
+                        .collect(
+                                Collectors.toMap(
+                                        e -> e.getKey().name(),
+                                        e -> (long) e.getValue().count())),
+                (long) retries.count(),
+                inFlightTasks());
+    }
+
+    private Map<URI, Integer> inFlightTasks() {
+        return gates.entrySet().stream()
+                .filter(e -> e.getValue().inFlight() > 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().inFlight()));
+    }
+
     public void clearConnections() {
         connections.synchronous().invalidateAll();
         connections.synchronous().cleanUp();
     }
 
-    private void closeConnection(URI connectUrl, JFRConnection connection, RemovalCause cause) {
+    void closeConnection(URI connectUrl, JFRConnection connection, RemovalCause cause) {
         if (connectUrl == null) {
             logger.warn("Connection eviction triggered with null connectUrl");
             return;
@@ -306,6 +557,20 @@ public class TargetConnectionManager {
             logger.warn("Connection eviction triggered with null connection");
             return;
         }
+        removals.get(cause).increment();
+        // a connection evicted only to make room for another may still be in use. Leave it open
+        // until the tasks running against this target have finished with it
+        TargetGate gate = gates.get(connectUrl);
+        if (cause == RemovalCause.SIZE
+                && gate != null
+                && gate.deferUntilIdle(() -> doCloseConnection(connectUrl, connection, cause))) {
+            logger.debugv("Deferring close of evicted connection for {0}", connectUrl);
+            return;
+        }
+        doCloseConnection(connectUrl, connection, cause);
+    }
+
+    private void doCloseConnection(URI connectUrl, JFRConnection connection, RemovalCause cause) {
         try {
             TargetConnectionClosed evt = new TargetConnectionClosed(connectUrl, cause.name());
             logger.debugv("Removing cached connection for {0}: {1}", connectUrl, cause);
@@ -339,6 +604,21 @@ public class TargetConnectionManager {
     }
 
     JFRConnection connect(URI connectUrl, Optional<Credential> credentials) throws Exception {
+        if (!establishing.tryAcquire(failedTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new BulkheadException(
+                    String.format(
+                            "Timed out waiting to open a connection to %s after %s",
+                            connectUrl, failedTimeout));
+        }
+        try {
+            return doConnect(connectUrl, credentials);
+        } finally {
+            establishing.release();
+        }
+    }
+
+    private JFRConnection doConnect(URI connectUrl, Optional<Credential> credentials)
+            throws Exception {
         TargetConnectionOpened evt = new TargetConnectionOpened(connectUrl.toString());
         evt.begin();
         try {
@@ -409,6 +689,91 @@ public class TargetConnectionManager {
         T execute(JFRConnection connection) throws Exception;
     }
 
+    public interface ConnectedTaskAsync<T> {
+        Uni<T> execute(JFRConnection connection) throws Exception;
+    }
+
+    /**
+     * @param openConnections the approximate number of cached connections
+     * @param hitCount requests for a connection which was already cached
+     * @param missCount requests for a connection which had to be opened
+     * @param averageLoadMillis the average time taken to open a connection
+     * @param evictionCount connections evicted by size or expiry
+     * @param removals connections removed from the cache, by {@link RemovalCause}
+     * @param retries connected task attempts which failed and were eligible to be retried
+     * @param inFlightTasks the number of connected tasks currently running, by target connection
+     *     URL. Targets with no running tasks are omitted
+     */
+    public record ConnectionStatistics(
+            long openConnections,
+            long hitCount,
+            long missCount,
+            double hitRate,
+            long loadSuccessCount,
+            long loadFailureCount,
+            long averageLoadMillis,
+            long evictionCount,
+            Map<String, Long> removals,
+            long retries,
+            Map<URI, Integer> inFlightTasks) {}
+
+    /**
+     * Limits the number of tasks running concurrently against a single target, and tracks those
+     * tasks so that closing a connection evicted from the cache can wait until it is idle.
+     */
+    private static class TargetGate {
+        private final Semaphore permits;
+        private final List<Runnable> deferred = new ArrayList<>();
+        private int inFlight;
+
+        TargetGate(int maxTasks) {
+            this.permits = new Semaphore(maxTasks, true);
+        }
+
+        boolean acquire(Duration timeout) throws InterruptedException {
+            if (!permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            synchronized (this) {
+                inFlight++;
+            }
+            return true;
+        }
+
+        /** Take a permit only if one is free and no other caller is already waiting for one. */
+        boolean tryAcquire() throws InterruptedException {
+            return acquire(Duration.ZERO);
+        }
+
+        /**
+         * @return the deferred actions to run now that the target has become idle, if it has
+         */
+        List<Runnable> release() {
+            List<Runnable> actions = List.of();
+            synchronized (this) {
+                inFlight--;
+                if (inFlight == 0 && !deferred.isEmpty()) {
+                    actions = new ArrayList<>(deferred);
+                    deferred.clear();
+                }
+            }
+            permits.release();
+            return actions;
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+
+        synchronized boolean deferUntilIdle(Runnable action) {
+            if (inFlight == 0) {
+                return false;
+            }
+            deferred.add(action);
+            return true;
+        }
+    }
+
     private Throwable unwrapNestedException(Throwable t, Class<?>... klazzes) {
         List<Class<?>> l = Arrays.asList(klazzes);
         final int maxDepth = 10;
@@ -464,7 +829,8 @@ public class TargetConnectionManager {
                 IllegalArgumentException.class,
                 IllegalStateException.class,
                 BadJOSEException.class,
-                BulkheadException.class);
+                BulkheadException.class,
+                TargetCircuitBreakers.TargetCircuitOpenException.class);
     }
 
     public boolean isTargetConnectionFailure(Throwable t) {
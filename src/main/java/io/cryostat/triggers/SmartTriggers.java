@@ -22,6 +22,7 @@ import java.util.Map;
 
 import io.cryostat.ConfigProperties;
 import io.cryostat.libcryostat.triggers.SmartTrigger;
+import io.cryostat.targets.AgentConnection;
 import io.cryostat.targets.Target;
 import io.cryostat.targets.TargetConnectionManager;
 import io.cryostat.targets.TargetUpdateService;
@@ -30,6 +31,7 @@ import io.cryostat.ws.Notification;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.core.eventbus.EventBus;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
@@ -71,18 +73,18 @@ public class SmartTriggers {
     @Produces({MediaType.APPLICATION_JSON})
     @GET
     @Operation(summary = "Retrieve all currently active Smart Triggers for a target")
-    public List<SmartTrigger> getSmartTriggers(@RestPath long targetId) {
+    public Uni<List<SmartTrigger>> getSmartTriggers(@RestPath long targetId) {
         log.trace("Smart triggers list request received");
         Target target = Target.getTargetById(targetId);
         if (!target.isAgent()) {
             throw new BadRequestException("Smart Triggers are unsupported for non-agent targets");
         }
-        return targetConnectionManager.executeConnectedTask(
-                target,
-                conn -> {
-                    return conn.listSmartTriggers();
-                },
-                uploadFailedTimeout);
+        return targetConnectionManager
+                .executeConnectedTaskAsync(
+                        target, conn -> ((AgentConnection) conn).listSmartTriggersUni())
+                .ifNoItem()
+                .after(uploadFailedTimeout)
+                .fail();
     }
 
     @Path("api/beta/targets/{targetId}/smart_triggers")
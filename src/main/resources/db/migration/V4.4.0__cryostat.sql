@@ -0,0 +1,19 @@
+-- Grow the ArchivedRecording table into a catalog of the archives bucket contents, so that archived
+-- recording listings can be answered from the database rather than by listing the S3 bucket and
+-- fetching each object's metadata individually. Existing rows are backfilled by the catalog
+-- reconciler, which treats a NULL metadata column or a zero lastModified as "not yet known".
+ALTER TABLE ArchivedRecording ADD COLUMN size BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ArchivedRecording ADD COLUMN lastModified BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ArchivedRecording ADD COLUMN metadata jsonb;
+
+ALTER TABLE ArchivedRecording_AUD ADD COLUMN size BIGINT;
+ALTER TABLE ArchivedRecording_AUD ADD COLUMN lastModified BIGINT;
+ALTER TABLE ArchivedRecording_AUD ADD COLUMN metadata jsonb;
+
+CREATE INDEX IDX_ARCHIVEDRECORDING_JVMID_LASTMODIFIED ON ArchivedRecording (jvmId, lastModified DESC);
+CREATE INDEX IDX_ARCHIVEDRECORDING_LASTMODIFIED ON ArchivedRecording (lastModified DESC);
+
+-- Entries which are not backfilled yet are completed on demand before they are listed, so finding
+-- them must stay cheap once there are none left.
+CREATE INDEX IDX_ARCHIVEDRECORDING_INCOMPLETE ON ArchivedRecording (jvmId)
+    WHERE metadata IS NULL OR lastModified = 0;
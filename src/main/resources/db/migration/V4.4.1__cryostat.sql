@@ -0,0 +1,12 @@
+-- Support keyset pagination of archived recording listings ordered by size. Ordering by time uses the
+-- lastModified indexes created in V4.4.0, and ordering by name uses the (jvmId, filename) unique
+-- constraint index.
+CREATE INDEX IDX_ARCHIVEDRECORDING_JVMID_SIZE ON ArchivedRecording (jvmId, size DESC);
+CREATE INDEX IDX_ARCHIVEDRECORDING_SIZE ON ArchivedRecording (size DESC);
+
+-- Support evaluating archived recording label selectors in the database. Selectors are rendered as
+-- SQL/JSON path predicates and matched with the jsonb @@ jsonpath operator, which this GIN index
+-- can serve. Its expression must match ArchivedRecordingInfo.LABELS.
+CREATE INDEX IDX_ARCHIVEDRECORDING_LABELS ON ArchivedRecording USING GIN (
+    (COALESCE(metadata -> 'labels', CAST('{}' AS jsonb)))
+);
@@ -0,0 +1,7 @@
+-- Track the revision of each discovery plugin's publications, so that incremental publications can be
+-- rejected when they were computed against an older state of the plugin's nodes.
+ALTER TABLE DiscoveryPlugin ADD COLUMN publicationRevision BIGINT NOT NULL DEFAULT 0;
+
+-- Track the fill strategy of each discovery plugin's last full publication, since incremental
+-- publications only apply to plugins which publish their nodes flat beneath their Realm node.
+ALTER TABLE DiscoveryPlugin ADD COLUMN publicationFillStrategy VARCHAR(255) NOT NULL DEFAULT 'NONE';
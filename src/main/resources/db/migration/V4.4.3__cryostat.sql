@@ -0,0 +1,17 @@
+-- Discovery plugin pings are now scheduled in memory rather than by per-plugin Quartz jobs. Record
+-- whether each plugin's pings should prompt a registration refresh, which was previously stored in
+-- the job data, and remove the obsolete jobs.
+ALTER TABLE DiscoveryPlugin ADD COLUMN refreshOnPing BOOLEAN NOT NULL DEFAULT TRUE;
+
+DELETE FROM QRTZ_SIMPLE_TRIGGERS
+WHERE (SCHED_NAME, TRIGGER_NAME, TRIGGER_GROUP) IN (
+    SELECT SCHED_NAME, TRIGGER_NAME, TRIGGER_GROUP
+    FROM QRTZ_TRIGGERS
+    WHERE JOB_GROUP = 'discovery.periodic'
+);
+
+DELETE FROM QRTZ_TRIGGERS
+WHERE JOB_GROUP = 'discovery.periodic';
+
+DELETE FROM QRTZ_JOB_DETAILS
+WHERE JOB_GROUP = 'discovery.periodic';
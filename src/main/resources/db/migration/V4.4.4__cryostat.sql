@@ -0,0 +1,11 @@
+-- Support evaluating GraphQL target node label and annotation selectors in the database. Selectors
+-- are rendered as SQL/JSON path predicates and matched with the jsonb @@ jsonpath operator, which
+-- these GIN indexes can serve. The Target annotations index is on the merged view of the cryostat
+-- and platform annotations, and its expression must match TargetNodesQuery.MERGED_ANNOTATIONS.
+CREATE INDEX IDX_DISCOVERYNODE_LABELS ON DiscoveryNode USING GIN (labels);
+CREATE INDEX IDX_TARGET_ANNOTATIONS_MERGED ON Target USING GIN (
+    (COALESCE(annotations -> 'cryostat', CAST('{}' AS jsonb))
+        || COALESCE(annotations -> 'platform', CAST('{}' AS jsonb)))
+);
+CREATE INDEX IDX_DISCOVERYNODE_NAME ON DiscoveryNode (name);
+CREATE INDEX IDX_TARGET_ALIAS ON Target (alias);
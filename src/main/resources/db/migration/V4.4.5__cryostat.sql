@@ -0,0 +1,7 @@
+-- Support the set-based historical target node query used by GraphQL targetNodes(useAuditLog: true).
+-- The first index serves the latest revision per JVM ID window, and the others serve the per-row
+-- lookups of the most recently attached DiscoveryNode and its latest revision. REVTYPE 2 is a
+-- deletion, which the query always excludes.
+CREATE INDEX IDX_TARGET_AUD_JVMID_REV ON Target_AUD (jvmId, REV DESC) WHERE REVTYPE <> 2;
+CREATE INDEX IDX_TARGET_AUD_ID_REV_NODE ON Target_AUD (id, REV DESC) WHERE discoveryNode IS NOT NULL;
+CREATE INDEX IDX_DISCOVERYNODE_AUD_ID_REV ON DiscoveryNode_AUD (id, REV DESC) WHERE REVTYPE <> 2;
@@ -0,0 +1,145 @@
+-- Partition REVINFO and the highest volume audit tables by revision timestamp, in monthly ranges, so
+-- that revision listings filtered by time only scan the relevant partitions and so that history
+-- older than the configured retention can be dropped a partition at a time rather than deleted row
+-- by row. See io.cryostat.audit.AuditPartitions, which creates upcoming partitions and drops
+-- expired ones. Partitions are named <table>_pYYYYMM (UTC), and all data older than the current
+-- month is moved into a single <table>_history partition.
+--
+-- Envers does not write a timestamp into the audit tables themselves, so Target_AUD,
+-- DiscoveryNode_AUD and UnifiedLog_AUD gain a REVTSTMP column populated by default with the
+-- timestamp of the revision. Envers inserts each revision's REVINFO row before its audit rows, so a
+-- trigger on REVINFO records the timestamp for the rest of the transaction and the audit tables'
+-- default reads it back. A partition key cannot be changed by a trigger on the audit rows
+-- themselves. Existing rows are backfilled from REVINFO.
+--
+-- The unique constraints of a partitioned table must include its partition key, so REVINFO (REV)
+-- can no longer be the target of foreign keys. These are dropped from every audit table.
+DO $$
+DECLARE
+    r record;
+BEGIN
+    FOR r IN
+        SELECT conrelid::regclass AS tbl, conname
+        FROM pg_constraint
+        WHERE contype = 'f' AND confrelid = 'revinfo'::regclass
+    LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', r.tbl, r.conname);
+    END LOOP;
+END $$;
+
+CREATE FUNCTION cryostat_revtstmp() RETURNS BIGINT AS $$
+    SELECT COALESCE(
+        CAST(NULLIF(current_setting('cryostat.revtstmp', true), '') AS BIGINT),
+        CAST(EXTRACT(EPOCH FROM clock_timestamp()) * 1000 AS BIGINT))
+$$ LANGUAGE sql VOLATILE;
+
+CREATE FUNCTION cryostat_record_revtstmp() RETURNS trigger AS $$
+BEGIN
+    PERFORM set_config('cryostat.revtstmp', CAST(NEW.REVTSTMP AS text), true);
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE REVINFO RENAME TO REVINFO_old;
+ALTER TABLE Target_AUD RENAME TO Target_AUD_old;
+ALTER TABLE DiscoveryNode_AUD RENAME TO DiscoveryNode_AUD_old;
+ALTER TABLE UnifiedLog_AUD RENAME TO UnifiedLog_AUD_old;
+
+CREATE TABLE REVINFO (
+    LIKE REVINFO_old INCLUDING DEFAULTS INCLUDING CONSTRAINTS
+) PARTITION BY RANGE (REVTSTMP);
+
+CREATE TABLE Target_AUD (
+    LIKE Target_AUD_old INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    REVTSTMP BIGINT NOT NULL DEFAULT cryostat_revtstmp()
+) PARTITION BY RANGE (REVTSTMP);
+
+CREATE TABLE DiscoveryNode_AUD (
+    LIKE DiscoveryNode_AUD_old INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    REVTSTMP BIGINT NOT NULL DEFAULT cryostat_revtstmp()
+) PARTITION BY RANGE (REVTSTMP);
+
+CREATE TABLE UnifiedLog_AUD (
+    LIKE UnifiedLog_AUD_old INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    REVTSTMP BIGINT NOT NULL DEFAULT cryostat_revtstmp()
+) PARTITION BY RANGE (REVTSTMP);
+
+-- A history partition for everything before the current month, partitions for this month and the
+-- next, and a default partition so that writes never fail if maintenance has fallen behind.
+DO $$
+DECLARE
+    parent text;
+    current_month timestamp := date_trunc('month', now() AT TIME ZONE 'UTC');
+    month_start timestamp;
+BEGIN
+    FOREACH parent IN ARRAY ARRAY['revinfo', 'target_aud', 'discoverynode_aud', 'unifiedlog_aud']
+    LOOP
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (MINVALUE) TO (%s)',
+            parent || '_history',
+            parent,
+            CAST(EXTRACT(EPOCH FROM current_month) * 1000 AS BIGINT));
+        FOR i IN 0..1 LOOP
+            month_start := current_month + make_interval(months => i);
+            EXECUTE format(
+                'CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%s) TO (%s)',
+                parent || '_p' || to_char(month_start, 'YYYYMM'),
+                parent,
+                CAST(EXTRACT(EPOCH FROM month_start) * 1000 AS BIGINT),
+                CAST(EXTRACT(EPOCH FROM month_start + interval '1 month') * 1000 AS BIGINT));
+        END LOOP;
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', parent || '_default', parent);
+    END LOOP;
+END $$;
+
+INSERT INTO REVINFO
+SELECT REV, COALESCE(REVTSTMP, 0), username
+FROM REVINFO_old;
+
+INSERT INTO Target_AUD
+SELECT a.*, COALESCE(r.REVTSTMP, 0)
+FROM Target_AUD_old a LEFT JOIN REVINFO_old r ON r.REV = a.REV;
+
+INSERT INTO DiscoveryNode_AUD
+SELECT a.*, COALESCE(r.REVTSTMP, 0)
+FROM DiscoveryNode_AUD_old a LEFT JOIN REVINFO_old r ON r.REV = a.REV;
+
+INSERT INTO UnifiedLog_AUD
+SELECT a.*, COALESCE(r.REVTSTMP, 0)
+FROM UnifiedLog_AUD_old a LEFT JOIN REVINFO_old r ON r.REV = a.REV;
+
+DROP TABLE Target_AUD_old;
+DROP TABLE DiscoveryNode_AUD_old;
+DROP TABLE UnifiedLog_AUD_old;
+DROP TABLE REVINFO_old;
+
+ALTER TABLE REVINFO ADD PRIMARY KEY (REV, REVTSTMP);
+
+CREATE TRIGGER REVINFO_RECORD_REVTSTMP
+    AFTER INSERT ON REVINFO
+    FOR EACH ROW EXECUTE FUNCTION cryostat_record_revtstmp();
+ALTER TABLE Target_AUD ADD PRIMARY KEY (id, REV, REVTSTMP);
+ALTER TABLE DiscoveryNode_AUD ADD PRIMARY KEY (id, REV, REVTSTMP);
+ALTER TABLE UnifiedLog_AUD ADD PRIMARY KEY (id, REV, REVTSTMP);
+
+CREATE INDEX IDX_REVINFO_REV ON REVINFO (REV);
+CREATE INDEX IDX_REVINFO_REVTSTMP ON REVINFO (REVTSTMP);
+
+CREATE INDEX IDX_TARGET_AUD_ID ON Target_AUD (id);
+CREATE INDEX IDX_TARGET_AUD_JVMID ON Target_AUD (jvmId);
+CREATE INDEX IDX_TARGET_AUD_REV ON Target_AUD (REV);
+CREATE INDEX IDX_TARGET_AUD_REVTYPE ON Target_AUD (REVTYPE);
+CREATE INDEX IDX_TARGET_AUD_REVEND ON Target_AUD (REVEND);
+CREATE INDEX IDX_TARGET_AUD_JVMID_REV ON Target_AUD (jvmId, REV DESC) WHERE REVTYPE <> 2;
+CREATE INDEX IDX_TARGET_AUD_ID_REV_NODE ON Target_AUD (id, REV DESC) WHERE discoveryNode IS NOT NULL;
+
+CREATE INDEX IDX_DISCOVERYNODE_AUD_ID ON DiscoveryNode_AUD (id);
+CREATE INDEX IDX_DISCOVERYNODE_AUD_REV ON DiscoveryNode_AUD (REV);
+CREATE INDEX IDX_DISCOVERYNODE_AUD_REVTYPE ON DiscoveryNode_AUD (REVTYPE);
+CREATE INDEX IDX_DISCOVERYNODE_AUD_REVEND ON DiscoveryNode_AUD (REVEND);
+CREATE INDEX IDX_DISCOVERYNODE_AUD_ID_REV ON DiscoveryNode_AUD (id, REV DESC) WHERE REVTYPE <> 2;
+
+CREATE INDEX IDX_LOG_AUD_ID      ON UnifiedLog_AUD (id);
+CREATE INDEX IDX_LOG_AUD_REV     ON UnifiedLog_AUD (REV);
+CREATE INDEX IDX_LOG_AUD_REVTYPE ON UnifiedLog_AUD (REVTYPE);
+CREATE INDEX IDX_LOG_AUD_REVEND  ON UnifiedLog_AUD (REVEND);
@@ -15,6 +15,7 @@
  */
 package io.cryostat;
 
+import io.cryostat.discovery.DiscoveryTree;
 import io.cryostat.targets.TargetConnectionManager;
 
 import jakarta.inject.Inject;
@@ -28,6 +29,7 @@ public abstract class AbstractTransactionalTestBase extends AbstractTestBase {
     @Inject Flyway flyway;
     @Inject EntityManager entityManager;
     @Inject TargetConnectionManager connectionManager;
+    @Inject DiscoveryTree discoveryTree;
 
     @BeforeEach
     void migrateFlyway() throws SchedulerException {
@@ -37,6 +39,7 @@ public abstract class AbstractTransactionalTestBase extends AbstractTestBase {
         flyway.migrate();
         flyway.validate();
         entityManager.clear();
+        discoveryTree.invalidate();
         restartScheduler();
     }
 }
@@ -0,0 +1,325 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.audit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import io.cryostat.discovery.DiscoveryNode;
+import io.cryostat.expressions.MatchExpression;
+import io.cryostat.recordings.ActiveRecordings.Metadata;
+import io.cryostat.rules.Rule;
+import io.cryostat.targets.Target;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestProfile(AuditPartitionsTest.class)
+class AuditPartitionsTest extends AuditTestBase {
+
+    private static final int REVTYPE_ADD = 0;
+    private static final int REVTYPE_MOD = 1;
+
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Inject AuditPartitions partitions;
+
+    @Test
+    void testCreatesUpcomingPartitions() {
+        partitions.maintain();
+
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (String table : AuditPartitions.PARTITIONED_TABLES) {
+            for (int i = 0; i <= 2; i++) {
+                String partition = table + "_p" + SUFFIX_FORMAT.format(current.plusMonths(i));
+                assertTrue(exists(partition), partition);
+            }
+            assertTrue(exists(table + "_default"), table);
+        }
+    }
+
+    @Test
+    void testDropsOnlyExpiredPartitions() {
+        partitions.maintain();
+
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        long cutoff = AuditPartitions.startOf(current);
+        for (String table : AuditPartitions.PARTITIONED_TABLES) {
+            QuarkusTransaction.requiringNew().run(() -> partitions.dropPartitions(table, cutoff));
+
+            assertFalse(exists(table + "_history"), table);
+            assertTrue(exists(table + "_p" + SUFFIX_FORMAT.format(current)), table);
+            assertTrue(exists(table + "_default"), table);
+        }
+    }
+
+    @Test
+    void testAuditRowsTakeRevisionTimestamp() {
+        long id = createTarget("revtstmp");
+        updateTarget(id, "revtstmp-renamed");
+
+        List<Object[]> rows =
+                QuarkusTransaction.requiringNew()
+                        .call(
+                                () ->
+                                        query(
+                                                "SELECT a.REVTSTMP, r.REVTSTMP FROM Target_AUD a"
+                                                        + " JOIN REVINFO r ON r.REV = a.REV"
+                                                        + " WHERE a.id = :id",
+                                                id));
+        assertEquals(2, rows.size());
+        for (Object[] row : rows) {
+            assertEquals(((Number) row[1]).longValue(), ((Number) row[0]).longValue());
+        }
+    }
+
+    @Test
+    void testModifiesEntityAfterItsPartitionIsDropped() {
+        partitions.maintain();
+        long id = createTarget("carried");
+        backdate(id);
+
+        dropExpiredPartitions();
+
+        // the open ADD row and its revision were carried forward into the default partition
+        List<Object[]> rows = auditRows(id);
+        assertEquals(1, rows.size());
+        assertEquals(REVTYPE_ADD, ((Number) rows.get(0)[1]).intValue());
+        assertNull(rows.get(0)[2]);
+        assertTrue(revisionExists((Number) rows.get(0)[0]));
+
+        // Envers must be able to close the carried forward row
+        updateTarget(id, "carried-renamed");
+
+        rows = auditRows(id);
+        assertEquals(2, rows.size());
+        assertEquals(REVTYPE_ADD, ((Number) rows.get(0)[1]).intValue());
+        assertEquals(REVTYPE_MOD, ((Number) rows.get(1)[1]).intValue());
+        assertEquals(((Number) rows.get(1)[0]).intValue(), ((Number) rows.get(0)[2]).intValue());
+        assertNull(rows.get(1)[2]);
+
+        // once closed, the carried forward row is discarded by the next maintenance
+        backdate(id);
+        dropExpiredPartitions();
+
+        rows = auditRows(id);
+        assertEquals(1, rows.size());
+        assertEquals(REVTYPE_MOD, ((Number) rows.get(0)[1]).intValue());
+        assertNull(rows.get(0)[2]);
+        updateTarget(id, "carried-renamed-again");
+        assertEquals(2, auditRows(id).size());
+    }
+
+    @Test
+    void testDropsClosedRows() {
+        partitions.maintain();
+        long id = createTarget("closed");
+        updateTarget(id, "closed-renamed");
+        backdate(id);
+
+        dropExpiredPartitions();
+
+        List<Object[]> rows = auditRows(id);
+        assertEquals(1, rows.size());
+        assertEquals(REVTYPE_MOD, ((Number) rows.get(0)[1]).intValue());
+    }
+
+    @Test
+    void testRetainsRevisionsOfUnpartitionedAuditTables() {
+        partitions.maintain();
+        long id = createRule("retained-rule");
+        updateRule(id, "modified");
+        long timestamp = AuditPartitions.startOf(YearMonth.now(ZoneOffset.UTC).minusMonths(2));
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () ->
+                                entityManager
+                                        .createNativeQuery(
+                                                "UPDATE REVINFO SET REVTSTMP = :ts WHERE REV IN"
+                                                        + " (SELECT REV FROM Rule_AUD WHERE id ="
+                                                        + " :id)")
+                                        .setParameter("ts", timestamp)
+                                        .setParameter("id", id)
+                                        .executeUpdate());
+
+        dropExpiredPartitions();
+
+        // Rule_AUD is never expired, so both its closed ADD row and its open MOD row keep their
+        // revisions
+        List<Object[]> rows =
+                QuarkusTransaction.requiringNew()
+                        .call(
+                                () ->
+                                        query(
+                                                "SELECT REV, REVTYPE, REVEND FROM Rule_AUD WHERE"
+                                                        + " id = :id ORDER BY REV",
+                                                id));
+        assertEquals(2, rows.size());
+        assertEquals(REVTYPE_ADD, ((Number) rows.get(0)[1]).intValue());
+        assertEquals(REVTYPE_MOD, ((Number) rows.get(1)[1]).intValue());
+        assertNull(rows.get(1)[2]);
+        for (Object[] row : rows) {
+            assertTrue(revisionExists((Number) row[0]));
+        }
+    }
+
+    private void dropExpiredPartitions() {
+        long cutoff = AuditPartitions.startOf(YearMonth.now(ZoneOffset.UTC));
+        for (String table : AuditPartitions.PARTITIONED_TABLES) {
+            QuarkusTransaction.requiringNew().run(() -> partitions.dropPartitions(table, cutoff));
+        }
+    }
+
+    // move a target's audit rows and their revisions into the history partitions, as if they had
+    // been written two months ago
+    private void backdate(long id) {
+        long timestamp = AuditPartitions.startOf(YearMonth.now(ZoneOffset.UTC).minusMonths(2));
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            entityManager
+                                    .createNativeQuery(
+                                            "UPDATE REVINFO SET REVTSTMP = :ts WHERE REV IN"
+                                                    + " (SELECT REV FROM Target_AUD WHERE id ="
+                                                    + " :id)")
+                                    .setParameter("ts", timestamp)
+                                    .setParameter("id", id)
+                                    .executeUpdate();
+                            entityManager
+                                    .createNativeQuery(
+                                            "UPDATE Target_AUD SET REVTSTMP = :ts WHERE id = :id")
+                                    .setParameter("ts", timestamp)
+                                    .setParameter("id", id)
+                                    .executeUpdate();
+                        });
+    }
+
+    private long createTarget(String alias) {
+        return QuarkusTransaction.requiringNew()
+                .call(
+                        () -> {
+                            DiscoveryNode node = new DiscoveryNode();
+                            node.name =
+                                    String.format(
+                                            "service:jmx:rmi:///jndi/rmi://localhost:9999/%s",
+                                            alias);
+                            node.nodeType = "JVM";
+                            node.labels = Map.of();
+                            node.persist();
+
+                            Target target = new Target();
+                            target.alias = alias;
+                            target.jvmId = String.format("jvm-%s", alias);
+                            target.connectUrl = URI.create(node.name);
+                            target.labels = Map.of();
+                            target.annotations = new Target.Annotations();
+                            target.discoveryNode = node;
+                            node.target = target;
+                            target.persist();
+                            return target.id;
+                        });
+    }
+
+    private long createRule(String name) {
+        return QuarkusTransaction.requiringNew()
+                .call(
+                        () -> {
+                            Rule rule = new Rule();
+                            rule.name = name;
+                            rule.description = "partitions";
+                            rule.matchExpression = new MatchExpression("false");
+                            rule.eventSpecifier = "template=Continuous";
+                            rule.metadata = new Metadata(Map.of());
+                            rule.persist();
+                            return rule.id;
+                        });
+    }
+
+    private void updateRule(long id, String description) {
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            Rule rule = Rule.findById(id);
+                            rule.description = description;
+                            rule.persist();
+                        });
+    }
+
+    private void updateTarget(long id, String alias) {
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            Target target = Target.findById(id);
+                            target.alias = alias;
+                            target.persist();
+                        });
+    }
+
+    private List<Object[]> auditRows(long id) {
+        return QuarkusTransaction.requiringNew()
+                .call(
+                        () ->
+                                query(
+                                        "SELECT REV, REVTYPE, REVEND FROM Target_AUD WHERE id ="
+                                                + " :id ORDER BY REV",
+                                        id));
+    }
+
+    private boolean revisionExists(Number rev) {
+        Number count =
+                QuarkusTransaction.requiringNew()
+                        .call(
+                                () ->
+                                        (Number)
+                                                entityManager
+                                                        .createNativeQuery(
+                                                                "SELECT COUNT(*) FROM REVINFO"
+                                                                        + " WHERE REV = :rev")
+                                                        .setParameter("rev", rev.intValue())
+                                                        .getSingleResult());
+        return count.longValue() > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> query(String sql, long id) {
+        return entityManager.createNativeQuery(sql).setParameter("id", id).getResultList();
+    }
+
+    private boolean exists(String relation) {
+        Number count =
+                QuarkusTransaction.requiringNew()
+                        .call(
+                                () ->
+                                        (Number)
+                                                entityManager
+                                                        .createNativeQuery(
+                                                                "SELECT COUNT(*) FROM pg_class"
+                                                                        + " WHERE relname = :name")
+                                                        .setParameter("name", relation)
+                                                        .getSingleResult());
+        return count.longValue() > 0;
+    }
+}
@@ -20,10 +20,13 @@ import static io.restassured.RestAssured.given;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.TestProfile;
 import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -33,6 +36,8 @@ import org.junit.jupiter.api.Test;
 @TestHTTPEndpoint(Audit.class)
 public class AuditTest extends AuditTestBase {
 
+    @Inject ObjectMapper mapper;
+
     @Test
     public void testGetTargetByJvmId() {
         defineSelfCustomTarget();
@@ -743,6 +748,66 @@ public class AuditTest extends AuditTestBase {
                 .body("[0].entities.Target[0].revtype", Matchers.notNullValue());
     }
 
+    @Test
+    public void testExportRevisionsAsNdjson() throws Exception {
+        long startTime = System.currentTimeMillis();
+        defineSelfCustomTarget();
+        long endTime = System.currentTimeMillis();
+
+        String body =
+                given().log()
+                        .all()
+                        .queryParam("startTime", startTime)
+                        .queryParam("endTime", endTime)
+                        .queryParam("format", "ndjson")
+                        .when()
+                        .get("export")
+                        .then()
+                        .log()
+                        .all()
+                        .assertThat()
+                        .statusCode(200)
+                        .and()
+                        .contentType(Audit.NDJSON)
+                        .and()
+                        .header(
+                                "Content-Disposition",
+                                Matchers.allOf(
+                                        Matchers.startsWith("attachment; filename=\"audit-export-"),
+                                        Matchers.endsWith(".ndjson\"")))
+                        .extract()
+                        .body()
+                        .asString();
+
+        List<String> lines = body.lines().filter(l -> !l.isBlank()).toList();
+        MatcherAssert.assertThat(lines, Matchers.hasSize(1));
+        Map<?, ?> revision = mapper.readValue(lines.get(0), Map.class);
+        MatcherAssert.assertThat(revision.get("rev"), Matchers.notNullValue());
+        MatcherAssert.assertThat(revision.get("entities"), Matchers.instanceOf(Map.class));
+        MatcherAssert.assertThat(
+                ((Map<?, ?>) revision.get("entities")).get("Target"),
+                Matchers.instanceOf(List.class));
+    }
+
+    @Test
+    public void testExportRevisionsInvalidFormat() {
+        long startTime = System.currentTimeMillis() - 86400000L;
+        long endTime = System.currentTimeMillis();
+
+        given().log()
+                .all()
+                .queryParam("startTime", startTime)
+                .queryParam("endTime", endTime)
+                .queryParam("format", "xml")
+                .when()
+                .get("export")
+                .then()
+                .log()
+                .all()
+                .assertThat()
+                .statusCode(400);
+    }
+
     @Test
     public void testExportRevisionsIncludesAllRevisionDetails() {
         long startTime = System.currentTimeMillis();
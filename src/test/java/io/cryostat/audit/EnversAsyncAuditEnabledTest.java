@@ -0,0 +1,79 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.audit;
+
+import java.util.Map;
+
+import io.cryostat.rules.Rules;
+
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.AfterEach;
+
+/**
+ * Runs the {@link EnversAuditEnabledTest} scenarios with asynchronous auditing, which must produce
+ * the same audit records and revisions as synchronous auditing.
+ */
+@QuarkusTest
+@TestProfile(EnversAsyncAuditEnabledTest.class)
+@TestHTTPEndpoint(Rules.class)
+public class EnversAsyncAuditEnabledTest extends EnversAuditEnabledTest {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        return Map.of(
+                "quarkus.hibernate-orm.unsupported-properties.\"hibernate.envers.enabled\"",
+                "true",
+                "quarkus.hibernate-orm.unsupported-properties.\"cryostat.audit.async.enabled\"",
+                "true",
+                "cryostat.audit.async.flush-interval",
+                "100ms");
+    }
+
+    @Override
+    @AfterEach
+    void cleanup() {
+        super.cleanup();
+        // wait for the deletions' revisions to be written, so that they are not written after the
+        // next test has reset the database
+        long deadline = System.nanoTime() + AUDIT_WRITE_TIMEOUT.toNanos();
+        while (hasUnwrittenDeletions() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean hasUnwrittenDeletions() {
+        Number rules =
+                (Number)
+                        entityManager
+                                .createNativeQuery("SELECT COUNT(DISTINCT id) FROM Rule_AUD")
+                                .getSingleResult();
+        Number deletions =
+                (Number)
+                        entityManager
+                                .createNativeQuery(
+                                        "SELECT COUNT(*) FROM Rule_AUD WHERE REVTYPE = :type")
+                                .setParameter("type", REVTYPE_DEL)
+                                .getSingleResult();
+        return deletions.longValue() < rules.longValue();
+    }
+}
@@ -16,15 +16,21 @@
 package io.cryostat.audit;
 
 import java.util.List;
+import java.util.Map;
 
+import io.cryostat.expressions.MatchExpression;
+import io.cryostat.recordings.ActiveRecordings.Metadata;
+import io.cryostat.rules.Rule;
 import io.cryostat.rules.Rules;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.TestProfile;
 import io.vertx.core.json.JsonObject;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 @QuarkusTest
@@ -33,22 +39,23 @@ import org.junit.jupiter.api.Test;
 public class EnversAuditEnabledTest extends EnversAuditTestBase {
 
     @Test
-    public void testRuleCreateGeneratesAuditRecord() {
+    public void testRuleCreateGeneratesAuditRecord() throws Exception {
         JsonObject rule = createRuleJson("test-rule-create-audit");
 
         var response = createRuleViaApi(rule);
         Long ruleId = ((Number) response.get("id")).longValue();
 
-        List<Object[]> auditRecords = queryAuditRecords(ruleId);
+        List<Object[]> auditRecords = awaitAuditRecords(ruleId, 1);
 
         MatcherAssert.assertThat(auditRecords, Matchers.hasSize(1));
         Object[] auditRecord = auditRecords.get(0);
         Number revtype = (Number) auditRecord[2];
         MatcherAssert.assertThat(revtype.intValue(), Matchers.equalTo(REVTYPE_ADD));
+        assertRevisionChain(auditRecords);
     }
 
     @Test
-    public void testRuleUpdateGeneratesAuditRecord() {
+    public void testRuleUpdateGeneratesAuditRecord() throws Exception {
         String ruleName = "test-rule-update-audit";
         JsonObject rule = createRuleJson(ruleName);
 
@@ -59,7 +66,7 @@ public class EnversAuditEnabledTest extends EnversAuditTestBase {
         updateRule.put("enabled", false);
         updateRuleViaApi(ruleName, updateRule);
 
-        List<Object[]> auditRecords = queryAuditRecords(ruleId);
+        List<Object[]> auditRecords = awaitAuditRecords(ruleId, 2);
 
         MatcherAssert.assertThat(auditRecords, Matchers.hasSize(2));
 
@@ -70,10 +77,11 @@ public class EnversAuditEnabledTest extends EnversAuditTestBase {
         Object[] updateRecord = auditRecords.get(1);
         Number updateRevtype = (Number) updateRecord[2];
         MatcherAssert.assertThat(updateRevtype.intValue(), Matchers.equalTo(REVTYPE_MOD));
+        assertRevisionChain(auditRecords);
     }
 
     @Test
-    public void testRuleDeleteGeneratesAuditRecord() {
+    public void testRuleDeleteGeneratesAuditRecord() throws Exception {
         String ruleName = "test-rule-delete-audit";
         JsonObject rule = createRuleJson(ruleName);
 
@@ -82,7 +90,7 @@ public class EnversAuditEnabledTest extends EnversAuditTestBase {
 
         deleteRuleViaApi(ruleName);
 
-        List<Object[]> auditRecords = queryAuditRecords(ruleId);
+        List<Object[]> auditRecords = awaitAuditRecords(ruleId, 2);
 
         MatcherAssert.assertThat(auditRecords, Matchers.hasSize(2));
 
@@ -93,10 +101,11 @@ public class EnversAuditEnabledTest extends EnversAuditTestBase {
         Object[] deleteRecord = auditRecords.get(1);
         Number deleteRevtype = (Number) deleteRecord[2];
         MatcherAssert.assertThat(deleteRevtype.intValue(), Matchers.equalTo(REVTYPE_DEL));
+        assertRevisionChain(auditRecords);
     }
 
     @Test
-    public void testMultipleRuleOperationsGenerateCorrectAuditTrail() {
+    public void testMultipleRuleOperationsGenerateCorrectAuditTrail() throws Exception {
         String ruleAName = "test-rule-a-audit";
         JsonObject ruleA = createRuleJson(ruleAName);
         var responseA = createRuleViaApi(ruleA);
@@ -118,7 +127,7 @@ public class EnversAuditEnabledTest extends EnversAuditTestBase {
         updateRuleA2.put("enabled", false);
         updateRuleViaApi(ruleAName, updateRuleA2);
 
-        List<Object[]> auditRecordsA = queryAuditRecords(ruleAId);
+        List<Object[]> auditRecordsA = awaitAuditRecords(ruleAId, 3);
 
         MatcherAssert.assertThat(auditRecordsA, Matchers.hasSize(3));
         MatcherAssert.assertThat(
@@ -127,16 +136,80 @@ public class EnversAuditEnabledTest extends EnversAuditTestBase {
                 ((Number) auditRecordsA.get(1)[2]).intValue(), Matchers.equalTo(REVTYPE_MOD));
         MatcherAssert.assertThat(
                 ((Number) auditRecordsA.get(2)[2]).intValue(), Matchers.equalTo(REVTYPE_MOD));
+        assertRevisionChain(auditRecordsA);
 
-        List<Object[]> auditRecordsB = queryAuditRecords(ruleBId);
+        List<Object[]> auditRecordsB = awaitAuditRecords(ruleBId, 2);
 
         MatcherAssert.assertThat(auditRecordsB, Matchers.hasSize(2));
         MatcherAssert.assertThat(
                 ((Number) auditRecordsB.get(0)[2]).intValue(), Matchers.equalTo(REVTYPE_ADD));
         MatcherAssert.assertThat(
                 ((Number) auditRecordsB.get(1)[2]).intValue(), Matchers.equalTo(REVTYPE_DEL));
+        assertRevisionChain(auditRecordsB);
 
         List<Object[]> allAuditRecords = queryAuditRecordsForMultipleRules(ruleAId, ruleBId);
         MatcherAssert.assertThat(allAuditRecords, Matchers.hasSize(5));
+
+        // each operation was its own transaction, and so its own revision
+        MatcherAssert.assertThat(
+                allAuditRecords.stream().map(r -> ((Number) r[1]).intValue()).distinct().count(),
+                Matchers.equalTo(5L));
+    }
+
+    @Test
+    public void testRolledBackTransactionGeneratesNoAuditRecord() throws Exception {
+        String ruleName = "test-rule-rollback-audit";
+
+        Assertions.assertThrows(
+                IllegalStateException.class,
+                () ->
+                        QuarkusTransaction.requiringNew()
+                                .run(
+                                        () -> {
+                                            Rule rule = new Rule();
+                                            rule.name = ruleName;
+                                            rule.description = "rolled back";
+                                            rule.matchExpression = new MatchExpression("false");
+                                            rule.eventSpecifier = "template=Continuous";
+                                            rule.metadata = new Metadata(Map.of());
+                                            rule.persist();
+                                            entityManager.flush();
+                                            throw new IllegalStateException(ruleName);
+                                        }));
+
+        // audit revisions are written in commit order, so once a later transaction's revision
+        // has been written any revision of the rolled back transaction would have been too
+        var response = createRuleViaApi(createRuleJson("test-rule-after-rollback-audit"));
+        Long ruleId = ((Number) response.get("id")).longValue();
+        MatcherAssert.assertThat(awaitAuditRecords(ruleId, 1), Matchers.hasSize(1));
+
+        MatcherAssert.assertThat(countAuditRecords(ruleName), Matchers.equalTo(0L));
+    }
+
+    /**
+     * Check that each of a rule's audit records, in revision order, has its revision recorded in
+     * REVINFO with timestamps in commit order, and that each record but the last is ended by the
+     * revision of the record that follows it.
+     */
+    private void assertRevisionChain(List<Object[]> records) {
+        long previousTimestamp = Long.MIN_VALUE;
+        for (int i = 0; i < records.size(); i++) {
+            Object[] record = records.get(i);
+            List<Object> timestamps = queryRevisionTimestamps((Number) record[1]);
+            MatcherAssert.assertThat(timestamps, Matchers.hasSize(1));
+            MatcherAssert.assertThat(timestamps.get(0), Matchers.notNullValue());
+            long timestamp = ((Number) timestamps.get(0)).longValue();
+            MatcherAssert.assertThat(timestamp, Matchers.greaterThanOrEqualTo(previousTimestamp));
+            previousTimestamp = timestamp;
+
+            if (i + 1 < records.size()) {
+                MatcherAssert.assertThat(record[3], Matchers.notNullValue());
+                MatcherAssert.assertThat(
+                        ((Number) record[3]).intValue(),
+                        Matchers.equalTo(((Number) records.get(i + 1)[1]).intValue()));
+            } else {
+                MatcherAssert.assertThat(record[3], Matchers.nullValue());
+            }
+        }
     }
 }
@@ -17,6 +17,7 @@ package io.cryostat.audit;
 
 import static io.restassured.RestAssured.given;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +33,8 @@ public abstract class EnversAuditTestBase extends AuditTestBase {
     protected static final int REVTYPE_MOD = 1;
     protected static final int REVTYPE_DEL = 2;
 
+    protected static final Duration AUDIT_WRITE_TIMEOUT = Duration.ofSeconds(10);
+
     @Inject protected EntityManager entityManager;
 
     @AfterEach
@@ -79,11 +82,45 @@ public abstract class EnversAuditTestBase extends AuditTestBase {
     protected List<Object[]> queryAuditRecords(Long ruleId) {
         return entityManager
                 .createNativeQuery(
-                        "SELECT id, REV, REVTYPE FROM Rule_AUD WHERE id = :id ORDER BY REV")
+                        "SELECT id, REV, REVTYPE, REVEND FROM Rule_AUD WHERE id = :id ORDER BY"
+                                + " REV")
                 .setParameter("id", ruleId)
                 .getResultList();
     }
 
+    /**
+     * Query the audit records of a rule, waiting until at least the expected number of them have
+     * been written. With asynchronous auditing they are written shortly after each change commits.
+     */
+    protected List<Object[]> awaitAuditRecords(Long ruleId, int expected)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + AUDIT_WRITE_TIMEOUT.toNanos();
+        List<Object[]> records = queryAuditRecords(ruleId);
+        while (records.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            records = queryAuditRecords(ruleId);
+        }
+        return records;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected List<Object> queryRevisionTimestamps(Number rev) {
+        return entityManager
+                .createNativeQuery("SELECT REVTSTMP FROM REVINFO WHERE REV = :rev")
+                .setParameter("rev", rev.intValue())
+                .getResultList();
+    }
+
+    protected long countAuditRecords(String ruleName) {
+        return ((Number)
+                        entityManager
+                                .createNativeQuery(
+                                        "SELECT COUNT(*) FROM Rule_AUD WHERE name = :name")
+                                .setParameter("name", ruleName)
+                                .getSingleResult())
+                .longValue();
+    }
+
     @SuppressWarnings("unchecked")
     protected List<Object[]> queryAuditRecordsForMultipleRules(Long... ruleIds) {
         StringBuilder query =
@@ -0,0 +1,172 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.credentials;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import io.cryostat.AbstractTransactionalTestBase;
+import io.cryostat.discovery.DiscoveryNode;
+import io.cryostat.expressions.MatchExpression;
+import io.cryostat.targets.Target;
+import io.cryostat.targets.Target.EventKind;
+import io.cryostat.targets.Target.TargetDiscovery;
+import io.cryostat.targets.TargetConnectionManager;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the index from credentials to the connect URLs they were resolved for, which {@link
+ * TargetConnectionManager} uses to find the connections to close when credentials change.
+ */
+@QuarkusTest
+class CredentialsFinderTest extends AbstractTransactionalTestBase {
+
+    @Inject CredentialsFinder finder;
+
+    // the connection manager consumes the same credential events and would otherwise remove
+    // entries from the index concurrently with these tests
+    @InjectMock TargetConnectionManager connectionManager;
+
+    @Test
+    void testRemovesOnlyConnectUrlsResolvedToCredential() {
+        Target alpha = createTarget("alpha");
+        Target beta = createTarget("beta");
+        Target gamma = createTarget("gamma");
+        long byUrl =
+                createCredential(String.format("target.connectUrl == '%s'", alpha.connectUrl));
+        long byAlias = createCredential("target.alias == 'beta'");
+
+        Assertions.assertEquals(Optional.of(byUrl), resolve(alpha));
+        Assertions.assertEquals(Optional.of(byAlias), resolve(beta));
+        Assertions.assertEquals(Optional.empty(), resolve(gamma));
+
+        Assertions.assertEquals(Set.of(alpha.connectUrl), finder.removeConnectUrls(byUrl));
+        // removed entries are only indexed again when next resolved
+        Assertions.assertEquals(Set.of(), finder.removeConnectUrls(byUrl));
+        Assertions.assertEquals(
+                Set.of(gamma.connectUrl), finder.removeConnectUrlsWithoutCredentials());
+        Assertions.assertEquals(Set.of(beta.connectUrl), finder.removeConnectUrls(byAlias));
+    }
+
+    @Test
+    void testStoredCredentialMovesConnectUrlOutOfUncredentialed() {
+        Target alpha = createTarget("alpha");
+        Target beta = createTarget("beta");
+        Assertions.assertEquals(Optional.empty(), resolve(alpha));
+        Assertions.assertEquals(Optional.empty(), resolve(beta));
+
+        long id = createCredential("target.alias == 'alpha'");
+        Assertions.assertEquals(
+                Set.of(alpha.connectUrl, beta.connectUrl),
+                finder.removeConnectUrlsWithoutCredentials());
+
+        Assertions.assertEquals(Optional.of(id), resolve(alpha));
+        Assertions.assertEquals(Optional.empty(), resolve(beta));
+        Assertions.assertEquals(
+                Set.of(beta.connectUrl), finder.removeConnectUrlsWithoutCredentials());
+        Assertions.assertEquals(Set.of(alpha.connectUrl), finder.removeConnectUrls(id));
+    }
+
+    @Test
+    void testReResolvedConnectUrlIsIndexedOnce() {
+        Target alpha = createTarget("alpha");
+        long first = createCredential("target.alias == 'alpha'");
+        Assertions.assertEquals(Optional.of(first), resolve(alpha));
+
+        // credentials are matched in ID order, so the second only applies once the first is gone
+        long second = createCredential("target.jvmId == 'jvm-alpha'");
+        deleteCredential(first);
+        Assertions.assertEquals(Set.of(alpha.connectUrl), finder.removeConnectUrls(first));
+        Assertions.assertEquals(Optional.of(second), resolve(alpha));
+        Assertions.assertEquals(Optional.of(second), resolve(alpha));
+
+        Assertions.assertEquals(Set.of(), finder.removeConnectUrlsWithoutCredentials());
+        Assertions.assertEquals(Set.of(alpha.connectUrl), finder.removeConnectUrls(second));
+    }
+
+    @Test
+    void testLostTargetDropsIndexEntry() {
+        Target alpha = createTarget("alpha");
+        Target beta = createTarget("beta");
+        long id = createCredential("target.alias == 'alpha'");
+        Assertions.assertEquals(Optional.of(id), resolve(alpha));
+        Assertions.assertEquals(Optional.empty(), resolve(beta));
+
+        finder.onMessage(new TargetDiscovery(EventKind.LOST, alpha, alpha.jvmId));
+        finder.onMessage(new TargetDiscovery(EventKind.LOST, beta, beta.jvmId));
+
+        Assertions.assertEquals(Set.of(), finder.removeConnectUrls(id));
+        Assertions.assertEquals(Set.of(), finder.removeConnectUrlsWithoutCredentials());
+    }
+
+    private Optional<Long> resolve(Target target) {
+        return QuarkusTransaction.requiringNew()
+                .call(
+                        () ->
+                                finder.getCredentialsForTarget(Target.findById(target.id))
+                                        .map(c -> c.id));
+    }
+
+    private static long createCredential(String script) {
+        return QuarkusTransaction.requiringNew()
+                .call(
+                        () -> {
+                            Credential credential = new Credential();
+                            credential.matchExpression = new MatchExpression(script);
+                            credential.username = "user";
+                            credential.password = "pass";
+                            credential.persist();
+                            return credential.id;
+                        });
+    }
+
+    private static void deleteCredential(long id) {
+        QuarkusTransaction.requiringNew().run(() -> Credential.deleteById(id));
+    }
+
+    private static Target createTarget(String alias) {
+        return QuarkusTransaction.requiringNew()
+                .call(
+                        () -> {
+                            DiscoveryNode node = new DiscoveryNode();
+                            node.name =
+                                    String.format(
+                                            "service:jmx:rmi:///jndi/rmi://%s:9091/jmxrmi", alias);
+                            node.nodeType = "JVM";
+                            node.labels = Map.of();
+                            node.persist();
+
+                            Target target = new Target();
+                            target.alias = alias;
+                            target.jvmId = String.format("jvm-%s", alias);
+                            target.connectUrl = URI.create(node.name);
+                            target.labels = Map.of();
+                            target.annotations = new Target.Annotations();
+                            target.discoveryNode = node;
+                            node.target = target;
+                            target.persist();
+                            return target;
+                        });
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.credentials;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+
+import io.cryostat.targets.Target;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class SimpleMatchPredicateTest {
+
+    @ParameterizedTest
+    @CsvSource(
+            delimiter = '|',
+            value = {
+                "target.connectUrl == \"service:jmx:rmi:///jndi/rmi://host:9091/jmxrmi\" |"
+                        + " CONNECT_URL | | service:jmx:rmi:///jndi/rmi://host:9091/jmxrmi",
+                "target.alias == 'myapp' | ALIAS | | myapp",
+                "  target.jvmId==\"abc-123\"  | JVM_ID | | abc-123",
+                "target.labels[\"app\"] == \"foo\" | LABEL | app | foo",
+                "target.annotations.cryostat['PORT'] == '9091' | CRYOSTAT_ANNOTATION | PORT |"
+                        + " 9091",
+                "target.annotations.platform[\"ns\"] == 'default' | PLATFORM_ANNOTATION | ns |"
+                        + " default",
+            })
+    void testParse(
+            String script, SimpleMatchPredicate.Property property, String key, String value) {
+        Optional<SimpleMatchPredicate> predicate = SimpleMatchPredicate.parse(script);
+        MatcherAssert.assertThat(
+                predicate,
+                Matchers.equalTo(Optional.of(new SimpleMatchPredicate(property, key, value))));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "true",
+                "target.alias != 'myapp'",
+                "target.alias == 'myapp' || target.alias == 'other'",
+                "target.labels['app'] == 'foo' && target.alias == 'myapp'",
+                "target.alias.startsWith('my')",
+                "target.alias == 'my\\'app'",
+                "'myapp' == target.alias",
+            })
+    void testNotSimple(String script) {
+        MatcherAssert.assertThat(
+                SimpleMatchPredicate.parse(script), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void testMatches() {
+        Target target = new Target();
+        target.connectUrl = URI.create("service:jmx:rmi:///jndi/rmi://host:9091/jmxrmi");
+        target.alias = "myapp";
+        target.jvmId = "abc-123";
+        target.labels = Map.of("app", "foo");
+        target.annotations =
+                new Target.Annotations(Map.of("ns", "default"), Map.of("PORT", "9091"));
+
+        MatcherAssert.assertThat(
+                test(
+                        "target.connectUrl == 'service:jmx:rmi:///jndi/rmi://host:9091/jmxrmi'",
+                        target),
+                Matchers.is(true));
+        MatcherAssert.assertThat(test("target.alias == 'myapp'", target), Matchers.is(true));
+        MatcherAssert.assertThat(test("target.alias == 'other'", target), Matchers.is(false));
+        MatcherAssert.assertThat(test("target.jvmId == 'abc-123'", target), Matchers.is(true));
+        MatcherAssert.assertThat(test("target.labels['app'] == 'foo'", target), Matchers.is(true));
+        MatcherAssert.assertThat(test("target.labels['env'] == 'foo'", target), Matchers.is(false));
+        MatcherAssert.assertThat(
+                test("target.annotations.cryostat['PORT'] == '9091'", target), Matchers.is(true));
+        MatcherAssert.assertThat(
+                test("target.annotations.platform['ns'] == 'default'", target), Matchers.is(true));
+        MatcherAssert.assertThat(
+                test("target.annotations.platform['PORT'] == '9091'", target), Matchers.is(false));
+    }
+
+    private static boolean test(String script, Target target) {
+        return SimpleMatchPredicate.parse(script).orElseThrow().test(target);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.diagnostics;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+import io.cryostat.AbstractTransactionalTestBase;
+import io.cryostat.diagnostic.Diagnostics;
+
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestHTTPEndpoint(Diagnostics.class)
+public class ConnectionStatisticsTest extends AbstractTransactionalTestBase {
+
+    @Test
+    public void testStatisticsReflectConnectedTasks() {
+        int targetId = defineSelfCustomTarget();
+
+        given().pathParam("targetId", targetId)
+                .post("targets/{targetId}/gc")
+                .then()
+                .assertThat()
+                .statusCode(204);
+
+        given().get("connections")
+                .then()
+                .assertThat()
+                .statusCode(200)
+                .body("openConnections", greaterThanOrEqualTo(1))
+                .body("missCount", greaterThanOrEqualTo(1))
+                .body("loadSuccessCount", greaterThanOrEqualTo(1))
+                .body("removals", hasKey("EXPLICIT"))
+                .body("retries", greaterThanOrEqualTo(0))
+                .body("inFlightTasks", anEmptyMap());
+    }
+}
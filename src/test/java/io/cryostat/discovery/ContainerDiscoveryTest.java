@@ -0,0 +1,220 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.remote.JMXServiceURL;
+
+import io.cryostat.core.net.JFRConnectionToolkit;
+import io.cryostat.discovery.ContainerDiscovery.ContainerDiscoveryEvent;
+import io.cryostat.discovery.ContainerDiscovery.ContainerSpec;
+import io.cryostat.targets.Target;
+import io.cryostat.targets.Target.EventKind;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import io.vertx.mutiny.core.net.SocketAddress;
+import io.vertx.mutiny.ext.web.client.WebClient;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+
+class ContainerDiscoveryTest {
+
+    static final String CONTAINER_ID = "abc123";
+    static final URI CONNECT_URL =
+            URI.create("service:jmx:rmi:///jndi/rmi://sample-app:9091/jmxrmi");
+
+    PodmanDiscovery discovery;
+    EventBus bus;
+
+    @BeforeEach
+    void setup() throws Exception {
+        bus = mock(EventBus.class);
+        discovery = new PodmanDiscovery();
+        discovery.bus = bus;
+        discovery.logger = mock(Logger.class);
+        discovery.mapper =
+                new ObjectMapper()
+                        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        discovery.requestTimeout = Duration.ofSeconds(2);
+        discovery.connectionToolkit = mock(JFRConnectionToolkit.class);
+        when(discovery.connectionToolkit.createServiceURL("sample-app", 9091))
+                .thenReturn(new JMXServiceURL(CONNECT_URL.toString()));
+        discovery.webClient = mock(WebClient.class, RETURNS_DEEP_STUBS);
+        when(discovery
+                        .webClient
+                        .request(
+                                any(HttpMethod.class),
+                                any(SocketAddress.class),
+                                anyInt(),
+                                anyString(),
+                                anyString())
+                        .addQueryParam(anyString(), anyString())
+                        .timeout(anyLong())
+                        .as(any())
+                        .send())
+                .thenReturn(Uni.createFrom().nothing());
+    }
+
+    @Test
+    void testLibpodDiedEventLosesTarget() {
+        Target target = discovery.toTarget(spec());
+        Assertions.assertNotNull(target);
+
+        discovery.handleStreamEvent(event("died"));
+
+        verify(bus).publish(eq(discovery.notificationAddress()), argThat(lost()));
+    }
+
+    @Test
+    void testCompatDieEventLosesTarget() {
+        discovery.toTarget(spec());
+
+        discovery.handleStreamEvent(event("die"));
+
+        verify(bus).publish(eq(discovery.notificationAddress()), argThat(lost()));
+    }
+
+    @Test
+    void testOtherEventsIgnored() {
+        discovery.toTarget(spec());
+
+        discovery.handleStreamEvent(event("stop"));
+
+        verify(bus, never()).publish(anyString(), any());
+    }
+
+    @Test
+    void testUnknownContainerDiedIsIgnored() {
+        discovery.handleStreamEvent(event("died"));
+
+        verify(bus, never()).publish(anyString(), any());
+    }
+
+    @Test
+    void testFoundBeforeDiedIsPublishedFirst() {
+        ContainerSpec spec = spec();
+        Target target = discovery.toTarget(spec);
+
+        discovery.handleFoundContainer(spec, target);
+        discovery.handleStreamEvent(event("died"));
+
+        InOrder order = inOrder(bus);
+        order.verify(bus).publish(eq(discovery.notificationAddress()), argThat(found()));
+        order.verify(bus).publish(eq(discovery.notificationAddress()), argThat(lost()));
+    }
+
+    @Test
+    void testStaleFoundAfterDiedIsIgnored() {
+        ContainerSpec spec = spec();
+        // a listing issued while the container was running, which completes after it died
+        Target target = discovery.toTarget(spec);
+
+        discovery.handleStreamEvent(event("died"));
+        discovery.handleFoundContainer(spec, target);
+
+        verify(bus).publish(eq(discovery.notificationAddress()), argThat(lost()));
+        verify(bus, never()).publish(eq(discovery.notificationAddress()), argThat(found()));
+    }
+
+    @Test
+    void testRestartedContainerIsFoundAgain() {
+        ContainerSpec spec = spec();
+        discovery.toTarget(spec);
+        discovery.handleStreamEvent(event("died"));
+
+        discovery.handleStreamEvent(event("start"));
+        Target target = discovery.toTarget(spec);
+        discovery.handleFoundContainer(spec, target);
+
+        verify(bus).publish(eq(discovery.notificationAddress()), argThat(found()));
+    }
+
+    private static ContainerSpec spec() {
+        return new ContainerSpec(
+                CONTAINER_ID,
+                "quay.io/example/sample-app:latest",
+                Map.of(
+                        ContainerDiscovery.DISCOVERY_LABEL, "true",
+                        ContainerDiscovery.JMX_HOST_LABEL, "sample-app",
+                        ContainerDiscovery.JMX_PORT_LABEL, "9091"),
+                List.of("sample-app"),
+                1234,
+                null,
+                null,
+                List.of(),
+                0,
+                "running");
+    }
+
+    // decoded from text as the event stream's parser does, so that nested objects are maps
+    private static JsonObject event(String action) {
+        JsonObject json =
+                new JsonObject()
+                        .put("Type", "container")
+                        .put("Action", action)
+                        .put("status", action)
+                        .put("id", CONTAINER_ID)
+                        .put(
+                                "Actor",
+                                new JsonObject()
+                                        .put("ID", CONTAINER_ID)
+                                        .put(
+                                                "Attributes",
+                                                new JsonObject().put("name", "sample-app")));
+        return new JsonObject(json.encode());
+    }
+
+    private static ArgumentMatcher<Object> found() {
+        return kind(EventKind.FOUND);
+    }
+
+    private static ArgumentMatcher<Object> lost() {
+        return kind(EventKind.LOST);
+    }
+
+    private static ArgumentMatcher<Object> kind(EventKind kind) {
+        return o ->
+                o instanceof ContainerDiscoveryEvent evt
+                        && evt.eventKind() == kind
+                        && CONNECT_URL.equals(evt.target().connectUrl);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DiscoveryNodeTest {
+
+    private DiscoveryNode parent;
+
+    @BeforeEach
+    void setup() {
+        parent = createNode("ns", "Namespace");
+    }
+
+    @Test
+    void testFindChild_matchesTypeAndName() {
+        DiscoveryNode pod = createNode("a", "Pod");
+        DiscoveryNode deployment = createNode("a", "Deployment");
+        parent.addChild(pod);
+        parent.addChild(deployment);
+
+        assertSame(pod, parent.findChild("Pod", "a").orElseThrow());
+        assertSame(deployment, parent.findChild("Deployment", "a").orElseThrow());
+        assertTrue(parent.findChild("Pod", "b").isEmpty());
+        assertEquals(2, parent.children.size());
+    }
+
+    @Test
+    void testFindChild_seesModifications() {
+        DiscoveryNode pod = createNode("a", "Pod");
+        parent.addChild(pod);
+        assertTrue(parent.findChild("Pod", "a").isPresent());
+
+        assertTrue(parent.removeChild(pod));
+        assertFalse(parent.removeChild(pod));
+        assertTrue(parent.findChild("Pod", "a").isEmpty());
+
+        DiscoveryNode other = createNode("b", "Pod");
+        parent.addChild(other);
+        assertSame(other, parent.findChild("Pod", "b").orElseThrow());
+
+        parent.children = new ArrayList<>(List.of(pod));
+        assertSame(pod, parent.findChild("Pod", "a").orElseThrow());
+        assertTrue(parent.findChild("Pod", "b").isEmpty());
+
+        parent.removeChildren(n -> n.name.equals("a"));
+        assertTrue(parent.findChild("Pod", "a").isEmpty());
+
+        parent.addChild(other);
+        parent.clearChildren();
+        assertTrue(parent.findChild("Pod", "b").isEmpty());
+    }
+
+    @Test
+    void testFindChild_seesSameSizeReplacement() {
+        DiscoveryNode a = createNode("a", "Pod");
+        DiscoveryNode b = createNode("b", "Pod");
+        parent.addChild(a);
+        assertSame(a, parent.findChild("Pod", "a").orElseThrow());
+
+        parent.removeChild(a);
+        parent.addChild(b);
+        assertEquals(1, parent.children.size());
+        assertTrue(parent.findChild("Pod", "a").isEmpty());
+        assertSame(b, parent.findChild("Pod", "b").orElseThrow());
+
+        parent.children = new ArrayList<>(List.of(a));
+        assertSame(a, parent.findChild("Pod", "a").orElseThrow());
+        assertTrue(parent.findChild("Pod", "b").isEmpty());
+    }
+
+    @Test
+    void testFindChild_keepsDuplicateKeys() {
+        DiscoveryNode first = createNode("a", "Pod");
+        DiscoveryNode second = createNode("a", "Pod");
+        second.labels.put("second", "true");
+        parent.addChild(first);
+        parent.addChild(second);
+        assertSame(first, parent.findChild("Pod", "a").orElseThrow());
+
+        parent.removeChild(first);
+        assertSame(second, parent.findChild("Pod", "a").orElseThrow());
+    }
+
+    @Test
+    void testFindChild_seesRenamedChildren() {
+        DiscoveryNode pod = createNode("a", "Pod");
+        pod.parent = parent;
+        parent.addChild(pod);
+        assertTrue(parent.findChild("Pod", "a").isPresent());
+
+        // look up the new name first, which would miss a stale index entirely
+        pod.rename("Pod", "b");
+        assertSame(pod, parent.findChild("Pod", "b").orElseThrow());
+        assertTrue(parent.findChild("Pod", "a").isEmpty());
+
+        pod.rename("Deployment", "b");
+        assertSame(pod, parent.findChild("Deployment", "b").orElseThrow());
+        assertTrue(parent.findChild("Pod", "b").isEmpty());
+    }
+
+    @Test
+    void testFindChild_manyChildren() {
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            String name = "pod-" + i;
+            assertTrue(parent.findChild("Pod", name).isEmpty());
+            parent.addChild(createNode(name, "Pod"));
+        }
+        assertEquals(count, parent.children.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals("pod-" + i, parent.findChild("Pod", "pod-" + i).orElseThrow().name);
+        }
+    }
+
+    private DiscoveryNode createNode(String name, String nodeType) {
+        DiscoveryNode node = new DiscoveryNode();
+        node.name = name;
+        node.nodeType = nodeType;
+        node.labels = new HashMap<>();
+        node.children = new ArrayList<>();
+        return node;
+    }
+}
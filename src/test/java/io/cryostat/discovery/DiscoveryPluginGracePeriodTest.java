@@ -39,8 +39,6 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.quartz.JobDataMap;
-import org.quartz.JobExecutionContext;
 
 @QuarkusTest
 public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBase {
@@ -48,14 +46,11 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
     @ConfigProperty(name = ConfigProperties.DISCOVERY_PLUGINS_MAX_FAILURES)
     int maxConsecutiveFailures;
 
-    @Inject Discovery.RefreshPluginJob refreshPluginJob;
+    @Inject PluginPingScheduler pingScheduler;
     @Inject AgentClient.Factory agentClientFactory;
 
     @InjectMock PluginCallbackFactory callbackFactory;
 
-    private static final String PLUGIN_ID_MAP_KEY = "pluginId";
-    private static final String REFRESH_MAP_KEY = "refresh";
-
     private PluginCallback mockCallback;
 
     @BeforeEach
@@ -84,6 +79,7 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
                                                     credentialId));
                             plugin.builtin = false;
                             plugin.consecutiveFailures = consecutiveFailures;
+                            plugin.refreshOnPing = false;
                             plugin.persist();
 
                             return plugin.id;
@@ -130,15 +126,9 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
         when(callbackFactory.create(any(DiscoveryPlugin.class))).thenReturn(mockCallback);
 
         // Simulate ping failures
-        var context = mock(JobExecutionContext.class);
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, pluginId);
-        dataMap.put(REFRESH_MAP_KEY, false);
-        when(context.getMergedJobDataMap()).thenReturn(dataMap);
-
         // First failure
         try {
-            refreshPluginJob.execute(context);
+            pingScheduler.ping(pluginId);
         } catch (Exception e) {
             // Expected to fail
         }
@@ -162,7 +152,7 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
 
         // Second failure
         try {
-            refreshPluginJob.execute(context);
+            pingScheduler.ping(pluginId);
         } catch (Exception e) {
             // Expected to fail
         }
@@ -211,15 +201,9 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
         doThrow(new ProcessingException("Connection refused")).when(mockCallback).ping();
         when(callbackFactory.create(any(DiscoveryPlugin.class))).thenReturn(mockCallback);
 
-        var context = mock(JobExecutionContext.class);
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, pluginId);
-        dataMap.put(REFRESH_MAP_KEY, false);
-        when(context.getMergedJobDataMap()).thenReturn(dataMap);
-
         // This failure should trigger deletion
         try {
-            refreshPluginJob.execute(context);
+            pingScheduler.ping(pluginId);
         } catch (Exception e) {
             // Expected to fail
         }
@@ -294,17 +278,12 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
                                     DiscoveryPlugin.<DiscoveryPlugin>find("id", pluginId)
                                             .firstResult();
                             plugin.consecutiveFailures = 2;
+                            plugin.refreshOnPing = false;
                             plugin.persist();
                         });
 
-        var context = mock(JobExecutionContext.class);
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, pluginId);
-        dataMap.put(REFRESH_MAP_KEY, false);
-        when(context.getMergedJobDataMap()).thenReturn(dataMap);
-
         // Execute successful ping
-        refreshPluginJob.execute(context);
+        pingScheduler.ping(pluginId);
 
         DiscoveryPlugin updatedPlugin =
                 QuarkusTransaction.requiringNew()
@@ -356,16 +335,10 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
         doThrow(new ProcessingException("Connection refused")).when(mockCallback).ping();
         when(callbackFactory.create(any(DiscoveryPlugin.class))).thenReturn(mockCallback);
 
-        var context = mock(JobExecutionContext.class);
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, pluginId);
-        dataMap.put(REFRESH_MAP_KEY, false);
-        when(context.getMergedJobDataMap()).thenReturn(dataMap);
-
         // Execute failures up to max-1
         for (int i = 0; i < maxConsecutiveFailures - 1; i++) {
             try {
-                refreshPluginJob.execute(context);
+                pingScheduler.ping(pluginId);
             } catch (Exception e) {
                 // Expected to fail
             }
@@ -430,15 +403,9 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
         doThrow(new ProcessingException("Connection refused")).when(mockCallback).ping();
         when(callbackFactory.create(any(DiscoveryPlugin.class))).thenReturn(mockCallback);
 
-        var context = mock(JobExecutionContext.class);
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, pluginId);
-        dataMap.put(REFRESH_MAP_KEY, false);
-        when(context.getMergedJobDataMap()).thenReturn(dataMap);
-
         // Execute failure
         try {
-            refreshPluginJob.execute(context);
+            pingScheduler.ping(pluginId);
         } catch (Exception e) {
             // Expected to fail
         }
@@ -489,15 +456,9 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
         doThrow(new ProcessingException("Connection refused")).when(mockCallback).ping();
         when(callbackFactory.create(any(DiscoveryPlugin.class))).thenReturn(mockCallback);
 
-        var context = mock(JobExecutionContext.class);
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, pluginId);
-        dataMap.put(REFRESH_MAP_KEY, false);
-        when(context.getMergedJobDataMap()).thenReturn(dataMap);
-
         // First failure - backoff should double to 2
         try {
-            refreshPluginJob.execute(context);
+            pingScheduler.ping(pluginId);
         } catch (Exception e) {
             // Expected to fail
         }
@@ -521,7 +482,7 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
 
         // Second failure - backoff should double to 4
         try {
-            refreshPluginJob.execute(context);
+            pingScheduler.ping(pluginId);
         } catch (Exception e) {
             // Expected to fail
         }
@@ -591,14 +552,8 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
         doThrow(new ProcessingException("Should not be called")).when(mockCallback).ping();
         when(callbackFactory.create(any(DiscoveryPlugin.class))).thenReturn(mockCallback);
 
-        var context = mock(JobExecutionContext.class);
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, pluginId);
-        dataMap.put(REFRESH_MAP_KEY, false);
-        when(context.getMergedJobDataMap()).thenReturn(dataMap);
-
         // Execute - should skip ping due to backoff
-        refreshPluginJob.execute(context);
+        pingScheduler.ping(pluginId);
 
         // Verify ping was never called
         verify(mockCallback, never()).ping();
@@ -676,19 +631,14 @@ public class DiscoveryPluginGracePeriodTest extends AbstractTransactionalTestBas
                                     DiscoveryPlugin.<DiscoveryPlugin>find("id", pluginId)
                                             .firstResult();
                             plugin.consecutiveFailures = 2;
+                            plugin.refreshOnPing = false;
                             plugin.backoffMultiplier = 4;
                             plugin.nextPingAt = Instant.now().minusSeconds(1); // In the past
                             plugin.persist();
                         });
 
-        var context = mock(JobExecutionContext.class);
-        var dataMap = new JobDataMap();
-        dataMap.put(PLUGIN_ID_MAP_KEY, pluginId);
-        dataMap.put(REFRESH_MAP_KEY, false);
-        when(context.getMergedJobDataMap()).thenReturn(dataMap);
-
         // Execute successful ping
-        refreshPluginJob.execute(context);
+        pingScheduler.ping(pluginId);
 
         DiscoveryPlugin updatedPlugin =
                 QuarkusTransaction.requiringNew()
@@ -452,6 +452,213 @@ public class DiscoveryPluginTest extends AbstractTransactionalTestBase {
                 .statusCode(204);
     }
 
+    @Test
+    void testPublishDelta() {
+        // store credentials
+        var credentialId =
+                given().log()
+                        .all()
+                        .when()
+                        .formParams(
+                                Map.of(
+                                        "username",
+                                        "user",
+                                        "password",
+                                        "pass",
+                                        "matchExpression",
+                                        "target.connectUrl =="
+                                                + " '"
+                                                + baseUrl
+                                                + "health/liveness'"))
+                        .contentType(ContentType.URLENC)
+                        .post("/api/v4/credentials")
+                        .then()
+                        .log()
+                        .all()
+                        .and()
+                        .assertThat()
+                        .statusCode(201)
+                        .contentType(ContentType.JSON)
+                        .extract()
+                        .jsonPath()
+                        .getLong("id");
+
+        // register
+        var realmName = "delta_test_realm";
+        var callback =
+                String.format(
+                        "http://storedcredentials:%d@localhost:%d/health/liveness",
+                        credentialId, baseUrl.getPort());
+        var registration =
+                given().log()
+                        .all()
+                        .when()
+                        .body(Map.of("realm", realmName, "callback", callback))
+                        .contentType(ContentType.JSON)
+                        .post("/api/v4/discovery")
+                        .then()
+                        .log()
+                        .all()
+                        .and()
+                        .assertThat()
+                        .statusCode(200)
+                        .contentType(ContentType.JSON)
+                        .extract()
+                        .jsonPath();
+        var pluginId = registration.getString("id");
+        var pluginToken = registration.getString("token");
+
+        var target1 = new Target(URI.create(baseUrl.toString()), "delta-node-1");
+        var target2 = new Target(URI.create("http://localhost:8082"), "delta-node-2");
+        var target3 = new Target(URI.create("http://localhost:8083"), "delta-node-3");
+        var node1 = new Node("delta-node-1", NodeType.BaseNodeType.AGENT.name(), target1);
+        var node2 = new Node("delta-node-2", NodeType.BaseNodeType.AGENT.name(), target2);
+        var node3 = new Node("delta-node-3", NodeType.BaseNodeType.AGENT.name(), target3);
+
+        long revision =
+                Long.parseLong(
+                        given().log()
+                                .all()
+                                .when()
+                                .body(List.of(node1, node2))
+                                .contentType(ContentType.JSON)
+                                .header(DISCOVERY_HEADER, pluginToken)
+                                .post(String.format("/api/v4/discovery/%s", pluginId))
+                                .then()
+                                .log()
+                                .all()
+                                .and()
+                                .assertThat()
+                                .statusCode(204)
+                                .extract()
+                                .header("Cryostat-Discovery-Revision"));
+
+        // add one node, rename another, and remove the last
+        var renamed =
+                new Node(
+                        "delta-node-1-renamed",
+                        NodeType.BaseNodeType.AGENT.name(),
+                        new Target(target1.connectUrl(), "delta-node-1-renamed"));
+        var delta =
+                Map.of(
+                        "baseRevision",
+                        revision,
+                        "add",
+                        List.of(node3),
+                        "update",
+                        List.of(renamed),
+                        "remove",
+                        List.of(target2.connectUrl()));
+        given().log()
+                .all()
+                .when()
+                .body(delta)
+                .contentType(ContentType.JSON)
+                .header(DISCOVERY_HEADER, pluginToken)
+                .patch(String.format("/api/beta/discovery/%s", pluginId))
+                .then()
+                .log()
+                .all()
+                .and()
+                .assertThat()
+                .statusCode(204)
+                .header("Cryostat-Discovery-Revision", Long.toString(revision + 1));
+
+        var plugin =
+                given().log()
+                        .all()
+                        .when()
+                        .get(String.format("/api/v4/discovery_plugins/%s", pluginId))
+                        .then()
+                        .log()
+                        .all()
+                        .and()
+                        .assertThat()
+                        .statusCode(200)
+                        .contentType(ContentType.JSON)
+                        .extract()
+                        .jsonPath();
+        List<String> names = plugin.getList("realm.children.name");
+        MatcherAssert.assertThat(
+                names, Matchers.containsInAnyOrder("delta-node-1-renamed", "delta-node-3"));
+
+        // replaying the same delta against the now stale revision is rejected
+        given().log()
+                .all()
+                .when()
+                .body(delta)
+                .contentType(ContentType.JSON)
+                .header(DISCOVERY_HEADER, pluginToken)
+                .patch(String.format("/api/beta/discovery/%s", pluginId))
+                .then()
+                .log()
+                .all()
+                .and()
+                .assertThat()
+                .statusCode(409)
+                .header("Cryostat-Discovery-Revision", Long.toString(revision + 1));
+
+        // a delta against the current revision is rejected without changes once the plugin's
+        // last full publication was not flat
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            DiscoveryPlugin p =
+                                    DiscoveryPlugin.findById(UUID.fromString(pluginId));
+                            p.publicationFillStrategy = Discovery.DiscoveryFillStrategy.KUBERNETES;
+                            p.persist();
+                        });
+        given().log()
+                .all()
+                .when()
+                .body(
+                        Map.of(
+                                "baseRevision",
+                                revision + 1,
+                                "remove",
+                                List.of(renamed.target().connectUrl())))
+                .contentType(ContentType.JSON)
+                .header(DISCOVERY_HEADER, pluginToken)
+                .patch(String.format("/api/beta/discovery/%s", pluginId))
+                .then()
+                .log()
+                .all()
+                .and()
+                .assertThat()
+                .statusCode(409)
+                .header("Cryostat-Discovery-Revision", Long.toString(revision + 1));
+        names =
+                given().log()
+                        .all()
+                        .when()
+                        .get(String.format("/api/v4/discovery_plugins/%s", pluginId))
+                        .then()
+                        .log()
+                        .all()
+                        .and()
+                        .assertThat()
+                        .statusCode(200)
+                        .contentType(ContentType.JSON)
+                        .extract()
+                        .jsonPath()
+                        .getList("realm.children.name");
+        MatcherAssert.assertThat(
+                names, Matchers.containsInAnyOrder("delta-node-1-renamed", "delta-node-3"));
+
+        // cleanup
+        given().log()
+                .all()
+                .when()
+                .header(DISCOVERY_HEADER, pluginToken)
+                .delete(String.format("/api/v4/discovery/%s", pluginId))
+                .then()
+                .log()
+                .all()
+                .and()
+                .assertThat()
+                .statusCode(204);
+    }
+
     @Test
     void testPublishHierarchicalNodeList() {
         // store credentials
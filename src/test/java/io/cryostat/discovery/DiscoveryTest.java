@@ -102,6 +102,131 @@ public class DiscoveryTest extends AbstractTransactionalTestBase {
                 Matchers.hasItem(SELF_JMX_URL));
     }
 
+    @Test
+    void testGetUniverseNotModified() {
+        String etag =
+                given().log()
+                        .all()
+                        .when()
+                        .get("/api/v4/discovery")
+                        .then()
+                        .assertThat()
+                        .statusCode(200)
+                        .header("ETag", Matchers.not(Matchers.blankOrNullString()))
+                        .header(Discovery.TREE_VERSION_HEADER, Matchers.notNullValue())
+                        .extract()
+                        .header("ETag");
+
+        given().log()
+                .all()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/api/v4/discovery")
+                .then()
+                .assertThat()
+                .statusCode(304)
+                .header("ETag", Matchers.equalTo(etag));
+
+        // the merged tree is a different representation and must not share the ETag
+        given().log()
+                .all()
+                .header("If-None-Match", etag)
+                .queryParam("mergeRealms", true)
+                .when()
+                .get("/api/v4/discovery")
+                .then()
+                .assertThat()
+                .statusCode(200);
+
+        given().log()
+                .all()
+                .when()
+                .delete(String.format("/api/v4/targets/%d", selfId))
+                .then()
+                .assertThat()
+                .statusCode(204);
+        selfId = -1;
+
+        given().log()
+                .all()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/api/v4/discovery")
+                .then()
+                .assertThat()
+                .statusCode(200)
+                .header("ETag", Matchers.not(Matchers.equalTo(etag)));
+    }
+
+    @Test
+    void testGetChangesSinceVersion() {
+        long version =
+                Long.parseLong(
+                        given().log()
+                                .all()
+                                .when()
+                                .get("/api/v4/discovery")
+                                .then()
+                                .assertThat()
+                                .statusCode(200)
+                                .extract()
+                                .header(Discovery.TREE_VERSION_HEADER));
+
+        given().log()
+                .all()
+                .queryParam("since", version)
+                .when()
+                .get("/api/beta/discovery/changes")
+                .then()
+                .assertThat()
+                .statusCode(200)
+                .body("version", Matchers.equalTo((int) version))
+                .body("diffs.size()", Matchers.equalTo(0));
+
+        given().log()
+                .all()
+                .when()
+                .delete(String.format("/api/v4/targets/%d", selfId))
+                .then()
+                .assertThat()
+                .statusCode(204);
+        selfId = -1;
+
+        given().log()
+                .all()
+                .queryParam("since", version)
+                .when()
+                .get("/api/beta/discovery/changes")
+                .then()
+                .assertThat()
+                .statusCode(200)
+                .body("version", Matchers.greaterThan((int) version))
+                .body("diffs[0].fromVersion", Matchers.equalTo((int) version))
+                .body(
+                        "diffs.changes.flatten().findAll { it.kind == 'REMOVED' }.node.target"
+                                + ".connectUrl",
+                        Matchers.hasItem(SELF_JMX_URL));
+
+        given().log()
+                .all()
+                .queryParam("since", version)
+                .queryParam("epoch", 1)
+                .when()
+                .get("/api/beta/discovery/changes")
+                .then()
+                .assertThat()
+                .statusCode(410);
+
+        given().log()
+                .all()
+                .queryParam("since", -1)
+                .when()
+                .get("/api/beta/discovery/changes")
+                .then()
+                .assertThat()
+                .statusCode(410);
+    }
+
     @Test
     void getDiscoveryPlugins() {
         List<Map<String, String>> plugins =
@@ -19,7 +19,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import io.cryostat.AbstractTransactionalTestBase;
@@ -36,6 +38,7 @@ import org.junit.jupiter.api.Test;
 class DiscoveryTreeConsistencyTest extends AbstractTransactionalTestBase {
 
     @Inject EntityManager entityManager;
+    @Inject DiscoveryTree tree;
 
     @Test
     void shouldReplaceRealmChildrenAtomically() {
@@ -117,10 +120,113 @@ class DiscoveryTreeConsistencyTest extends AbstractTransactionalTestBase {
                         });
     }
 
+    @Test
+    void shouldApplyChangesToSnapshotIncrementally() {
+        QuarkusTransaction.requiringNew().call(() -> createPlugin("unchanged-realm"));
+        UUID pluginId = QuarkusTransaction.requiringNew().call(() -> createPlugin("changed-realm"));
+        DiscoveryTree.Snapshot before = tree.get();
+        DiscoveryNode unchanged = realm(before, "unchanged-realm");
+
+        String connectUrl = "service:jmx:rmi:///jndi/rmi://127.0.0.4:9091/jmxrmi";
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            DiscoveryPlugin plugin =
+                                    entityManager.find(DiscoveryPlugin.class, pluginId);
+                            DiscoveryNode node = targetNode(connectUrl);
+                            node.parent = plugin.realm;
+                            plugin.realm.children.add(node);
+                            entityManager.persist(node);
+                        });
+
+        DiscoveryTree.Snapshot added = tree.get();
+        assertTrue(added.version() > before.version());
+        assertNotSame(before.universe(), added.universe());
+        assertSame(unchanged, realm(added, "unchanged-realm"));
+        assertEquals(
+                List.of(connectUrl),
+                realm(added, "changed-realm").children.stream()
+                        .map(n -> n.target.connectUrl.toString())
+                        .toList());
+        assertEquals(
+                List.of(DiscoveryTree.ChangeKind.ADDED),
+                changeKinds(before.version(), connectUrl));
+        DiscoveryTree.Snapshot unmodified = rebuilt();
+        assertEquals(shape(unmodified.universe()), shape(added.universe()));
+
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            DiscoveryPlugin plugin =
+                                    entityManager.find(DiscoveryPlugin.class, pluginId);
+                            DiscoveryNode node = plugin.realm.children.get(0);
+                            node.labels.put("changed", "true");
+                        });
+
+        DiscoveryTree.Snapshot modified = tree.get();
+        assertEquals(
+                List.of(DiscoveryTree.ChangeKind.MODIFIED),
+                changeKinds(unmodified.version(), connectUrl));
+        assertEquals(
+                "true", realm(modified, "changed-realm").children.get(0).labels.get("changed"));
+        assertSame(unchanged, realm(modified, "unchanged-realm"));
+
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            DiscoveryPlugin plugin =
+                                    entityManager.find(DiscoveryPlugin.class, pluginId);
+                            DiscoveryNode node = plugin.realm.children.remove(0);
+                            node.parent = null;
+                            entityManager.remove(node);
+                        });
+
+        DiscoveryTree.Snapshot removed = tree.get();
+        assertEquals(
+                List.of(DiscoveryTree.ChangeKind.REMOVED),
+                changeKinds(modified.version(), connectUrl));
+        assertTrue(realm(removed, "changed-realm").children.isEmpty());
+        assertSame(unchanged, realm(removed, "unchanged-realm"));
+        assertEquals(shape(rebuilt().universe()), shape(removed.universe()));
+    }
+
+    private List<DiscoveryTree.ChangeKind> changeKinds(long since, String connectUrl) {
+        return tree.diffsSince(since).orElseThrow().diffs().stream()
+                .flatMap(d -> d.changes().stream())
+                .filter(c -> c.node().target() != null)
+                .filter(c -> c.node().target().connectUrl.toString().equals(connectUrl))
+                .map(DiscoveryTree.Change::kind)
+                .toList();
+    }
+
+    private DiscoveryTree.Snapshot rebuilt() {
+        tree.invalidate();
+        return tree.get();
+    }
+
+    private DiscoveryNode realm(DiscoveryTree.Snapshot snapshot, String name) {
+        return snapshot.universe().children.stream()
+                .filter(n -> n.name.equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private Map<Long, List<Long>> shape(DiscoveryNode root) {
+        Map<Long, List<Long>> shape = new HashMap<>();
+        List<DiscoveryNode> stack = new ArrayList<>(List.of(root));
+        while (!stack.isEmpty()) {
+            DiscoveryNode node = stack.remove(stack.size() - 1);
+            shape.put(node.id, node.children.stream().map(n -> n.id).sorted().toList());
+            stack.addAll(node.children);
+        }
+        return shape;
+    }
+
     private UUID createPlugin(String realmName) {
         DiscoveryNode realm = new DiscoveryNode();
         realm.name = realmName;
         realm.nodeType = NodeType.BaseNodeType.REALM.getKind();
+        realm.parent = DiscoveryNode.getUniverse();
         realm.persist();
 
         DiscoveryPlugin plugin = new DiscoveryPlugin();
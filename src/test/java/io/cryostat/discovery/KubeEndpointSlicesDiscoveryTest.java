@@ -19,13 +19,17 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import io.cryostat.AbstractTransactionalTestBase;
 import io.cryostat.targets.Target;
@@ -51,6 +55,7 @@ import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.PodResource;
 import io.fabric8.kubernetes.client.dsl.RollableScalableResource;
 import io.quarkus.arc.ClientProxy;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.panache.common.Parameters;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
@@ -61,6 +66,7 @@ import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.quartz.Scheduler;
 
@@ -74,7 +80,8 @@ class KubeEndpointSlicesDiscoveryTest extends AbstractTransactionalTestBase {
             return Map.of(
                     "cryostat.discovery.kubernetes.enabled", "true",
                     "cryostat.discovery.kubernetes.port-numbers", "9091",
-                    "cryostat.discovery.kubernetes.port-names", "jfr-jmx,other-port");
+                    "cryostat.discovery.kubernetes.port-names", "jfr-jmx,other-port",
+                    "cryostat.discovery.kubernetes.coalesce-window", "200ms");
         }
     }
 
@@ -90,6 +97,11 @@ class KubeEndpointSlicesDiscoveryTest extends AbstractTransactionalTestBase {
 
     @Inject EntityManager entityManager;
 
+    @BeforeEach
+    void invalidateKubeObjects() {
+        discovery.invalidateKubeObjects();
+    }
+
     @Test
     void testGetTargetTuplesFromReturnsEmptyListWhenPortsAreNull() {
         EndpointSlice slice = mock(EndpointSlice.class);
@@ -470,6 +482,86 @@ class KubeEndpointSlicesDiscoveryTest extends AbstractTransactionalTestBase {
                 KubeEndpointSlicesDiscovery.KubeDiscoveryNodeType.NAMESPACE.toString());
     }
 
+    @Test
+    void testConnectUrlsMatchTargetTuples() {
+        EndpointSlice slice = mock(EndpointSlice.class);
+        when(slice.getAddressType()).thenReturn("IPv4");
+
+        EndpointPort compatible = mock(EndpointPort.class);
+        when(compatible.getName()).thenReturn("jfr-jmx");
+        when(compatible.getPort()).thenReturn(9091);
+        EndpointPort incompatible = mock(EndpointPort.class);
+        when(incompatible.getName()).thenReturn("http");
+        when(incompatible.getPort()).thenReturn(8080);
+        when(slice.getPorts()).thenReturn(List.of(compatible, incompatible));
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (String addr : List.of("10.0.0.1", "10.0.0.2")) {
+            Endpoint endpoint = mock(Endpoint.class);
+            when(endpoint.getAddresses()).thenReturn(List.of(addr));
+            ObjectReference targetRef = mock(ObjectReference.class);
+            when(targetRef.getNamespace()).thenReturn("test-namespace");
+            when(targetRef.getName()).thenReturn("pod-" + addr);
+            when(targetRef.getKind()).thenReturn("UnknownKind");
+            when(endpoint.getTargetRef()).thenReturn(targetRef);
+            when(endpoint.getConditions()).thenReturn(mock(EndpointConditions.class));
+            endpoints.add(endpoint);
+        }
+        Endpoint unreferenced = mock(Endpoint.class);
+        when(unreferenced.getAddresses()).thenReturn(List.of("10.0.0.3"));
+        endpoints.add(unreferenced);
+        when(slice.getEndpoints()).thenReturn(endpoints);
+
+        Set<String> fromTuples =
+                discovery.getTargetTuplesFrom(slice).stream()
+                        .map(t -> t.toTarget().connectUrl.toString())
+                        .collect(Collectors.toSet());
+
+        assertEquals(2, fromTuples.size());
+        assertEquals(fromTuples, discovery.getConnectUrlsFrom(slice));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testKubeObjectLookupsAreCachedUntilInvalidated() {
+        Pod pod = mock(Pod.class);
+        MixedOperation<Pod, PodList, PodResource> podOp = mock(MixedOperation.class);
+        NonNamespaceOperation<Pod, PodList, PodResource> nsOp = mock(NonNamespaceOperation.class);
+        PodResource podResource = mock(PodResource.class);
+        when(client.pods()).thenReturn(podOp);
+        when(podOp.inNamespace("cache-namespace")).thenReturn(nsOp);
+        when(nsOp.withName("cache-pod")).thenReturn(podResource);
+        when(podResource.get()).thenReturn(pod);
+
+        var podType = KubeEndpointSlicesDiscovery.KubeDiscoveryNodeType.POD;
+        assertSame(pod, discovery.getKubeObject(podType, "cache-namespace", "cache-pod"));
+        assertSame(pod, discovery.getKubeObject(podType, "cache-namespace", "cache-pod"));
+        verify(podResource, times(1)).get();
+
+        // a slice newly referring to the Pod invalidates its cache entry
+        EndpointSlice slice = mock(EndpointSlice.class);
+        ObjectMeta sliceMeta = mock(ObjectMeta.class);
+        when(sliceMeta.getNamespace()).thenReturn("cache-namespace");
+        when(sliceMeta.getName()).thenReturn("cache-slice");
+        when(slice.getMetadata()).thenReturn(sliceMeta);
+        Endpoint endpoint = mock(Endpoint.class);
+        ObjectReference targetRef = mock(ObjectReference.class);
+        when(targetRef.getNamespace()).thenReturn("cache-namespace");
+        when(targetRef.getName()).thenReturn("cache-pod");
+        when(targetRef.getKind()).thenReturn("Pod");
+        when(endpoint.getTargetRef()).thenReturn(targetRef);
+        when(slice.getEndpoints()).thenReturn(List.of(endpoint));
+        discovery.onAdd(slice);
+
+        assertSame(pod, discovery.getKubeObject(podType, "cache-namespace", "cache-pod"));
+        verify(podResource, times(2)).get();
+
+        // unchanged references across a slice update keep their cache entries
+        discovery.onUpdate(slice, slice);
+        assertSame(pod, discovery.getKubeObject(podType, "cache-namespace", "cache-pod"));
+        verify(podResource, times(2)).get();
+    }
+
     @Test
     @SuppressWarnings("unchecked") // Mockito mock() requires unchecked cast for generic types
     void testGetOwnershipLineageWithStringParametersForPod() {
@@ -992,6 +1084,89 @@ class KubeEndpointSlicesDiscoveryTest extends AbstractTransactionalTestBase {
         }
     }
 
+    @Test
+    void testEndpointSliceInformerEventsCoalescedPerNamespace() {
+        clearInvocations(bus);
+        EndpointSlice slice = mock(EndpointSlice.class);
+        ObjectMeta sliceMeta = mock(ObjectMeta.class);
+        when(sliceMeta.getNamespace()).thenReturn("coalesced-namespace");
+        when(sliceMeta.getName()).thenReturn("coalesced-slice");
+        when(slice.getMetadata()).thenReturn(sliceMeta);
+
+        discovery.onAdd(slice);
+        discovery.onUpdate(slice, slice);
+        discovery.onDelete(slice, false);
+        discovery.onAdd(slice);
+
+        verify(bus, after(1000).times(1))
+                .publish(
+                        anyString(),
+                        eq(
+                                KubeEndpointSlicesDiscovery.NamespaceQueryEvent.from(
+                                        "coalesced-namespace")));
+    }
+
+    @Test
+    void testNamespaceLocksAreIndependent() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean holderDone = new AtomicBoolean();
+        Thread holder =
+                new Thread(
+                        () ->
+                                QuarkusTransaction.requiringNew()
+                                        .run(
+                                                () -> {
+                                                    discovery.lockNamespace("locked-namespace");
+                                                    locked.countDown();
+                                                    try {
+                                                        release.await(5, TimeUnit.SECONDS);
+                                                    } catch (InterruptedException e) {
+                                                        Thread.currentThread().interrupt();
+                                                    }
+                                                    holderDone.set(true);
+                                                }));
+        CountDownLatch contended = new CountDownLatch(1);
+        AtomicBoolean holderDoneWhenContendedLockTaken = new AtomicBoolean();
+        Thread contender =
+                new Thread(
+                        () ->
+                                QuarkusTransaction.requiringNew()
+                                        .run(
+                                                () -> {
+                                                    discovery.lockNamespace("locked-namespace");
+                                                    holderDoneWhenContendedLockTaken.set(
+                                                            holderDone.get());
+                                                    contended.countDown();
+                                                }));
+        holder.start();
+        try {
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+            // a different namespace must not be blocked by the held lock, and locks are reentrant
+            // within a transaction
+            assertTimeoutPreemptively(
+                    Duration.ofSeconds(2),
+                    () ->
+                            QuarkusTransaction.requiringNew()
+                                    .run(
+                                            () -> {
+                                                discovery.lockNamespace("other-namespace");
+                                                discovery.lockNamespace("other-namespace");
+                                            }));
+
+            // the same namespace must wait until the holding transaction completes
+            contender.start();
+            assertFalse(contended.await(1, TimeUnit.SECONDS));
+            release.countDown();
+            assertTrue(contended.await(5, TimeUnit.SECONDS));
+            assertTrue(holderDoneWhenContendedLockTaken.get());
+        } finally {
+            release.countDown();
+            holder.join(5000);
+            contender.join(5000);
+        }
+    }
+
     @Test
     @Transactional
     void testHandleQueryEventIgnoredDuringShutdown() {
@@ -1023,37 +1198,30 @@ class KubeEndpointSlicesDiscoveryTest extends AbstractTransactionalTestBase {
     }
 
     @Test
-    @Transactional
-    void testHandleEndpointEventIgnoredDuringShutdown() {
+    void testCoalescedNamespaceSyncIgnoredDuringShutdown() {
+        clearInvocations(bus);
+        EndpointSlice slice = mock(EndpointSlice.class);
+        ObjectMeta sliceMeta = mock(ObjectMeta.class);
+        when(sliceMeta.getNamespace()).thenReturn("shutdown-namespace");
+        when(sliceMeta.getName()).thenReturn("shutdown-slice");
+        when(slice.getMetadata()).thenReturn(sliceMeta);
+        long nodeCountBefore = QuarkusTransaction.requiringNew().call(() -> DiscoveryNode.count());
+        long targetCountBefore = QuarkusTransaction.requiringNew().call(() -> Target.count());
+
+        // the informer event schedules a sync, but shutdown begins before the coalescing window
+        // has elapsed
+        discovery.onAdd(slice);
         discovery.setShuttingDown(true);
 
         try {
-            long nodeCountBefore = DiscoveryNode.count();
-            long targetCountBefore = Target.count();
-
-            Target target = new Target();
-            target.connectUrl =
-                    URI.create("service:jmx:rmi:///jndi/rmi://192.168.1.100:9091/jmxrmi");
-            target.alias = "ignored-target";
-            target.labels = new HashMap<>();
-            target.annotations = new Target.Annotations();
-
-            KubeEndpointSlicesDiscovery.EndpointDiscoveryEvent event =
-                    KubeEndpointSlicesDiscovery.EndpointDiscoveryEvent.from(
-                            "test-namespace", target, null, Target.EventKind.LOST);
-
-            discovery.handleEndpointEvent(event);
-
-            entityManager.flush();
-            entityManager.clear();
-
+            verify(bus, after(1000).never()).publish(anyString(), any());
             assertEquals(
                     nodeCountBefore,
-                    DiscoveryNode.count(),
+                    QuarkusTransaction.requiringNew().call(() -> DiscoveryNode.count()),
                     "Should not create DiscoveryNodes while shutting down");
             assertEquals(
                     targetCountBefore,
-                    Target.count(),
+                    QuarkusTransaction.requiringNew().call(() -> Target.count()),
                     "Should not create Targets while shutting down");
         } finally {
             discovery.setShuttingDown(false);
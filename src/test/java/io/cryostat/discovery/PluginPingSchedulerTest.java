@@ -0,0 +1,262 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import io.cryostat.discovery.PluginPingScheduler.ConcurrencyLimiter;
+import io.cryostat.discovery.PluginPingScheduler.Outcome;
+import io.cryostat.discovery.PluginPingScheduler.PingResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PluginPingSchedulerTest {
+
+    static final Duration PING_PERIOD = Duration.ofMillis(50);
+    static final Duration WINDOW = Duration.ofSeconds(10);
+
+    final AtomicLong clock = new AtomicLong();
+    final Map<UUID, AtomicInteger> pings = new ConcurrentHashMap<>();
+    PluginPingScheduler scheduler;
+
+    @AfterEach
+    void stop() {
+        if (scheduler != null) {
+            scheduler.onStop(null);
+        }
+    }
+
+    @Test
+    void testLimitGrowsByOnePerWindowOfSuccesses() throws Exception {
+        ConcurrencyLimiter limiter = limiter(4, 8);
+        Assertions.assertEquals(4, limiter.limit());
+
+        complete(limiter, Outcome.SUCCESS, 4);
+        Assertions.assertTrue(limiter.limit() < 5);
+        complete(limiter, Outcome.SUCCESS, 1);
+        Assertions.assertEquals(5, (int) limiter.limit());
+
+        // failed pings still completed in time, so they are not a sign of overload
+        complete(limiter, Outcome.FAILURE, 5);
+        Assertions.assertEquals(6, (int) limiter.limit());
+    }
+
+    @Test
+    void testLimitBoundedByMinAndMax() throws Exception {
+        ConcurrencyLimiter limiter = limiter(2, 3);
+        complete(limiter, Outcome.SUCCESS, 100);
+        Assertions.assertEquals(3, limiter.limit());
+
+        for (int i = 0; i < 5; i++) {
+            clock.addAndGet(WINDOW.toNanos());
+            complete(limiter, Outcome.TIMEOUT, 1);
+        }
+        Assertions.assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    void testTimeoutsHalveLimitOncePerWindow() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 16);
+        complete(limiter, Outcome.SUCCESS, 200);
+        Assertions.assertEquals(16, limiter.limit());
+
+        // pings which were in flight together time out together
+        complete(limiter, Outcome.TIMEOUT, 8);
+        Assertions.assertEquals(8, limiter.limit());
+
+        clock.addAndGet(WINDOW.toNanos() - 1);
+        complete(limiter, Outcome.TIMEOUT, 1);
+        Assertions.assertEquals(8, limiter.limit());
+
+        clock.addAndGet(1);
+        complete(limiter, Outcome.TIMEOUT, 2);
+        Assertions.assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void testSkippedPingsDoNotChangeLimit() throws Exception {
+        ConcurrencyLimiter limiter = limiter(4, 8);
+        complete(limiter, Outcome.SKIPPED, 10);
+        complete(limiter, Outcome.REMOVED, 10);
+        Assertions.assertEquals(4, limiter.limit());
+        Assertions.assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testAcquireWaitsForRelease() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 1);
+        limiter.acquire();
+
+        CompletableFuture<Void> second =
+                CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                limiter.acquire();
+                            } catch (InterruptedException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+        Thread.sleep(200);
+        Assertions.assertFalse(second.isDone());
+
+        limiter.release(Outcome.SUCCESS);
+        second.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, limiter.inFlight());
+    }
+
+    @Test
+    void testPingsScheduledPluginsRepeatedly() throws Exception {
+        scheduler = create(4, id -> next(Outcome.SUCCESS));
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        scheduler.schedule(first);
+        scheduler.schedule(second);
+
+        awaitCondition(() -> count(first) >= 3 && count(second) >= 3);
+    }
+
+    @Test
+    void testUnscheduledPluginNotPingedAgain() throws Exception {
+        scheduler = create(4, id -> next(Outcome.SUCCESS));
+        UUID id = UUID.randomUUID();
+        scheduler.schedule(id);
+        awaitCondition(() -> count(id) >= 1);
+
+        scheduler.unschedule(id);
+        int unscheduledAt = count(id);
+        Thread.sleep(PING_PERIOD.multipliedBy(6).toMillis());
+
+        // a ping which was already dispatched may still run, but is not rescheduled
+        Assertions.assertTrue(count(id) <= unscheduledAt + 1);
+    }
+
+    @Test
+    void testRemovedPluginNotRescheduled() throws Exception {
+        scheduler = create(4, id -> new PingResult(Outcome.REMOVED, null));
+        UUID id = UUID.randomUUID();
+        scheduler.schedule(id);
+        awaitCondition(() -> count(id) >= 1);
+
+        Thread.sleep(PING_PERIOD.multipliedBy(6).toMillis());
+        Assertions.assertEquals(1, count(id));
+    }
+
+    @Test
+    void testPingsInFlightLimited() throws Exception {
+        CountDownLatch answer = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        scheduler =
+                create(
+                        2,
+                        id -> {
+                            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            try {
+                                answer.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } finally {
+                                inFlight.decrementAndGet();
+                            }
+                            return next(Outcome.SUCCESS);
+                        });
+        UUID[] ids = new UUID[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+            scheduler.schedule(ids[i]);
+        }
+
+        awaitCondition(() -> inFlight.get() == 2);
+        Thread.sleep(PING_PERIOD.multipliedBy(4).toMillis());
+        Assertions.assertEquals(2, pings.values().stream().mapToInt(AtomicInteger::get).sum());
+
+        answer.countDown();
+        for (UUID id : ids) {
+            awaitCondition(() -> count(id) >= 1);
+        }
+        Assertions.assertEquals(2, maxInFlight.get());
+    }
+
+    private ConcurrencyLimiter limiter(int min, int max) {
+        return new ConcurrencyLimiter(min, max, WINDOW, clock::get);
+    }
+
+    private static void complete(ConcurrencyLimiter limiter, Outcome outcome, int count)
+            throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            limiter.acquire();
+            limiter.release(outcome);
+        }
+    }
+
+    private PluginPingScheduler create(int concurrency, Function<UUID, PingResult> pinger) {
+        PluginPingScheduler scheduler =
+                new PluginPingScheduler() {
+                    @Override
+                    PingResult ping(UUID pluginId) {
+                        pings.computeIfAbsent(pluginId, k -> new AtomicInteger()).incrementAndGet();
+                        return pinger.apply(pluginId);
+                    }
+                };
+        scheduler.logger = mock(Logger.class);
+        scheduler.meterRegistry = new SimpleMeterRegistry();
+        scheduler.pingPeriod = PING_PERIOD;
+        scheduler.maxConsecutiveFailures = 3;
+        scheduler.maxBackoffMultiplier = 5;
+        scheduler.timeoutMs = WINDOW.toMillis();
+        scheduler.startupGracePeriodMs = 0;
+        scheduler.minConcurrency = concurrency;
+        scheduler.maxConcurrency = concurrency;
+        scheduler.jitter = 0;
+        scheduler.start();
+        return scheduler;
+    }
+
+    private static PingResult next(Outcome outcome) {
+        return new PingResult(outcome, Instant.now().plus(PING_PERIOD));
+    }
+
+    private int count(UUID id) {
+        AtomicInteger count = pings.get(id);
+        return count == null ? 0 : count.get();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "timed out awaiting condition");
+            Thread.sleep(10);
+        }
+    }
+}
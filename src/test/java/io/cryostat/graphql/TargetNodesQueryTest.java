@@ -0,0 +1,196 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.graphql;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.cryostat.discovery.DiscoveryNode;
+import io.cryostat.graphql.RootNode.DiscoveryNodeFilter;
+import io.cryostat.resources.S3StorageResource;
+import io.cryostat.targets.Target;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Tests that targetNodes filters evaluated by the database select exactly the targets that {@link
+ * DiscoveryNodeFilter#test} selects in Java.
+ */
+@QuarkusTest
+@QuarkusTestResource(value = S3StorageResource.class, restrictToAnnotatedClass = true)
+class TargetNodesQueryTest extends AbstractGraphQLTestBase {
+
+    static final Set<String> FIXTURES = Set.of("alpha", "beta", "gamma", "delta");
+
+    @BeforeEach
+    void createTargets() {
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            create(
+                                    "alpha",
+                                    Map.of("app", "web", "tier", "frontend"),
+                                    Map.of("zone", "east"),
+                                    Map.of("REALM", "Custom Targets", "HOST", "alpha"));
+                            // platform annotations take precedence over cryostat annotations
+                            create(
+                                    "beta",
+                                    Map.of("app", "db", "tier", "backend"),
+                                    Map.of("REALM", "Platform", "zone", "west"),
+                                    Map.of("REALM", "KubernetesApi"));
+                            create("gamma", Map.of("app", "web"), Map.of(), Map.of());
+                            create(
+                                    "delta",
+                                    Map.of("app.kubernetes.io/name", "delta"),
+                                    Map.of(),
+                                    Map.of("REALM", "Custom Targets"));
+                        });
+    }
+
+    static Stream<Arguments> filters() {
+        return Stream.of(
+                // label equality selectors
+                Arguments.of(Map.of("labels", List.of("app = web")), Set.of("alpha", "gamma")),
+                Arguments.of(Map.of("labels", List.of("app == db")), Set.of("beta")),
+                Arguments.of(Map.of("labels", List.of("app != web")), Set.of("beta", "delta")),
+                Arguments.of(
+                        Map.of("labels", List.of("app.kubernetes.io/name = delta")),
+                        Set.of("delta")),
+                Arguments.of(
+                        Map.of("labels", List.of("app = web", "tier = frontend")),
+                        Set.of("alpha")),
+                // label set and existence selectors
+                Arguments.of(
+                        Map.of("labels", List.of("app in (web, db)")),
+                        Set.of("alpha", "beta", "gamma")),
+                Arguments.of(
+                        Map.of("labels", List.of("app notin (web)")), Set.of("beta", "delta")),
+                Arguments.of(Map.of("labels", List.of("tier")), Set.of("alpha", "beta")),
+                Arguments.of(Map.of("labels", List.of("!tier")), Set.of("gamma", "delta")),
+                // annotation selectors, against the merged platform and cryostat annotations
+                Arguments.of(
+                        Map.of("annotations", List.of("REALM = Custom Targets")),
+                        Set.of("alpha", "delta")),
+                Arguments.of(Map.of("annotations", List.of("REALM = Platform")), Set.of("beta")),
+                Arguments.of(Map.of("annotations", List.of("REALM = KubernetesApi")), Set.of()),
+                Arguments.of(Map.of("annotations", List.of("zone")), Set.of("alpha", "beta")),
+                Arguments.of(Map.of("annotations", List.of("!zone")), Set.of("gamma", "delta")),
+                Arguments.of(
+                        Map.of("annotations", List.of("zone in (east, west)", "HOST")),
+                        Set.of("alpha")),
+                Arguments.of(
+                        Map.of("annotations", List.of("zone notin (east)")),
+                        Set.of("beta", "gamma", "delta")),
+                // list parameters, alone and combined with selectors
+                Arguments.of(
+                        Map.of(
+                                "aliases",
+                                List.of("alpha", "beta", "gamma"),
+                                "labels",
+                                List.of("app = web")),
+                        Set.of("alpha", "gamma")),
+                Arguments.of(
+                        Map.of("names", List.of(connectUrl("beta"), connectUrl("delta"))),
+                        Set.of("beta", "delta")),
+                Arguments.of(
+                        Map.of(
+                                "nodeTypes",
+                                List.of("JVM"),
+                                "annotations",
+                                List.of("REALM = Custom Targets")),
+                        Set.of("alpha", "delta")),
+                Arguments.of(Map.of("aliases", List.of()), Set.of()),
+                Arguments.of(Map.of(), FIXTURES));
+    }
+
+    @ParameterizedTest
+    @MethodSource("filters")
+    void testFilterMatchesJavaFilter(Map<String, List<String>> filter, Set<String> expected)
+            throws Exception {
+        Set<String> javaResult = javaFilter(filter);
+        Set<String> fixtures = new HashSet<>(javaResult);
+        fixtures.retainAll(FIXTURES);
+        assertThat(fixtures, equalTo(expected));
+
+        List<String> aliases =
+                graphql(
+                                String.format(
+                                        "query { targetNodes(filter: %s) { target { alias } } }",
+                                        graphqlFilter(filter)))
+                        .getList("data.targetNodes.target.alias", String.class);
+
+        assertThat(aliases, hasSize(javaResult.size()));
+        assertThat(Set.copyOf(aliases), equalTo(javaResult));
+    }
+
+    private Set<String> javaFilter(Map<String, List<String>> filter) {
+        DiscoveryNodeFilter predicate = mapper.convertValue(filter, DiscoveryNodeFilter.class);
+        return QuarkusTransaction.requiringNew()
+                .call(
+                        () ->
+                                Target.<Target>listAll().stream()
+                                        .filter(t -> predicate.test(t.discoveryNode))
+                                        .map(t -> t.alias)
+                                        .collect(Collectors.toSet()));
+    }
+
+    private static String graphqlFilter(Map<String, List<String>> filter) {
+        return filter.entrySet().stream()
+                .map(e -> String.format("%s: %s", e.getKey(), new JsonArray(e.getValue()).encode()))
+                .collect(Collectors.joining(", ", "{ ", " }"));
+    }
+
+    private static String connectUrl(String alias) {
+        return String.format("service:jmx:rmi:///jndi/rmi://%s:9091/jmxrmi", alias);
+    }
+
+    private static void create(
+            String alias,
+            Map<String, String> labels,
+            Map<String, String> platform,
+            Map<String, String> cryostat) {
+        DiscoveryNode node = new DiscoveryNode();
+        node.name = connectUrl(alias);
+        node.nodeType = "JVM";
+        node.labels = labels;
+        node.persist();
+
+        Target target = new Target();
+        target.alias = alias;
+        target.jvmId = String.format("jvm-%s", alias);
+        target.connectUrl = URI.create(node.name);
+        target.labels = Map.of();
+        target.annotations = new Target.Annotations(platform, cryostat);
+        target.discoveryNode = node;
+        node.target = target;
+        target.persist();
+    }
+}
@@ -124,4 +124,22 @@ class LabelSelectorMatcherTest {
         LabelSelectorMatcher matcher = LabelSelectorMatcher.parse(expr);
         MatcherAssert.assertThat(expr, matcher.test(TEST_LABELS), Matchers.is(pass));
     }
+
+    @ParameterizedTest
+    @CsvSource(
+            value = {
+                "foo=bar ; ($.\"foo\" == \"bar\")",
+                "my.prefixed/label != expectedValue ; (!($.\"my.prefixed/label\" =="
+                        + " \"expectedValue\"))",
+                "env in (qa, prod) ; (($.\"env\" == \"prod\" || $.\"env\" == \"qa\"))",
+                "env notin (qa) ; (!($.\"env\" == \"qa\"))",
+                "present ; (exists($.\"present\"))",
+                "!present ; (!(exists($.\"present\")))",
+                "quo\"te = back\\slash ; ($.\"quo\\\"te\" == \"back\\\\slash\")",
+            },
+            delimiter = ';')
+    void testToJsonPath(String expr, String path) {
+        LabelSelectorMatcher matcher = LabelSelectorMatcher.parse(expr);
+        MatcherAssert.assertThat(expr, matcher.toJsonPath(), Matchers.equalTo(path));
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.List;
+
+import io.cryostat.AbstractTransactionalTestBase;
+import io.cryostat.resources.S3StorageResource;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+@QuarkusTest
+@QuarkusTestResource(value = S3StorageResource.class, restrictToAnnotatedClass = true)
+class ArchivedRecordingReconcilerTest extends AbstractTransactionalTestBase {
+
+    static final String TEST_JVM_ID = "reconciler-jvmid";
+    static final String TEST_FILENAME = "out-of-band.jfr";
+
+    @Inject ArchivedRecordingReconciler reconciler;
+    @Inject RecordingHelper recordingHelper;
+    @Inject S3Client s3;
+
+    @ConfigProperty(name = "storage.buckets.archives.name")
+    String bucket;
+
+    @AfterEach
+    void cleanup() {
+        s3.deleteObject(
+                DeleteObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(RecordingHelper.archivedRecordingKey(TEST_JVM_ID, TEST_FILENAME))
+                        .build());
+    }
+
+    @Test
+    void shouldCatalogObjectsWrittenOutOfBand() {
+        s3.putObject(
+                PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(RecordingHelper.archivedRecordingKey(TEST_JVM_ID, TEST_FILENAME))
+                        .build(),
+                RequestBody.fromBytes(new byte[] {1, 2, 3, 4}));
+
+        assertThat(recordingHelper.listArchivedRecordings(TEST_JVM_ID), empty());
+
+        reconciler.reconcile();
+
+        List<ArchivedRecordings.ArchivedRecording> recordings =
+                recordingHelper.listArchivedRecordings(TEST_JVM_ID);
+        assertThat(recordings, hasSize(1));
+        assertThat(recordings.get(0).name(), equalTo(TEST_FILENAME));
+        assertThat(recordings.get(0).size(), equalTo(4L));
+        assertThat(recordings.get(0).archivedTime(), greaterThan(0L));
+    }
+
+    @Test
+    void shouldRemoveCatalogEntriesForMissingObjects() throws Exception {
+        s3.putObject(
+                PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(RecordingHelper.archivedRecordingKey(TEST_JVM_ID, TEST_FILENAME))
+                        .build(),
+                RequestBody.fromBytes(new byte[] {1, 2, 3, 4}));
+        reconciler.reconcile();
+        assertThat(recordingHelper.listArchivedRecordings(TEST_JVM_ID), hasSize(1));
+
+        cleanup();
+        // entries created within the same millisecond as the reconciliation pass are skipped
+        Thread.sleep(5);
+        reconciler.reconcile();
+
+        assertThat(recordingHelper.listArchivedRecordings(TEST_JVM_ID), empty());
+    }
+}
@@ -17,14 +17,22 @@ package io.cryostat.recordings;
 
 import static io.restassured.RestAssured.given;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
 import io.cryostat.AbstractTransactionalTestBase;
+import io.cryostat.recordings.ActiveRecordings.Metadata;
 import io.cryostat.resources.S3StorageResource;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 @QuarkusTest
@@ -32,6 +40,10 @@ import org.junit.jupiter.api.Test;
 @QuarkusTestResource(value = S3StorageResource.class, restrictToAnnotatedClass = true)
 public class ArchivedRecordingsTest extends AbstractTransactionalTestBase {
 
+    static final String TEST_JVM_ID = "paging-jvmid";
+
+    @Inject RecordingHelper recordingHelper;
+
     @Test
     void testListNone() {
         given().log()
@@ -134,4 +146,150 @@ public class ArchivedRecordingsTest extends AbstractTransactionalTestBase {
                 .assertThat()
                 .statusCode(404);
     }
+
+    @Test
+    void testListPaged() {
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            catalog("one.jfr", 30, 1_000, Map.of("env", "prod"));
+                            catalog("two.jfr", 10, 2_000, Map.of("env", "prod"));
+                            catalog("three.jfr", 20, 3_000, Map.of("env", "dev"));
+                        });
+
+        String cursor =
+                given().log()
+                        .all()
+                        .when()
+                        .queryParam("limit", 2)
+                        .get("/api/v4/recordings")
+                        .then()
+                        .assertThat()
+                        .statusCode(200)
+                        .body("name", Matchers.contains("three.jfr", "two.jfr"))
+                        .header(ArchivedRecordings.NEXT_CURSOR_HEADER, Matchers.notNullValue())
+                        .extract()
+                        .header(ArchivedRecordings.NEXT_CURSOR_HEADER);
+
+        given().log()
+                .all()
+                .when()
+                .queryParam("limit", 2)
+                .queryParam("cursor", cursor)
+                .get("/api/v4/recordings")
+                .then()
+                .assertThat()
+                .statusCode(200)
+                .body("name", Matchers.contains("one.jfr"))
+                .header(ArchivedRecordings.NEXT_CURSOR_HEADER, Matchers.nullValue());
+    }
+
+    @Test
+    void testListSortedAndFiltered() {
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            catalog("one.jfr", 30, 1_000, Map.of("env", "prod"));
+                            catalog("two.jfr", 10, 2_000, Map.of("env", "prod"));
+                            catalog("three.jfr", 20, 3_000, Map.of("env", "dev"));
+                        });
+
+        given().log()
+                .all()
+                .when()
+                .queryParam("sort", "size")
+                .queryParam("label", "env=prod")
+                .get("/api/v4/recordings")
+                .then()
+                .assertThat()
+                .statusCode(200)
+                .body("name", Matchers.contains("two.jfr", "one.jfr"));
+
+        given().log()
+                .all()
+                .when()
+                .queryParam("sort", "name")
+                .get("/api/beta/fs/recordings/" + TEST_JVM_ID)
+                .then()
+                .assertThat()
+                .statusCode(200)
+                .body("size()", Matchers.equalTo(1))
+                .body(
+                        "[0].recordings.name",
+                        Matchers.contains("one.jfr", "three.jfr", "two.jfr"));
+    }
+
+    @Test
+    void testListPagedInvalid() {
+        given().log()
+                .all()
+                .when()
+                .queryParam("limit", 0)
+                .get("/api/v4/recordings")
+                .then()
+                .assertThat()
+                .statusCode(400);
+
+        given().log()
+                .all()
+                .when()
+                .queryParam("sort", "color")
+                .get("/api/v4/recordings")
+                .then()
+                .assertThat()
+                .statusCode(400);
+
+        given().log()
+                .all()
+                .when()
+                .queryParam("cursor", "abcd1234")
+                .get("/api/v4/recordings")
+                .then()
+                .assertThat()
+                .statusCode(400);
+    }
+
+    @Test
+    void testAgentDeleteFallsBackToStorage() throws Exception {
+        Path recordingFile = Files.createTempFile("agent-delete-uncataloged", ".jfr");
+        Files.write(recordingFile, new byte[] {1, 2, 3});
+        try {
+            recordingHelper.uploadArchivedRecording(
+                    "uploads",
+                    new TestFileUpload("uncataloged.jfr", recordingFile),
+                    new Metadata(Map.of()));
+            // simulate an object which the catalog does not know about yet
+            QuarkusTransaction.requiringNew()
+                    .run(
+                            () ->
+                                    ArchivedRecordingInfo.delete(
+                                            "jvmId = ?1 and filename = ?2",
+                                            "uploads",
+                                            "uncataloged.jfr"));
+
+            given().log()
+                    .all()
+                    .when()
+                    .delete("/api/beta/recordings/uploads/uncataloged.jfr")
+                    .then()
+                    .assertThat()
+                    .statusCode(204);
+
+            Assertions.assertTrue(
+                    recordingHelper
+                            .getArchivedRecordingInfo("uploads", "uncataloged.jfr")
+                            .isEmpty());
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
+    private static void catalog(
+            String filename, long size, long lastModified, Map<String, String> labels) {
+        var info = ArchivedRecordingInfo.of(TEST_JVM_ID, filename, null);
+        info.size = size;
+        info.lastModified = lastModified;
+        info.metadata = new Metadata(labels);
+        info.persist();
+    }
 }
@@ -24,6 +24,7 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import io.cryostat.AbstractTransactionalTestBase;
 import io.cryostat.resources.S3StorageResource;
@@ -39,6 +40,8 @@ import org.junit.jupiter.api.Test;
 @QuarkusTestResource(value = S3StorageResource.class, restrictToAnnotatedClass = true)
 class RecordingHelperTest extends AbstractTransactionalTestBase {
 
+    static final String CATALOG_JVM_ID = "catalog-jvmid";
+
     @Inject RecordingHelper recordingHelper;
 
     @Test
@@ -86,6 +89,47 @@ class RecordingHelperTest extends AbstractTransactionalTestBase {
         }
     }
 
+    @Test
+    void shouldLookUpArchivedRecordingMissingFromCatalog() throws Exception {
+        Path recordingFile = Files.createTempFile("recording-helper-lookup", ".jfr");
+        Files.write(recordingFile, new byte[] {1, 2, 3, 4, 5});
+
+        try {
+            ActiveRecordings.Metadata metadata =
+                    new ActiveRecordings.Metadata(Map.of("purpose", "direct-lookup"));
+            recordingHelper.uploadArchivedRecording(
+                    selfJvmId, new TestFileUpload("direct-lookup.jfr", recordingFile), metadata);
+
+            var cataloged =
+                    recordingHelper.getArchivedRecordingInfo(selfJvmId, "direct-lookup.jfr");
+            assertThat(cataloged.isPresent(), is(true));
+            assertThat(cataloged.get().size(), is(5L));
+
+            // simulate an object which the catalog does not know about yet
+            QuarkusTransaction.requiringNew()
+                    .run(
+                            () ->
+                                    ArchivedRecordingInfo.delete(
+                                            "jvmId = ?1 and filename = ?2",
+                                            selfJvmId,
+                                            "direct-lookup.jfr"));
+
+            var stored = recordingHelper.getArchivedRecordingInfo(selfJvmId, "direct-lookup.jfr");
+            assertThat(stored.isPresent(), is(true));
+            assertThat(stored.get().size(), is(5L));
+            assertThat(stored.get().metadata().labels().get("purpose"), is("direct-lookup"));
+
+            assertThat(
+                    recordingHelper
+                            .getArchivedRecordingInfo(selfJvmId, "nonexistent.jfr")
+                            .isEmpty(),
+                    is(true));
+        } finally {
+            recordingHelper.deleteArchivedRecording(selfJvmId, "direct-lookup.jfr");
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
     @Test
     void shouldIncludeConfiguredDurationInActiveRecordingMetadata() throws Exception {
         long recordingId = 42L;
@@ -216,4 +260,126 @@ class RecordingHelperTest extends AbstractTransactionalTestBase {
             Files.deleteIfExists(recordingFile);
         }
     }
+
+    @Test
+    void shouldCompleteUnreconciledCatalogEntriesOnDemand() throws Exception {
+        Path recordingFile = Files.createTempFile("recording-helper-unreconciled", ".jfr");
+        Files.write(recordingFile, new byte[] {1, 2, 3});
+
+        try {
+            recordingHelper.uploadArchivedRecording(
+                    CATALOG_JVM_ID,
+                    new TestFileUpload("unreconciled.jfr", recordingFile),
+                    new ActiveRecordings.Metadata(Map.of("purpose", "unreconciled")));
+            // simulate entries created by the catalog migration, before the reconciler has run
+            QuarkusTransaction.requiringNew()
+                    .run(
+                            () -> {
+                                ArchivedRecordingInfo.update(
+                                        "metadata = null, size = 0, lastModified = 0"
+                                                + " where jvmId = ?1",
+                                        CATALOG_JVM_ID);
+                                ArchivedRecordingInfo.of(CATALOG_JVM_ID, "gone.jfr", null)
+                                        .persist();
+                            });
+
+            List<ArchivedRecordings.ArchivedRecording> listed =
+                    recordingHelper.listArchivedRecordings(CATALOG_JVM_ID);
+
+            assertThat(
+                    listed.stream().map(ArchivedRecordings.ArchivedRecording::name).toList(),
+                    contains("unreconciled.jfr"));
+            assertThat(listed.get(0).metadata().labels().get("purpose"), is("unreconciled"));
+            assertThat(listed.get(0).size(), is(3L));
+            assertThat(listed.get(0).archivedTime(), greaterThan(0L));
+            assertThat(
+                    QuarkusTransaction.requiringNew()
+                            .call(() -> ArchivedRecordingInfo.listIncomplete(CATALOG_JVM_ID)),
+                    empty());
+        } finally {
+            recordingHelper.deleteArchivedRecording(CATALOG_JVM_ID, "unreconciled.jfr");
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
+    @Test
+    void shouldEvaluateLabelSelectorsInCatalogQuery() {
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            catalog("a.jfr", Map.of("env", "prod", "team", "a"));
+                            catalog("b.jfr", Map.of("env", "dev"));
+                            catalog("c.jfr", Map.of("env", "prod"));
+                            catalog("d.jfr", null);
+                        });
+
+        assertThat(
+                names(listByName(List.of("env in (prod, dev)", "!team"), null)),
+                contains("b.jfr", "c.jfr"));
+        // entries without metadata have no labels, so they do match a negated selector
+        assertThat(names(listByName(List.of("env!=prod"), null)), contains("b.jfr", "d.jfr"));
+        assertThat(
+                names(listByName(List.of("env=prod"), r -> !r.name().equals("a.jfr"))),
+                contains("c.jfr"));
+    }
+
+    @Test
+    void shouldCapScanOfFilteredPage() {
+        int count = 1001;
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            for (int i = 0; i < count; i++) {
+                                catalog(String.format("scan-%04d.jfr", i), Map.of());
+                            }
+                        });
+        String wanted = String.format("scan-%04d.jfr", count - 1);
+
+        // the only match lies beyond the scan cap, so the page is empty but not the last one
+        ArchivedRecordings.ArchivedRecordingPage first =
+                recordingHelper.listArchivedRecordings(
+                        CATALOG_JVM_ID,
+                        ArchivedRecordingInfo.SortKey.NAME,
+                        false,
+                        null,
+                        1,
+                        null,
+                        r -> r.name().equals(wanted));
+        assertThat(first.data(), empty());
+        assertThat(first.nextCursor(), notNullValue());
+
+        ArchivedRecordings.ArchivedRecordingPage second =
+                recordingHelper.listArchivedRecordings(
+                        CATALOG_JVM_ID,
+                        ArchivedRecordingInfo.SortKey.NAME,
+                        false,
+                        first.nextCursor(),
+                        1,
+                        null,
+                        r -> r.name().equals(wanted));
+        assertThat(names(second), contains(wanted));
+        assertThat(second.nextCursor(), nullValue());
+    }
+
+    private ArchivedRecordings.ArchivedRecordingPage listByName(
+            List<String> labels, Predicate<ArchivedRecordings.ArchivedRecording> filter) {
+        return recordingHelper.listArchivedRecordings(
+                CATALOG_JVM_ID,
+                ArchivedRecordingInfo.SortKey.NAME,
+                false,
+                null,
+                10,
+                labels,
+                filter);
+    }
+
+    private static List<String> names(ArchivedRecordings.ArchivedRecordingPage page) {
+        return page.data().stream().map(ArchivedRecordings.ArchivedRecording::name).toList();
+    }
+
+    private static void catalog(String filename, Map<String, String> labels) {
+        var info = ArchivedRecordingInfo.of(CATALOG_JVM_ID, filename, null);
+        info.metadata = labels == null ? null : new ActiveRecordings.Metadata(labels);
+        info.persist();
+    }
 }
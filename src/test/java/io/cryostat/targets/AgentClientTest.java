@@ -0,0 +1,228 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.targets;
+
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AgentClientTest {
+
+    static final URI AGENT_URL = URI.create("http://sample-app:9977");
+    static final URI OTHER_AGENT_URL = URI.create("http://other-app:9977");
+
+    List<AgentRestClient> built = new CopyOnWriteArrayList<>();
+    List<UniEmitter<? super Response>> pending = new CopyOnWriteArrayList<>();
+    // the agent answers immediately unless a test makes it wait for the test to answer instead
+    volatile boolean answerImmediately = true;
+
+    @Test
+    void testClientSharedBetweenAgentClients() throws Exception {
+        AgentClient.Factory factory = create(Duration.ofHours(1), 0);
+
+        Assertions.assertTrue(ping(factory.create(target(AGENT_URL))));
+        Assertions.assertTrue(ping(factory.create(target(AGENT_URL))));
+        Assertions.assertTrue(ping(factory.create(target(OTHER_AGENT_URL))));
+
+        Assertions.assertEquals(2, built.size());
+    }
+
+    @Test
+    void testIdleEvictedClientClosedImmediately() throws Exception {
+        AgentClient.Factory factory = create(Duration.ofHours(1), 0);
+        AgentClient client = factory.create(target(AGENT_URL));
+        Assertions.assertTrue(ping(client));
+
+        evictAll(factory);
+
+        verify(closeable(0), timeout(5_000)).close();
+        // the same AgentClient transparently uses a replacement
+        Assertions.assertTrue(ping(client));
+        Assertions.assertEquals(2, built.size());
+        verify(closeable(1), never()).close();
+    }
+
+    @Test
+    void testClientExpiredDuringRequestClosedOnceItCompletes() throws Exception {
+        AgentClient.Factory factory = create(Duration.ofMillis(100), 0);
+        AgentClient client = factory.create(target(AGENT_URL));
+        CompletableFuture<Boolean> result = pingPending(client);
+
+        // a long download outlives the idle timeout
+        Thread.sleep(300);
+        factory.clients.cleanUp();
+        Assertions.assertEquals(0, factory.clients.estimatedSize());
+        verify(closeable(0), after(200).never()).close();
+
+        pending.get(0).complete(response(200));
+        Assertions.assertTrue(result.get(5, TimeUnit.SECONDS));
+        verify(closeable(0), timeout(5_000)).close();
+    }
+
+    @Test
+    void testClientEvictedDuringRequestClosedOnceItCompletes() throws Exception {
+        AgentClient.Factory factory = create(Duration.ofHours(1), 0);
+        AgentClient client = factory.create(target(AGENT_URL));
+        CompletableFuture<Boolean> first = pingPending(client);
+        CompletableFuture<Boolean> second = pingPending(client);
+
+        evictAll(factory);
+        verify(closeable(0), after(200).never()).close();
+
+        pending.get(1).complete(response(200));
+        Assertions.assertTrue(second.get(5, TimeUnit.SECONDS));
+        verify(closeable(0), after(200).never()).close();
+
+        pending.get(0).complete(response(200));
+        Assertions.assertTrue(first.get(5, TimeUnit.SECONDS));
+        verify(closeable(0), timeout(5_000)).close();
+        Assertions.assertEquals(1, built.size());
+    }
+
+    @Test
+    void testCancelledRequestReleasesClient() throws Exception {
+        AgentClient.Factory factory = create(Duration.ofHours(1), 0);
+        AgentClient client = factory.create(target(AGENT_URL));
+        answerImmediately = false;
+        Cancellable subscription = client.ping().subscribe().with(item -> {}, failure -> {});
+
+        evictAll(factory);
+        verify(closeable(0), after(200).never()).close();
+
+        subscription.cancel();
+        verify(closeable(0), timeout(5_000)).close();
+    }
+
+    @Test
+    void testFailedRequestReleasesClient() throws Exception {
+        AgentClient.Factory factory = create(Duration.ofHours(1), 0);
+        AgentClient client = factory.create(target(AGENT_URL));
+        CompletableFuture<Boolean> result = pingPending(client);
+
+        evictAll(factory);
+        pending.get(0).fail(new IllegalStateException("connection reset"));
+
+        Assertions.assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+        verify(closeable(0), timeout(5_000)).close();
+    }
+
+    @Test
+    void testUnsubscribedRequestDoesNotHoldClient() throws Exception {
+        AgentClient.Factory factory = create(Duration.ofHours(1), 0);
+        AgentClient client = factory.create(target(AGENT_URL));
+        Assertions.assertTrue(ping(client));
+        client.ping();
+
+        evictAll(factory);
+
+        verify(closeable(0), timeout(5_000)).close();
+    }
+
+    @Test
+    void testMaximumClientsLimitsCachedClients() throws Exception {
+        AgentClient.Factory factory = create(Duration.ofHours(1), 1);
+
+        Assertions.assertTrue(ping(factory.create(target(AGENT_URL))));
+        Assertions.assertTrue(ping(factory.create(target(OTHER_AGENT_URL))));
+        factory.clients.cleanUp();
+
+        Assertions.assertEquals(1, factory.clients.estimatedSize());
+        Assertions.assertEquals(2, built.size());
+    }
+
+    private AgentClient.Factory create(Duration idleTimeout, long maxClients) {
+        AgentClient.Factory factory =
+                new AgentClient.Factory() {
+                    @Override
+                    AgentRestClient build(URI uri) {
+                        AgentRestClient client =
+                                mock(
+                                        AgentRestClient.class,
+                                        withSettings().extraInterfaces(AutoCloseable.class));
+                        when(client.ping())
+                                .thenAnswer(
+                                        invocation ->
+                                                answerImmediately
+                                                        ? Uni.createFrom().item(response(200))
+                                                        : Uni.createFrom()
+                                                                .<Response>emitter(pending::add));
+                        built.add(client);
+                        return client;
+                    }
+                };
+        factory.mapper = new ObjectMapper();
+        factory.logger = mock(Logger.class);
+        factory.timeout = Duration.ofSeconds(10);
+        factory.idleTimeout = idleTimeout;
+        factory.maxClients = maxClients;
+        factory.init();
+        return factory;
+    }
+
+    private static boolean ping(AgentClient client) {
+        return client.ping().await().atMost(Duration.ofSeconds(5));
+    }
+
+    private CompletableFuture<Boolean> pingPending(AgentClient client) {
+        answerImmediately = false;
+        int waiting = pending.size();
+        // subscribing sends the request, which then holds the client until it is answered
+        CompletableFuture<Boolean> result = client.ping().subscribeAsCompletionStage();
+        Assertions.assertEquals(waiting + 1, pending.size());
+        return result;
+    }
+
+    private static void evictAll(AgentClient.Factory factory) {
+        factory.clients.invalidateAll();
+        factory.clients.cleanUp();
+    }
+
+    private AutoCloseable closeable(int index) {
+        return (AutoCloseable) built.get(index);
+    }
+
+    private static Response response(int status) {
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(status);
+        return response;
+    }
+
+    private static Target target(URI connectUrl) {
+        Target target = new Target();
+        target.connectUrl = connectUrl;
+        return target;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.targets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.net.URI;
+import java.time.Duration;
+
+import io.cryostat.targets.TargetCircuitBreakers.State;
+import io.cryostat.targets.TargetCircuitBreakers.TargetCircuitOpenException;
+import io.cryostat.ws.MessagingServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TargetCircuitBreakersTest {
+
+    static final URI CONNECT_URL = URI.create("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+
+    @Mock EventBus bus;
+    @Mock Logger logger;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testOpensAfterConsecutiveFailures() throws Exception {
+        TargetCircuitBreakers breakers = create(Duration.ofMinutes(1));
+
+        breakers.onFailure(CONNECT_URL);
+        breakers.onFailure(CONNECT_URL);
+        breakers.acquire(CONNECT_URL);
+        Assertions.assertEquals(State.CLOSED, breakers.getState(CONNECT_URL));
+
+        breakers.onFailure(CONNECT_URL);
+        Assertions.assertEquals(State.OPEN, breakers.getState(CONNECT_URL));
+        Assertions.assertThrows(
+                TargetCircuitOpenException.class, () -> breakers.acquire(CONNECT_URL));
+        verify(bus).publish(eq(MessagingServer.class.getName()), any());
+        Assertions.assertEquals(
+                1,
+                meterRegistry
+                        .get(TargetCircuitBreakers.TRANSITIONS_METRIC)
+                        .tag("state", "OPEN")
+                        .counter()
+                        .count());
+    }
+
+    @Test
+    void testSuccessResetsFailureCount() throws Exception {
+        TargetCircuitBreakers breakers = create(Duration.ofMinutes(1));
+
+        breakers.onFailure(CONNECT_URL);
+        breakers.onFailure(CONNECT_URL);
+        breakers.onSuccess(CONNECT_URL);
+        breakers.onFailure(CONNECT_URL);
+
+        Assertions.assertEquals(State.CLOSED, breakers.getState(CONNECT_URL));
+        breakers.acquire(CONNECT_URL);
+    }
+
+    @Test
+    void testHalfOpenAdmitsSingleTrial() throws Exception {
+        TargetCircuitBreakers breakers = create(Duration.ZERO);
+        open(breakers);
+
+        breakers.acquire(CONNECT_URL);
+        Assertions.assertEquals(State.HALF_OPEN, breakers.getState(CONNECT_URL));
+        Assertions.assertThrows(
+                TargetCircuitOpenException.class, () -> breakers.acquire(CONNECT_URL));
+
+        breakers.onSuccess(CONNECT_URL);
+        Assertions.assertEquals(State.CLOSED, breakers.getState(CONNECT_URL));
+        breakers.acquire(CONNECT_URL);
+        verify(bus, times(3)).publish(eq(MessagingServer.class.getName()), any());
+    }
+
+    @Test
+    void testFailedTrialReopens() throws Exception {
+        TargetCircuitBreakers breakers = create(Duration.ZERO);
+        open(breakers);
+
+        breakers.acquire(CONNECT_URL);
+        breakers.onFailure(CONNECT_URL);
+        Assertions.assertEquals(State.OPEN, breakers.getState(CONNECT_URL));
+    }
+
+    @Test
+    void testInconclusiveTrialAdmitsAnother() throws Exception {
+        TargetCircuitBreakers breakers = create(Duration.ZERO);
+        open(breakers);
+
+        breakers.acquire(CONNECT_URL);
+        breakers.onInconclusive(CONNECT_URL);
+        Assertions.assertEquals(State.HALF_OPEN, breakers.getState(CONNECT_URL));
+        breakers.acquire(CONNECT_URL);
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        TargetCircuitBreakers breakers =
+                new TargetCircuitBreakers(0, Duration.ofMinutes(1), bus, meterRegistry, logger);
+
+        for (int i = 0; i < 10; i++) {
+            breakers.onFailure(CONNECT_URL);
+        }
+        Assertions.assertEquals(State.CLOSED, breakers.getState(CONNECT_URL));
+        breakers.acquire(CONNECT_URL);
+    }
+
+    private TargetCircuitBreakers create(Duration openDuration) {
+        return new TargetCircuitBreakers(3, openDuration, bus, meterRegistry, logger);
+    }
+
+    private void open(TargetCircuitBreakers breakers) {
+        for (int i = 0; i < 3; i++) {
+            breakers.onFailure(CONNECT_URL);
+        }
+        Assertions.assertEquals(State.OPEN, breakers.getState(CONNECT_URL));
+    }
+}
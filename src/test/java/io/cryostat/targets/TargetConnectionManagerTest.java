@@ -0,0 +1,580 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.targets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.remote.JMXServiceURL;
+
+import io.cryostat.core.net.JFRConnection;
+import io.cryostat.core.net.JFRConnectionToolkit;
+import io.cryostat.credentials.Credential;
+import io.cryostat.credentials.CredentialsFinder;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TargetConnectionManagerTest {
+
+    static final URI CONNECT_URL = URI.create("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+    static final URI OTHER_URL = URI.create("service:jmx:rmi:///jndi/rmi://localhost:1/jmxrmi");
+    static final URI AGENT_URL = URI.create("http://localhost:9977");
+    static final Duration LONG_TIMEOUT = Duration.ofSeconds(10);
+    static final Duration SHORT_TIMEOUT = Duration.ofMillis(300);
+
+    @Mock JFRConnectionToolkit toolkit;
+    @Mock CredentialsFinder credentialsFinder;
+    @Mock AgentConnection.Factory agentConnectionFactory;
+    @Mock EventBus bus;
+    @Mock Logger logger;
+
+    ExecutorService executor = Executors.newCachedThreadPool();
+
+    List<JFRConnection> opened = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        lenient()
+                .when(toolkit.connect(any(JMXServiceURL.class), any(), anyList()))
+                .thenAnswer(
+                        invocation -> {
+                            JFRConnection connection = mock(JFRConnection.class);
+                            opened.add(connection);
+                            return connection;
+                        });
+    }
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testTasksBeyondPerTargetLimitWait() throws Exception {
+        TargetConnectionManager manager = create(2, 1, LONG_TIMEOUT);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+
+        Future<?> first = submit(manager, CONNECT_URL, blocking(started, release));
+        Future<?> second = submit(manager, CONNECT_URL, blocking(started, release));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch third = new CountDownLatch(1);
+        Future<?> waiting = submit(manager, CONNECT_URL, conn -> countDown(third));
+        Assertions.assertFalse(third.await(200, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(
+                Map.of(CONNECT_URL, 2), manager.getStatistics().inFlightTasks());
+
+        // the limit applies to each target separately
+        Assertions.assertEquals(
+                "other", execute(manager, OTHER_URL, conn -> "other", LONG_TIMEOUT));
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        waiting.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(0, third.getCount());
+        Assertions.assertEquals(Map.of(), manager.getStatistics().inFlightTasks());
+    }
+
+    @Test
+    void testWaitingTasksRunInArrivalOrder() throws Exception {
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> holder = submit(manager, CONNECT_URL, blocking(started, release));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<Future<?>> waiters = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            waiters.add(submit(manager, CONNECT_URL, conn -> order.add(n)));
+            // let each waiter queue for the permit before the next arrives
+            Thread.sleep(100);
+        }
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        for (Future<?> waiter : waiters) {
+            waiter.get(5, TimeUnit.SECONDS);
+        }
+        Assertions.assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    void testWaitingForTaskPermitTimesOut() throws Exception {
+        TargetConnectionManager manager = create(1, 1, SHORT_TIMEOUT);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> holder = submit(manager, CONNECT_URL, blocking(started, release));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        BulkheadException ex =
+                Assertions.assertThrows(
+                        BulkheadException.class,
+                        () -> execute(manager, CONNECT_URL, conn -> "late", LONG_TIMEOUT));
+        Assertions.assertTrue(ex.getMessage().contains("task slot"), ex.getMessage());
+        // not retried, and answered with 429 Too Many Requests by the exception mapper
+        Assertions.assertTrue(manager.isPropagatedFailure(ex));
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(
+                "next", execute(manager, CONNECT_URL, conn -> "next", LONG_TIMEOUT));
+    }
+
+    @Test
+    void testGlobalEstablishingLimit() throws Exception {
+        TargetConnectionManager manager = create(1, 1, SHORT_TIMEOUT);
+        CountDownLatch connecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        lenient()
+                .when(toolkit.connect(any(JMXServiceURL.class), any(), anyList()))
+                .thenAnswer(
+                        invocation -> {
+                            connecting.countDown();
+                            release.await();
+                            return mock(JFRConnection.class);
+                        })
+                .thenAnswer(invocation -> mock(JFRConnection.class));
+
+        Future<JFRConnection> first =
+                executor.submit(() -> manager.connect(CONNECT_URL, Optional.empty()));
+        Assertions.assertTrue(connecting.await(5, TimeUnit.SECONDS));
+
+        // a different target still waits for the single connection attempt slot
+        BulkheadException ex =
+                Assertions.assertThrows(
+                        BulkheadException.class,
+                        () -> manager.connect(OTHER_URL, Optional.empty()));
+        Assertions.assertTrue(ex.getMessage().contains("open a connection"), ex.getMessage());
+
+        release.countDown();
+        Assertions.assertNotNull(first.get(5, TimeUnit.SECONDS));
+        Assertions.assertNotNull(manager.connect(OTHER_URL, Optional.empty()));
+    }
+
+    @Test
+    void testEvictedConnectionClosedOnceIdle() throws Exception {
+        TargetConnectionManager manager = create(2, 1, LONG_TIMEOUT);
+        JFRConnection evicted = mock(JFRConnection.class);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        Future<?> first = submit(manager, CONNECT_URL, blocking(started, release));
+        Future<?> second = submit(manager, CONNECT_URL, blocking(started, release));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        manager.closeConnection(CONNECT_URL, evicted, RemovalCause.SIZE);
+        verify(evicted, never()).close();
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        verify(evicted, timeout(5_000).times(1)).close();
+    }
+
+    @Test
+    void testFanOutKeepsCachedConnectionsBounded() throws Exception {
+        int maxOpen = 4;
+        int targets = 5 * maxOpen;
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT, maxOpen);
+
+        for (int i = 0; i < targets; i++) {
+            URI connectUrl =
+                    URI.create(
+                            String.format("service:jmx:rmi:///jndi/rmi://localhost:%d/jmxrmi", i));
+            execute(manager, connectUrl, conn -> null, LONG_TIMEOUT);
+        }
+        Assertions.assertEquals(targets, opened.size());
+
+        // evictions are processed asynchronously, and every evicted connection is closed
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (closedCount() < targets - maxOpen && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(targets - maxOpen, closedCount());
+        Assertions.assertEquals(maxOpen, manager.getStatistics().openConnections());
+    }
+
+    @Test
+    void testIdleEvictedConnectionClosedImmediately() throws Exception {
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT);
+        execute(manager, CONNECT_URL, conn -> null, LONG_TIMEOUT);
+        JFRConnection evicted = mock(JFRConnection.class);
+
+        manager.closeConnection(CONNECT_URL, evicted, RemovalCause.SIZE);
+
+        verify(evicted).close();
+    }
+
+    @Test
+    void testExplicitlyRemovedConnectionClosedImmediately() throws Exception {
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT);
+        JFRConnection removed = mock(JFRConnection.class);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> holder = submit(manager, CONNECT_URL, blocking(started, release));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // a lost target or a credential change must close the connection even while it is in use
+        manager.closeConnection(CONNECT_URL, removed, RemovalCause.EXPLICIT);
+        verify(removed).close();
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testNestedTaskOnSameTargetDoesNotDeadlock() throws Exception {
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT);
+        Target target = target(CONNECT_URL);
+
+        String result =
+                Assertions.assertTimeoutPreemptively(
+                        Duration.ofSeconds(5),
+                        () ->
+                                manager.executeConnectedTask(
+                                        target,
+                                        outer ->
+                                                manager.executeConnectedTask(
+                                                        target,
+                                                        inner ->
+                                                                manager.executeConnectedTask(
+                                                                        target, c -> "inner"))));
+
+        Assertions.assertEquals("inner", result);
+        Assertions.assertEquals(Map.of(), manager.getStatistics().inFlightTasks());
+    }
+
+    @Test
+    void testNestedTaskOnOtherTargetTakesItsOwnPermit() throws Exception {
+        TargetConnectionManager manager = create(1, 1, SHORT_TIMEOUT);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> holder = submit(manager, OTHER_URL, blocking(started, release));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Assertions.assertThrows(
+                BulkheadException.class,
+                () ->
+                        execute(
+                                manager,
+                                CONNECT_URL,
+                                conn ->
+                                        manager.executeConnectedTask(
+                                                target(OTHER_URL), c -> "other"),
+                                LONG_TIMEOUT));
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testCredentialChangeClosesOnlyConnectionsResolvedToIt() throws Exception {
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT);
+        URI thirdUrl = URI.create("service:jmx:rmi:///jndi/rmi://localhost:2/jmxrmi");
+        for (URI url : List.of(CONNECT_URL, OTHER_URL, thirdUrl)) {
+            execute(manager, url, conn -> null, LONG_TIMEOUT);
+        }
+        Credential credential = new Credential();
+        credential.id = 1L;
+        when(credentialsFinder.removeConnectUrls(1L)).thenReturn(Set.of(CONNECT_URL, thirdUrl));
+
+        manager.onCredentialsUpdated(credential);
+
+        verify(opened.get(0), timeout(5_000)).close();
+        verify(opened.get(2), timeout(5_000)).close();
+        verify(opened.get(1), never()).close();
+        verify(credentialsFinder, never()).removeConnectUrlsWithoutCredentials();
+
+        // the next task against an invalidated target opens a new connection
+        execute(manager, CONNECT_URL, conn -> null, LONG_TIMEOUT);
+        execute(manager, OTHER_URL, conn -> null, LONG_TIMEOUT);
+        Assertions.assertEquals(4, opened.size());
+    }
+
+    @Test
+    void testCredentialDeletionClosesOnlyConnectionsResolvedToIt() throws Exception {
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT);
+        execute(manager, CONNECT_URL, conn -> null, LONG_TIMEOUT);
+        execute(manager, OTHER_URL, conn -> null, LONG_TIMEOUT);
+        Credential credential = new Credential();
+        credential.id = 1L;
+        when(credentialsFinder.removeConnectUrls(1L)).thenReturn(Set.of(OTHER_URL));
+
+        manager.onCredentialsDeleted(credential);
+
+        verify(opened.get(1), timeout(5_000)).close();
+        verify(opened.get(0), never()).close();
+    }
+
+    @Test
+    void testStoredCredentialClosesOnlyConnectionsWithoutCredentials() throws Exception {
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT);
+        execute(manager, CONNECT_URL, conn -> null, LONG_TIMEOUT);
+        execute(manager, OTHER_URL, conn -> null, LONG_TIMEOUT);
+        Credential credential = new Credential();
+        credential.id = 1L;
+        when(credentialsFinder.removeConnectUrlsWithoutCredentials())
+                .thenReturn(Set.of(CONNECT_URL));
+
+        manager.onCredentialsStored(credential);
+
+        verify(opened.get(0), timeout(5_000)).close();
+        verify(opened.get(1), never()).close();
+        verify(credentialsFinder, never()).removeConnectUrls(anyLong());
+    }
+
+    @Test
+    void testCredentialChangeWithNoConnectionsClosesNothing() throws Exception {
+        TargetConnectionManager manager = create(1, 1, LONG_TIMEOUT);
+        execute(manager, CONNECT_URL, conn -> null, LONG_TIMEOUT);
+        Credential credential = new Credential();
+        credential.id = 1L;
+        when(credentialsFinder.removeConnectUrls(1L)).thenReturn(Set.of());
+
+        manager.onCredentialsUpdated(credential);
+        execute(manager, CONNECT_URL, conn -> null, LONG_TIMEOUT);
+
+        verify(opened.get(0), never()).close();
+        Assertions.assertEquals(1, opened.size());
+    }
+
+    @Test
+    void testAsyncTaskHoldsPermitUntilItTerminates() throws Exception {
+        TargetConnectionManager manager = create(1, 1, SHORT_TIMEOUT);
+        AtomicReference<UniEmitter<? super String>> emitter = new AtomicReference<>();
+        CompletableFuture<String> result =
+                manager.executeConnectedTaskAsync(
+                                target(AGENT_URL),
+                                conn -> Uni.createFrom().<String>emitter(emitter::set))
+                        .subscribeAsCompletionStage();
+        awaitInFlight(manager, Map.of(AGENT_URL, 1));
+
+        Assertions.assertThrows(
+                BulkheadException.class,
+                () -> executeAsync(manager, conn -> Uni.createFrom().item("late")));
+
+        emitter.get().complete("done");
+        Assertions.assertEquals("done", result.get(5, TimeUnit.SECONDS));
+        awaitInFlight(manager, Map.of());
+        Assertions.assertEquals(
+                "next", executeAsync(manager, conn -> Uni.createFrom().item("next")));
+    }
+
+    @Test
+    void testAsyncTaskReleasesPermitWhenCancelled() throws Exception {
+        TargetConnectionManager manager = create(1, 1, SHORT_TIMEOUT);
+        Cancellable subscription =
+                manager.executeConnectedTaskAsync(
+                                target(AGENT_URL), conn -> Uni.createFrom().<String>nothing())
+                        .subscribe()
+                        .with(item -> {}, failure -> {});
+        awaitInFlight(manager, Map.of(AGENT_URL, 1));
+
+        subscription.cancel();
+
+        awaitInFlight(manager, Map.of());
+        Assertions.assertEquals(
+                "next", executeAsync(manager, conn -> Uni.createFrom().item("next")));
+    }
+
+    @Test
+    void testAsyncTaskReleasesPermitWhenTimedOut() throws Exception {
+        TargetConnectionManager manager = create(1, 1, SHORT_TIMEOUT);
+
+        // as callers bound the whole task, including any wait for a permit
+        CompletionException ex =
+                Assertions.assertThrows(
+                        CompletionException.class,
+                        () ->
+                                manager.executeConnectedTaskAsync(
+                                                target(AGENT_URL),
+                                                conn -> Uni.createFrom().<String>nothing())
+                                        .ifNoItem()
+                                        .after(Duration.ofMillis(100))
+                                        .fail()
+                                        .await()
+                                        .atMost(Duration.ofSeconds(5)));
+        Assertions.assertInstanceOf(TimeoutException.class, ex.getCause());
+
+        awaitInFlight(manager, Map.of());
+        Assertions.assertEquals(
+                "next", executeAsync(manager, conn -> Uni.createFrom().item("next")));
+    }
+
+    @Test
+    void testAsyncTaskReleasesPermitWhenFailed() throws Exception {
+        TargetConnectionManager manager = create(1, 1, SHORT_TIMEOUT);
+
+        Assertions.assertThrows(
+                IllegalStateException.class,
+                () ->
+                        executeAsync(
+                                manager,
+                                conn ->
+                                        Uni.createFrom()
+                                                .failure(new IllegalStateException("failed"))));
+        Assertions.assertThrows(
+                IllegalStateException.class,
+                () ->
+                        executeAsync(
+                                manager,
+                                conn -> {
+                                    throw new IllegalStateException("thrown");
+                                }));
+
+        awaitInFlight(manager, Map.of());
+        Assertions.assertEquals(
+                "next", executeAsync(manager, conn -> Uni.createFrom().item("next")));
+    }
+
+    private TargetConnectionManager create(
+            int maxTasksPerTarget, int maxEstablishing, Duration failedTimeout) {
+        return create(maxTasksPerTarget, maxEstablishing, failedTimeout, 10);
+    }
+
+    private TargetConnectionManager create(
+            int maxTasksPerTarget, int maxEstablishing, Duration failedTimeout, long maxOpen) {
+        return new TargetConnectionManager(
+                toolkit,
+                credentialsFinder,
+                agentConnectionFactory,
+                new TargetCircuitBreakers(
+                        0, Duration.ofMinutes(1), bus, new SimpleMeterRegistry(), logger),
+                Duration.ofMinutes(5),
+                Duration.ofMillis(50),
+                failedTimeout,
+                maxOpen,
+                maxTasksPerTarget,
+                maxEstablishing,
+                new SimpleMeterRegistry(),
+                logger) {
+            // skip the credentials and agent target lookups, which require a transaction
+            @Override
+            JFRConnection connect(URI connectUrl) throws Exception {
+                if (AgentConnection.isAgentConnection(connectUrl)) {
+                    return mock(JFRConnection.class);
+                }
+                return connect(connectUrl, Optional.empty());
+            }
+        };
+    }
+
+    private Future<?> submit(
+            TargetConnectionManager manager,
+            URI connectUrl,
+            TargetConnectionManager.ConnectedTask<?> task) {
+        return executor.submit(() -> execute(manager, connectUrl, task, LONG_TIMEOUT));
+    }
+
+    private static <T> T execute(
+            TargetConnectionManager manager,
+            URI connectUrl,
+            TargetConnectionManager.ConnectedTask<T> task,
+            Duration timeout) {
+        return manager.executeConnectedTask(target(connectUrl), task, timeout);
+    }
+
+    private static String executeAsync(
+            TargetConnectionManager manager,
+            TargetConnectionManager.ConnectedTaskAsync<String> task) {
+        return manager.executeConnectedTaskAsync(target(AGENT_URL), task)
+                .await()
+                .atMost(LONG_TIMEOUT);
+    }
+
+    private static void awaitInFlight(TargetConnectionManager manager, Map<URI, Integer> expected)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!expected.equals(manager.getStatistics().inFlightTasks())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(expected, manager.getStatistics().inFlightTasks());
+    }
+
+    private long closedCount() {
+        return opened.stream()
+                .filter(
+                        c ->
+                                mockingDetails(c).getInvocations().stream()
+                                        .anyMatch(i -> i.getMethod().getName().equals("close")))
+                .count();
+    }
+
+    private static TargetConnectionManager.ConnectedTask<Void> blocking(
+            CountDownLatch started, CountDownLatch release) {
+        return conn -> {
+            started.countDown();
+            release.await();
+            return null;
+        };
+    }
+
+    private static Void countDown(CountDownLatch latch) {
+        latch.countDown();
+        return null;
+    }
+
+    private static Target target(URI connectUrl) {
+        Target target = new Target();
+        target.connectUrl = connectUrl;
+        return target;
+    }
+}